@@ -0,0 +1,136 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Traffic recorded from real Asterisk servers that the benchmarks replay.
+ * <p>
+ * The fixtures are stored with plain newlines, {@link #crNl(String)} restores
+ * the "\r\n" delimiter used on the wire by the Manager API.
+ *
+ * @since 3.40.0
+ */
+public final class Fixtures {
+    /**
+     * A Manager API session: banner, login, a call from ringing to the CDR
+     * and the response to a Status action.
+     */
+    public static final String AMI_SESSION = "ami-session.txt";
+
+    /**
+     * The environment sent by Asterisk for a FastAGI request.
+     */
+    public static final String AGI_REQUEST = "agi-request.txt";
+
+    /**
+     * Replies to AGI commands, separated by empty lines.
+     */
+    public static final String AGI_REPLIES = "agi-replies.txt";
+
+    /**
+     * A dialplan.
+     */
+    public static final String EXTENSIONS_CONF = "extensions.conf";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the lines of a fixture without line delimiters.
+     *
+     * @param name the name of the fixture.
+     * @return the lines of the fixture.
+     */
+    public static List<String> lines(String name) {
+        final InputStream in = Fixtures.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalArgumentException("No such fixture: " + name);
+        }
+
+        final List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a fixture with "\r\n" as line delimiter.
+     *
+     * @param name the name of the fixture.
+     * @return the content of the fixture.
+     */
+    public static String crNl(String name) {
+        return join(name, "\r\n");
+    }
+
+    /**
+     * Returns a fixture with "\n" as line delimiter.
+     *
+     * @param name the name of the fixture.
+     * @return the content of the fixture.
+     */
+    public static String nl(String name) {
+        return join(name, "\n");
+    }
+
+    /**
+     * Splits a fixture at empty lines.
+     *
+     * @param name the name of the fixture.
+     * @return the blocks of lines, empty lines are not included.
+     */
+    public static List<List<String>> blocks(String name) {
+        final List<List<String>> blocks = new ArrayList<>();
+        List<String> block = new ArrayList<>();
+        for (String line : lines(name)) {
+            if (line.isEmpty()) {
+                if (!block.isEmpty()) {
+                    blocks.add(block);
+                    block = new ArrayList<>();
+                }
+            } else {
+                block.add(line);
+            }
+        }
+        if (!block.isEmpty()) {
+            blocks.add(block);
+        }
+        return blocks;
+    }
+
+    private static String join(String name, String delimiter) {
+        final StringBuilder sb = new StringBuilder();
+        for (String line : lines(name)) {
+            sb.append(line).append(delimiter);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi.internal;
+
+import org.asteriskjava.benchmarks.Fixtures;
+import org.asteriskjava.fastagi.AgiRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a recorded FastAGI request environment and of the replies to
+ * AGI commands, one request or reply per operation.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AgiParsingBenchmark {
+    private List<String> environment;
+    private List<List<String>> replies;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        environment = Fixtures.lines(Fixtures.AGI_REQUEST);
+        replies = Fixtures.blocks(Fixtures.AGI_REPLIES);
+    }
+
+    @Benchmark
+    public void parseRequest(Blackhole blackhole) {
+        final AgiRequest request = new AgiRequestImpl(environment);
+        blackhole.consume(request.getScript());
+        blackhole.consume(request.getChannel());
+        blackhole.consume(request.getUniqueId());
+        blackhole.consume(request.getCallerIdNumber());
+        blackhole.consume(request.getParameter("queue"));
+        blackhole.consume(request.getArguments());
+    }
+
+    @Benchmark
+    public void parseReply(Blackhole blackhole) {
+        final AgiReplyImpl reply = new AgiReplyImpl(replies.get(next));
+        next = next + 1 == replies.size() ? 0 : next + 1;
+        blackhole.consume(reply.getStatus());
+        blackhole.consume(reply.getResultCode());
+        blackhole.consume(reply.getExtra());
+        blackhole.consume(reply.getAttribute("endpos"));
+    }
+}
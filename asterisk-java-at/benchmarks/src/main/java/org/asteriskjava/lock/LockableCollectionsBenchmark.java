@@ -0,0 +1,132 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.lock;
+
+import org.asteriskjava.lock.Locker.LockCloser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of readers copying a lockable collection, the way the getters
+ * of the live API do, while a writer updates it like the event thread.
+ * <p>
+ * With <code>locked</code> the readers take the lock as required by
+ * {@link LockableMap} and {@link LockableList}, with <code>concurrent</code>
+ * they read {@link LockableConcurrentMap} and {@link LockableCopyOnWriteList}
+ * without it. The writer takes the lock in both cases. Compare the scores of
+ * the readers, JMH reports them per method of the group.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class LockableCollectionsBenchmark {
+    private static final int MAP_SIZE = 500;
+    private static final int LIST_SIZE = 20;
+
+    @Param({"locked", "concurrent"})
+    public String variant;
+
+    private boolean concurrent;
+    private LockableMap<String, Object> map;
+    private LockableList<Object> list;
+    private String[] keys;
+    private int nextKey;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        concurrent = "concurrent".equals(variant);
+        map = concurrent ? new LockableConcurrentMap<>() : new LockableMap<>(new HashMap<>());
+        list = concurrent ? new LockableCopyOnWriteList<>() : new LockableList<>(new ArrayList<>());
+
+        keys = new String[MAP_SIZE];
+        for (int i = 0; i < MAP_SIZE; i++) {
+            keys[i] = "SIP/" + i + "-00000001";
+            map.put(keys[i], new Object());
+        }
+        for (int i = 0; i < LIST_SIZE; i++) {
+            list.add(new Object());
+        }
+    }
+
+    @Benchmark
+    @Group("map")
+    @GroupThreads(3)
+    public List<Object> readMap() {
+        if (concurrent) {
+            return new ArrayList<>(map.values());
+        }
+        try (LockCloser closer = map.withLock()) {
+            return new ArrayList<>(map.values());
+        }
+    }
+
+    @Benchmark
+    @Group("map")
+    @GroupThreads(1)
+    public Object writeMap() {
+        final String key = keys[nextKey];
+        nextKey = nextKey + 1 == keys.length ? 0 : nextKey + 1;
+        try (LockCloser closer = map.withLock()) {
+            final Object value = map.remove(key);
+            return map.put(key, value);
+        }
+    }
+
+    @Benchmark
+    @Group("list")
+    @GroupThreads(3)
+    public List<Object> readList() {
+        if (concurrent) {
+            return new ArrayList<>(list);
+        }
+        try (LockCloser closer = list.withLock()) {
+            return new ArrayList<>(list);
+        }
+    }
+
+    @Benchmark
+    @Group("list")
+    @GroupThreads(1)
+    public Object writeList() {
+        try (LockCloser closer = list.withLock()) {
+            final Object entry = list.remove(0);
+            list.add(entry);
+            return entry;
+        }
+    }
+}
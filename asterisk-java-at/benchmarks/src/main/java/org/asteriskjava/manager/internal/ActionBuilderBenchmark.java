@@ -0,0 +1,107 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.AsteriskVersion;
+import org.asteriskjava.manager.action.CommandAction;
+import org.asteriskjava.manager.action.GetVarAction;
+import org.asteriskjava.manager.action.HangupAction;
+import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.manager.action.OriginateAction;
+import org.asteriskjava.manager.action.QueueAddAction;
+import org.asteriskjava.manager.action.RedirectAction;
+import org.asteriskjava.manager.action.SetVarAction;
+import org.asteriskjava.manager.action.StatusAction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a mix of actions typically sent by call control
+ * applications, one action per operation.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ActionBuilderBenchmark {
+    private ActionBuilderImpl actionBuilder;
+    private final List<ManagerAction> actions = new ArrayList<>();
+    private final StringBuilder reused = new StringBuilder(512);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        actionBuilder = new ActionBuilderImpl();
+        actionBuilder.setTargetVersion(AsteriskVersion.ASTERISK_16);
+
+        final OriginateAction originate = new OriginateAction();
+        originate.setChannel("PJSIP/1001");
+        originate.setContext("from-internal");
+        originate.setExten("2001");
+        originate.setPriority(1);
+        originate.setCallerId("\"Click to dial\" <2001>");
+        originate.setTimeout(30000L);
+        originate.setAsync(true);
+        originate.setVariable("AJ_TRACE_ID", "6f1c0b1e-4a51-4c35-9c27-0bd0e0c5b1f3");
+        originate.setVariable("CAMPAIGN", "autumn-2023");
+        actions.add(originate);
+        actions.add(new StatusAction());
+        actions.add(new GetVarAction("PJSIP/1001-00000a3c", "AJ_TRACE_ID"));
+        actions.add(new SetVarAction("PJSIP/1001-00000a3c", "CDR(userfield)", "vip"));
+        actions.add(new RedirectAction("PJSIP/1001-00000a3c", "from-internal", "7000", 1));
+        actions.add(new QueueAddAction("support", "PJSIP/1004", 0));
+        actions.add(new HangupAction("PJSIP/1002-00000a3d", 16));
+        actions.add(new CommandAction("core show channels concise"));
+    }
+
+    @Benchmark
+    public String buildAction() {
+        return actionBuilder.buildAction(nextAction(), "1");
+    }
+
+    /**
+     * The way {@link ManagerWriterImpl} serializes actions, into a builder
+     * that is reused.
+     */
+    @Benchmark
+    public int appendAction() {
+        reused.setLength(0);
+        actionBuilder.appendAction(reused, nextAction(), "1");
+        return reused.length();
+    }
+
+    private ManagerAction nextAction() {
+        final ManagerAction action = actions.get(next);
+        next = next + 1 == actions.size() ? 0 : next + 1;
+        return action;
+    }
+}
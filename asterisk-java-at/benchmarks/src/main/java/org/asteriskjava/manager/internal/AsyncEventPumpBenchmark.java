@@ -0,0 +1,105 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.benchmarks.Fixtures;
+import org.asteriskjava.manager.EventQueueOverflowPolicy;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the queue between the reader thread and the dispatcher
+ * thread. The queue blocks when full, so the score is bounded by the rate the
+ * events are delivered at and not just the rate they are queued at. There is
+ * a single producer like the reader thread of a connection.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class AsyncEventPumpBenchmark {
+    private final List<ManagerEvent> events = new ArrayList<>();
+    private final AtomicLong delivered = new AtomicLong();
+    private AsyncEventPump pump;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        events.addAll(ManagerFrames.buildEvents(this, Fixtures.crNl(Fixtures.AMI_SESSION)));
+
+        pump = new AsyncEventPump(this, new CountingDispatcher(delivered), "AsyncEventPumpBenchmark",
+                AsyncEventPump.DEFAULT_CAPACITY, EventQueueOverflowPolicy.BLOCK, Collections.emptySet(),
+                new EventQueueCounters());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pump.stop();
+    }
+
+    @Benchmark
+    public void dispatchEvent() {
+        final ManagerEvent event = events.get(next);
+        next = next + 1 == events.size() ? 0 : next + 1;
+        pump.dispatchEvent(event, null);
+    }
+
+    private static final class CountingDispatcher implements Dispatcher {
+        private final AtomicLong delivered;
+
+        CountingDispatcher(AtomicLong delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void dispatchResponse(ManagerResponse response, Integer requiredHandlingTime) {
+            delivered.incrementAndGet();
+        }
+
+        @Override
+        public void dispatchEvent(ManagerEvent event, Integer requiredHandlingTime) {
+            delivered.incrementAndGet();
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
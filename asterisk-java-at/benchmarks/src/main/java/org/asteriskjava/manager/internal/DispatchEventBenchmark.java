@@ -0,0 +1,81 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.benchmarks.Fixtures;
+import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatching the events of a recorded Manager API session to the listeners
+ * registered with a connection, one event per operation.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchEventBenchmark {
+    @Param({"1", "10", "100"})
+    private int listeners;
+
+    private final List<ManagerEvent> events = new ArrayList<>();
+    private ManagerConnectionImpl connection;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        connection = new ManagerConnectionImpl();
+        events.addAll(ManagerFrames.buildEvents(connection, Fixtures.crNl(Fixtures.AMI_SESSION)));
+        for (int i = 0; i < listeners; i++) {
+            connection.addEventListener(new CountingListener());
+        }
+    }
+
+    @Benchmark
+    public void dispatchEvent() {
+        final ManagerEvent event = events.get(next);
+        next = next + 1 == events.size() ? 0 : next + 1;
+        connection.dispatchEvent(event, null);
+    }
+
+    private static final class CountingListener implements ManagerEventListener {
+        private long received;
+
+        @Override
+        public void onManagerEvent(ManagerEvent event) {
+            received++;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame parsing of a recorded Manager API session as done by
+ * {@link ManagerReaderImpl}. Each invocation parses the whole session, a new
+ * map is used for every frame like the reader does when it hands the frame
+ * over.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManagerFrameParserBenchmark {
+    private ManagerFrames.ReplaySource source;
+    private ManagerFrameParser parser;
+
+    @Setup
+    public void setUp() {
+        source = new ManagerFrames.ReplaySource(
+                Fixtures.crNl(Fixtures.AMI_SESSION).getBytes(StandardCharsets.UTF_8));
+        parser = new ManagerFrameParser(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void parseSession(Blackhole blackhole) throws IOException {
+        source.rewind();
+        parser.setSource(source);
+
+        Map<String, Object> frame = new HashMap<>();
+        ManagerFrameParser.Token token;
+        while ((token = parser.next(frame)) != ManagerFrameParser.Token.END_OF_STREAM) {
+            if (token == ManagerFrameParser.Token.END_OF_FRAME) {
+                blackhole.consume(frame);
+                frame = new HashMap<>();
+            }
+        }
+    }
+}
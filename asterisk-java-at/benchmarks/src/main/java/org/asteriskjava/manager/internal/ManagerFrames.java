@@ -0,0 +1,176 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.util.SocketChannelConnectionFacade;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helpers to replay recorded Manager API traffic.
+ *
+ * @since 3.40.0
+ */
+final class ManagerFrames {
+    private ManagerFrames() {
+    }
+
+    /**
+     * Parses recorded traffic into frames the way {@link ManagerReaderImpl}
+     * does.
+     *
+     * @param traffic the recorded traffic with "\r\n" as line delimiter.
+     * @return the attributes of the frames, without the protocol identifier.
+     */
+    static List<Map<String, Object>> parse(String traffic) {
+        final ManagerFrameParser parser = new ManagerFrameParser(StandardCharsets.UTF_8);
+        parser.setSource(new ReplaySource(traffic.getBytes(StandardCharsets.UTF_8)));
+
+        final List<Map<String, Object>> frames = new ArrayList<>();
+        Map<String, Object> frame = new HashMap<>();
+        try {
+            ManagerFrameParser.Token token;
+            while ((token = parser.next(frame)) != ManagerFrameParser.Token.END_OF_STREAM) {
+                if (token == ManagerFrameParser.Token.END_OF_FRAME && !frame.isEmpty()) {
+                    frames.add(frame);
+                    frame = new HashMap<>();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frames;
+    }
+
+    /**
+     * Returns the frames that are events.
+     *
+     * @param frames the frames.
+     * @return the frames that have an "event" attribute.
+     */
+    static List<Map<String, Object>> events(List<Map<String, Object>> frames) {
+        final List<Map<String, Object>> events = new ArrayList<>();
+        for (Map<String, Object> frame : frames) {
+            if (frame.containsKey("event")) {
+                events.add(frame);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Builds the events of recorded traffic.
+     *
+     * @param source  the source of the events.
+     * @param traffic the recorded traffic with "\r\n" as line delimiter.
+     * @return the events, frames without a registered event class (like
+     * unknown user events) are skipped.
+     */
+    static List<ManagerEvent> buildEvents(Object source, String traffic) {
+        final EventBuilderImpl eventBuilder = new EventBuilderImpl();
+        final List<ManagerEvent> events = new ArrayList<>();
+        for (Map<String, Object> attributes : events(parse(traffic))) {
+            final ManagerEvent event = eventBuilder.buildEvent(source, attributes);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * A connection that plays back recorded bytes, it can be rewound to replay
+     * them again.
+     */
+    static final class ReplaySource implements SocketChannelConnectionFacade {
+        private final byte[] data;
+        private int position;
+
+        ReplaySource(byte[] data) {
+            this.data = data;
+        }
+
+        void rewind() {
+            position = 0;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position == data.length) {
+                return -1;
+            }
+            final int count = Math.min(dst.remaining(), data.length - position);
+            dst.put(data, position, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public String readLine() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(String s) {
+        }
+
+        @Override
+        public void write(ByteBuffer[] srcs) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public InetAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public int getLocalPort() {
+            return 0;
+        }
+
+        @Override
+        public InetAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int getRemotePort() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.manager.event.ConnectEvent;
+import org.asteriskjava.manager.event.ReloadEvent;
+import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
+import org.asteriskjava.util.ReflectionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of wrapping an asterisk-java event for the PBX API.
+ * <p>
+ * <code>registered</code> uses {@link CoherentEventFactory#build}, the
+ * <code>reflective</code> variant looks up and invokes the constructor of
+ * the wrapper like the factory did before the constructors were registered.
+ * <code>classpathScan</code> is the scan of the wrapper package the factory
+ * no longer does when it is initialized.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoherentEventFactoryBenchmark {
+    private org.asteriskjava.manager.event.ManagerEvent[] events;
+
+    @Setup
+    public void setUp() {
+        final ConnectEvent connectEvent = new ConnectEvent(this);
+        connectEvent.setProtocolIdentifier("Asterisk Call Manager/7.0.3");
+        events = new org.asteriskjava.manager.event.ManagerEvent[]{connectEvent, new ReloadEvent(this)};
+    }
+
+    @Benchmark
+    public void registered(Blackhole blackhole) {
+        for (org.asteriskjava.manager.event.ManagerEvent event : events) {
+            blackhole.consume(CoherentEventFactory.build(event));
+        }
+    }
+
+    @Benchmark
+    public void reflective(Blackhole blackhole) throws Exception {
+        for (org.asteriskjava.manager.event.ManagerEvent event : events) {
+            final Class<? extends ManagerEvent> target = CoherentEventFactory.mapEvents.get(event.getClass());
+            blackhole.consume(target.getDeclaredConstructor(event.getClass()).newInstance(event));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 20)
+    @Warmup(iterations = 0)
+    public Set<Class<ManagerEvent>> classpathScan() {
+        return ReflectionUtil.loadClasses("org.asteriskjava.pbx.asterisk.wrap.events", ManagerEvent.class);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util.internal.streamreader;
+
+import org.asteriskjava.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line scanning of a recorded Manager API session ("\r\n") and of a FastAGI
+ * request ("\n"). Each invocation scans the whole recording with a new
+ * scanner like a new connection does.
+ *
+ * @since 3.40.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FastScannerBenchmark {
+    private String amiSession;
+    private String agiRequest;
+
+    @Setup
+    public void setUp() {
+        amiSession = Fixtures.crNl(Fixtures.AMI_SESSION);
+        agiRequest = Fixtures.nl(Fixtures.AGI_REQUEST);
+    }
+
+    @Benchmark
+    public void scanCrNl(Blackhole blackhole) throws IOException {
+        scan(new FastScannerCrNl(new StringReader(amiSession)), blackhole);
+    }
+
+    @Benchmark
+    public void scanNl(Blackhole blackhole) throws IOException {
+        scan(new FastScannerNl(new StringReader(agiRequest)), blackhole);
+    }
+
+    private static void scan(FastScanner scanner, Blackhole blackhole) throws IOException {
+        String line;
+        while ((line = scanner.next()) != null) {
+            blackhole.consume(line);
+        }
+    }
+}
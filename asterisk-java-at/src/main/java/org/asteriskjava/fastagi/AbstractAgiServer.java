@@ -5,10 +5,15 @@ import org.asteriskjava.util.DaemonThreadFactory;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Abstract base class for FastAGI and AsyncAGI servers.
@@ -45,6 +50,23 @@ public abstract class AbstractAgiServer {
      */
     private ThreadPoolExecutor pool;
 
+    /**
+     * Whether each request is served on a new virtual thread instead of a
+     * thread of the pool.
+     */
+    private boolean useVirtualThreads = false;
+
+    /**
+     * Starts a virtual thread per request, <code>null</code> if virtual
+     * threads are not used or not supported by the JVM.
+     */
+    private ExecutorService virtualThreadExecutor;
+
+    /**
+     * The number of requests currently served on virtual threads.
+     */
+    private final AtomicInteger activeVirtualThreadCount = new AtomicInteger();
+
     /**
      * The strategy to use for mapping AgiRequests to AgiScripts that serve
      * them.
@@ -157,6 +179,33 @@ public abstract class AbstractAgiServer {
         this.maximumPoolSize = maximumPoolSize;
     }
 
+    /**
+     * Returns whether requests are served on virtual threads.
+     *
+     * @return <code>true</code> if requests are served on virtual threads.
+     * @since 3.40.0
+     */
+    public synchronized boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Set to <code>true</code> to serve each request on a new virtual thread
+     * instead of a thread of the pool. The number of concurrent requests is
+     * not limited by {@link #setMaximumPoolSize(int)} in that case, a blocked
+     * AgiScript only blocks its virtual thread.
+     * <p>
+     * Virtual threads require Java 21, on older JVMs the thread pool is used.
+     * This must be set before the server is started.<br>
+     * Default is <code>false</code>.
+     *
+     * @param useVirtualThreads <code>true</code> to use virtual threads.
+     * @since 3.40.0
+     */
+    public synchronized void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
     /**
      * Sets the strategy to use for mapping AgiRequests to AgiScripts that serve
      * them.
@@ -180,6 +229,9 @@ public abstract class AbstractAgiServer {
         if (pool != null) {
             pool.shutdown();
         }
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
     }
 
     @Override
@@ -188,13 +240,16 @@ public abstract class AbstractAgiServer {
         if (pool != null) {
             pool.shutdown();
         }
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
 
         super.finalize();
     }
 
     /**
-     * Execute the runnable using the configured ThreadPoolExecutor obtained
-     * from {@link #getPool()}.
+     * Execute the runnable on a new virtual thread if enabled or using the
+     * configured ThreadPoolExecutor obtained from {@link #getPool()}.
      *
      * @param command the command to run.
      * @throws RejectedExecutionException if the runnable can't be executed
@@ -205,7 +260,25 @@ public abstract class AbstractAgiServer {
             return;
         }
 
-        getPool().execute(command);
+        final Executor virtualThreads = getVirtualThreadExecutor();
+        if (virtualThreads == null) {
+            getPool().execute(command);
+            return;
+        }
+
+        activeVirtualThreadCount.incrementAndGet();
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    activeVirtualThreadCount.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            activeVirtualThreadCount.decrementAndGet();
+            throw e;
+        }
     }
 
     protected void handleException(String message, Exception e) {
@@ -221,6 +294,19 @@ public abstract class AbstractAgiServer {
         return pool;
     }
 
+    private synchronized Executor getVirtualThreadExecutor() {
+        if (virtualThreadExecutor == null && useVirtualThreads) {
+            virtualThreadExecutor = createVirtualThreadExecutor();
+            if (virtualThreadExecutor == null) {
+                logger.warn("Virtual threads are not supported by this JVM, using the thread pool.");
+                useVirtualThreads = false;
+            } else {
+                logger.info("Serving requests on virtual threads.");
+            }
+        }
+        return virtualThreadExecutor;
+    }
+
     /**
      * Returns the approximate number of AgiConnectionHandler threads that are
      * actively executing tasks.
@@ -230,6 +316,9 @@ public abstract class AbstractAgiServer {
      * @see org.asteriskjava.fastagi.internal.AgiConnectionHandler#AGI_CONNECTION_HANDLERS
      */
     public int getPoolActiveTaskCount() {
+        if (virtualThreadExecutor != null) {
+            return activeVirtualThreadCount.get();
+        }
         if (pool != null) {
             return pool.getActiveCount();
         }
@@ -237,6 +326,9 @@ public abstract class AbstractAgiServer {
     }// getPoolActiveCount
 
     public int getPoolActiveThreadCount() {
+        if (virtualThreadExecutor != null) {
+            return activeVirtualThreadCount.get();
+        }
         if (pool != null) {
             return pool.getPoolSize();
         }
@@ -264,4 +356,26 @@ public abstract class AbstractAgiServer {
         return new ThreadPoolExecutor(poolSize, (maximumPoolSize < poolSize) ? poolSize : maximumPoolSize, 50000L,
                 TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory());
     }
+
+    /**
+     * Creates the executor that starts a new virtual thread for each request
+     * if {@link #setUseVirtualThreads(boolean)} is enabled. The default
+     * implementation uses <code>Executors.newVirtualThreadPerTaskExecutor()</code>
+     * which is looked up at runtime as it requires Java 21.
+     *
+     * @return the executor or <code>null</code> if virtual threads are not
+     * supported.
+     * @since 3.40.0
+     */
+    protected ExecutorService createVirtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            logger.warn("Unable to create virtual thread executor", e);
+            return null;
+        }
+    }
 }
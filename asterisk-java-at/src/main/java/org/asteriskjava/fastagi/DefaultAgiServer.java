@@ -267,6 +267,13 @@ public class DefaultAgiServer extends AbstractAgiServer implements AgiServer {
         {
             // swallow
         }
+
+        try {
+            setUseVirtualThreads(Boolean.parseBoolean(resourceBundle.getString("useVirtualThreads")));
+        } catch (Exception e) // NOPMD
+        {
+            // swallow
+        }
     }
 
     public void setSocketReadTimeout(int socketReadTimeout) {
@@ -324,7 +331,7 @@ public class DefaultAgiServer extends AbstractAgiServer implements AgiServer {
             try {
                 execute(connectionHandler);
             } catch (RejectedExecutionException e) {
-                logger.warn("Execution was rejected by pool. Try to increase the pool size.");
+                logger.warn("Execution was rejected by pool. Try to increase the pool size or use virtual threads.");
                 // release resources like closing the socket if execution was
                 // rejected due to the pool size
                 connectionHandler.release();
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi;
+
+import org.asteriskjava.fastagi.internal.NioAgiConnectionHandler;
+import org.asteriskjava.fastagi.internal.NioAgiSession;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+import org.asteriskjava.util.internal.SocketConnectionFacadeImpl;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A FastAGI server that serves all connections from a single selector
+ * thread.
+ * <p>
+ * Requests and replies are parsed without a thread per connection.
+ * {@link NonBlockingAgiScript}s run on the selector thread and do not need a
+ * thread while waiting for Asterisk. Other AgiScripts run on the thread pool
+ * (or virtual threads, see {@link #setUseVirtualThreads(boolean)}) like with
+ * the {@link DefaultAgiServer}, only their replies are read by the selector.
+ * <p>
+ * A {@link StaticMappingStrategy} is asked for the script on the selector
+ * thread. Any other MappingStrategy may block, it is called on the thread
+ * pool and a NonBlockingAgiScript it returns is then handed back to the
+ * selector thread.
+ *
+ * @see NonBlockingAgiScript
+ * @since 3.40.0
+ */
+public class NioAgiServer extends AbstractAgiServer implements AgiServer {
+    private final Log logger = LogFactory.getLog(getClass());
+
+    /**
+     * The default bind port.
+     */
+    private static final int DEFAULT_BIND_PORT = 4573;
+
+    private static final int BACKLOG = 200;
+
+    /**
+     * How often idle connections are checked for.
+     */
+    private static final long IDLE_CHECK_INTERVAL = 1000;
+
+    private int port = DEFAULT_BIND_PORT;
+    private InetAddress address = null;
+
+    /**
+     * Closes the connection if no input has been received for the given
+     * amount of milliseconds while waiting for it.
+     */
+    private int socketReadTimeout = SocketConnectionFacadeImpl.MAX_SOCKET_READ_TIMEOUT_MILLIS;
+
+    private volatile Selector selector;
+    private final Queue<NioAgiSession> flushQueue = new ConcurrentLinkedQueue<>();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a new NioAgiServer that uses the given {@link MappingStrategy}.
+     *
+     * @param mappingStrategy the MappingStrategy to use to determine the
+     *                        AgiScript to run.
+     */
+    public NioAgiServer(MappingStrategy mappingStrategy) {
+        setMappingStrategy(mappingStrategy);
+    }
+
+    /**
+     * Creates a new NioAgiServer that runs the given {@link AgiScript} for
+     * all requests.
+     *
+     * @param agiScript the AgiScript to run, usually a
+     *                  {@link NonBlockingAgiScript}.
+     */
+    public NioAgiServer(AgiScript agiScript) {
+        this(new StaticMappingStrategy(agiScript));
+    }
+
+    /**
+     * Sets the TCP port to listen on for new connections. <br>
+     * The default port is 4573.
+     *
+     * @param port the port to bind to.
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Returns the TCP port this server is configured to bind to.
+     *
+     * @return the TCP port this server is configured to bind to.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the address this server is configured to bind to.
+     *
+     * @return the address this server is configured to bind to.
+     */
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Sets the address to bind server.
+     *
+     * @param address the address to bind to.
+     */
+    public void setAddress(InetAddress address) {
+        this.address = address;
+    }
+
+    public void setSocketReadTimeout(int socketReadTimeout) {
+        this.socketReadTimeout = socketReadTimeout;
+    }
+
+    public void startup() throws IOException, IllegalStateException {
+        final Thread selectorThread = Thread.currentThread();
+        try (Selector selector = Selector.open(); ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            try {
+                serverChannel.bind(getAddress() == null ? new InetSocketAddress(port)
+                        : new InetSocketAddress(getAddress(), port), BACKLOG);
+            } catch (IOException e) {
+                logger.error("Unable start AgiServer: cannot to bind to *:" + port + ".", e);
+                throw e;
+            }
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+            this.selector = selector;
+            logger.info("Listening on " + (getAddress() == null ? "*" : getAddress()) + ":" + port + ".");
+
+            long nextIdleCheck = System.nanoTime();
+            while (!isDie()) {
+                selector.select(IDLE_CHECK_INTERVAL);
+
+                NioAgiSession session;
+                while ((session = flushQueue.poll()) != null) {
+                    session.flush();
+                }
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        handleException("Unexpected exception in selector task.", e);
+                    }
+                }
+
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept(serverChannel, selector, selectorThread);
+                            continue;
+                        }
+                        session = (NioAgiSession) key.attachment();
+                        if (key.isReadable()) {
+                            session.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            session.flush();
+                        }
+                    } catch (RuntimeException e) {
+                        handleException("Unexpected exception in selector loop.", e);
+                        if (key.attachment() instanceof NioAgiSession) {
+                            ((NioAgiSession) key.attachment()).close();
+                        }
+                    }
+                }
+
+                if (System.nanoTime() - nextIdleCheck >= 0) {
+                    closeIdleSessions(selector);
+                    nextIdleCheck = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IDLE_CHECK_INTERVAL);
+                }
+            }
+
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioAgiSession) {
+                    ((NioAgiSession) key.attachment()).close();
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // shut down
+        } finally {
+            this.selector = null;
+        }
+        logger.info("AgiServer shut down.");
+    }
+
+    private void accept(ServerSocketChannel serverChannel, Selector selector, Thread selectorThread) {
+        final SocketChannel channel;
+        try {
+            channel = serverChannel.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+        } catch (IOException e) {
+            handleException("IOException while accepting connection.", e);
+            return;
+        }
+
+        logger.debug("Received connection from " + channel.socket().getRemoteSocketAddress());
+        try {
+            final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new NioAgiSession(channel, key, selectorThread, this::requestFlush, this::dispatch));
+        } catch (IOException e) {
+            handleException("Unable to register connection.", e);
+            try {
+                channel.close();
+            } catch (IOException e1) // NOPMD
+            {
+                // swallow
+            }
+        }
+    }
+
+    private void closeIdleSessions(Selector selector) {
+        if (socketReadTimeout <= 0) {
+            return;
+        }
+        final long now = System.nanoTime();
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioAgiSession) {
+                final NioAgiSession session = (NioAgiSession) key.attachment();
+                if (session.getIdleMillis(now) > socketReadTimeout) {
+                    logger.warn("No input received for " + socketReadTimeout + " ms, closing " + session);
+                    session.close();
+                }
+            }
+        }
+    }
+
+    private void requestFlush(NioAgiSession session) {
+        flushQueue.add(session);
+        final Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+
+    /**
+     * Runs a task on the selector thread.
+     */
+    private void runOnSelector(Runnable task) {
+        selectorTasks.add(task);
+        final Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+
+    /**
+     * Runs the script for a received request, called on the selector thread.
+     */
+    private void dispatch(NioAgiSession session) {
+        final MappingStrategy mappingStrategy = getMappingStrategy() == null ? new StaticMappingStrategy()
+                : getMappingStrategy();
+
+        // only a plain StaticMappingStrategy is known not to block
+        if (mappingStrategy.getClass() == StaticMappingStrategy.class) {
+            final AgiScript script = mappingStrategy.determineScript(session.getRequest(), null);
+            if (script instanceof NonBlockingAgiScript) {
+                session.run((NonBlockingAgiScript) script);
+                return;
+            }
+        }
+
+        // if there is no script the handler reports it to Asterisk
+        final NioAgiConnectionHandler connectionHandler = new NioAgiConnectionHandler(mappingStrategy, session,
+                getAgiChannelFactory(), script -> runOnSelector(() -> session.run(script)));
+        try {
+            execute(connectionHandler);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Execution was rejected by pool. Try to increase the pool size or use virtual threads.");
+            connectionHandler.release();
+        }
+    }
+
+    @Override
+    public void shutdown() throws IllegalStateException {
+        super.shutdown();
+
+        final Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+}
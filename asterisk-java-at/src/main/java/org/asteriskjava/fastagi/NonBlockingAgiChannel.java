@@ -0,0 +1,135 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi;
+
+import org.asteriskjava.fastagi.command.*;
+import org.asteriskjava.fastagi.reply.AgiReply;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handle to communicate with Asterisk whose commands do not block.
+ * <p>
+ * Each command returns a future that is completed with the reply once it has
+ * been received. Commands are sent in the order they are issued and the
+ * replies are matched in the same order, so a command may be sent before the
+ * reply to the previous one has arrived. Like with {@link AgiChannel} the
+ * future is completed exceptionally with an {@link AgiHangupException},
+ * {@link InvalidOrUnknownCommandException} or
+ * {@link InvalidCommandSyntaxException} depending on the reply.
+ * <p>
+ * When served by the {@link NioAgiServer} the futures are completed on the
+ * thread of the selector, code depending on them must not block.
+ *
+ * @see NonBlockingAgiScript
+ * @since 3.40.0
+ */
+public interface NonBlockingAgiChannel {
+    /**
+     * Returns the name of the channel.
+     *
+     * @return the name of the channel.
+     */
+    String getName();
+
+    /**
+     * Returns the unqiue id of the channel.
+     *
+     * @return the unqiue id of the channel.
+     */
+    String getUniqueId();
+
+    /**
+     * Returns the request this channel has been created for.
+     *
+     * @return the request.
+     */
+    AgiRequest getRequest();
+
+    /**
+     * Sends a command to Asterisk.
+     *
+     * @param command the command to send.
+     * @return the future reply to the command.
+     */
+    CompletableFuture<AgiReply> sendCommand(AgiCommand command);
+
+    /**
+     * Answers the channel.
+     *
+     * @return the future reply.
+     */
+    default CompletableFuture<AgiReply> answer() {
+        return sendCommand(new AnswerCommand());
+    }
+
+    /**
+     * Hangs the channel up.
+     *
+     * @return the future reply.
+     */
+    default CompletableFuture<AgiReply> hangup() {
+        return sendCommand(new HangupCommand());
+    }
+
+    /**
+     * Sets the value of the given channel variable.
+     *
+     * @param name  the name of the variable to set.
+     * @param value the value to set.
+     * @return the future reply.
+     */
+    default CompletableFuture<AgiReply> setVariable(String name, String value) {
+        return sendCommand(new SetVariableCommand(name, value));
+    }
+
+    /**
+     * Returns the value of the given channel variable.
+     *
+     * @param name the name of the variable to retrieve.
+     * @return the future value of the variable or <code>null</code> if not
+     * set.
+     */
+    default CompletableFuture<String> getVariable(String name) {
+        return sendCommand(new GetVariableCommand(name))
+                .thenApply(reply -> reply.getResultCode() == 1 ? reply.getExtra() : null);
+    }
+
+    /**
+     * Plays the given file allowing the user to escape by pressing one of
+     * the given digit.
+     *
+     * @param file         name of the file to play.
+     * @param escapeDigits a String containing the DTMF digits that allow the
+     *                     user to escape.
+     * @return the future reply, the result code is the DTMF digit pressed or
+     * 0x0 if none was pressed.
+     */
+    default CompletableFuture<AgiReply> streamFile(String file, String escapeDigits) {
+        return sendCommand(new StreamFileCommand(file, escapeDigits));
+    }
+
+    /**
+     * Executes the given application with the given options.
+     *
+     * @param application the application to execute.
+     * @param options     the options to pass to the application.
+     * @return the future reply.
+     */
+    default CompletableFuture<AgiReply> exec(String application, String... options) {
+        return sendCommand(new ExecCommand(application, options));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi;
+
+import org.asteriskjava.fastagi.internal.NonBlockingAgiChannelAdapter;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An AgiScript that handles requests without blocking a thread.
+ * <p>
+ * When served by the {@link NioAgiServer} no thread is used while the
+ * script waits for replies from Asterisk. The script is finished when the
+ * returned stage is completed, the connection to Asterisk is closed then.
+ * <p>
+ * Other servers call {@link #service(AgiRequest, AgiChannel)}, which runs the
+ * script on top of the blocking {@link AgiChannel} and waits for it to
+ * finish.
+ *
+ * @since 3.40.0
+ */
+public interface NonBlockingAgiScript extends AgiScript {
+    /**
+     * Handles an incoming AgiRequest.
+     *
+     * @param request the initial data received from Asterisk when requesting
+     *                this script.
+     * @param channel a handle to send commands to the channel sending the
+     *                request.
+     * @return a stage that is completed when the script is finished. If it
+     * completes exceptionally the exception is logged.
+     */
+    CompletionStage<?> service(AgiRequest request, NonBlockingAgiChannel channel);
+
+    @Override
+    default void service(AgiRequest request, AgiChannel channel) throws AgiException {
+        try {
+            service(request, new NonBlockingAgiChannelAdapter(request, channel)).toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AgiException("Interrupted while running AgiScript", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AgiException) {
+                throw (AgiException) e.getCause();
+            }
+            throw new AgiException("Exception running AgiScript", e.getCause());
+        }
+    }
+}
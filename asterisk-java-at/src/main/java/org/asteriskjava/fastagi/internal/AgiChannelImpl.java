@@ -23,6 +23,8 @@ import org.asteriskjava.fastagi.reply.AgiReply;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Default implementation of the AgiChannel interface.
  *
@@ -37,7 +39,13 @@ public class AgiChannelImpl implements AgiChannel {
 
     private static Log logger = LogFactory.getLog(AgiChannelImpl.class);
 
-    private AgiReply lastReply;
+    private volatile AgiReply lastReply;
+
+    /**
+     * Serializes the commands, commands like STREAM FILE are expected to
+     * hold it for a long time so this is not a Lockable.
+     */
+    private final ReentrantLock commandLock = new ReentrantLock();
 
     protected AgiChannelImpl(AgiRequest request, AgiWriter agiWriter, AgiReader agiReader) {
         this.request = request;
@@ -58,12 +66,22 @@ public class AgiChannelImpl implements AgiChannel {
         return lastReply;
     }
 
-    public synchronized AgiReply sendCommand(AgiCommand command) throws AgiException {
+    public AgiReply sendCommand(AgiCommand command) throws AgiException {
         // make the Asterisk Version available to the AgiCommand, with out
         // causing a major refactor
         command.setAsteriskVersion(getAsteriskVersion());
-        agiWriter.sendCommand(command);
-        lastReply = agiReader.readReply();
+
+        // not synchronized, a virtual thread blocked on the socket while
+        // holding a monitor would pin its carrier thread
+        final AgiReply lastReply;
+        commandLock.lock();
+        try {
+            agiWriter.sendCommand(command);
+            lastReply = agiReader.readReply();
+            this.lastReply = lastReply;
+        } finally {
+            commandLock.unlock();
+        }
 
         if (lastReply.getStatus() == AgiReply.SC_INVALID_OR_UNKNOWN_COMMAND) {
             throw new InvalidOrUnknownCommandException(command.buildCommand());
@@ -140,7 +140,7 @@ public abstract class AgiConnectionHandler implements Runnable {
         }
     }// run
 
-    private void runScript(AgiScript script, AgiRequest request, AgiChannel channel) {
+    protected void runScript(AgiScript script, AgiRequest request, AgiChannel channel) {
         String channelName = channel.getName();
         String threadName;
         threadName = Thread.currentThread().getName();
@@ -40,21 +40,21 @@ public class AgiRequestImpl implements AgiRequest {
     private static final Pattern SCRIPT_PATTERN = Pattern.compile("^([^\\?]*)\\?(.*)$");
     private static final Pattern PARAMETER_PATTERN = Pattern.compile("^(.*)=(.*)$");
 
-    private String rawCallerId;
-
-    private Map<String, String> request;
+    private final Map<String, String> request;
 
     /**
      * A map assigning the values of a parameter (an array of Strings) to the
      * name of the parameter.
+     * <p>
+     * This and {@link #arguments} are computed on demand without locking, a
+     * concurrent caller may compute them again which is harmless.
      */
-    private Map<String, String[]> parameterMap;
+    private volatile Map<String, String[]> parameterMap;
 
-    private String[] arguments;
+    private volatile String[] arguments;
 
     private String parameters;
     private String script;
-    private boolean callerIdCreated;
     private InetAddress localAddress;
     private int localPort;
     private InetAddress remoteAddress;
@@ -152,7 +152,7 @@ public class AgiRequestImpl implements AgiRequest {
      *
      * @return the name of the script to execute.
      */
-    public synchronized String getScript() {
+    public String getScript() {
         return script;
     }
 
@@ -243,15 +243,10 @@ public class AgiRequestImpl implements AgiRequest {
      *
      * @return the Caller*ID number
      */
-    private synchronized String getCallerId10() {
+    private String getCallerId10() {
         final String[] parsedCallerId;
 
-        if (!callerIdCreated) {
-            rawCallerId = request.get("callerid");
-            callerIdCreated = true;
-        }
-
-        parsedCallerId = AstUtil.parseCallerId(rawCallerId);
+        parsedCallerId = AstUtil.parseCallerId(request.get("callerid"));
         if (parsedCallerId[1] == null) {
             return parsedCallerId[0];
         }
@@ -263,13 +258,8 @@ public class AgiRequestImpl implements AgiRequest {
      *
      * @return the Caller*ID name
      */
-    private synchronized String getCallerIdName10() {
-        if (!callerIdCreated) {
-            rawCallerId = request.get("callerid");
-            callerIdCreated = true;
-        }
-
-        return AstUtil.parseCallerId(rawCallerId)[0];
+    private String getCallerIdName10() {
+        return AstUtil.parseCallerId(request.get("callerid"))[0];
     }
 
     public String getDnid() {
@@ -385,8 +375,9 @@ public class AgiRequestImpl implements AgiRequest {
         return values[0];
     }
 
-    public synchronized String[] getParameterValues(String name) {
-        if (getParameterMap().isEmpty()) {
+    public String[] getParameterValues(String name) {
+        final Map<String, String[]> parameterMap = getParameterMap();
+        if (parameterMap.isEmpty()) {
             return new String[0];
         }
 
@@ -394,9 +385,11 @@ public class AgiRequestImpl implements AgiRequest {
         return values == null ? new String[0] : values;
     }
 
-    public synchronized Map<String, String[]> getParameterMap() {
+    public Map<String, String[]> getParameterMap() {
+        Map<String, String[]> parameterMap = this.parameterMap;
         if (parameterMap == null) {
             parameterMap = parseParameters(parameters);
+            this.parameterMap = parameterMap;
         }
         return parameterMap;
     }
@@ -407,7 +400,7 @@ public class AgiRequestImpl implements AgiRequest {
      * @param s the parameter string to parse
      * @return a Map made up of parameter names their values
      */
-    private synchronized Map<String, String[]> parseParameters(String s) {
+    private Map<String, String[]> parseParameters(String s) {
         Map<String, List<String>> parameterMap;
         Map<String, String[]> result;
         StringTokenizer st;
@@ -467,7 +460,8 @@ public class AgiRequestImpl implements AgiRequest {
         return result;
     }
 
-    public synchronized String[] getArguments() {
+    public String[] getArguments() {
+        String[] arguments = this.arguments;
         if (arguments != null) {
             return arguments.clone();
         }
@@ -490,6 +484,7 @@ public class AgiRequestImpl implements AgiRequest {
         for (int i = 0; i < maxIndex; i++) {
             arguments[i] = map.get(i + 1);
         }
+        this.arguments = arguments;
 
         return arguments.clone();
     }
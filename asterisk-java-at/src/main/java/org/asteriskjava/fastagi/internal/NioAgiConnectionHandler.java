@@ -0,0 +1,125 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi.internal;
+
+import org.asteriskjava.fastagi.*;
+import org.asteriskjava.fastagi.command.AgiCommand;
+import org.asteriskjava.fastagi.reply.AgiReply;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * An AGIConnectionHandler that runs a blocking AgiScript on a connection
+ * served by a selector.
+ * <p>
+ * The AgiScript runs on a thread of the pool (or a virtual thread) while the
+ * commands are written and the replies are read by the selector thread. If
+ * the MappingStrategy returns a {@link NonBlockingAgiScript} it is handed
+ * back to the selector thread instead.
+ *
+ * @since 3.40.0
+ */
+public class NioAgiConnectionHandler extends AgiConnectionHandler {
+    private final NioAgiSession session;
+    private final Consumer<NonBlockingAgiScript> nonBlockingScriptRunner;
+    private final SessionStreams streams = new SessionStreams();
+    private volatile boolean handedOver;
+
+    /**
+     * Creates a new NioAgiConnectionHandler.
+     *
+     * @param mappingStrategy   the strategy to use to determine which script
+     *                          to run.
+     * @param session           the session, the request must already have
+     *                          been received.
+     * @param agiChannelFactory The factory to use for creating new AgiChannel
+     *                          instances.
+     * @param nonBlockingScriptRunner runs a {@link NonBlockingAgiScript} on
+     *                          the selector thread, the session is closed
+     *                          by the script then.
+     */
+    public NioAgiConnectionHandler(MappingStrategy mappingStrategy, NioAgiSession session,
+                                   AgiChannelFactory agiChannelFactory,
+                                   Consumer<NonBlockingAgiScript> nonBlockingScriptRunner) {
+        super(mappingStrategy, agiChannelFactory);
+        this.session = session;
+        this.nonBlockingScriptRunner = nonBlockingScriptRunner;
+    }
+
+    @Override
+    protected AgiReader createReader() {
+        return streams;
+    }
+
+    @Override
+    protected AgiWriter createWriter() {
+        return streams;
+    }
+
+    @Override
+    protected void runScript(AgiScript script, AgiRequest request, AgiChannel channel) {
+        if (script instanceof NonBlockingAgiScript) {
+            handedOver = true;
+            nonBlockingScriptRunner.accept((NonBlockingAgiScript) script);
+            return;
+        }
+        super.runScript(script, request, channel);
+    }
+
+    @Override
+    public void release() {
+        if (!handedOver) {
+            session.close();
+        }
+    }
+
+    /**
+     * Waits for the reply to the command sent last.
+     */
+    private final class SessionStreams implements AgiReader, AgiWriter {
+        private CompletableFuture<AgiReply> pendingReply;
+
+        public AgiRequest readRequest() {
+            return session.getRequest();
+        }
+
+        public void sendCommand(AgiCommand command) {
+            pendingReply = session.sendRawCommand(command);
+        }
+
+        public AgiReply readReply() throws AgiException {
+            if (pendingReply == null) {
+                throw new AgiNetworkException("No command has been sent", null);
+            }
+            try {
+                return pendingReply.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AgiNetworkException("Interrupted while waiting for reply", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof AgiException) {
+                    throw (AgiException) e.getCause();
+                }
+                throw new AgiNetworkException("Unable to read reply from Asterisk: " + e.getCause().getMessage(),
+                        e.getCause());
+            } finally {
+                pendingReply = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi.internal;
+
+import org.asteriskjava.AsteriskVersion;
+import org.asteriskjava.fastagi.AgiHangupException;
+import org.asteriskjava.fastagi.AgiNetworkException;
+import org.asteriskjava.fastagi.AgiRequest;
+import org.asteriskjava.fastagi.InvalidCommandSyntaxException;
+import org.asteriskjava.fastagi.InvalidOrUnknownCommandException;
+import org.asteriskjava.fastagi.NonBlockingAgiChannel;
+import org.asteriskjava.fastagi.NonBlockingAgiScript;
+import org.asteriskjava.fastagi.command.AgiCommand;
+import org.asteriskjava.fastagi.command.SetVariableCommand;
+import org.asteriskjava.fastagi.reply.AgiReply;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A FastAGI connection served by a selector.
+ * <p>
+ * The request and the replies are parsed from the bytes received by
+ * {@link #read()} which, like {@link #flush()}, must only be called on the
+ * thread of the selector. Commands can be sent from any thread, they are
+ * queued and written by the selector thread. Replies are matched to the
+ * commands in the order they have been sent.
+ *
+ * @since 3.40.0
+ */
+public class NioAgiSession implements NonBlockingAgiChannel {
+    private static final Log logger = LogFactory.getLog(NioAgiSession.class);
+
+    private static final String AJ_AGISTATUS_VARIABLE = "AJ_AGISTATUS";
+    private static final String AJ_AGISTATUS_SUCCESS = "SUCCESS";
+    private static final String AJ_AGISTATUS_FAILED = "FAILED";
+
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final String INVALID_COMMAND_SYNTAX = Integer.toString(AgiReply.SC_INVALID_COMMAND_SYNTAX);
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final Thread selectorThread;
+    private final Consumer<NioAgiSession> flushRequester;
+    private final Consumer<NioAgiSession> requestListener;
+
+    // only used by the selector thread
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private List<String> environment = new ArrayList<>();
+    private List<String> replyLines = new ArrayList<>();
+
+    // guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private final ArrayDeque<CompletableFuture<AgiReply>> pendingReplies = new ArrayDeque<>();
+    private boolean closed;
+
+    /**
+     * When input has been received last or, if no command was pending, the
+     * next command has been sent.
+     */
+    private volatile long lastReceived = System.nanoTime();
+    private volatile AgiRequestImpl request;
+    private AsteriskVersion asteriskVersion;
+
+    /**
+     * Creates a new session.
+     *
+     * @param channel         the accepted connection.
+     * @param key             the key of the connection with the selector.
+     * @param selectorThread  the thread running the selector.
+     * @param flushRequester  called with this session when commands have
+     *                        been queued from another thread, it must have
+     *                        the selector thread call {@link #flush()}.
+     * @param requestListener called on the selector thread when the request
+     *                        has been received.
+     */
+    public NioAgiSession(SocketChannel channel, SelectionKey key, Thread selectorThread,
+                         Consumer<NioAgiSession> flushRequester, Consumer<NioAgiSession> requestListener) {
+        this.channel = channel;
+        this.key = key;
+        this.selectorThread = selectorThread;
+        this.flushRequester = flushRequester;
+        this.requestListener = requestListener;
+    }
+
+    public AgiRequest getRequest() {
+        return request;
+    }
+
+    public String getName() {
+        return request.getChannel();
+    }
+
+    public String getUniqueId() {
+        return request.getUniqueId();
+    }
+
+    public CompletableFuture<AgiReply> sendCommand(AgiCommand command) {
+        final CompletableFuture<AgiReply> result = new CompletableFuture<>();
+        sendRawCommand(command).whenComplete((reply, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else if (reply.getStatus() == AgiReply.SC_INVALID_OR_UNKNOWN_COMMAND) {
+                result.completeExceptionally(new InvalidOrUnknownCommandException(command.buildCommand()));
+            } else if (reply.getStatus() == AgiReply.SC_DEAD_CHANNEL) {
+                result.completeExceptionally(new AgiHangupException());
+            } else if (reply.getStatus() == AgiReply.SC_INVALID_COMMAND_SYNTAX) {
+                result.completeExceptionally(
+                        new InvalidCommandSyntaxException(reply.getSynopsis(), reply.getUsage()));
+            } else {
+                result.complete(reply);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends a command and returns the reply regardless of its status.
+     *
+     * @param command the command to send.
+     * @return the future reply.
+     */
+    public CompletableFuture<AgiReply> sendRawCommand(AgiCommand command) {
+        final CompletableFuture<AgiReply> future = new CompletableFuture<>();
+        if (asteriskVersion == null && request != null) {
+            asteriskVersion = request.getAsteriskVersion();
+        }
+        command.setAsteriskVersion(asteriskVersion != null ? asteriskVersion : AsteriskVersion.DEFAULT_VERSION);
+        final ByteBuffer buffer = ByteBuffer.wrap((command.buildCommand() + "\n").getBytes(StandardCharsets.UTF_8));
+
+        lock.lock();
+        try {
+            if (closed) {
+                future.completeExceptionally(new AgiHangupException());
+                return future;
+            }
+            if (pendingReplies.isEmpty()) {
+                lastReceived = System.nanoTime();
+            }
+            pendingReplies.add(future);
+            writeQueue.add(buffer);
+        } finally {
+            lock.unlock();
+        }
+
+        if (Thread.currentThread() == selectorThread) {
+            flush();
+        } else {
+            flushRequester.accept(this);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a non-blocking script and closes the session when it is finished.
+     * Must be called on the selector thread.
+     *
+     * @param script the script to run.
+     */
+    public void run(NonBlockingAgiScript script) {
+        CompletionStage<?> stage;
+        try {
+            stage = script.service(request, this);
+        } catch (RuntimeException e) {
+            final CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            stage = failed;
+        }
+
+        stage.whenComplete((result, e) -> {
+            if (e != null) {
+                logger.error("Exception running AgiScript " + script.getClass().getName() + " on "
+                        + request.getChannel(), e);
+            }
+            sendRawCommand(new SetVariableCommand(AJ_AGISTATUS_VARIABLE,
+                    e == null ? AJ_AGISTATUS_SUCCESS : AJ_AGISTATUS_FAILED)).whenComplete((reply, ignored) -> close());
+        });
+    }
+
+    /**
+     * Reads the available bytes, must be called on the selector thread.
+     */
+    public void read() {
+        final int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            logger.debug("Unable to read from " + channel, e);
+            close();
+            return;
+        }
+        if (read < 0) {
+            close();
+            return;
+        }
+        lastReceived = System.nanoTime();
+
+        readBuffer.flip();
+        while (readBuffer.hasRemaining()) {
+            final byte b = readBuffer.get();
+            if (b == '\n') {
+                int length = lineLength;
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                lineLength = 0;
+                onLine(new String(line, 0, length, StandardCharsets.UTF_8));
+            } else {
+                if (lineLength == line.length) {
+                    if (lineLength >= MAX_LINE_LENGTH) {
+                        logger.warn("Line too long, closing " + channel);
+                        close();
+                        return;
+                    }
+                    line = Arrays.copyOf(line, lineLength * 2);
+                }
+                line[lineLength++] = b;
+            }
+        }
+        readBuffer.clear();
+    }
+
+    private void onLine(String line) {
+        if (environment != null) {
+            if (!line.isEmpty()) {
+                environment.add(line);
+                return;
+            }
+
+            final AgiRequestImpl request = new AgiRequestImpl(environment);
+            environment = null;
+            final InetSocketAddress local = (InetSocketAddress) channel.socket().getLocalSocketAddress();
+            final InetSocketAddress remote = (InetSocketAddress) channel.socket().getRemoteSocketAddress();
+            if (local != null) {
+                request.setLocalAddress(local.getAddress());
+                request.setLocalPort(local.getPort());
+            }
+            if (remote != null) {
+                request.setRemoteAddress(remote.getAddress());
+                request.setRemotePort(remote.getPort());
+            }
+            this.request = request;
+            requestListener.accept(this);
+            return;
+        }
+
+        // same rules as FastAgiReader.readReply()
+        if (replyLines.isEmpty()) {
+            if (line.startsWith("HANGUP")) {
+                if (line.length() <= 6) {
+                    return;
+                }
+                line = line.substring(6);
+            }
+            replyLines.add(line);
+            // read synopsis and usage if statuscode is 520
+            if (line.startsWith(INVALID_COMMAND_SYNTAX)) {
+                return;
+            }
+        } else {
+            replyLines.add(line);
+            if (!line.startsWith(INVALID_COMMAND_SYNTAX)) {
+                return;
+            }
+        }
+
+        final AgiReply reply = new AgiReplyImpl(replyLines);
+        replyLines = new ArrayList<>();
+
+        // Special handling for gosub, see AJ-257
+        if (reply.getStatus() == AgiReply.SC_TRYING) {
+            return;
+        }
+
+        final CompletableFuture<AgiReply> future;
+        lock.lock();
+        try {
+            future = pendingReplies.poll();
+        } finally {
+            lock.unlock();
+        }
+        if (future == null) {
+            logger.warn("Received unexpected reply " + reply.getFirstLine() + " on " + request.getChannel());
+            return;
+        }
+        future.complete(reply);
+    }
+
+    /**
+     * Writes the queued commands, must be called on the selector thread.
+     */
+    public void flush() {
+        IOException failure = null;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            while (!writeQueue.isEmpty()) {
+                final ByteBuffer buffer = writeQueue.peek();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                writeQueue.poll();
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            lock.unlock();
+        }
+
+        if (failure != null) {
+            logger.debug("Unable to write to " + channel, failure);
+            close(new AgiNetworkException("Unable to send command to Asterisk: " + failure.getMessage(), failure));
+        }
+    }
+
+    /**
+     * Closes the connection, replies that have not been received yet fail
+     * with an {@link AgiHangupException}. May be called from any thread.
+     */
+    public void close() {
+        close(new AgiHangupException());
+    }
+
+    private void close(Exception cause) {
+        final List<CompletableFuture<AgiReply>> failed;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            failed = new ArrayList<>(pendingReplies);
+            pendingReplies.clear();
+            writeQueue.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) // NOPMD
+        {
+            // swallow
+        }
+        for (CompletableFuture<AgiReply> future : failed) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Returns for how long the session has been waiting for input, must be
+     * called on the selector thread.
+     *
+     * @param now the current {@link System#nanoTime()}.
+     * @return the time since the last input has been received or 0 if no
+     * input is expected as no command is pending.
+     */
+    public long getIdleMillis(long now) {
+        if (request != null) {
+            lock.lock();
+            try {
+                if (pendingReplies.isEmpty()) {
+                    return 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return TimeUnit.NANOSECONDS.toMillis(now - lastReceived);
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NioAgiSession[channel=" + (request == null ? null : request.getChannel()) + ",remote="
+                + channel.socket().getRemoteSocketAddress() + "]";
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.fastagi.internal;
+
+import org.asteriskjava.fastagi.AgiChannel;
+import org.asteriskjava.fastagi.AgiException;
+import org.asteriskjava.fastagi.AgiRequest;
+import org.asteriskjava.fastagi.NonBlockingAgiChannel;
+import org.asteriskjava.fastagi.command.AgiCommand;
+import org.asteriskjava.fastagi.reply.AgiReply;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the commands of a {@link NonBlockingAgiChannel} on a blocking
+ * {@link AgiChannel}, the returned futures are already completed.
+ *
+ * @since 3.40.0
+ */
+public class NonBlockingAgiChannelAdapter implements NonBlockingAgiChannel {
+    private final AgiRequest request;
+    private final AgiChannel channel;
+
+    public NonBlockingAgiChannelAdapter(AgiRequest request, AgiChannel channel) {
+        this.request = request;
+        this.channel = channel;
+    }
+
+    public String getName() {
+        return channel.getName();
+    }
+
+    public String getUniqueId() {
+        return channel.getUniqueId();
+    }
+
+    public AgiRequest getRequest() {
+        return request;
+    }
+
+    public CompletableFuture<AgiReply> sendCommand(AgiCommand command) {
+        final CompletableFuture<AgiReply> future = new CompletableFuture<>();
+        try {
+            future.complete(channel.sendCommand(command));
+        } catch (AgiException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
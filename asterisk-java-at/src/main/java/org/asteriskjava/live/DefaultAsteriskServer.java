@@ -109,6 +109,29 @@ public class DefaultAsteriskServer implements AsteriskServer {
         this.impl.setSkipQueues(skipQueues);
     }
 
+    /**
+     * Sets how long hung up channels are kept in memory after the hangup.
+     * Default is 15 minutes.
+     *
+     * @param retentionMillis the time in milliseconds.
+     * @since 3.40.0
+     */
+    public void setHungupChannelRetention(long retentionMillis) {
+        this.impl.setHungupChannelRetention(retentionMillis);
+    }
+
+    /**
+     * Sets the maximum number of hung up channels kept in memory, the oldest
+     * ones are removed before their retention time is over when there are
+     * more. Default is 0 for no limit.
+     *
+     * @param maxHungupChannels the maximum number of hung up channels or 0.
+     * @since 3.40.0
+     */
+    public void setMaxHungupChannels(int maxHungupChannels) {
+        this.impl.setMaxHungupChannels(maxHungupChannels);
+    }
+
     public void setManagerConnection(ManagerConnection eventConnection) {
         this.impl.setManagerConnection(eventConnection);
     }
@@ -19,6 +19,7 @@ package org.asteriskjava.live.internal;
 import org.asteriskjava.live.AgentState;
 import org.asteriskjava.live.AsteriskAgent;
 import org.asteriskjava.live.ManagerCommunicationException;
+import org.asteriskjava.lock.LockableConcurrentMap;
 import org.asteriskjava.lock.LockableMap;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.ResponseEvents;
@@ -49,7 +50,7 @@ public class AgentManager {
     /**
      * A Map of agents by thier agentId.
      */
-    private final LockableMap<String, AsteriskAgentImpl> agents;
+    private final LockableConcurrentMap<String, AsteriskAgentImpl> agents;
 
     /**
      * A Map of agent in state RINGING by the caller id. Needed to return agent
@@ -59,7 +60,7 @@ public class AgentManager {
 
     AgentManager(AsteriskServerImpl asteriskServerImpl) {
         this.server = asteriskServerImpl;
-        agents = new LockableMap<>(new HashMap<>());
+        agents = new LockableConcurrentMap<>();
         ringingAgents = new LockableMap<>(new HashMap<>());
     }
 
@@ -84,9 +85,7 @@ public class AgentManager {
     }
 
     void disconnected() {
-        try (LockCloser closer = agents.withLock()) {
-            agents.clear();
-        }
+        agents.clear();
     }
 
     /**
@@ -108,9 +107,7 @@ public class AgentManager {
      * @param agent agent to add.
      */
     private void addAgent(AsteriskAgentImpl agent) {
-        try (LockCloser closer = agents.withLock()) {
-            agents.put(agent.getAgentId(), agent);
-        }
+        agents.put(agent.getAgentId(), agent);
         server.fireNewAgent(agent);
     }
 
@@ -121,9 +118,7 @@ public class AgentManager {
      * @return the requested agent
      */
     AsteriskAgentImpl getAgentByAgentId(String agentId) {
-        try (LockCloser closer = agents.withLock()) {
-            return agents.get(agentId);
-        }
+        return agents.get(agentId);
     }
 
     /**
@@ -192,11 +187,8 @@ public class AgentManager {
     void handleAgentLoginEvent(AgentLoginEvent event) {
         AsteriskAgentImpl agent = getAgentByAgentId("Agent/" + event.getAgent());
         if (agent == null) {
-            try (LockCloser closer = agents.withLock()) {
-                logger.error("Ignored AgentLoginEvent for unknown agent " + event.getAgent() + ". Agents: "
-                        + agents.values().toString());
-
-            }
+            logger.error("Ignored AgentLoginEvent for unknown agent " + event.getAgent() + ". Agents: "
+                    + agents.values().toString());
             return;
         }
         agent.updateState(AgentState.AGENT_IDLE);
@@ -225,11 +217,8 @@ public class AgentManager {
     void handleAgentCallbackLoginEvent(AgentCallbackLoginEvent event) {
         AsteriskAgentImpl agent = getAgentByAgentId("Agent/" + event.getAgent());
         if (agent == null) {
-            try (LockCloser closer = agents.withLock()) {
-                logger.error("Ignored AgentCallbackLoginEvent for unknown agent " + event.getAgent() + ". Agents: "
-                        + agents.values().toString());
-
-            }
+            logger.error("Ignored AgentCallbackLoginEvent for unknown agent " + event.getAgent() + ". Agents: "
+                    + agents.values().toString());
             return;
         }
         agent.updateState(AgentState.AGENT_IDLE);
@@ -257,12 +246,7 @@ public class AgentManager {
      * @return a collection of all agents.
      */
     Collection<AsteriskAgent> getAgents() {
-        Collection<AsteriskAgent> copy;
-
-        try (LockCloser closer = agents.withLock()) {
-            copy = new ArrayList<AsteriskAgent>(agents.values());
-        }
-        return copy;
+        return new ArrayList<AsteriskAgent>(agents.values());
     }
 
     /**
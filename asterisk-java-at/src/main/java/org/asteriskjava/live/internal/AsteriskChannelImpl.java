@@ -54,11 +54,15 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
     /**
      * Unique id of this channel.
      */
-    private String id;
+    private volatile String id;
     /**
      * The traceId is used to trace originated channels.
      */
-    private String traceId;
+    private volatile String traceId;
+    /**
+     * Unique id of the first channel of the call this channel belongs to.
+     */
+    private volatile String linkedId;
     /**
      * Date this channel has left the Asterisk server.
      */
@@ -66,7 +70,7 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
     /**
      * Name of this channel.
      */
-    private String name;
+    private volatile String name;
     /**
      * Caller*ID of this channel.
      */
@@ -74,7 +78,7 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
     /**
      * State of this channel.
      */
-    private ChannelState state;
+    private volatile ChannelState state;
     /**
      * Account code used to bill this channel.
      */
@@ -189,6 +193,14 @@ class AsteriskChannelImpl extends AbstractLiveObject implements AsteriskChannel
         this.traceId = traceId;
     }
 
+    String getLinkedId() {
+        return linkedId;
+    }
+
+    void setLinkedId(String linkedId) {
+        this.linkedId = linkedId;
+    }
+
     public String getName() {
         return name;
     }
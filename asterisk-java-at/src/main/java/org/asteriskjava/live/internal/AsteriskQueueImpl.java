@@ -20,6 +20,8 @@ import org.asteriskjava.live.AsteriskQueue;
 import org.asteriskjava.live.AsteriskQueueEntry;
 import org.asteriskjava.live.AsteriskQueueListener;
 import org.asteriskjava.live.AsteriskQueueMember;
+import org.asteriskjava.lock.LockableConcurrentMap;
+import org.asteriskjava.lock.LockableCopyOnWriteList;
 import org.asteriskjava.lock.LockableList;
 import org.asteriskjava.lock.LockableMap;
 import org.asteriskjava.lock.Locker.LockCloser;
@@ -72,9 +74,9 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
     /****/
 
     private Integer weight;
-    private final LockableList<AsteriskQueueEntryImpl> entries;
+    private final LockableCopyOnWriteList<AsteriskQueueEntryImpl> entries;
     private final Timer timer;
-    private final LockableMap<String, AsteriskQueueMemberImpl> members;
+    private final LockableConcurrentMap<String, AsteriskQueueMemberImpl> members;
     private final LockableList<AsteriskQueueListener> listeners;
     private final LockableMap<AsteriskQueueEntry, ServiceLevelTimerTask> serviceLevelTimerTasks;
 
@@ -87,9 +89,9 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
         this.strategy = strategy;
         this.serviceLevel = serviceLevel;
         this.weight = weight;
-        entries = new LockableList<>(new ArrayList<>(25));
+        entries = new LockableCopyOnWriteList<>();
         listeners = new LockableList<>(new ArrayList<>());
-        members = new LockableMap<>(new HashMap<>());
+        members = new LockableConcurrentMap<>();
         timer = new Timer("ServiceLevelTimer-" + name, true);
         serviceLevelTimerTasks = new LockableMap<>(new HashMap<>());
         this.calls = calls;
@@ -281,9 +283,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
     }
 
     public List<AsteriskQueueEntry> getEntries() {
-        try (LockCloser closer = entries.withLock()) {
-            return new ArrayList<AsteriskQueueEntry>(entries);
-        }
+        return new ArrayList<AsteriskQueueEntry>(entries);
     }
 
     /**
@@ -416,12 +416,8 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
         sb.append("abandoned='").append(getAbandoned()).append("',");
         sb.append("serviceLevelPerf='").append(getServiceLevelPerf()).append("',");
 
-        try (LockCloser closer = entries.withLock()) {
-            sb.append("entries='").append(entries.toString()).append("',");
-        }
-        try (LockCloser closer = members.withLock()) {
-            sb.append("members='").append(members.toString()).append("',");
-        }
+        sb.append("entries='").append(entries.toString()).append("',");
+        sb.append("members='").append(members.toString()).append("',");
         sb.append("systemHashcode=").append(System.identityHashCode(this));
         sb.append("]");
 
@@ -516,11 +512,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
      * @see org.asteriskjava.live.AsteriskQueue#getMembers()
      */
     public Collection<AsteriskQueueMember> getMembers() {
-        List<AsteriskQueueMember> listOfMembers = new ArrayList<>(members.size());
-        try (LockCloser closer = members.withLock()) {
-            listOfMembers.addAll(members.values());
-        }
-        return listOfMembers;
+        return new ArrayList<AsteriskQueueMember>(members.values());
     }
 
     /**
@@ -530,12 +522,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
      * @return the member by its location.
      */
     AsteriskQueueMemberImpl getMember(String location) {
-        try (LockCloser closer = members.withLock()) {
-            if (members.containsKey(location)) {
-                return members.get(location);
-            }
-        }
-        return null;
+        return members.get(location);
     }
 
     /**
@@ -564,10 +551,7 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
      * @return the requested member.
      */
     AsteriskQueueMemberImpl getMemberByLocation(String location) {
-        AsteriskQueueMemberImpl member;
-        try (LockCloser closer = members.withLock()) {
-            member = members.get(location);
-        }
+        final AsteriskQueueMemberImpl member = members.get(location);
         if (member == null) {
             logger.error("Requested member at location " + location + " not found!");
         }
@@ -598,11 +582,9 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
      * @return the queue entry if found, null otherwise.
      */
     AsteriskQueueEntryImpl getEntry(String channelName) {
-        try (LockCloser closer = entries.withLock()) {
-            for (AsteriskQueueEntryImpl entry : entries) {
-                if (entry.getChannel().getName().equals(channelName)) {
-                    return entry;
-                }
+        for (AsteriskQueueEntryImpl entry : entries) {
+            if (entry.getChannel().getName().equals(channelName)) {
+                return entry;
             }
         }
         return null;
@@ -649,15 +631,13 @@ class AsteriskQueueImpl extends AbstractLiveObject implements AsteriskQueue {
         // positions in asterisk start at 1, but list starts at 0
         position--;
         AsteriskQueueEntryImpl foundEntry = null;
-        try (LockCloser closer = entries.withLock()) {
-            try {
-                foundEntry = entries.get(position);
-            } catch (IndexOutOfBoundsException e) {
-                // For consistency with the above method,
-                // swallow. We might indeed request the 1st one from time to
-                // time
-            } // NOPMD
-        }
+        try {
+            foundEntry = entries.get(position);
+        } catch (IndexOutOfBoundsException e) {
+            // For consistency with the above method,
+            // swallow. We might indeed request the 1st one from time to
+            // time
+        } // NOPMD
         return foundEntry;
     }
 
@@ -35,6 +35,7 @@ import org.asteriskjava.util.LogFactory;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,6 +56,88 @@ public class AsteriskServerImpl extends Lockable implements AsteriskServer, Mana
     private static final String SHOW_VOICEMAIL_USERS_1_6_COMMAND = "voicemail show users";
     private static final Pattern SHOW_VOICEMAIL_USERS_PATTERN = Pattern.compile("^(\\S+)\\s+(\\S+)\\s+(.{25})");
 
+    /**
+     * The handlers of the events the server tracks in the order they are
+     * checked, the first handler whose event class matches handles the event.
+     */
+    private static final Map<Class<? extends ManagerEvent>, BiConsumer<AsteriskServerImpl, ManagerEvent>>
+            EVENT_HANDLERS = new LinkedHashMap<>();
+
+    /**
+     * The handler for each event class, resolved from {@link #EVENT_HANDLERS}
+     * on the first event of a class.
+     */
+    private static final ClassValue<BiConsumer<AsteriskServerImpl, ManagerEvent>> EVENT_DISPATCH =
+            new ClassValue<BiConsumer<AsteriskServerImpl, ManagerEvent>>() {
+                @Override
+                protected BiConsumer<AsteriskServerImpl, ManagerEvent> computeValue(Class<?> eventClass) {
+                    for (Map.Entry<Class<? extends ManagerEvent>, BiConsumer<AsteriskServerImpl, ManagerEvent>> entry
+                            : EVENT_HANDLERS.entrySet()) {
+                        if (entry.getKey().isAssignableFrom(eventClass)) {
+                            return entry.getValue();
+                        }
+                    }
+                    return null;
+                }
+            };
+
+    static {
+        // Channel related events
+        on(ConnectEvent.class, AsteriskServerImpl::handleConnectEvent);
+        on(DisconnectEvent.class, AsteriskServerImpl::handleDisconnectEvent);
+        on(NewChannelEvent.class, (server, event) -> server.channelManager.handleNewChannelEvent(event));
+        on(NewExtenEvent.class, (server, event) -> server.channelManager.handleNewExtenEvent(event));
+        on(NewStateEvent.class, (server, event) -> server.channelManager.handleNewStateEvent(event));
+        on(NewCallerIdEvent.class, (server, event) -> server.channelManager.handleNewCallerIdEvent(event));
+        on(DialEvent.class, (server, event) -> server.channelManager.handleDialEvent(event));
+        on(BridgeEvent.class, (server, event) -> server.channelManager.handleBridgeEvent(event));
+        on(RenameEvent.class, (server, event) -> server.channelManager.handleRenameEvent(event));
+        on(HangupEvent.class, (server, event) -> server.channelManager.handleHangupEvent(event));
+        on(CdrEvent.class, (server, event) -> server.channelManager.handleCdrEvent(event));
+        on(VarSetEvent.class, (server, event) -> server.channelManager.handleVarSetEvent(event));
+        on(DtmfEvent.class, (server, event) -> server.channelManager.handleDtmfEvent(event));
+        on(MonitorStartEvent.class, (server, event) -> server.channelManager.handleMonitorStartEvent(event));
+        on(MonitorStopEvent.class, (server, event) -> server.channelManager.handleMonitorStopEvent(event));
+
+        // Parking related events
+        on(ParkedCallEvent.class, (server, event) -> server.channelManager.handleParkedCallEvent(event));
+        on(ParkedCallGiveUpEvent.class, (server, event) -> server.channelManager.handleParkedCallGiveUpEvent(event));
+        on(ParkedCallTimeOutEvent.class,
+                (server, event) -> server.channelManager.handleParkedCallTimeOutEvent(event));
+        on(UnparkedCallEvent.class, (server, event) -> server.channelManager.handleUnparkedCallEvent(event));
+
+        // Queue related events
+        on(JoinEvent.class, (server, event) -> server.queueManager.handleJoinEvent(event));
+        on(LeaveEvent.class, (server, event) -> server.queueManager.handleLeaveEvent(event));
+        on(QueueMemberStatusEvent.class,
+                (server, event) -> server.queueManager.handleQueueMemberStatusEvent(event));
+        on(QueueMemberPenaltyEvent.class,
+                (server, event) -> server.queueManager.handleQueueMemberPenaltyEvent(event));
+        on(QueueMemberAddedEvent.class, (server, event) -> server.queueManager.handleQueueMemberAddedEvent(event));
+        on(QueueMemberRemovedEvent.class,
+                (server, event) -> server.queueManager.handleQueueMemberRemovedEvent(event));
+        on(QueueMemberPausedEvent.class,
+                (server, event) -> server.queueManager.handleQueueMemberPausedEvent(event));
+        on(QueueCallerJoinEvent.class, (server, event) -> server.queueManager.handleJoinEvent(event));
+        on(QueueCallerLeaveEvent.class, (server, event) -> server.queueManager.handleLeaveEvent(event));
+
+        // MeetMe events
+        on(AbstractMeetMeEvent.class, (server, event) -> server.meetMeManager.handleMeetMeEvent(event));
+        on(OriginateResponseEvent.class, AsteriskServerImpl::handleOriginateEvent);
+
+        // Agent related events
+        on(AgentsEvent.class, (server, event) -> server.agentManager.handleAgentsEvent(event));
+        on(AgentCalledEvent.class, (server, event) -> server.agentManager.handleAgentCalledEvent(event));
+        on(AgentConnectEvent.class, (server, event) -> server.agentManager.handleAgentConnectEvent(event));
+        on(AgentCompleteEvent.class, (server, event) -> server.agentManager.handleAgentCompleteEvent(event));
+        on(AgentCallbackLoginEvent.class,
+                (server, event) -> server.agentManager.handleAgentCallbackLoginEvent(event));
+        on(AgentCallbackLogoffEvent.class,
+                (server, event) -> server.agentManager.handleAgentCallbackLogoffEvent(event));
+        on(AgentLoginEvent.class, (server, event) -> server.agentManager.handleAgentLoginEvent(event));
+        on(AgentLogoffEvent.class, (server, event) -> server.agentManager.handleAgentLogoffEvent(event));
+    }
+
     private final Log logger = LogFactory.getLog(this.getClass());
 
     /**
@@ -167,6 +250,29 @@ public class AsteriskServerImpl extends Lockable implements AsteriskServer, Mana
         this.skipQueues = skipQueues;
     }
 
+    /**
+     * Sets how long hung up channels are kept in memory after the hangup.
+     * Default is 15 minutes.
+     *
+     * @param retentionMillis the time in milliseconds.
+     * @since 3.40.0
+     */
+    public void setHungupChannelRetention(long retentionMillis) {
+        channelManager.setRemovalThreshold(retentionMillis);
+    }
+
+    /**
+     * Sets the maximum number of hung up channels kept in memory, the oldest
+     * ones are removed before their retention time is over when there are
+     * more. Default is 0 for no limit.
+     *
+     * @param maxHungupChannels the maximum number of hung up channels or 0.
+     * @since 3.40.0
+     */
+    public void setMaxHungupChannels(int maxHungupChannels) {
+        channelManager.setMaxHungupChannels(maxHungupChannels);
+    }
+
     public void setManagerConnection(ManagerConnection eventConnection) {
         if (this.eventConnection != null) {
             throw new IllegalStateException("ManagerConnection already set.");
@@ -770,6 +876,18 @@ public class AsteriskServerImpl extends Lockable implements AsteriskServer, Mana
         }
     }
 
+    /**
+     * Sends an action without waiting for the response, the callback is
+     * called from the reader thread and must return quickly.
+     */
+    void sendAction(ManagerAction action, SendActionCallback callback) throws ManagerCommunicationException {
+        try {
+            eventConnection.sendAction(action, callback);
+        } catch (Exception e) {
+            throw ManagerCommunicationExceptionMapper.mapSendActionException(action.getAction(), e);
+        }
+    }
+
     ResponseEvents sendEventGeneratingAction(EventGeneratingAction action) throws ManagerCommunicationException {
         // return connectionPool.sendEventGeneratingAction(action);
         try {
@@ -804,101 +922,19 @@ public class AsteriskServerImpl extends Lockable implements AsteriskServer, Mana
      * delegated to the dispatchEvent method.
      */
     public void onManagerEvent(ManagerEvent event) {
-        // Handle Channel related events
-        if (event instanceof ConnectEvent) {
-            handleConnectEvent((ConnectEvent) event);
-        } else if (event instanceof DisconnectEvent) {
-            handleDisconnectEvent((DisconnectEvent) event);
-        } else if (event instanceof NewChannelEvent) {
-            channelManager.handleNewChannelEvent((NewChannelEvent) event);
-        } else if (event instanceof NewExtenEvent) {
-            channelManager.handleNewExtenEvent((NewExtenEvent) event);
-        } else if (event instanceof NewStateEvent) {
-            channelManager.handleNewStateEvent((NewStateEvent) event);
-        } else if (event instanceof NewCallerIdEvent) {
-            channelManager.handleNewCallerIdEvent((NewCallerIdEvent) event);
-        } else if (event instanceof DialEvent) {
-            channelManager.handleDialEvent((DialEvent) event);
-        } else if (event instanceof BridgeEvent) {
-            channelManager.handleBridgeEvent((BridgeEvent) event);
-        } else if (event instanceof RenameEvent) {
-            channelManager.handleRenameEvent((RenameEvent) event);
-        } else if (event instanceof HangupEvent) {
-            channelManager.handleHangupEvent((HangupEvent) event);
-        } else if (event instanceof CdrEvent) {
-            channelManager.handleCdrEvent((CdrEvent) event);
-        } else if (event instanceof VarSetEvent) {
-            channelManager.handleVarSetEvent((VarSetEvent) event);
-        } else if (event instanceof DtmfEvent) {
-            channelManager.handleDtmfEvent((DtmfEvent) event);
-        } else if (event instanceof MonitorStartEvent) {
-            channelManager.handleMonitorStartEvent((MonitorStartEvent) event);
-        } else if (event instanceof MonitorStopEvent) {
-            channelManager.handleMonitorStopEvent((MonitorStopEvent) event);
-        }
-        // End of channel related events
-        // Handle parking related event
-        else if (event instanceof ParkedCallEvent) {
-            channelManager.handleParkedCallEvent((ParkedCallEvent) event);
-        } else if (event instanceof ParkedCallGiveUpEvent) {
-            channelManager.handleParkedCallGiveUpEvent((ParkedCallGiveUpEvent) event);
-        } else if (event instanceof ParkedCallTimeOutEvent) {
-            channelManager.handleParkedCallTimeOutEvent((ParkedCallTimeOutEvent) event);
-        } else if (event instanceof UnparkedCallEvent) {
-            channelManager.handleUnparkedCallEvent((UnparkedCallEvent) event);
-        }
-        // End of parking related events
-        // Handle queue related event
-        else if (event instanceof JoinEvent) {
-            queueManager.handleJoinEvent((JoinEvent) event);
-        } else if (event instanceof LeaveEvent) {
-            queueManager.handleLeaveEvent((LeaveEvent) event);
-        } else if (event instanceof QueueMemberStatusEvent) {
-            queueManager.handleQueueMemberStatusEvent((QueueMemberStatusEvent) event);
-        } else if (event instanceof QueueMemberPenaltyEvent) {
-            queueManager.handleQueueMemberPenaltyEvent((QueueMemberPenaltyEvent) event);
-        } else if (event instanceof QueueMemberAddedEvent) {
-            queueManager.handleQueueMemberAddedEvent((QueueMemberAddedEvent) event);
-        } else if (event instanceof QueueMemberRemovedEvent) {
-            queueManager.handleQueueMemberRemovedEvent((QueueMemberRemovedEvent) event);
-        } else if (event instanceof QueueMemberPausedEvent) {
-            queueManager.handleQueueMemberPausedEvent((QueueMemberPausedEvent) event);
-        } else if (event instanceof QueueCallerJoinEvent) {
-            queueManager.handleJoinEvent((QueueCallerJoinEvent) event);
-        } else if (event instanceof QueueCallerLeaveEvent) {
-            queueManager.handleLeaveEvent((QueueCallerLeaveEvent) event);
+        final BiConsumer<AsteriskServerImpl, ManagerEvent> handler = EVENT_DISPATCH.get(event.getClass());
+        if (handler != null) {
+            handler.accept(this, event);
         }
-        // >>>>>> AJ 94
-        // Handle meetMeEvents
-        else if (event instanceof AbstractMeetMeEvent) {
-            meetMeManager.handleMeetMeEvent((AbstractMeetMeEvent) event);
-        } else if (event instanceof OriginateResponseEvent) {
-            handleOriginateEvent((OriginateResponseEvent) event);
-        }
-        // Handle agents-related events
-        else if (event instanceof AgentsEvent) {
-            agentManager.handleAgentsEvent((AgentsEvent) event);
-        } else if (event instanceof AgentCalledEvent) {
-            agentManager.handleAgentCalledEvent((AgentCalledEvent) event);
-        } else if (event instanceof AgentConnectEvent) {
-            agentManager.handleAgentConnectEvent((AgentConnectEvent) event);
-        } else if (event instanceof AgentCompleteEvent) {
-            agentManager.handleAgentCompleteEvent((AgentCompleteEvent) event);
-        } else if (event instanceof AgentCallbackLoginEvent) {
-            agentManager.handleAgentCallbackLoginEvent((AgentCallbackLoginEvent) event);
-        } else if (event instanceof AgentCallbackLogoffEvent) {
-            agentManager.handleAgentCallbackLogoffEvent((AgentCallbackLogoffEvent) event);
-        } else if (event instanceof AgentLoginEvent) {
-            agentManager.handleAgentLoginEvent((AgentLoginEvent) event);
-        } else if (event instanceof AgentLogoffEvent) {
-            agentManager.handleAgentLogoffEvent((AgentLogoffEvent) event);
-        }
-        // End of agent-related events
 
         // dispatch the events to the chainListener if they exist.
         fireChainListeners(event);
     }
 
+    private static <T extends ManagerEvent> void on(Class<T> eventClass, BiConsumer<AsteriskServerImpl, T> handler) {
+        EVENT_HANDLERS.put(eventClass, (server, event) -> handler.accept(server, eventClass.cast(event)));
+    }
+
     /**
      * dispatch the event to the chainListener if they exist.
      *
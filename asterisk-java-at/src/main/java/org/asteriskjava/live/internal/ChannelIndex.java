@@ -0,0 +1,249 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.live.internal;
+
+import org.asteriskjava.live.AsteriskChannel;
+import org.asteriskjava.live.ChannelState;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The channels known to a {@link ChannelManager}, indexed by unique id, name,
+ * linkedid, trace id and state.
+ * <p>
+ * Lookups do not lock, the indexes are concurrent maps whose values are copy
+ * on write lists. The channels of a key are kept in the order they have been
+ * added so that the lookups return the same channel the former linear scan
+ * over all channels did.
+ * <p>
+ * The name, state and id indexes follow the property changes of the
+ * channels, the linkedid and trace id have to be reported by
+ * {@link #linkedIdChanged(AsteriskChannelImpl, String)} and
+ * {@link #traceIdChanged(AsteriskChannelImpl, String)}.
+ *
+ * @since 3.40.0
+ */
+final class ChannelIndex implements PropertyChangeListener {
+    private final ConcurrentMap<String, AsteriskChannelImpl> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<AsteriskChannelImpl>> byName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<AsteriskChannelImpl>> byLinkedId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<AsteriskChannelImpl>> byTraceId = new ConcurrentHashMap<>();
+    private final Map<ChannelState, Set<AsteriskChannelImpl>> byState = new EnumMap<>(ChannelState.class);
+
+    ChannelIndex() {
+        for (ChannelState state : ChannelState.values()) {
+            byState.put(state, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Adds a channel, a channel with the same unique id is replaced.
+     *
+     * @param channel the channel to add.
+     */
+    void add(AsteriskChannelImpl channel) {
+        final AsteriskChannelImpl replaced = byId.put(channel.getId(), channel);
+        if (replaced == channel) {
+            return;
+        }
+        if (replaced != null) {
+            unindex(replaced);
+        }
+        channel.addPropertyChangeListener(this);
+        add(byName, channel.getName(), channel);
+        add(byLinkedId, channel.getLinkedId(), channel);
+        add(byTraceId, channel.getTraceId(), channel);
+        if (channel.getState() != null) {
+            byState.get(channel.getState()).add(channel);
+        }
+    }
+
+    /**
+     * Removes a channel.
+     *
+     * @param channel the channel to remove.
+     */
+    void remove(AsteriskChannelImpl channel) {
+        if (byId.remove(channel.getId(), channel)) {
+            unindex(channel);
+        }
+    }
+
+    void clear() {
+        for (AsteriskChannelImpl channel : byId.values()) {
+            remove(channel);
+        }
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    AsteriskChannelImpl getById(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Returns the channels with the given name in the order they have been
+     * added.
+     *
+     * @param name the name of the channels.
+     * @return the channels, may be empty but never <code>null</code>.
+     */
+    List<AsteriskChannelImpl> getByName(String name) {
+        return get(byName, name);
+    }
+
+    List<AsteriskChannelImpl> getByLinkedId(String linkedId) {
+        return get(byLinkedId, linkedId);
+    }
+
+    List<AsteriskChannelImpl> getByTraceId(String traceId) {
+        return get(byTraceId, traceId);
+    }
+
+    /**
+     * Returns the channels in the given state.
+     *
+     * @param state the state of the channels.
+     * @return a live view of the channels in that state.
+     */
+    Collection<AsteriskChannelImpl> getByState(ChannelState state) {
+        return Collections.unmodifiableSet(byState.get(state));
+    }
+
+    /**
+     * Returns all channels that have not been hung up.
+     *
+     * @return a copy of the channels.
+     */
+    List<AsteriskChannel> getActive() {
+        final List<AsteriskChannel> active = new ArrayList<>(byId.size());
+        for (Map.Entry<ChannelState, Set<AsteriskChannelImpl>> entry : byState.entrySet()) {
+            if (entry.getKey() != ChannelState.HUNGUP) {
+                active.addAll(entry.getValue());
+            }
+        }
+        return active;
+    }
+
+    void linkedIdChanged(AsteriskChannelImpl channel, String linkedId) {
+        final String oldLinkedId = channel.getLinkedId();
+        channel.setLinkedId(linkedId);
+        if (isIndexed(channel)) {
+            move(byLinkedId, oldLinkedId, linkedId, channel);
+        }
+    }
+
+    void traceIdChanged(AsteriskChannelImpl channel, String traceId) {
+        final String oldTraceId = channel.getTraceId();
+        channel.setTraceId(traceId);
+        if (isIndexed(channel)) {
+            move(byTraceId, oldTraceId, traceId, channel);
+        }
+    }
+
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        final AsteriskChannelImpl channel = (AsteriskChannelImpl) evt.getSource();
+        final String property = evt.getPropertyName();
+
+        if (AsteriskChannel.PROPERTY_ID.equals(property)) {
+            if (evt.getOldValue() != null && byId.remove(evt.getOldValue(), channel)) {
+                byId.put((String) evt.getNewValue(), channel);
+                // the channel is moved to the end like a re-added one
+                move(byName, channel.getName(), channel.getName(), channel);
+            }
+        } else if (!isIndexed(channel)) {
+            return;
+        }
+
+        if (AsteriskChannel.PROPERTY_NAME.equals(property)) {
+            move(byName, (String) evt.getOldValue(), (String) evt.getNewValue(), channel);
+        } else if (AsteriskChannel.PROPERTY_STATE.equals(property)) {
+            if (evt.getOldValue() != null) {
+                byState.get(evt.getOldValue()).remove(channel);
+            }
+            if (evt.getNewValue() != null) {
+                byState.get(evt.getNewValue()).add(channel);
+            }
+        }
+    }
+
+    private boolean isIndexed(AsteriskChannelImpl channel) {
+        return channel.getId() != null && byId.get(channel.getId()) == channel;
+    }
+
+    private void unindex(AsteriskChannelImpl channel) {
+        channel.removePropertyChangeListener(this);
+        remove(byName, channel.getName(), channel);
+        remove(byLinkedId, channel.getLinkedId(), channel);
+        remove(byTraceId, channel.getTraceId(), channel);
+        for (Set<AsteriskChannelImpl> channels : byState.values()) {
+            channels.remove(channel);
+        }
+    }
+
+    private static List<AsteriskChannelImpl> get(ConcurrentMap<String, List<AsteriskChannelImpl>> index, String key) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        final List<AsteriskChannelImpl> channels = index.get(key);
+        return channels == null ? Collections.emptyList() : Collections.unmodifiableList(channels);
+    }
+
+    private static void move(ConcurrentMap<String, List<AsteriskChannelImpl>> index, String oldKey, String newKey,
+                             AsteriskChannelImpl channel) {
+        remove(index, oldKey, channel);
+        add(index, newKey, channel);
+    }
+
+    private static void add(ConcurrentMap<String, List<AsteriskChannelImpl>> index, String key,
+                            AsteriskChannelImpl channel) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, channels) -> {
+            final List<AsteriskChannelImpl> list = channels == null ? new CopyOnWriteArrayList<>() : channels;
+            if (!list.contains(channel)) {
+                list.add(channel);
+            }
+            return list;
+        });
+    }
+
+    private static void remove(ConcurrentMap<String, List<AsteriskChannelImpl>> index, String key,
+                               AsteriskChannelImpl channel) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, channels) -> {
+            channels.remove(channel);
+            return channels.isEmpty() ? null : channels;
+        });
+    }
+}
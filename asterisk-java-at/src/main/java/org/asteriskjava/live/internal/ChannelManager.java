@@ -17,7 +17,6 @@
 package org.asteriskjava.live.internal;
 
 import org.asteriskjava.live.*;
-import org.asteriskjava.lock.LockableMap;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.ResponseEvents;
 import org.asteriskjava.manager.action.StatusAction;
@@ -29,8 +28,10 @@ import org.asteriskjava.util.LogFactory;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages channel events on behalf of an AsteriskServer.
@@ -42,20 +43,41 @@ class ChannelManager {
     private final Log logger = LogFactory.getLog(getClass());
 
     /**
-     * How long we wait before we remove hung up channels from memory (in
-     * milliseconds).
+     * How long we wait by default before we remove hung up channels from
+     * memory (in milliseconds).
+     */
+    static final long REMOVAL_THRESHOLD = 15 * 60 * 1000L; // 15 minutes
+
+    /**
+     * How often expired hung up channels are removed (in milliseconds).
+     */
+    private static final long REMOVAL_INTERVAL = 1000L;
+    /**
+     * How long new channels are collected before their trace ids are
+     * retrieved (in milliseconds).
      */
-    private static final long REMOVAL_THRESHOLD = 15 * 60 * 1000L; // 15 minutes
     private static final long SLEEP_TIME_BEFORE_GET_VAR = 50L;
 
     private final AsteriskServerImpl server;
 
     /**
-     * A map of all active channel by their unique id.
+     * All channels including the recently hung up ones, indexed by unique id,
+     * name, linkedid, trace id and state. Lookups do not lock.
      */
-    final LockableMap<String, AsteriskChannelImpl> channels = new LockableMap<>(new LinkedHashMap<>());
+    final ChannelIndex channels = new ChannelIndex();
+
+    /**
+     * The hung up channels in the order they have been hung up, which is the
+     * order they expire in as they are all kept for the same time.
+     */
+    private final Queue<HungupChannel> hungupChannels = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hungupChannelCount = new AtomicInteger();
+
+    private volatile long removalThreshold = REMOVAL_THRESHOLD;
+    private volatile int maxHungupChannels;
 
     ScheduledThreadPoolExecutor traceScheduledExecutorService;
+    private volatile TraceIdResolver traceIdResolver;
 
     /**
      * Creates a new instance.
@@ -76,6 +98,10 @@ class ChannelManager {
         shutdown();
 
         traceScheduledExecutorService = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());// Executors.newSingleThreadScheduledExecutor
+        traceScheduledExecutorService.scheduleWithFixedDelay(this::removeOldChannels, REMOVAL_INTERVAL,
+                REMOVAL_INTERVAL, TimeUnit.MILLISECONDS);
+        traceIdResolver = new TraceIdResolver(server, traceScheduledExecutorService, SLEEP_TIME_BEFORE_GET_VAR,
+                this::traceIdResolved);
 
         StatusAction sa = new StatusAction();
         sa.setVariables(variables);
@@ -98,10 +124,28 @@ class ChannelManager {
         if (traceScheduledExecutorService != null) {
             traceScheduledExecutorService.shutdown();
         }
-        try (LockCloser closer = channels.withLock()) {
-            channels.clear();
-        }
+        channels.clear();
+        hungupChannels.clear();
+        hungupChannelCount.set(0);
+    }
 
+    /**
+     * Sets how long hung up channels are kept, default is 15 minutes.
+     *
+     * @param removalThreshold the time in milliseconds.
+     */
+    void setRemovalThreshold(long removalThreshold) {
+        this.removalThreshold = removalThreshold;
+    }
+
+    /**
+     * Sets the maximum number of hung up channels that are kept, the oldest
+     * ones are removed early when there are more. Default is 0 for no limit.
+     *
+     * @param maxHungupChannels the maximum number of hung up channels or 0.
+     */
+    void setMaxHungupChannels(int maxHungupChannels) {
+        this.maxHungupChannels = maxHungupChannels;
     }
 
     /**
@@ -110,103 +154,112 @@ class ChannelManager {
      * @return a collection of all active AsteriskChannels.
      */
     Collection<AsteriskChannel> getChannels() {
-        Collection<AsteriskChannel> copy;
-
-        try (LockCloser closer = channels.withLock()) {
-            copy = new ArrayList<>(channels.size() + 2);
-            for (AsteriskChannel channel : channels.values()) {
-                if (channel.getState() != ChannelState.HUNGUP) {
-                    copy.add(channel);
-                }
-            }
-        }
-        return copy;
+        return channels.getActive();
     }
 
     private void addChannel(AsteriskChannelImpl channel) {
-        try (LockCloser closer = channels.withLock()) {
-            channels.put(channel.getId(), channel);
-        }
+        channels.add(channel);
     }
 
     /**
-     * Removes channels that have been hung more than {@link #REMOVAL_THRESHOLD}
-     * milliseconds.
+     * Removes channels that have been hung up for longer than the removal
+     * threshold and the oldest ones above the maximum number of hung up
+     * channels. Only looks at the channels that are removed.
      */
-    private void removeOldChannels() {
-        Iterator<AsteriskChannelImpl> i;
-
-        try (LockCloser closer = channels.withLock()) {
-            i = channels.values().iterator();
-            while (i.hasNext()) {
-                final AsteriskChannel channel = i.next();
-                final Date dateOfRemoval = channel.getDateOfRemoval();
-                if (channel.getState() == ChannelState.HUNGUP && dateOfRemoval != null) {
-                    final long diff = DateUtil.getDate().getTime() - dateOfRemoval.getTime();
-                    if (diff >= REMOVAL_THRESHOLD) {
-                        i.remove();
-                    }
-                }
+    void removeOldChannels() {
+        final long now = DateUtil.getDate().getTime();
+        HungupChannel hungupChannel;
+
+        while ((hungupChannel = hungupChannels.peek()) != null) {
+            final int max = maxHungupChannels;
+            if ((max <= 0 || hungupChannelCount.get() <= max)
+                    && now - hungupChannel.dateOfRemoval < removalThreshold) {
+                break;
+            }
+            // the head may have been removed concurrently
+            if (hungupChannels.remove(hungupChannel)) {
+                hungupChannelCount.decrementAndGet();
+                channels.remove(hungupChannel.channel);
             }
         }
     }
 
     private AsteriskChannelImpl addNewChannel(String uniqueId, final String name, Date dateOfCreation, String callerIdNumber,
-                                              String callerIdName, ChannelState state, String account) {
+                                              String callerIdName, ChannelState state, String account, String linkedId,
+                                              Map<String, String> variables) {
         final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, name, uniqueId, dateOfCreation);
         channel.setCallerId(new CallerId(callerIdName, callerIdNumber));
         channel.setAccount(account);
+        channel.setLinkedId(linkedId);
         channel.stateChanged(dateOfCreation, state);
-        logger.info("Adding channel " + channel.getName() + "(" + channel.getId() + ")");
-
-        if (SLEEP_TIME_BEFORE_GET_VAR > 0) {
-            long start = System.currentTimeMillis();
-            long end = start + SLEEP_TIME_BEFORE_GET_VAR;
-            while (System.currentTimeMillis() < end) {
-                try {
-                    channel.getVariable(Constants.VARIABLE_TRACE_ID);
-                } catch (NoSuchChannelException | ManagerCommunicationException e) {
-                    try {
-                        Thread.sleep(1L);
-                    } catch (InterruptedException intEx) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
+        if (variables != null) {
+            for (Entry<String, String> variable : variables.entrySet()) {
+                channel.updateVariable(variable.getKey(), variable.getValue());
             }
         }
-
-        String traceId = getTraceId(channel);
-        channel.setTraceId(traceId);
+        logger.info("Adding channel " + channel.getName() + "(" + channel.getId() + ")");
 
         addChannel(channel);
-
-        // todo getChannelImplById -> LinkedHashMap, callbacks order
-        traceScheduledExecutorService.schedule(new Runnable() {
-            @Override
-            public void run() {
-                final String traceId = getTraceId(channel);
-                channel.setTraceId(traceId);
-
-                if (traceId != null && (!name.toLowerCase(Locale.ENGLISH).startsWith("local/") || name.endsWith(",1")
-                        || name.endsWith(";1"))) {
-                    final OriginateCallbackData callbackData = server.getOriginateCallbackDataByTraceId(traceId);
-
-                    if (callbackData != null && callbackData.getChannel() == null) {
-                        callbackData.setChannel(channel);
-                        try {
-                            callbackData.getCallback().onDialing(channel);
-                        } catch (Throwable t) {
-                            logger.warn("Exception dispatching originate progress. " + channel, t);
-                        } // t
-                    } // i
-                } // i
-            }
-        }, SLEEP_TIME_BEFORE_GET_VAR, TimeUnit.MILLISECONDS);
-
         server.fireNewAsteriskChannel(channel);
+
+        // prefer the trace id sent with the event (channelvars in
+        // manager.conf) over asking for it
+        final String traceId = variables == null ? null : variables.get(Constants.VARIABLE_TRACE_ID);
+        if (traceId != null && !traceId.isEmpty()) {
+            traceIdResolved(channel, traceId);
+        } else {
+            resolveTraceId(channel);
+        }
         return channel;
     }// addNewChannel
 
+    private void resolveTraceId(AsteriskChannelImpl channel) {
+        final TraceIdResolver resolver = traceIdResolver;
+        if (resolver != null && channel.getTraceId() == null) {
+            resolver.resolve(channel);
+        }
+    }
+
+    /**
+     * Sets the trace id of a channel and notifies the originate callback of
+     * the call, if any. Called from the event dispatching thread or the
+     * reader thread, the callback is run on the scheduler.
+     */
+    void traceIdResolved(final AsteriskChannelImpl channel, final String traceId) {
+        try (LockCloser closer = channel.withLock()) {
+            if (traceId.equals(channel.getTraceId())) {
+                return;
+            }
+            channels.traceIdChanged(channel, traceId);
+        }
+
+        final String name = channel.getName();
+        if (name.toLowerCase(Locale.ENGLISH).startsWith("local/") && !name.endsWith(",1") && !name.endsWith(";1")) {
+            return;
+        }
+        final OriginateCallbackData callbackData = server.getOriginateCallbackDataByTraceId(traceId);
+        if (callbackData == null) {
+            return;
+        }
+
+        final Runnable onDialing = () -> {
+            if (callbackData.getChannel() == null) {
+                callbackData.setChannel(channel);
+                try {
+                    callbackData.getCallback().onDialing(channel);
+                } catch (Throwable t) {
+                    logger.warn("Exception dispatching originate progress. " + channel, t);
+                }
+            }
+        };
+        try {
+            traceScheduledExecutorService.execute(onDialing);
+        } catch (RuntimeException e) {
+            // not initialized or disconnected
+            onDialing.run();
+        }
+    }
+
     void handleStatusEvent(StatusEvent event) {
         AsteriskChannelImpl channel;
         final Extension extension;
@@ -281,16 +334,15 @@ class ChannelManager {
             return null;
         }
 
-        try (LockCloser closer = channels.withLock()) {
-            for (AsteriskChannelImpl tmp : channels.values()) {
-                if (name.equals(tmp.getName())) {
-                    // return the most recent channel or when dates are similar,
-                    // the active one
-                    if (dateOfCreation == null || tmp.getDateOfCreation().after(dateOfCreation)
-                            || (tmp.getDateOfCreation().equals(dateOfCreation) && tmp.getState() != ChannelState.HUNGUP)) {
-                        channel = tmp;
-                        dateOfCreation = channel.getDateOfCreation();
-                    }
+        for (AsteriskChannelImpl tmp : channels.getByName(name)) {
+            // the name may have changed since the lookup
+            if (name.equals(tmp.getName())) {
+                // return the most recent channel or when dates are similar,
+                // the active one
+                if (dateOfCreation == null || tmp.getDateOfCreation().after(dateOfCreation)
+                        || (tmp.getDateOfCreation().equals(dateOfCreation) && tmp.getState() != ChannelState.HUNGUP)) {
+                    channel = tmp;
+                    dateOfCreation = channel.getDateOfCreation();
                 }
             }
         }
@@ -319,11 +371,9 @@ class ChannelManager {
             return null;
         }
 
-        try (LockCloser closer = channels.withLock()) {
-            for (AsteriskChannelImpl tmp : channels.values()) {
-                if (name.equals(tmp.getName()) && tmp.getState() != ChannelState.HUNGUP) {
-                    channel = tmp;
-                }
+        for (AsteriskChannelImpl tmp : channels.getByName(name)) {
+            if (name.equals(tmp.getName()) && tmp.getState() != ChannelState.HUNGUP) {
+                channel = tmp;
             }
         }
         return channel;
@@ -334,11 +384,30 @@ class ChannelManager {
             return null;
         }
 
-        try (LockCloser closer = channels.withLock()) {
-            return channels.get(uniqueId);
-        }
+        return channels.getById(uniqueId);
     }// getChannelImplById
 
+    /**
+     * Returns the channels of a call.
+     *
+     * @param linkedId the unique id of the first channel of the call.
+     * @return the channels in any state, may be empty.
+     */
+    List<AsteriskChannelImpl> getChannelImplsByLinkedId(String linkedId) {
+        return channels.getByLinkedId(linkedId);
+    }
+
+    /**
+     * Returns the channels with the given trace id, i.e. the channels of an
+     * originated call.
+     *
+     * @param traceId the trace id.
+     * @return the channels in any state, may be empty.
+     */
+    List<AsteriskChannelImpl> getChannelImplsByTraceId(String traceId) {
+        return channels.getByTraceId(traceId);
+    }
+
     /**
      * Returns the other side of a local channel. <br>
      * Local channels consist of two sides, like "Local/1234@from-local-60b5,1"
@@ -383,10 +452,14 @@ class ChannelManager {
                 logger.info("Ignored NewChannelEvent with empty channel name (uniqueId=" + event.getUniqueId() + ")");
             } else {
                 addNewChannel(event.getUniqueId(), event.getChannel(), event.getDateReceived(), event.getCallerIdNum(),
-                        event.getCallerIdName(), ChannelState.valueOf(event.getChannelState()), event.getAccountCode());
+                        event.getCallerIdName(), ChannelState.valueOf(event.getChannelState()), event.getAccountCode(),
+                        event.getLinkedid(), event.getChanVariables());
             }
         } else {
             // channel had already been created probably by a NewCallerIdEvent
+            if (event.getLinkedid() != null) {
+                channels.linkedIdChanged(channel, event.getLinkedid());
+            }
             try (LockCloser closer = channel.withLock()) {
                 channel.nameChanged(event.getDateReceived(), event.getChannel());
                 channel.setCallerId(new CallerId(event.getCallerIdName(), event.getCallerIdNum()));
@@ -423,11 +496,8 @@ class ChannelManager {
             }
 
             logger.info("Changing unique_id for '" + channel.getName() + "' from " + oldId + " to " + newId + " < " + event);
-            try (LockCloser closer = channels.withLock()) {
-                channels.remove(oldId);
-                channels.put(newId, channel);
-                channel.idChanged(event.getDateReceived(), newId);
-            }
+            // the index follows the id change
+            channel.idChanged(event.getDateReceived(), newId);
         }
     }// idChanged
 
@@ -446,7 +516,7 @@ class ChannelManager {
                 // NewStateEvent can occur instead of a NewChannelEvent
                 channel = addNewChannel(event.getUniqueId(), event.getChannel(), event.getDateReceived(),
                         event.getCallerIdNum(), event.getCallerIdName(), ChannelState.valueOf(event.getChannelState()),
-                        null /* account code not available */);
+                        null /* account code not available */, null, event.getChanVariables());
             }
         }
 
@@ -509,7 +579,7 @@ class ChannelManager {
                 // NewCallerIdEvent can occur before NewChannelEvent
                 channel = addNewChannel(event.getUniqueId(), event.getChannel(), event.getDateReceived(),
                         event.getCallerIdNum(), event.getCallerIdName(), ChannelState.DOWN,
-                        null /* account code not available */);
+                        null /* account code not available */, null, event.getChanVariables());
             }
         }
 
@@ -531,12 +601,22 @@ class ChannelManager {
             cause = HangupCause.getByCode(event.getCause());
         }
 
+        final boolean wasHungup;
         try (LockCloser closer = channel.withLock()) {
+            wasHungup = channel.getState() == ChannelState.HUNGUP;
             channel.hungup(event.getDateReceived(), cause, event.getCauseTxt());
         }
 
         logger.info("Removing channel " + channel.getName() + " due to hangup (" + cause + ")");
-        removeOldChannels();
+        if (!wasHungup) {
+            final Date dateOfRemoval = channel.getDateOfRemoval();
+            hungupChannels.add(new HungupChannel(channel,
+                    dateOfRemoval == null ? DateUtil.getDate().getTime() : dateOfRemoval.getTime()));
+            hungupChannelCount.incrementAndGet();
+            if (maxHungupChannels > 0 && hungupChannelCount.get() > maxHungupChannels) {
+                removeOldChannels();
+            }
+        }
     }
 
     void handleDialEvent(DialEvent event) {
@@ -561,8 +641,8 @@ class ChannelManager {
         } // i
 
         logger.info(sourceChannel.getName() + " dialed " + destinationChannel.getName());
-        getTraceId(sourceChannel);
-        getTraceId(destinationChannel);
+        resolveTraceId(sourceChannel);
+        resolveTraceId(destinationChannel);
         try (LockCloser closer = sourceChannel.withLock()) {
             sourceChannel.channelDialed(event.getDateReceived(), destinationChannel);
         }
@@ -639,19 +719,6 @@ class ChannelManager {
         }
     }
 
-    private String getTraceId(AsteriskChannel channel) {
-        String traceId;
-
-        try {
-            traceId = channel.getVariable(Constants.VARIABLE_TRACE_ID);
-        } catch (Exception e) {
-            traceId = null;
-        }
-        // logger.info("TraceId for channel " + channel.getName() + " is " +
-        // traceId);
-        return traceId;
-    }
-
     void handleParkedCallEvent(ParkedCallEvent event) {
         logger.info("Trace - ChannelManager.java - handleParkedCallEvent: " + event);
         // Only bristuffed versions: AsteriskChannelImpl channel =
@@ -755,6 +822,25 @@ class ChannelManager {
         try (LockCloser closer = channel.withLock()) {
             channel.updateVariable(event.getVariable(), event.getValue());
         }
+
+        if (event.getValue() != null && !event.getValue().isEmpty()
+                && Constants.VARIABLE_TRACE_ID.equals(stripInheritance(event.getVariable()))) {
+            traceIdResolved(channel, event.getValue());
+        }
+    }
+
+    /**
+     * Strips the underscores that mark a variable as inherited.
+     */
+    private static String stripInheritance(String variable) {
+        if (variable == null) {
+            return null;
+        }
+        int i = 0;
+        while (i < variable.length() && i < 2 && variable.charAt(i) == '_') {
+            i++;
+        }
+        return variable.substring(i);
     }
 
     void handleDtmfEvent(DtmfEvent event) {
@@ -832,4 +918,13 @@ class ChannelManager {
         logger.info("Channel " + channel.getName() + " is not monitored");
     }
 
+    private static final class HungupChannel {
+        private final AsteriskChannelImpl channel;
+        private final long dateOfRemoval;
+
+        HungupChannel(AsteriskChannelImpl channel, long dateOfRemoval) {
+            this.channel = channel;
+            this.dateOfRemoval = dateOfRemoval;
+        }
+    }
 }
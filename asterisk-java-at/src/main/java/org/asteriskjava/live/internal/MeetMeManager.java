@@ -18,7 +18,7 @@ package org.asteriskjava.live.internal;
 
 import org.asteriskjava.live.ManagerCommunicationException;
 import org.asteriskjava.live.MeetMeRoom;
-import org.asteriskjava.lock.LockableMap;
+import org.asteriskjava.lock.LockableConcurrentMap;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.action.CommandAction;
 import org.asteriskjava.manager.event.AbstractMeetMeEvent;
@@ -34,7 +34,6 @@ import org.asteriskjava.util.LogFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -55,12 +54,12 @@ class MeetMeManager {
     /**
      * Maps room number to MeetMe room.
      */
-    private final LockableMap<String, MeetMeRoomImpl> rooms;
+    private final LockableConcurrentMap<String, MeetMeRoomImpl> rooms;
 
     MeetMeManager(AsteriskServerImpl server, ChannelManager channelManager) {
         this.server = server;
         this.channelManager = channelManager;
-        this.rooms = new LockableMap<>(new HashMap<>());
+        this.rooms = new LockableConcurrentMap<>();
     }
 
     void initialize() {
@@ -81,11 +80,9 @@ class MeetMeManager {
         final Collection<MeetMeRoom> result;
 
         result = new ArrayList<>();
-        try (LockCloser closer = rooms.withLock()) {
-            for (MeetMeRoom room : rooms.values()) {
-                if (!room.isEmpty()) {
-                    result.add(room);
-                }
+        for (MeetMeRoom room : rooms.values()) {
+            if (!room.isEmpty()) {
+                result.add(room);
             }
         }
         return result;
@@ -321,9 +318,14 @@ class MeetMeManager {
      * @return the room with the given number.
      */
     MeetMeRoomImpl getOrCreateRoomImpl(String roomNumber) {
-        MeetMeRoomImpl room;
+        MeetMeRoomImpl room = rooms.get(roomNumber);
         boolean created = false;
 
+        if (room != null) {
+            return room;
+        }
+
+        // the lock keeps two threads from populating the same room
         try (LockCloser closer = rooms.withLock()) {
             room = rooms.get(roomNumber);
             if (room == null) {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.live.internal;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.live.ManagerCommunicationException;
+import org.asteriskjava.manager.action.GetVarAction;
+import org.asteriskjava.manager.response.ManagerError;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Retrieves the trace id of channels that did not get it with their events.
+ * <p>
+ * Channels are collected for a short time and then a GetVar action is sent
+ * for each of them without waiting for the responses. The trace id is
+ * usually set shortly after the channel has been created, so a channel whose
+ * trace id is still empty is retried once with the next batch.
+ *
+ * @since 3.40.0
+ */
+final class TraceIdResolver {
+    private static final Log logger = LogFactory.getLog(TraceIdResolver.class);
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final AsteriskServerImpl server;
+    private final ScheduledExecutorService executor;
+    private final long batchDelay;
+    private final BiConsumer<AsteriskChannelImpl, String> resolved;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param server     the server to send the actions to.
+     * @param executor   the executor the batches are sent on.
+     * @param batchDelay how long channels are collected before a batch is
+     *                   sent (in milliseconds).
+     * @param resolved   called with the channel and its trace id from the
+     *                   reader thread, must return quickly.
+     */
+    TraceIdResolver(AsteriskServerImpl server, ScheduledExecutorService executor, long batchDelay,
+                    BiConsumer<AsteriskChannelImpl, String> resolved) {
+        this.server = server;
+        this.executor = executor;
+        this.batchDelay = batchDelay;
+        this.resolved = resolved;
+    }
+
+    /**
+     * Queues a channel for the next batch.
+     *
+     * @param channel the channel to retrieve the trace id of.
+     */
+    void resolve(AsteriskChannelImpl channel) {
+        resolve(channel, 1);
+    }
+
+    private void resolve(AsteriskChannelImpl channel, int attempt) {
+        pending.add(new Pending(channel, attempt));
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.schedule(this::sendBatch, batchDelay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // disconnected
+                scheduled.set(false);
+                pending.clear();
+            }
+        }
+    }
+
+    private void sendBatch() {
+        scheduled.set(false);
+        Pending next;
+        while ((next = pending.poll()) != null) {
+            final AsteriskChannelImpl channel = next.channel;
+            if (channel.getTraceId() == null && channel.getState() != ChannelState.HUNGUP) {
+                send(next);
+            }
+        }
+    }
+
+    private void send(Pending next) {
+        final GetVarAction action = new GetVarAction(next.channel.getName(), Constants.VARIABLE_TRACE_ID);
+        try {
+            server.sendAction(action, response -> onResponse(next, response));
+        } catch (ManagerCommunicationException e) {
+            logger.debug("Unable to get trace id of " + next.channel.getName(), e);
+        }
+    }
+
+    private void onResponse(Pending next, ManagerResponse response) {
+        String traceId = null;
+        if (!(response instanceof ManagerError)) {
+            traceId = response.getAttribute("Value");
+            if (traceId == null) {
+                traceId = response.getAttribute(Constants.VARIABLE_TRACE_ID); // for Asterisk 1.0.x
+            }
+        }
+
+        if (traceId != null && !traceId.isEmpty()) {
+            resolved.accept(next.channel, traceId);
+        } else if (next.attempt < MAX_ATTEMPTS && !(response instanceof ManagerError)) {
+            resolve(next.channel, next.attempt + 1);
+        }
+    }
+
+    private static final class Pending {
+        private final AsteriskChannelImpl channel;
+        private final int attempt;
+
+        Pending(AsteriskChannelImpl channel, int attempt) {
+            this.channel = channel;
+            this.attempt = attempt;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.lock;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event of a sampled lock acquisition, the duration of the event spans
+ * from the request of the lock to its release.
+ * <p>
+ * Only referenced by {@link LockProfiler} when JFR is available, so that
+ * the library still runs on JVMs without <code>jdk.jfr</code>.
+ *
+ * @since 3.40.0
+ */
+@Name("org.asteriskjava.LockAcquisition")
+@Label("Lock Acquisition")
+@Category({"Asterisk-Java", "Locks"})
+@Description("A sampled acquisition of a Lockable")
+@StackTrace(false)
+final class LockAcquisitionEvent extends Event {
+    @Label("Call Site")
+    String callSite;
+
+    @Label("Lock Class")
+    String lockClass;
+
+    @Label("Contended")
+    boolean contended;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+
+    @Label("Hold Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long holdTime;
+
+    /**
+     * Starts an event before the lock is requested.
+     *
+     * @return the event, typed as Object so that callers do not link
+     * against JFR.
+     */
+    static Object start() {
+        final LockAcquisitionEvent event = new LockAcquisitionEvent();
+        event.begin();
+        return event;
+    }
+
+    static void stop(Object started, LockCallSite callSite, boolean contended, long waitNanos, long holdNanos) {
+        final LockAcquisitionEvent event = (LockAcquisitionEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.callSite = callSite.getName();
+            event.lockClass = callSite.getLockClass();
+            event.contended = contended;
+            event.waitTime = waitNanos;
+            event.holdTime = holdNanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.lock;
+
+import org.asteriskjava.manager.LatencyStatistics;
+import org.asteriskjava.util.internal.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of the sampled acquisitions of a call site, see
+ * {@link LockProfiler}.
+ *
+ * @since 3.40.0
+ */
+public final class LockCallSite {
+    private final String name;
+    private final String lockClass;
+    private final LongAdder contended = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+
+    LockCallSite(String name, String lockClass) {
+        this.name = name;
+        this.lockClass = lockClass;
+    }
+
+    void record(boolean wasContended, long waitNanos, long holdNanos) {
+        if (wasContended) {
+            contended.increment();
+        }
+        waitTime.record(waitNanos);
+        holdTime.record(holdNanos);
+    }
+
+    /**
+     * Returns the method and line that acquired the lock.
+     *
+     * @return the call site, for example
+     * <code>org.asteriskjava.live.internal.ChannelManager.addChannel(ChannelManager.java:123)</code>.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the class of the {@link Lockable} locked at this call site.
+     *
+     * @return the class name of the lockable seen first.
+     */
+    public String getLockClass() {
+        return lockClass;
+    }
+
+    /**
+     * Returns the number of sampled acquisitions.
+     *
+     * @return the number of sampled acquisitions.
+     */
+    public long getSampledCount() {
+        return holdTime.getCount();
+    }
+
+    /**
+     * Returns the number of sampled acquisitions that found the lock held by
+     * another thread.
+     *
+     * @return the number of contended acquisitions.
+     */
+    public long getContendedCount() {
+        return contended.sum();
+    }
+
+    public LatencyStatistics getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyStatistics getHoldTime() {
+        return holdTime;
+    }
+
+    @Override
+    public String toString() {
+        return "LockCallSite[name=" + name + ",lockClass=" + lockClass + ",sampled=" + getSampledCount()
+                + ",contended=" + getContendedCount() + ",waitTime=" + waitTime + ",holdTime=" + holdTime + "]";
+    }
+}
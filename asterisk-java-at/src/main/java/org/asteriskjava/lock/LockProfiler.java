@@ -0,0 +1,201 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.lock;
+
+import org.asteriskjava.lock.Locker.LockCloser;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sampling contention profiler for {@link Lockable}s and the lockable
+ * collections.
+ * <p>
+ * When enabled one in every <code>sampleInterval</code> calls to
+ * {@link Lockable#withLock()} is profiled: the call site is taken from the
+ * stack, the time waited for the lock and the time it has been held are
+ * recorded in histograms of that call site and, if Java Flight Recorder is
+ * available, a <code>org.asteriskjava.LockAcquisition</code> event is
+ * emitted. All other acquisitions only pay for a volatile read and a
+ * random number, so the profiler can be left on in production.
+ * <p>
+ * The profiler is toggled at runtime with {@link #enable(int)} and
+ * {@link #disable()} or at startup with the system property
+ * <code>org.asteriskjava.lock.profiler.sampleInterval</code>. It does not
+ * apply while the diagnostics of {@link Locker#enable()} are on.
+ *
+ * @since 3.40.0
+ */
+public final class LockProfiler {
+    private static final Log logger = LogFactory.getLog(LockProfiler.class);
+
+    /**
+     * The system property to enable the profiler at startup with.
+     */
+    public static final String SAMPLE_INTERVAL_PROPERTY = "org.asteriskjava.lock.profiler.sampleInterval";
+
+    /**
+     * The sample interval used by {@link #enable()}.
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 100;
+
+    /**
+     * The classes between the call site and the profiler.
+     */
+    private static final Set<String> LOCKING_CLASSES = new HashSet<>(Arrays.asList(LockProfiler.class.getName(),
+            Locker.class.getName(), Lockable.class.getName()));
+
+    private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+    private static final ConcurrentMap<StackTraceElement, LockCallSite> callSites = new ConcurrentHashMap<>();
+
+    /**
+     * Profile one in that many acquisitions, 0 if disabled.
+     */
+    private static volatile int sampleInterval = Integer.getInteger(SAMPLE_INTERVAL_PROPERTY, 0);
+
+    private LockProfiler() {
+    }
+
+    /**
+     * Enables the profiler with the {@link #DEFAULT_SAMPLE_INTERVAL}.
+     */
+    public static void enable() {
+        enable(DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Enables the profiler or changes its sample interval.
+     *
+     * @param sampleInterval profile one in that many acquisitions, 1 to
+     *                       profile all of them.
+     */
+    public static void enable(int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("Invalid sample interval " + sampleInterval);
+        }
+        LockProfiler.sampleInterval = sampleInterval;
+        logger.info("Lock profiling enabled, sampling 1 in " + sampleInterval + " acquisitions"
+                + (JFR_AVAILABLE ? "" : ", JFR is not available"));
+    }
+
+    /**
+     * Disables the profiler, the statistics collected so far are kept.
+     */
+    public static void disable() {
+        sampleInterval = 0;
+        logger.info("Lock profiling disabled");
+    }
+
+    public static boolean isEnabled() {
+        return sampleInterval > 0;
+    }
+
+    /**
+     * Discards the statistics collected so far.
+     */
+    public static void reset() {
+        callSites.clear();
+    }
+
+    /**
+     * Returns the call sites seen so far, the ones that waited longest
+     * first.
+     *
+     * @return a snapshot of the call sites.
+     */
+    public static List<LockCallSite> getCallSites() {
+        final List<LockCallSite> result = new ArrayList<>(callSites.values());
+        result.sort(Comparator.comparingLong((LockCallSite c) -> c.getWaitTime().getTotalNanos()).reversed());
+        return result;
+    }
+
+    /**
+     * Returns whether the current acquisition should be profiled.
+     */
+    static boolean isSampled() {
+        final int interval = sampleInterval;
+        return interval > 0 && (interval == 1 || ThreadLocalRandom.current().nextInt(interval) == 0);
+    }
+
+    /**
+     * Acquires the lock of the lockable and profiles the acquisition.
+     */
+    static LockCloser profiledLock(Lockable lockable) {
+        final LockCallSite callSite = resolveCallSite(lockable);
+        final ReentrantLock lock = lockable.getInternalLock();
+
+        final Object event = JFR_AVAILABLE ? LockAcquisitionEvent.start() : null;
+        final long requested = System.nanoTime();
+        final boolean contended = !lock.tryLock();
+        if (contended) {
+            lock.lock();
+        }
+        final long acquired = System.nanoTime();
+
+        return () -> {
+            lock.unlock();
+            final long released = System.nanoTime();
+            callSite.record(contended, acquired - requested, released - acquired);
+            if (event != null) {
+                LockAcquisitionEvent.stop(event, callSite, contended, acquired - requested, released - acquired);
+            }
+        };
+    }
+
+    /**
+     * Finds the first frame outside of the locking classes, the stack is only
+     * walked for sampled acquisitions and the call site is created once.
+     */
+    private static LockCallSite resolveCallSite(Lockable lockable) {
+        StackTraceElement caller = null;
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (!LOCKING_CLASSES.contains(element.getClassName())) {
+                caller = element;
+                break;
+            }
+        }
+        if (caller == null) {
+            caller = new StackTraceElement(lockable.getClass().getName(), "withLock", null, -1);
+        }
+
+        final LockCallSite callSite = callSites.get(caller);
+        if (callSite != null) {
+            return callSite;
+        }
+        final String lockClass = lockable.getClass().getName();
+        return callSites.computeIfAbsent(caller, c -> new LockCallSite(c.toString(), lockClass));
+    }
+
+    private static boolean isJfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
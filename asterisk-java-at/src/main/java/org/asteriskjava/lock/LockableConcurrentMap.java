@@ -0,0 +1,66 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link LockableMap} backed by a {@link ConcurrentHashMap}.
+ * <p>
+ * Reads, iteration and single updates are thread safe without the lock, so
+ * readers like the getters of the live API never wait for the event thread.
+ * The lock is only needed to make a sequence of operations atomic with
+ * respect to other writers, for example a check followed by a put. Readers
+ * may see the map in between such a sequence.
+ * <p>
+ * Unlike a plain ConcurrentHashMap, looking up or removing a {@code null}
+ * key returns {@code null} (or {@code false}) like the HashMap this class
+ * replaces, as the keys often come from event attributes Asterisk did not
+ * send. Null keys and values still cannot be put.
+ *
+ * @since 3.40.0
+ */
+public class LockableConcurrentMap<S, P> extends LockableMap<S, P> implements ConcurrentMap<S, P> {
+    public LockableConcurrentMap() {
+        super(new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && super.containsKey(key);
+    }
+
+    @Override
+    public P get(Object key) {
+        return key == null ? null : super.get(key);
+    }
+
+    @Override
+    public P getOrDefault(Object key, P defaultValue) {
+        return key == null ? defaultValue : super.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public P remove(Object key) {
+        return key == null ? null : super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return key != null && super.remove(key, value);
+    }
+}
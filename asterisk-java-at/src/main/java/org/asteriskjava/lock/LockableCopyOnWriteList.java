@@ -0,0 +1,35 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.lock;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link LockableList} backed by a {@link CopyOnWriteArrayList}.
+ * <p>
+ * Reads and iteration are thread safe without the lock and see a snapshot
+ * of the list, so readers never wait for the event thread. Every update
+ * copies the list, use it for small lists that are read much more often
+ * than they change. The lock is only needed to make a sequence of updates
+ * atomic with respect to other writers.
+ *
+ * @since 3.40.0
+ */
+public class LockableCopyOnWriteList<S> extends LockableList<S> {
+    public LockableCopyOnWriteList() {
+        super(new CopyOnWriteArrayList<>());
+    }
+}
@@ -77,6 +77,9 @@ public class Locker {
     private static final LogTime startTime = new LogTime();
 
     private static LockCloser simpleLock(Lockable lockable) throws InterruptedException {
+        if (LockProfiler.isSampled()) {
+            return LockProfiler.profiledLock(lockable);
+        }
         LogTime acquireTimer = new LogTime();
         ReentrantLock lock = lockable.getInternalLock();
         lock.lock();
@@ -4,7 +4,14 @@ import org.asteriskjava.manager.event.*;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Utility class that provides a protected handler method for each concrete
@@ -66,6 +73,20 @@ public abstract class AbstractManagerEventListener implements ManagerEventListen
 
     private static final Log LOGGER = LogFactory.getLog(AbstractManagerEventListener.class);
 
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class, ManagerEvent.class);
+
+    /**
+     * The handleEvent(...) methods of each listener class by the event class
+     * they accept, looked up once per listener class.
+     */
+    private static final ClassValue<Map<Class<?>, MethodHandle>> HANDLERS =
+            new ClassValue<Map<Class<?>, MethodHandle>>() {
+                @Override
+                protected Map<Class<?>, MethodHandle> computeValue(Class<?> listenerClass) {
+                    return lookupHandlers(listenerClass);
+                }
+            };
+
     public void handleEvent(AgentCompleteEvent event) {
     }
 
@@ -607,25 +628,49 @@ public abstract class AbstractManagerEventListener implements ManagerEventListen
 
     /**
      * Dispatches to the appropriate handleEvent(...) method.
+     * <p>
+     * The handleEvent(...) method taking exactly the class of the event is
+     * called. The methods are looked up once per listener class.
      *
      * @param event the event to handle
      */
     @Override
     public void onManagerEvent(ManagerEvent event) {
+        final MethodHandle handler = HANDLERS.get(getClass()).get(event.getClass());
+        if (handler == null) {
+            LOGGER.error("The event " + event.getClass()
+                    + " couldn't be mapped to a method in AbstractManagerEventListener.java, someone should add it!");
+            return;
+        }
 
-        // if this turns out to be slow, we could consider caching the
-        // reflection lookup
         try {
-            Method method = this.getClass().getMethod("handleEvent", event.getClass());
-            if (method != null) {
-                method.invoke(this, event);
-                return;
-            }
-        } catch (Exception e) {
+            handler.invokeExact((Object) this, event);
+        } catch (Throwable e) {
             LOGGER.error(e, e);
         }
+    }
+
+    private static Map<Class<?>, MethodHandle> lookupHandlers(Class<?> listenerClass) {
+        final Map<Class<?>, MethodHandle> handlers = new HashMap<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for (Method method : listenerClass.getMethods()) {
+            if (!"handleEvent".equals(method.getName()) || method.getParameterCount() != 1 || method.isBridge()
+                    || Modifier.isStatic(method.getModifiers())
+                    || !ManagerEvent.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
 
-        LOGGER.error("The event " + event.getClass()
-                + " couldn't be mapped to a method in AbstractManagerEventListener.java, someone should add it!");
+            try {
+                if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    // public handler of a nested or anonymous listener class
+                    method.setAccessible(true);
+                }
+                handlers.put(method.getParameterTypes()[0], lookup.unreflect(method).asType(HANDLER_TYPE));
+            } catch (IllegalAccessException | RuntimeException e) {
+                LOGGER.error("Unable to access " + method, e);
+            }
+        }
+        return Collections.unmodifiableMap(handlers);
     }
 }
@@ -26,6 +26,9 @@ import org.asteriskjava.manager.response.ManagerResponse;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Default implemention of the
@@ -243,6 +246,14 @@ public class DefaultManagerConnection implements ManagerConnection {
         return impl.getVersion();
     }
 
+    public ManagerEventQueueStatistics getEventQueueStatistics() {
+        return impl.getEventQueueStatistics();
+    }
+
+    public ManagerConnectionMetrics getMetrics() {
+        return impl.getMetrics();
+    }
+
     public boolean isSsl() {
         return impl.isSsl();
     }
@@ -267,6 +278,83 @@ public class DefaultManagerConnection implements ManagerConnection {
         impl.registerUserEventClass(userEventClass);
     }
 
+    /**
+     * Set to <code>true</code> to read from a NIO socket channel and parse the
+     * received frames directly from the byte buffer instead of splitting them
+     * into lines of text. Not supported for SSL connections.
+     * <p>
+     * Default is <code>false</code>.
+     *
+     * @param useSocketChannel <code>true</code> to use the NIO frame reader,
+     *                         <code>false</code> to use the line based reader.
+     * @since 3.40.0
+     */
+    public void setUseSocketChannel(boolean useSocketChannel) {
+        impl.setUseSocketChannel(useSocketChannel);
+    }
+
+    /**
+     * Sets the number of events and responses that can be queued between
+     * the thread reading from Asterisk and the thread dispatching them to
+     * the listeners. The capacity is rounded up to the next power of two.
+     * <p>
+     * Default is 20000.
+     *
+     * @param eventQueueCapacity the capacity of the event queue.
+     * @since 3.40.0
+     */
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        impl.setEventQueueCapacity(eventQueueCapacity);
+    }
+
+    /**
+     * Sets what to do when the event queue is full.
+     * <p>
+     * Default is {@link EventQueueOverflowPolicy#DROP_NEWEST}.
+     *
+     * @param eventQueueOverflowPolicy the overflow policy.
+     * @since 3.40.0
+     */
+    public void setEventQueueOverflowPolicy(EventQueueOverflowPolicy eventQueueOverflowPolicy) {
+        impl.setEventQueueOverflowPolicy(eventQueueOverflowPolicy);
+    }
+
+    /**
+     * Sets the events (including their subclasses) that are discarded first
+     * when the event queue fills up and the overflow policy is
+     * {@link EventQueueOverflowPolicy#DROP_LOW_PRIORITY}.
+     * <p>
+     * Default are VarSet, Newexten and RTCP events.
+     *
+     * @param lowPriorityEventClasses the low priority event classes.
+     * @since 3.40.0
+     */
+    public void setLowPriorityEventClasses(Set<Class<? extends ManagerEvent>> lowPriorityEventClasses) {
+        impl.setLowPriorityEventClasses(lowPriorityEventClasses);
+    }
+
+    /**
+     * Sets the number of threads events are delivered to the listeners on.
+     * <p>
+     * With 0 all events are delivered one after another on a single thread.
+     * With more threads the events of one call (same linkedid or uniqueid)
+     * are still delivered in order while events of different calls are
+     * delivered in parallel, listeners must be thread safe in that case.
+     * <p>
+     * Events without a linkedid or uniqueid, like BridgeCreate and
+     * BridgeDestroy, are not ordered relative to the events of the calls,
+     * for example the BridgeEnter and BridgeLeave events of the same
+     * bridge.
+     * <p>
+     * Default is 0.
+     *
+     * @param eventDispatchThreads the number of threads.
+     * @since 3.40.0
+     */
+    public void setEventDispatchThreads(int eventDispatchThreads) {
+        impl.setEventDispatchThreads(eventDispatchThreads);
+    }
+
     public void setSocketTimeout(int socketTimeout) {
         impl.setSocketTimeout(socketTimeout);
     }
@@ -320,10 +408,37 @@ public class DefaultManagerConnection implements ManagerConnection {
         impl.sendEventGeneratingAction(action, callback);
     }
 
+    @Override
+    public CompletableFuture<ManagerResponse> sendActionAsync(ManagerAction action) {
+        return impl.sendActionAsync(action);
+    }
+
+    @Override
+    public CompletableFuture<ManagerResponse> sendActionAsync(ManagerAction action, long timeout)
+            throws IllegalArgumentException {
+        return impl.sendActionAsync(action, timeout);
+    }
+
+    @Override
+    public CompletableFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action) {
+        return impl.sendEventGeneratingActionAsync(action);
+    }
+
+    @Override
+    public CompletableFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action,
+                                                                            long timeout) throws IllegalArgumentException {
+        return impl.sendEventGeneratingActionAsync(action, timeout);
+    }
+
     public void addEventListener(final ManagerEventListener listener) {
         impl.addEventListener(listener);
     }
 
+    public <T extends ManagerEvent> ManagerEventListener addEventListener(final Class<T> eventClass,
+                                                                          final Consumer<? super T> listener) {
+        return impl.addEventListener(eventClass, listener);
+    }
+
     public void removeEventListener(final ManagerEventListener listener) {
         impl.removeEventListener(listener);
     }
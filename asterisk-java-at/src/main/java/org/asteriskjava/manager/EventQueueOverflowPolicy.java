@@ -0,0 +1,61 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+/**
+ * What a {@link ManagerConnection} does when events and responses arrive
+ * faster than its listeners process them and the event queue is full.
+ *
+ * @see DefaultManagerConnection#setEventQueueOverflowPolicy(EventQueueOverflowPolicy)
+ * @since 3.40.0
+ */
+public enum EventQueueOverflowPolicy {
+    /**
+     * The reader waits until there is room in the queue. Asterisk is slowed
+     * down by TCP flow control instead of losing events.<p>
+     * Listeners that send actions and wait for the response on the
+     * dispatching thread may stall until the action times out while the
+     * queue is full.
+     */
+    BLOCK,
+
+    /**
+     * The event that has just been received is discarded. This is the
+     * default and the behavior of previous versions.
+     */
+    DROP_NEWEST,
+
+    /**
+     * The oldest event in the queue is discarded to make room for the event
+     * that has just been received.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Low priority events (like VarSet, Newexten and RTCP events) are
+     * discarded once the queue is three quarters full, everything else is
+     * handled like {@link #BLOCK}. Responses are never discarded.
+     *
+     * @see DefaultManagerConnection#setLowPriorityEventClasses(java.util.Set)
+     */
+    DROP_LOW_PRIORITY,
+
+    /**
+     * Events that do not fit into the queue are written to a temporary file
+     * and dispatched in order once the queue has been drained.
+     */
+    SPILL_TO_DISK
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+
+import java.util.Set;
+
+/**
+ * A ManagerEventListener that declares the events it is interested in.
+ * <p>
+ * If all listeners registered with a {@link ManagerConnection} declare their
+ * events, the connection only builds and dispatches these events and asks
+ * Asterisk to filter the others (see {@link ManagerEventSubscriptions}). As
+ * soon as a plain {@link ManagerEventListener} is registered, all events are
+ * received again.
+ *
+ * @since 3.40.0
+ */
+public interface FilteredManagerEventListener extends ManagerEventListener {
+    /**
+     * Returns the event classes this listener wants to receive. Subclasses of
+     * the returned classes are included, so returning an abstract class like
+     * {@link org.asteriskjava.manager.event.AbstractChannelEvent} subscribes
+     * to all its concrete events.
+     * <p>
+     * Called whenever the listener is added or removed, the result must not
+     * change while the listener is registered.
+     *
+     * @return the required event classes or <code>null</code> to receive all
+     * events.
+     */
+    Set<Class<? extends ManagerEvent>> requiredEvents();
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+/**
+ * The distribution of a latency recorded by {@link ManagerConnectionMetrics}.
+ * <p>
+ * Values are kept in buckets with a relative precision of about 6%, the
+ * percentiles are the upper bounds of these buckets.
+ *
+ * @see ManagerConnectionMetrics
+ * @since 3.40.0
+ */
+public interface LatencyStatistics {
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    long getCount();
+
+    /**
+     * Returns the sum of all recorded values. Divide by {@link #getCount()} to
+     * get the mean.
+     *
+     * @return the total in nanoseconds.
+     */
+    long getTotalNanos();
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the maximum in nanoseconds.
+     */
+    long getMaxNanos();
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall.
+     *
+     * @param percentile the percentile between 0 and 100, for example 99.9.
+     * @return the value in nanoseconds or 0 if nothing has been recorded.
+     */
+    long getValueAtPercentile(double percentile);
+}
@@ -25,6 +25,8 @@ import org.asteriskjava.manager.response.ManagerResponse;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * The main interface to talk to an Asterisk server via the Asterisk Manager
@@ -90,6 +92,27 @@ public interface ManagerConnection {
      */
     AsteriskVersion getVersion();
 
+    /**
+     * Returns the counters of the queue between the thread reading from
+     * Asterisk and the thread dispatching events and responses to the
+     * listeners.
+     *
+     * @return the statistics of the event queue.
+     * @since 3.40.0
+     */
+    ManagerEventQueueStatistics getEventQueueStatistics();
+
+    /**
+     * Returns the metrics of the pipeline from the socket to the listeners:
+     * bytes and events received, parse and build times, time spent in the
+     * event queue and in the listeners as well as the round-trip times of the
+     * actions sent. The metrics are kept across reconnects.
+     *
+     * @return the metrics of this connection.
+     * @since 3.40.0
+     */
+    ManagerConnectionMetrics getMetrics();
+
     /**
      * Sets the encoding to use to connect to the Asterisk server (eg. important
      * for manager/user events). All connections should use the same encoding.
@@ -428,6 +451,82 @@ public interface ManagerConnection {
             SendEventGeneratingActionCallback callback)
             throws IOException, IllegalArgumentException, IllegalStateException;
 
+    /**
+     * Sends a ManagerAction to the Asterisk server without blocking and
+     * returns a future that is completed with the corresponding
+     * {@link ManagerResponse}, using the default response timeout.
+     *
+     * @param action the action to send to the Asterisk server
+     * @return the future response
+     * @see #sendActionAsync(ManagerAction, long)
+     * @since 3.40.0
+     */
+    CompletableFuture<ManagerResponse> sendActionAsync(ManagerAction action);
+
+    /**
+     * Sends a ManagerAction to the Asterisk server without blocking and
+     * returns a future that is completed with the corresponding
+     * {@link ManagerResponse}.
+     * <p>
+     * Any number of actions can be in flight on the connection at the same
+     * time. The future is completed from the reader thread, dependent stages
+     * that do more than a little processing should use the async variants of
+     * {@link CompletableFuture} to run on a different thread.
+     * <p>
+     * The future completes exceptionally with a {@link TimeoutException} if no
+     * response is received within the given timeout, with an
+     * {@link IOException} if the connection is lost before the response has
+     * been received and with an {@link IllegalStateException} if you are not
+     * connected to an Asterisk server. The future of a
+     * {@link org.asteriskjava.manager.action.UserEventAction} is completed
+     * with <code>null</code> when the action has been sent.
+     *
+     * @param action  the action to send to the Asterisk server
+     * @param timeout milliseconds to wait for the response
+     * @return the future response
+     * @throws IllegalArgumentException if the action is <code>null</code>.
+     * @since 3.40.0
+     */
+    CompletableFuture<ManagerResponse> sendActionAsync(ManagerAction action, long timeout)
+            throws IllegalArgumentException;
+
+    /**
+     * Sends an {@link EventGeneratingAction} to the Asterisk server without
+     * blocking, using the default event timeout.
+     *
+     * @param action the action to send to the Asterisk server
+     * @return the future response and response events
+     * @see #sendEventGeneratingActionAsync(EventGeneratingAction, long)
+     * @since 3.40.0
+     */
+    CompletableFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action);
+
+    /**
+     * Sends an {@link EventGeneratingAction} to the Asterisk server without
+     * blocking and returns a future that is completed with the corresponding
+     * response and response events when the action complete event has been
+     * received.
+     * <p>
+     * The future completes exceptionally with an {@link EventTimeoutException}
+     * holding the events received so far if the action does not complete
+     * within the given timeout or the connection is lost, and with an
+     * {@link IllegalStateException} if you are not connected to an Asterisk
+     * server. See {@link #sendActionAsync(ManagerAction, long)} for the thread
+     * the future is completed on.
+     *
+     * @param action  the action to send to the Asterisk server
+     * @param timeout milliseconds to wait for the response and the action
+     *                complete event
+     * @return the future response and response events
+     * @throws IllegalArgumentException if the action is <code>null</code>, the
+     *                                  actionCompleteEventClass property of the action is
+     *                                  <code>null</code> or if actionCompleteEventClass is not a
+     *                                  ResponseEvent.
+     * @since 3.40.0
+     */
+    CompletableFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action, long timeout)
+            throws IllegalArgumentException;
+
     /**
      * Registers an event listener that is called whenever an
      * {@link org.asteriskjava.manager.event.ManagerEvent} is receiced from the
@@ -442,6 +541,35 @@ public interface ManagerConnection {
      */
     void addEventListener(ManagerEventListener eventListener);
 
+    /**
+     * Registers a listener that is only called for events of the given class
+     * and its subclasses.
+     * <p>
+     * The listeners of an event class are looked up once, so other events are
+     * not passed to the listener at all. The listener declares its events
+     * like a {@link FilteredManagerEventListener}, so if all registered
+     * listeners do, only the subscribed events are requested from the
+     * Asterisk server.
+     * <p>
+     * Listeners are notified in the same order as they were registered,
+     * together with the listeners registered by
+     * {@link #addEventListener(ManagerEventListener)}.
+     *
+     * @param eventClass the class of the events to receive, for example
+     *                   {@link org.asteriskjava.manager.event.HangupEvent}
+     *                   or an abstract class like
+     *                   {@link org.asteriskjava.manager.event.AbstractChannelEvent}.
+     * @param listener   the listener to call whenever a matching event is
+     *                   received.
+     * @param <T>        the class of the events.
+     * @return the registered listener, pass it to
+     * {@link #removeEventListener(ManagerEventListener)} to unregister.
+     * @throws IllegalArgumentException if the event class or the listener is
+     *                                  <code>null</code>.
+     * @since 3.40.0
+     */
+    <T extends ManagerEvent> ManagerEventListener addEventListener(Class<T> eventClass, Consumer<? super T> listener);
+
     /**
      * Unregisters a previously registered event listener.
      * <p>
@@ -50,6 +50,7 @@ public class ManagerConnectionFactory {
     private final int port;
     private final String username;
     private final String password;
+    private boolean useSocketChannel = false;
 
     /**
      * Creates a new ManagerConnectionFactory with the given connection data and
@@ -84,6 +85,21 @@ public class ManagerConnectionFactory {
         this.password = password;
     }
 
+    /**
+     * Set to <code>true</code> to let connections created by this factory read
+     * from a NIO socket channel and parse the received frames directly from
+     * the byte buffer. SSL connections always use the line based reader.
+     * <p>
+     * Default is <code>false</code>.
+     *
+     * @param useSocketChannel <code>true</code> to use the NIO frame reader,
+     *                         <code>false</code> to use the line based reader.
+     * @since 3.40.0
+     */
+    public void setUseSocketChannel(boolean useSocketChannel) {
+        this.useSocketChannel = useSocketChannel;
+    }
+
     /**
      * Returns a new ManagerConnection in state {@link ManagerConnectionState#CONNECTED}.
      *
@@ -91,7 +107,10 @@ public class ManagerConnectionFactory {
      * @since 0.3
      */
     public ManagerConnection createManagerConnection() {
-        return new DefaultManagerConnection(hostname, port, username, password);
+        DefaultManagerConnection dmc;
+        dmc = new DefaultManagerConnection(hostname, port, username, password);
+        dmc.setUseSocketChannel(useSocketChannel);
+        return dmc;
     }
 
     /**
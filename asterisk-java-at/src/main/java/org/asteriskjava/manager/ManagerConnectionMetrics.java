@@ -0,0 +1,153 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+import java.util.Map;
+
+/**
+ * Metrics of the pipeline of a {@link ManagerConnection}, from the bytes read
+ * from the socket to the listeners.
+ * <p>
+ * Recording is always on and cheap enough for production: counters are
+ * striped and latencies go to fixed size histograms. The values are
+ * cumulative since the connection has been created and survive reconnects.
+ * The maps are snapshots, event, action and listener types show up once
+ * they have been seen.
+ *
+ * @see ManagerConnection#getMetrics()
+ * @since 3.40.0
+ */
+public interface ManagerConnectionMetrics {
+    /**
+     * Returns the number of events received per event class, counted before
+     * they are built. Events without a registered class are counted by
+     * {@link #getUnknownEventsReceived()}.
+     *
+     * @return the number of received events by event class.
+     */
+    Map<Class<?>, Long> getEventsReceived();
+
+    /**
+     * Returns the number of received events whose type has no registered
+     * event class.
+     *
+     * @return the number of unknown events.
+     */
+    long getUnknownEventsReceived();
+
+    /**
+     * Returns the number of events built per event class. Events no listener
+     * is interested in are not built.
+     *
+     * @return the number of built events by event class.
+     */
+    Map<Class<?>, Long> getEventsBuilt();
+
+    /**
+     * Returns the number of events and responses discarded because the event
+     * queue was full, per class. Events dropped before they have been built
+     * are counted by the class they would have been built as.
+     *
+     * @return the number of dropped events and responses by class.
+     */
+    Map<Class<?>, Long> getEventsDropped();
+
+    /**
+     * Returns the time spent parsing a frame, without the time spent
+     * waiting for data. Only recorded when the connection uses a socket
+     * channel.
+     *
+     * @return the parse time per frame.
+     */
+    LatencyStatistics getParseTime();
+
+    /**
+     * Returns the time spent building an event from its attributes.
+     *
+     * @return the build time per event.
+     */
+    LatencyStatistics getBuildTime();
+
+    /**
+     * Returns the counters of the event queue, including its current depth.
+     *
+     * @return the statistics of the event queue.
+     */
+    ManagerEventQueueStatistics getEventQueueStatistics();
+
+    /**
+     * Returns the time events and responses have been waiting in the event
+     * queue before they were dispatched.
+     *
+     * @return the queueing latency.
+     */
+    LatencyStatistics getQueueWaitTime();
+
+    /**
+     * Returns the time spent in event listeners and response callbacks, per
+     * listener class name.
+     *
+     * @return the handling time by listener class name.
+     */
+    Map<String, LatencyStatistics> getListenerTimes();
+
+    /**
+     * Returns the time from sending an action to receiving its response, per
+     * action name like "Originate".
+     *
+     * @return the round-trip time by action name.
+     */
+    Map<String, LatencyStatistics> getActionRoundTripTimes();
+
+    /**
+     * Returns the number of actions that have been sent but whose response
+     * has not been received yet.
+     *
+     * @return the number of pending actions.
+     */
+    int getPendingActions();
+
+    /**
+     * Returns the number of attempts to reconnect after the connection was
+     * lost.
+     *
+     * @return the number of reconnect attempts.
+     */
+    long getReconnectAttempts();
+
+    /**
+     * Returns the number of successful reconnects.
+     *
+     * @return the number of reconnects.
+     */
+    long getReconnects();
+
+    /**
+     * Returns the number of bytes read from Asterisk. The line based socket
+     * counts characters, which is the same for the ASCII used by Asterisk.
+     *
+     * @return the number of bytes received.
+     */
+    long getBytesReceived();
+
+    /**
+     * Returns the number of bytes written to Asterisk, counted as characters
+     * like {@link #getBytesReceived()} for the line based socket.
+     *
+     * @return the number of bytes sent.
+     */
+    long getBytesSent();
+}
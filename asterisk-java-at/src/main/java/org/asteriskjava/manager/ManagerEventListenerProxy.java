@@ -3,6 +3,7 @@ package org.asteriskjava.manager;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.util.DaemonThreadFactory;
 
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
@@ -28,7 +29,7 @@ import java.util.concurrent.*;
  * @author fink
  * @since 0.3
  */
-public class ManagerEventListenerProxy implements ManagerEventListener {
+public class ManagerEventListenerProxy implements FilteredManagerEventListener {
     private final ThreadPoolExecutor executor;
     private final ManagerEventListener target;
 
@@ -59,6 +60,17 @@ public class ManagerEventListenerProxy implements ManagerEventListener {
         });
     }//onManagerEvent
 
+    /**
+     * Returns the events required by the target if it is a
+     * {@link FilteredManagerEventListener}, otherwise all events.
+     */
+    @Override
+    public Set<Class<? extends ManagerEvent>> requiredEvents() {
+        return target instanceof FilteredManagerEventListener
+                ? ((FilteredManagerEventListener) target).requiredEvents()
+                : null;
+    }
+
 
     public void shutdown() {
         executor.shutdown();
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+/**
+ * Counters of the queue between the thread reading from Asterisk and the
+ * thread dispatching events and responses to the listeners.
+ * <p>
+ * The counters are cumulative over the lifetime of the connection, including
+ * reconnects.
+ *
+ * @see ManagerConnection#getEventQueueStatistics()
+ * @since 3.40.0
+ */
+public interface ManagerEventQueueStatistics {
+    /**
+     * Returns the number of events and responses the queue can hold.
+     *
+     * @return the capacity of the queue.
+     */
+    int getCapacity();
+
+    /**
+     * Returns the number of events and responses that are waiting to be
+     * dispatched, including those spilled to disk.
+     *
+     * @return the current depth of the queue.
+     */
+    int getDepth();
+
+    /**
+     * Returns the number of events and responses that have been dispatched.
+     *
+     * @return the number of dispatched events and responses.
+     */
+    long getDispatchedCount();
+
+    /**
+     * Returns the number of events and responses that have been discarded
+     * because the queue was full.
+     *
+     * @return the number of discarded events and responses.
+     */
+    long getDroppedCount();
+
+    /**
+     * Returns the number of events and responses that have been written to
+     * disk because the queue was full.
+     *
+     * @return the number of spilled events and responses.
+     */
+    long getSpilledCount();
+
+    /**
+     * Returns the total time dispatched events and responses have been
+     * waiting in the queue. Divide by {@link #getDispatchedCount()} to get the
+     * average latency.
+     *
+     * @return the total queueing latency in nanoseconds.
+     */
+    long getTotalLatencyNanos();
+
+    /**
+     * Returns the longest time an event or response has been waiting in the
+     * queue.
+     *
+     * @return the maximum queueing latency in nanoseconds.
+     */
+    long getMaxLatencyNanos();
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+import org.asteriskjava.manager.event.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable union of the events required by the listeners of a
+ * {@link ManagerConnection}.
+ * <p>
+ * The connection uses the subscriptions to skip building events no listener
+ * wants and to install matching filters on the Asterisk server (see
+ * {@link org.asteriskjava.manager.action.FilterAction}) on login and
+ * reconnect. Events that carry an ActionID (responses to actions sent by this
+ * connection) and synthetic events like
+ * {@link org.asteriskjava.manager.event.ConnectEvent} are never filtered.
+ * <p>
+ * Events that are generated for backwards compatibility (for example
+ * {@link BridgeEvent} from the Asterisk 13 bridge events) automatically
+ * subscribe to the events they are created from.
+ *
+ * @since 3.40.0
+ */
+public final class ManagerEventSubscriptions {
+    /**
+     * Subscriptions that include all events.
+     */
+    public static final ManagerEventSubscriptions ALL = new ManagerEventSubscriptions(null);
+
+    /**
+     * Filter that lets all events pass that carry an ActionID.
+     */
+    static final String ACTION_ID_FILTER = "ActionID: ";
+
+    /**
+     * Filter that lets all events pass.
+     */
+    static final String ALL_EVENTS_FILTER = "^Event: ";
+
+    private static final Map<Class<? extends ManagerEvent>, List<Class<? extends ManagerEvent>>> sourceEvents =
+            createSourceEvents();
+
+    // the pbx BridgeEvent is also built from LinkEvent and UnlinkEvent, so
+    // its listeners must keep receiving them although they are deprecated
+    @SuppressWarnings("deprecation")
+    private static Map<Class<? extends ManagerEvent>, List<Class<? extends ManagerEvent>>> createSourceEvents() {
+        final Map<Class<? extends ManagerEvent>, List<Class<? extends ManagerEvent>>> events = new HashMap<>();
+        events.put(BridgeEvent.class, Arrays.asList(LinkEvent.class, UnlinkEvent.class, BridgeCreateEvent.class,
+                BridgeEnterEvent.class, BridgeLeaveEvent.class, BridgeDestroyEvent.class));
+        events.put(DialEvent.class, Collections.singletonList(DialBeginEvent.class));
+        events.put(MeetMeEndEvent.class, Collections.singletonList(ConfbridgeEndEvent.class));
+        events.put(MeetMeJoinEvent.class, Collections.singletonList(ConfbridgeJoinEvent.class));
+        events.put(MeetMeLeaveEvent.class, Collections.singletonList(ConfbridgeLeaveEvent.class));
+        return events;
+    }
+
+    private final Set<Class<? extends ManagerEvent>> requiredEvents;
+    private final Map<Class<?>, Boolean> subscribedCache = new ConcurrentHashMap<>();
+
+    private ManagerEventSubscriptions(Set<Class<? extends ManagerEvent>> requiredEvents) {
+        this.requiredEvents = requiredEvents == null ? null : Collections.unmodifiableSet(requiredEvents);
+    }
+
+    /**
+     * Computes the union of the events required by the given listeners.
+     * <p>
+     * The result is {@link #ALL} if there are no listeners or at least one
+     * listener does not declare its events.
+     *
+     * @param listeners the registered listeners.
+     * @return the subscriptions of the listeners.
+     */
+    public static ManagerEventSubscriptions of(Collection<? extends ManagerEventListener> listeners) {
+        final Set<Class<? extends ManagerEvent>> union = new HashSet<>();
+
+        if (listeners.isEmpty()) {
+            return ALL;
+        }
+
+        for (ManagerEventListener listener : listeners) {
+            if (!(listener instanceof FilteredManagerEventListener)) {
+                return ALL;
+            }
+
+            final Set<Class<? extends ManagerEvent>> required = ((FilteredManagerEventListener) listener).requiredEvents();
+            if (required == null) {
+                return ALL;
+            }
+            for (Class<? extends ManagerEvent> eventClass : required) {
+                union.add(eventClass);
+                final List<Class<? extends ManagerEvent>> sources = sourceEvents.get(eventClass);
+                if (sources != null) {
+                    union.addAll(sources);
+                }
+            }
+        }
+        return new ManagerEventSubscriptions(union);
+    }
+
+    /**
+     * Returns whether all events are subscribed.
+     *
+     * @return <code>true</code> if no event is filtered.
+     */
+    public boolean isAll() {
+        return requiredEvents == null;
+    }
+
+    /**
+     * Returns the required event classes.
+     *
+     * @return the required event classes or <code>null</code> if all events
+     * are subscribed.
+     */
+    public Set<Class<? extends ManagerEvent>> getRequiredEvents() {
+        return requiredEvents;
+    }
+
+    /**
+     * Checks whether an event class is subscribed, either directly or by one
+     * of its super classes.
+     *
+     * @param eventClass the class of the event.
+     * @return <code>true</code> if at least one listener wants the event.
+     */
+    public boolean isSubscribed(Class<?> eventClass) {
+        if (requiredEvents == null) {
+            return true;
+        }
+
+        Boolean subscribed = subscribedCache.get(eventClass);
+        if (subscribed == null) {
+            subscribed = Boolean.FALSE;
+            for (Class<?> c = eventClass; c != null; c = c.getSuperclass()) {
+                if (requiredEvents.contains(c)) {
+                    subscribed = Boolean.TRUE;
+                    break;
+                }
+            }
+            subscribedCache.put(eventClass, subscribed);
+        }
+        return subscribed;
+    }
+
+    /**
+     * Returns the regular expressions to send as
+     * {@link org.asteriskjava.manager.action.FilterAction}s so that Asterisk
+     * only sends the subscribed events.
+     * <p>
+     * As a required class also subscribes to its subclasses, a filter is
+     * returned for each registered event type whose class is assignable to a
+     * required class. If all events are subscribed or no registered event type
+     * matches a required class a filter that lets all events pass is
+     * returned, the events are then only filtered on the client side.
+     *
+     * @param registeredEventClasses the registered event classes by lower
+     *                               case event type.
+     * @return the filters to install, never empty.
+     */
+    public Set<String> getFilters(Map<String, Class<?>> registeredEventClasses) {
+        final Set<String> filters = new LinkedHashSet<>();
+
+        filters.add(ACTION_ID_FILTER);
+        if (requiredEvents == null || requiredEvents.contains(ManagerEvent.class)) {
+            filters.add(ALL_EVENTS_FILTER);
+            return filters;
+        }
+
+        for (Class<? extends ManagerEvent> eventClass : requiredEvents) {
+            boolean matched = false;
+            for (Map.Entry<String, Class<?>> entry : registeredEventClasses.entrySet()) {
+                if (!eventClass.isAssignableFrom(entry.getValue())) {
+                    continue;
+                }
+                final String eventType = UserEvent.class.isAssignableFrom(entry.getValue())
+                        ? "userevent"
+                        : entry.getKey();
+                filters.add(ALL_EVENTS_FILTER + caseInsensitive(eventType) + "[^A-Za-z0-9]");
+                matched = true;
+            }
+
+            if (!matched) {
+                filters.clear();
+                filters.add(ACTION_ID_FILTER);
+                filters.add(ALL_EVENTS_FILTER);
+                return filters;
+            }
+        }
+        return filters;
+    }
+
+    /**
+     * Asterisk uses POSIX regular expressions without a case insensitive flag,
+     * so each letter is turned into a character class.
+     */
+    private static String caseInsensitive(String s) {
+        final StringBuilder sb = new StringBuilder(s.length() * 4);
+        for (char c : s.toCharArray()) {
+            if (Character.isLetter(c)) {
+                sb.append('[').append(Character.toUpperCase(c)).append(Character.toLowerCase(c)).append(']');
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "ManagerEventSubscriptions[" + (requiredEvents == null ? "all" : requiredEvents) + "]";
+    }
+}
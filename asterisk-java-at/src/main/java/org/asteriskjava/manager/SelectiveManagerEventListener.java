@@ -0,0 +1,42 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+
+/**
+ * A ManagerEventListener that is asked before each event whether it wants
+ * events of that type.
+ * <p>
+ * Unlike {@link FilteredManagerEventListener} the interest may change while
+ * the listener is registered, so no filters are installed on the Asterisk
+ * server. Instead the {@link ManagerConnection} does not build events that
+ * no listener wants.
+ *
+ * @since 3.40.0
+ */
+public interface SelectiveManagerEventListener extends ManagerEventListener {
+    /**
+     * Checks whether the listener wants events of the given class. This is
+     * called on the dispatching thread for each received event and must be
+     * cheap.
+     *
+     * @param eventClass the class of the received event.
+     * @return <code>true</code> to receive the event via
+     * {@link #onManagerEvent(ManagerEvent)}.
+     */
+    boolean isInterestedIn(Class<? extends ManagerEvent> eventClass);
+}
@@ -16,6 +16,8 @@
  */
 package org.asteriskjava.manager.event;
 
+import java.util.Map;
+
 /**
  * Abstract base class providing common properties channel related events.
  *
@@ -40,6 +42,11 @@ public abstract class AbstractChannelEvent extends ManagerEvent {
      */
     protected String uniqueId;
 
+    /**
+     * The channel variables configured with channelvars in manager.conf.
+     */
+    private Map<String, String> chanVariables;
+
     protected AbstractChannelEvent(Object source) {
         super(source);
     }
@@ -130,4 +137,22 @@ public abstract class AbstractChannelEvent extends ManagerEvent {
     public void setAccountCode(String accountCode) {
         this.accountCode = accountCode;
     }
+
+    /**
+     * Returns the channel variables included in the event. Asterisk 12 and
+     * later send the variables configured with <code>channelvars</code> in
+     * <code>manager.conf</code> as ChanVariable headers of all channel
+     * events.
+     *
+     * @return a map of variable names to values or <code>null</code> if
+     * none have been sent.
+     * @since 3.40.0
+     */
+    public Map<String, String> getChanVariables() {
+        return chanVariables;
+    }
+
+    public void setChanVariables(Map<String, String> chanVariables) {
+        this.chanVariables = chanVariables;
+    }
 }
@@ -25,6 +25,9 @@ import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 import org.asteriskjava.util.ReflectionUtil;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -40,27 +43,35 @@ class ActionBuilderImpl implements ActionBuilder {
     private static final String LINE_SEPARATOR = "\r\n";
     private static final String ATTRIBUTES_PROPERTY_NAME = "attributes";
 
+    /*
+     * When using the Reflection API to get all of the getters for building
+     * actions to send, we ignore some of the getters
+     */
+    private static final Set<String> MEMBERS_TO_IGNORE = new HashSet<>(
+            Arrays.asList("class", "action", "actionid", ATTRIBUTES_PROPERTY_NAME));
+
+    /**
+     * The getters and mapped names of the action classes, looked up once per
+     * class instead of for every action sent.
+     */
+    private static final ClassValue<ClassEncoder> ENCODERS = new ClassValue<ClassEncoder>() {
+        @Override
+        protected ClassEncoder computeValue(Class<?> type) {
+            return new ClassEncoder(type);
+        }
+    };
+
     /**
      * Instance logger.
      */
     private final Log logger = LogFactory.getLog(getClass());
     private AsteriskVersion targetVersion;
-    private final Set<String> membersToIgnore = new HashSet<>();
 
     /**
      * Creates a new ActionBuilder for Asterisk 1.0.
      */
     ActionBuilderImpl() {
         this.targetVersion = AsteriskVersion.ASTERISK_1_0;
-
-        /*
-         * When using the Reflection API to get all of the getters for building
-         * actions to send, we ignore some of the getters
-         */
-        this.membersToIgnore.add("class");
-        this.membersToIgnore.add("action");
-        this.membersToIgnore.add("actionid");
-        this.membersToIgnore.add(ATTRIBUTES_PROPERTY_NAME);
     }
 
     public void setTargetVersion(AsteriskVersion targetVersion) {
@@ -71,10 +82,24 @@ class ActionBuilderImpl implements ActionBuilder {
         return buildAction(action, null);
     }
 
-    @SuppressWarnings("unchecked")
     public String buildAction(final ManagerAction action, final String internalActionId) {
         StringBuilder sb = new StringBuilder();
+        appendAction(sb, action, internalActionId);
+        return sb.toString();
+    }
 
+    /**
+     * Appends the given action to a StringBuilder so that callers sending
+     * many actions can reuse the builder.
+     *
+     * @param sb               the builder to append to.
+     * @param action           the action to append.
+     * @param internalActionId the internal action id to add or
+     *                         <code>null</code>.
+     * @since 3.40.0
+     */
+    @SuppressWarnings("unchecked")
+    void appendAction(final StringBuilder sb, final ManagerAction action, final String internalActionId) {
         sb.append("action: ");
         sb.append(action.getAction());
         sb.append(LINE_SEPARATOR);
@@ -88,7 +113,7 @@ class ActionBuilderImpl implements ActionBuilder {
             sb.append(LINE_SEPARATOR);
         }
 
-        Map<String, Method> getters;
+        final ClassEncoder encoder;
 
         // if this is a user event action, we need to grab the internal event,
         // otherwise do below as normal
@@ -96,25 +121,26 @@ class ActionBuilderImpl implements ActionBuilder {
             UserEvent userEvent = ((UserEventAction) action).getUserEvent();
             appendUserEvent(sb, userEvent);
 
-            getters = ReflectionUtil.getGetters(userEvent.getClass());
+            encoder = ENCODERS.get(userEvent.getClass());
 
             // eventually we may want to add more Map keys for events to ignore
             // when appending
-            appendGetters(sb, userEvent, getters);
+            appendProperties(sb, userEvent, encoder);
         } else {
-            getters = ReflectionUtil.getGetters(action.getClass());
+            encoder = ENCODERS.get(action.getClass());
 
-            appendGetters(sb, action, getters);
+            appendProperties(sb, action, encoder);
         }
 
         // actions that have the special getAttributes method will
         // have their Map appended without a singular key or separator
-        if (getters.containsKey(ATTRIBUTES_PROPERTY_NAME)) {
-            Method getter = getters.get(ATTRIBUTES_PROPERTY_NAME);
+        if (encoder.attributes != null) {
             Object value = null;
             try {
-                value = getter.invoke(action);
-            } catch (Exception ex) {
+                value = encoder.attributes.invoke(action);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable ex) {
                 logger.error("Unable to retrieve property '" + ATTRIBUTES_PROPERTY_NAME + "' of " + action.getClass(), ex);
             }
 
@@ -128,7 +154,6 @@ class ActionBuilderImpl implements ActionBuilder {
         }
 
         sb.append(LINE_SEPARATOR);
-        return sb.toString();
     }
 
     private void appendMap(StringBuilder sb, String key, Map<String, String> values) {
@@ -222,20 +247,16 @@ class ActionBuilderImpl implements ActionBuilder {
     }
 
     @SuppressWarnings("unchecked")
-    private void appendGetters(StringBuilder sb, Object action, Map<String, Method> getters) {
-        for (Map.Entry<String, Method> entry : getters.entrySet()) {
-            final String name = entry.getKey();
-            final Method getter = entry.getValue();
+    private void appendProperties(StringBuilder sb, Object action, ClassEncoder encoder) {
+        for (PropertyEncoder property : encoder.properties) {
             final Object value;
 
-            if (membersToIgnore.contains(name)) {
-                continue;
-            }
-
             try {
-                value = getter.invoke(action);
-            } catch (Exception ex) {
-                logger.error("Unable to retrieve property '" + name + "' of " + action.getClass(), ex);
+                value = property.getter.invoke(action);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable ex) {
+                logger.error("Unable to retrieve property '" + property.name + "' of " + action.getClass(), ex);
                 continue;
             }
 
@@ -243,13 +264,12 @@ class ActionBuilderImpl implements ActionBuilder {
                 continue;
             }
 
-            final String mappedName = mapToAsterisk(getter);
             if (value instanceof Map) {
-                appendMap(sb, mappedName, (Map<String, String>) value);
+                appendMap(sb, property.mappedName, (Map<String, String>) value);
             } else if (value instanceof String) {
-                appendString(sb, mappedName, (String) value);
+                appendString(sb, property.mappedName, (String) value);
             } else {
-                appendString(sb, mappedName, value.toString());
+                appendString(sb, property.mappedName, value.toString());
             }
         }
     }
@@ -332,4 +352,53 @@ class ActionBuilderImpl implements ActionBuilder {
         return Character.toLowerCase(s.charAt(0))
                 + (s.length() == 1 ? "" : s.substring(1));
     }
+
+    /**
+     * The properties of an action class in the order they are appended.
+     */
+    private static final class ClassEncoder {
+        private final List<PropertyEncoder> properties = new ArrayList<>();
+        private final MethodHandle attributes;
+
+        ClassEncoder(Class<?> type) {
+            final Map<String, Method> getters = ReflectionUtil.getGetters(type);
+            for (Map.Entry<String, Method> entry : getters.entrySet()) {
+                if (MEMBERS_TO_IGNORE.contains(entry.getKey())) {
+                    continue;
+                }
+                final MethodHandle getter = unreflect(type, entry.getKey(), entry.getValue());
+                if (getter != null) {
+                    properties.add(new PropertyEncoder(entry.getKey(), mapToAsterisk(entry.getValue()), getter));
+                }
+            }
+
+            final Method attributesGetter = getters.get(ATTRIBUTES_PROPERTY_NAME);
+            this.attributes = attributesGetter == null
+                    ? null
+                    : unreflect(type, ATTRIBUTES_PROPERTY_NAME, attributesGetter);
+        }
+
+        private static MethodHandle unreflect(Class<?> type, String name, Method getter) {
+            try {
+                return MethodHandles.lookup().unreflect(getter)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
+                LogFactory.getLog(ActionBuilderImpl.class)
+                        .error("Unable to access property '" + name + "' of " + type, e);
+                return null;
+            }
+        }
+    }
+
+    private static final class PropertyEncoder {
+        private final String name;
+        private final String mappedName;
+        private final MethodHandle getter;
+
+        PropertyEncoder(String name, String mappedName, MethodHandle getter) {
+            this.name = name;
+            this.mappedName = mappedName;
+            this.getter = getter;
+        }
+    }
 }
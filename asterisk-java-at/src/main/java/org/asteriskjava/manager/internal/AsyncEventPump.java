@@ -2,21 +2,31 @@ package org.asteriskjava.manager.internal;
 
 import com.google.common.util.concurrent.RateLimiter;
 import org.asteriskjava.lock.Locker;
-import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.EventQueueOverflowPolicy;
+import org.asteriskjava.manager.event.*;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.pbx.util.LogTime;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
+import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
  * AsyncEventPump delivers events and responses to a Dispatcher without blocking
  * the thread which is producing the events and responses. AsyncEventPump also
  * adds logging around timely handling of events
+ * <p>
+ * Events and responses are passed through a preallocated
+ * {@link EventRingBuffer}, so there must be only one thread producing them.
+ * What happens when the buffer is full is determined by the
+ * {@link EventQueueOverflowPolicy}.
  *
  * @author rsutton
  */
@@ -25,7 +35,29 @@ public class AsyncEventPump implements Dispatcher, Runnable {
 
     private static final long MAX_SAFE_EVENT_AGE = 500;
 
-    private final LinkedBlockingQueue<EventWrapper> queue = new LinkedBlockingQueue<>(20000);
+    /**
+     * Default capacity, rounded up to the next power of two by the ring
+     * buffer.
+     */
+    static final int DEFAULT_CAPACITY = 20000;
+
+    /**
+     * Events discarded first by {@link EventQueueOverflowPolicy#DROP_LOW_PRIORITY}
+     * by default.
+     */
+    static final Set<Class<? extends ManagerEvent>> DEFAULT_LOW_PRIORITY_EVENT_CLASSES = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList(VarSetEvent.class, NewExtenEvent.class,
+                    AbstractRtcpEvent.class)));
+
+    private final EventRingBuffer ringBuffer;
+    private final EventRingBuffer.Slot slot = new EventRingBuffer.Slot();
+    private final EventQueueOverflowPolicy overflowPolicy;
+    private final Set<Class<? extends ManagerEvent>> lowPriorityEventClasses;
+    private final int highWaterMark;
+    private final EventSpillFile spillFile;
+    private final EventQueueCounters counters;
+    private final RateLimiter overflowLogLimiter = RateLimiter.create(1);
+
     private final Dispatcher dispatcher;
     private volatile boolean stop = false;
     private final WeakReference<Object> owner;
@@ -44,8 +76,38 @@ public class AsyncEventPump implements Dispatcher, Runnable {
      *                    variant of threadName
      */
     AsyncEventPump(Object owner, Dispatcher dispatcher, String threadName) {
+        this(owner, dispatcher, threadName, DEFAULT_CAPACITY, EventQueueOverflowPolicy.DROP_NEWEST,
+                DEFAULT_LOW_PRIORITY_EVENT_CLASSES, new EventQueueCounters());
+    }
+
+    /**
+     * @param owner:                   A weak reference to the owner is
+     *                                 created, should it be garbage collected
+     *                                 then AsyncEventPump will shutdown.
+     * @param dispatcher:              The dispatcher that AsyncEventPump
+     *                                 should deliver events to.
+     * @param threadName:              The AsyncEventPump's thread will be
+     *                                 named with a variant of threadName
+     * @param capacity:                The number of events and responses
+     *                                 that can be queued.
+     * @param overflowPolicy:          What to do when the queue is full.
+     * @param lowPriorityEventClasses: The events (including subclasses) that
+     *                                 are discarded first by
+     *                                 {@link EventQueueOverflowPolicy#DROP_LOW_PRIORITY}.
+     * @param counters:                The counters to update.
+     */
+    AsyncEventPump(Object owner, Dispatcher dispatcher, String threadName, int capacity,
+                   EventQueueOverflowPolicy overflowPolicy, Set<Class<? extends ManagerEvent>> lowPriorityEventClasses,
+                   EventQueueCounters counters) {
         this.dispatcher = dispatcher;
         this.owner = new WeakReference<>(owner);
+        this.ringBuffer = new EventRingBuffer(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.lowPriorityEventClasses = lowPriorityEventClasses;
+        this.highWaterMark = ringBuffer.capacity() - ringBuffer.capacity() / 4;
+        this.spillFile = overflowPolicy == EventQueueOverflowPolicy.SPILL_TO_DISK ? new EventSpillFile() : null;
+        this.counters = counters;
+        counters.attach(ringBuffer, spillFile);
         name = threadName + ":AsyncEventPump";
         thread = new Thread(this, name);
         thread.start();
@@ -56,48 +118,75 @@ public class AsyncEventPump implements Dispatcher, Runnable {
         try {
             logger.info("starting");
             RateLimiter rateLimiter = RateLimiter.create(2);
-            while (!stop || !queue.isEmpty()) {
+            while (!stop || ringBuffer.size() > 0 || (spillFile != null && spillFile.pending() > 0)) {
                 try {
-                    EventWrapper wrapper = queue.poll(1, TimeUnit.MINUTES);
-                    if (wrapper != null) {
-                        if (wrapper.timer.timeTaken() > MAX_SAFE_EVENT_AGE && rateLimiter.tryAcquire()) {
-                            logger.warn("The following message will only appear once per second!\n" + "Event dispatched "
-                                    + wrapper.timer.timeTaken()
-                                    + " MS after arriving, your ManagerEvent handlers are too slow!\n"
-                                    + "You should also check for Garbage Collection issues.\n" + "There are " + queue.size()
-                                    + " events waiting to be processed in the queue.\n" + "Event was "
-                                    + wrapper.getPayloadAsString());
-
+                    if (!take()) {
+                        if (!ringBuffer.awaitElement(TimeUnit.MINUTES.toMillis(1)) && owner.get() == null) {
+                            stop = true;
+                            logger.error("The owner has been garbage collected!");
                         }
-                        // assume we need to process all queued events in
-                        // MAX_SAFE_EVENT_AGE
-                        int requiredHandlingTime = (int) (MAX_SAFE_EVENT_AGE / Math.max(1, queue.size()));
-
-                        if (wrapper.response != null) {
-                            dispatcher.dispatchResponse(wrapper.response, requiredHandlingTime);
-                        } else if (wrapper.event != null) {
-                            dispatcher.dispatchEvent(wrapper.event, requiredHandlingTime);
-                        } else if (wrapper.poison != null) {
-                            wrapper.poison.countDown();
-                        }
-                    } else if (owner.get() == null) {
-                        stop = true;
-                        logger.error("The owner has been garbage collected!");
+                        continue;
+                    }
+
+                    final Object payload = slot.payload;
+                    final long age = System.nanoTime() - slot.enqueuedNanos;
+                    slot.payload = null;
+
+                    if (TimeUnit.NANOSECONDS.toMillis(age) > MAX_SAFE_EVENT_AGE && rateLimiter.tryAcquire()) {
+                        logger.warn("The following message will only appear once per second!\n" + "Event dispatched "
+                                + TimeUnit.NANOSECONDS.toMillis(age)
+                                + " MS after arriving, your ManagerEvent handlers are too slow!\n"
+                                + "You should also check for Garbage Collection issues.\n" + "There are "
+                                + counters.getDepth() + " events waiting to be processed in the queue.\n"
+                                + "Event was " + payload);
+
+                    }
+                    // assume we need to process all queued events in
+                    // MAX_SAFE_EVENT_AGE
+                    int requiredHandlingTime = (int) (MAX_SAFE_EVENT_AGE / Math.max(1, counters.getDepth()));
+
+                    if (payload instanceof CountDownLatch) {
+                        ((CountDownLatch) payload).countDown();
+                        continue;
                     }
 
-                } catch (InterruptedException e) {
-                    logger.error(e);
+                    counters.dispatched(age);
+                    if (payload instanceof ManagerResponse) {
+                        dispatcher.dispatchResponse((ManagerResponse) payload, requiredHandlingTime);
+                    } else if (payload instanceof ManagerEvent) {
+                        dispatcher.dispatchEvent((ManagerEvent) payload, requiredHandlingTime);
+                    } else if (payload instanceof ManagerEventEnvelope) {
+                        dispatcher.dispatchEvent((ManagerEventEnvelope) payload, requiredHandlingTime);
+                    }
                 } catch (Exception e) {
                     logger.error(e, e);
                 }
             }
         } finally {
             terminated = true;
+            if (spillFile != null) {
+                try {
+                    spillFile.close();
+                } catch (IOException e) {
+                    logger.warn("Unable to close spill file", e);
+                }
+            }
             logger.warn("AsyncEventPump has exited");
         }
 
     }
 
+    /**
+     * Takes the next element into {@link #slot}, elements in the ring buffer
+     * are always older than the spilled ones.
+     */
+    private boolean take() throws IOException {
+        if (ringBuffer.poll(slot)) {
+            return true;
+        }
+        return spillFile != null && spillFile.read(slot);
+    }
+
     /**
      * call stop() to cause the AsyncEventPump to stop, it will first empty the
      * queue.
@@ -106,28 +195,33 @@ public class AsyncEventPump implements Dispatcher, Runnable {
         logger.info(name + " Requesting AsyncEventPump to stop");
         if (terminated) {
             logger.warn(name + " AsyncEventPump is already stopped");
-            if (!queue.isEmpty()) {
+            if (counters.getDepth() > 0) {
                 logger.error(name + " There are unprocessed events in the queue");
             }
 
             return;
         }
-        EventWrapper poisonWrapper = new EventWrapper();
-        queue.add(poisonWrapper);
-        stop = true;
+        CountDownLatch poison = new CountDownLatch(1);
         LogTime timer = new LogTime();
+        // the poison must not be dropped, wait for room
+        while (!enqueue(poison, EventQueueOverflowPolicy.BLOCK)) {
+            if (terminated || timer.timeTaken() > 60_000) {
+                throw new RuntimeException(name + " Failed to shutdown AsyncEventPump cleanly!");
+            }
+        }
+        stop = true;
         try {
-            int queueSize = queue.size();
-            while (!poisonWrapper.poison.await(5, TimeUnit.SECONDS)) {
+            int queueSize = counters.getDepth();
+            while (!poison.await(5, TimeUnit.SECONDS)) {
                 // still waiting for the poison to be consumed.
-                if (queueSize == queue.size()) {
+                if (queueSize == counters.getDepth()) {
                     if (!terminated) {
                         Locker.dumpThread(thread, name + " AsyncEventPump thread is blocked here...");
                     }
                     throw new RuntimeException(name + " Failed to shutdown AsyncEventPump cleanly!");
 
                 }
-                queueSize = queue.size();
+                queueSize = counters.getDepth();
                 logger.info(name + " Waiting for AsyncEventPump to Stop... ");
 
                 if (timer.timeTaken() > 60_000) {
@@ -140,54 +234,126 @@ public class AsyncEventPump implements Dispatcher, Runnable {
     }
 
     /**
-     * add a ManagerResponse to the queue, only if the queue is not full
+     * add a ManagerResponse to the queue
      */
     @Override
     public void dispatchResponse(ManagerResponse response, Integer requiredHandlingTime) {
-        if (!queue.offer(new EventWrapper(response))) {
-            logger.error(name + " Event queue is full, not processing ManagerResponse " + response);
-        }
+        enqueue(response, overflowPolicy);
     }
 
     /**
-     * add a ManagerEvent to the queue, only if the queue is not full
+     * add a ManagerEvent to the queue
      */
     @Override
     public void dispatchEvent(ManagerEvent event, Integer requiredHandlingTime) {
-        if (!queue.offer(new EventWrapper(event))) {
-            logger.error(name + " Event queue is full, not processing ManagerEvent " + event);
-        }
+        enqueue(event, overflowPolicy);
     }
 
-    private static class EventWrapper {
-        LogTime timer = new LogTime();
-        ManagerResponse response;
-        ManagerEvent event;
-        CountDownLatch poison;
+    /**
+     * add an unbuilt ManagerEvent to the queue
+     */
+    @Override
+    public void dispatchEvent(ManagerEventEnvelope envelope, Integer requiredHandlingTime) {
+        enqueue(envelope, overflowPolicy);
+    }
 
-        EventWrapper() {
-            // poison
-            poison = new CountDownLatch(1);
-        }
+    /**
+     * Adds the payload to the queue applying the given overflow policy.
+     *
+     * @return <code>false</code> if the payload has been dropped.
+     */
+    private boolean enqueue(Object payload, EventQueueOverflowPolicy policy) {
+        final long now = System.nanoTime();
 
-        public String getPayloadAsString() {
-            if (response != null) {
-                return response.toString();
-            } else if (event != null) {
-                return event.toString();
+        // once spilling has started everything goes to disk until the
+        // consumer caught up, otherwise the order would be lost
+        if (spillFile != null && spillFile.pending() > 0) {
+            try {
+                if (spillFile.writeIfPending(payload, now)) {
+                    counters.spilled();
+                    return true;
+                }
+                // drained meanwhile, the ring buffer is next
+            } catch (IOException e) {
+                logger.error(name + " Unable to spill to disk, not processing " + payload, e);
+                counters.dropped(payload);
+                return false;
             }
-            return "Poison";
+        }
 
+        if (policy == EventQueueOverflowPolicy.DROP_LOW_PRIORITY && ringBuffer.size() >= highWaterMark
+                && isLowPriority(payload)) {
+            return drop(payload);
         }
 
-        EventWrapper(ManagerResponse response) {
-            this.response = response;
+        while (!ringBuffer.offer(payload, now)) {
+            switch (policy) {
+                case DROP_NEWEST:
+                    return drop(payload);
+                case DROP_OLDEST:
+                    final Object dropped = ringBuffer.dropOldest();
+                    if (dropped != null) {
+                        counters.dropped(dropped);
+                        logOverflow("dropping oldest event");
+                    }
+                    break;
+                case SPILL_TO_DISK:
+                    if (spillFile != null) {
+                        return spill(payload, now);
+                    }
+                    return drop(payload);
+                default:
+                    // BLOCK and DROP_LOW_PRIORITY for everything else
+                    if (terminated) {
+                        return drop(payload);
+                    }
+                    ringBuffer.awaitSpace(MAX_SAFE_EVENT_AGE);
+                    break;
+            }
         }
+        return true;
+    }
 
-        EventWrapper(ManagerEvent event) {
-            this.event = event;
+    private boolean spill(Object payload, long enqueuedNanos) {
+        try {
+            spillFile.write(payload, enqueuedNanos);
+            counters.spilled();
+            return true;
+        } catch (IOException e) {
+            logger.error(name + " Unable to spill to disk, not processing " + payload, e);
+            counters.dropped(payload);
+            return false;
         }
+    }
+
+    private boolean drop(Object payload) {
+        counters.dropped(payload);
+        logOverflow("not processing " + payload);
+        return false;
+    }
 
+    private void logOverflow(String what) {
+        if (overflowLogLimiter.tryAcquire()) {
+            logger.error(name + " Event queue is full, " + what + " (" + counters.getDroppedCount()
+                    + " dropped so far)");
+        }
     }
 
+    private boolean isLowPriority(Object payload) {
+        final Class<?> eventClass;
+        if (payload instanceof ManagerEventEnvelope) {
+            eventClass = ((ManagerEventEnvelope) payload).getEventClass();
+        } else if (payload instanceof ManagerEvent) {
+            eventClass = payload.getClass();
+        } else {
+            return false;
+        }
+
+        for (Class<?> c = eventClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (lowPriorityEventClasses.contains(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
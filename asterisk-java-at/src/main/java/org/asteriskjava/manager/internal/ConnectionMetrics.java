@@ -0,0 +1,250 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.LatencyStatistics;
+import org.asteriskjava.manager.ManagerConnectionMetrics;
+import org.asteriskjava.manager.ManagerEventQueueStatistics;
+import org.asteriskjava.util.internal.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the metrics of a {@link ManagerConnectionImpl}.
+ * <p>
+ * The recording methods are called on the reader, dispatcher and sending
+ * threads. They do not lock. The counters and histograms only allocate when
+ * a key is seen for the first time, the round-trip time of each sent action
+ * is tracked in a map entry until its response arrives, it times out or the
+ * connection is lost.
+ *
+ * @since 3.40.0
+ */
+final class ConnectionMetrics implements ManagerConnectionMetrics {
+    private final EventQueueCounters eventQueueCounters;
+    private final ClassCounters eventsReceived = new ClassCounters();
+    private final ClassCounters eventsBuilt = new ClassCounters();
+    private final LongAdder unknownEventsReceived = new LongAdder();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LatencyHistogram buildTime = new LatencyHistogram();
+    private final ConcurrentMap<String, LatencyHistogram> listenerTimes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> actionRoundTripTimes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, PendingAction> pendingActions = new ConcurrentHashMap<>();
+    private final LongAdder reconnectAttempts = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    ConnectionMetrics(EventQueueCounters eventQueueCounters) {
+        this.eventQueueCounters = eventQueueCounters;
+    }
+
+    void eventReceived(Class<?> eventClass) {
+        if (eventClass == null) {
+            unknownEventsReceived.increment();
+        } else {
+            eventsReceived.increment(eventClass);
+        }
+    }
+
+    void eventBuilt(Class<?> eventClass, long nanos) {
+        eventsBuilt.increment(eventClass);
+        buildTime.record(nanos);
+    }
+
+    void frameParsed(long nanos) {
+        parseTime.record(nanos);
+    }
+
+    void listenerCalled(Object listener, long nanos) {
+        histogram(listenerTimes, listener.getClass().getName()).record(nanos);
+    }
+
+    /**
+     * Starts the round-trip time of an action.
+     *
+     * @param internalActionId the internal action id of the action.
+     * @param action           the name of the action.
+     */
+    void actionSent(String internalActionId, String action) {
+        pendingActions.put(internalActionId, new PendingAction(action, System.nanoTime()));
+    }
+
+    /**
+     * Stops the round-trip time of an action.
+     *
+     * @param internalActionId the internal action id of the response.
+     */
+    void responseReceived(String internalActionId) {
+        final PendingAction pending = pendingActions.remove(internalActionId);
+        if (pending != null) {
+            histogram(actionRoundTripTimes, pending.action).record(System.nanoTime() - pending.sentNanos);
+        }
+    }
+
+    /**
+     * Forgets an action that has not been sent or will never get its response.
+     */
+    void actionAbandoned(String internalActionId) {
+        pendingActions.remove(internalActionId);
+    }
+
+    void disconnected() {
+        pendingActions.clear();
+    }
+
+    void reconnectAttempted() {
+        reconnectAttempts.increment();
+    }
+
+    void reconnected() {
+        reconnects.increment();
+    }
+
+    void bytesReceived(long count) {
+        bytesReceived.add(count);
+    }
+
+    void bytesSent(long count) {
+        bytesSent.add(count);
+    }
+
+    private static LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String key) {
+        final LatencyHistogram histogram = histograms.get(key);
+        return histogram != null ? histogram : histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+    }
+
+    @Override
+    public Map<Class<?>, Long> getEventsReceived() {
+        return eventsReceived.snapshot();
+    }
+
+    @Override
+    public long getUnknownEventsReceived() {
+        return unknownEventsReceived.sum();
+    }
+
+    @Override
+    public Map<Class<?>, Long> getEventsBuilt() {
+        return eventsBuilt.snapshot();
+    }
+
+    @Override
+    public Map<Class<?>, Long> getEventsDropped() {
+        return eventQueueCounters.getDroppedByClass();
+    }
+
+    @Override
+    public LatencyStatistics getParseTime() {
+        return parseTime;
+    }
+
+    @Override
+    public LatencyStatistics getBuildTime() {
+        return buildTime;
+    }
+
+    @Override
+    public ManagerEventQueueStatistics getEventQueueStatistics() {
+        return eventQueueCounters;
+    }
+
+    @Override
+    public LatencyStatistics getQueueWaitTime() {
+        return eventQueueCounters.getWaitTime();
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getListenerTimes() {
+        return Collections.unmodifiableMap(new HashMap<>(listenerTimes));
+    }
+
+    @Override
+    public Map<String, LatencyStatistics> getActionRoundTripTimes() {
+        return Collections.unmodifiableMap(new HashMap<>(actionRoundTripTimes));
+    }
+
+    @Override
+    public int getPendingActions() {
+        return pendingActions.size();
+    }
+
+    @Override
+    public long getReconnectAttempts() {
+        return reconnectAttempts.sum();
+    }
+
+    @Override
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionMetrics[bytesReceived=" + getBytesReceived() + ",bytesSent=" + getBytesSent()
+                + ",unknownEventsReceived=" + getUnknownEventsReceived() + ",pendingActions=" + getPendingActions()
+                + ",reconnects=" + getReconnects() + ",parseTime=" + parseTime + ",buildTime=" + buildTime
+                + ",eventQueue=" + eventQueueCounters + "]";
+    }
+
+    private static final class PendingAction {
+        private final String action;
+        private final long sentNanos;
+
+        PendingAction(String action, long sentNanos) {
+            this.action = action;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    /**
+     * Counters keyed by class.
+     */
+    static final class ClassCounters {
+        private final ConcurrentMap<Class<?>, LongAdder> counters = new ConcurrentHashMap<>();
+
+        void increment(Class<?> c) {
+            LongAdder counter = counters.get(c);
+            if (counter == null) {
+                counter = counters.computeIfAbsent(c, k -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        Map<Class<?>, Long> snapshot() {
+            final Map<Class<?>, Long> snapshot = new HashMap<>();
+            for (Map.Entry<Class<?>, LongAdder> entry : counters.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().sum());
+            }
+            return Collections.unmodifiableMap(snapshot);
+        }
+    }
+}
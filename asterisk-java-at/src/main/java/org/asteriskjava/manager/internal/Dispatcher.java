@@ -53,5 +53,23 @@ interface Dispatcher {
      */
     void dispatchEvent(ManagerEvent event, Integer requiredHandlingTime);
 
+    /**
+     * This method is called by the reader for events that have not been built
+     * yet. The default implementation builds the event and passes it to
+     * {@link #dispatchEvent(ManagerEvent, Integer)}, implementations may
+     * avoid building events that are not wanted by any ManagerEventHandler.
+     *
+     * @param envelope             the unbuilt event received by the reader
+     * @param requiredHandlingTime the time that this event must be handled
+     *                             within to not cause a back log of events
+     * @since 3.40.0
+     */
+    default void dispatchEvent(ManagerEventEnvelope envelope, Integer requiredHandlingTime) {
+        final ManagerEvent event = envelope.getEvent();
+        if (event != null) {
+            dispatchEvent(event, requiredHandlingTime);
+        }
+    }
+
     void stop();
 }
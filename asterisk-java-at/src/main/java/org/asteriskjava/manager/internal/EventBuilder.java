@@ -56,4 +56,21 @@ interface EventBuilder {
     ManagerEvent buildEvent(Object source, Map<String, Object> attributes);
 
     void deregisterEventClass(Class<? extends ManagerEvent> eventClass);
+
+    /**
+     * Returns the event class registered for the given event type.
+     *
+     * @param eventType the lower case event type, for example "newchannel".
+     * @return the registered event class or <code>null</code> if no class is
+     * registered for that event type.
+     */
+    Class<?> getRegisteredEventClass(String eventType);
+
+    /**
+     * Returns the registered event classes.
+     *
+     * @return an unmodifiable view of the registered event classes by lower
+     * case event type.
+     */
+    Map<String, Class<?>> getRegisteredEventClasses();
 }
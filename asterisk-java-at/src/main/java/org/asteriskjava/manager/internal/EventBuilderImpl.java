@@ -17,6 +17,7 @@ package org.asteriskjava.manager.internal;
 
 import org.asteriskjava.manager.event.*;
 import org.asteriskjava.manager.util.EventAttributesHelper;
+import org.asteriskjava.manager.util.EventBinder;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 import org.reflections.Reflections;
@@ -25,6 +26,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Default implementation of the EventBuilder interface.
@@ -36,7 +38,7 @@ import java.util.Map.Entry;
 class EventBuilderImpl implements EventBuilder {
     private static final Set<String> ignoredAttributes = new HashSet<>(Arrays.asList("event"));
     private Map<String, Class<?>> registeredEventClasses;
-    private final Set<String> eventClassNegativeCache = new HashSet<>();
+    private final Set<String> eventClassNegativeCache = ConcurrentHashMap.newKeySet();
 
     private static final Log logger = LogFactory.getLog(EventBuilderImpl.class);
 
@@ -44,7 +46,7 @@ class EventBuilderImpl implements EventBuilder {
         "org.asteriskjava.manager.event").getSubTypesOf(ManagerEvent.class);
 
     EventBuilderImpl() {
-        this.registeredEventClasses = new HashMap<>();
+        this.registeredEventClasses = new ConcurrentHashMap<>();
         registerBuiltinEventClasses();
     }
 
@@ -60,21 +62,7 @@ class EventBuilderImpl implements EventBuilder {
     }
 
     public final void registerEventClass(Class<? extends ManagerEvent> clazz) throws IllegalArgumentException {
-        String className;
-        String eventType;
-
-        className = clazz.getName();
-        eventType = className.substring(className.lastIndexOf('.') + 1).toLowerCase(Locale.ENGLISH);
-
-        if (eventType.endsWith("event")) {
-            eventType = eventType.substring(0, eventType.length() - "event".length());
-        }
-
-        if (UserEvent.class.isAssignableFrom(clazz) && !eventType.startsWith("userevent")) {
-            eventType = "userevent" + eventType;
-        }
-
-        registerEventClass(eventType, clazz);
+        registerEventClass(ManagerUtil.getEventType(clazz), clazz);
     }
 
     /**
@@ -118,6 +106,7 @@ class EventBuilderImpl implements EventBuilder {
         String eventType = null;
         Class<?> eventClass;
         Constructor<?> constructor;
+        EventBinder<ManagerEvent> binder;
 
         if (attributes.get("event") == null) {
             logger.error("No event type in properties");
@@ -193,18 +182,33 @@ class EventBuilderImpl implements EventBuilder {
             return null;
         }
 
-        try {
-            constructor = eventClass.getConstructor(Object.class);
-        } catch (NoSuchMethodException ex) {
-            logger.error("Unable to get constructor of " + eventClass.getName(), ex);
-            return null;
-        }
+        // built-in events use a precompiled binder, reflection is only used
+        // for event classes registered by client code
+        binder = knownManagerEventClasses.contains(eventClass)
+            ? (EventBinder<ManagerEvent>) EventBinder.forClass(eventClass)
+            : null;
+
+        if (binder != null) {
+            try {
+                event = binder.newInstance(source);
+            } catch (Exception ex) {
+                logger.error("Unable to create new instance of " + eventClass.getName(), ex);
+                return null;
+            }
+        } else {
+            try {
+                constructor = eventClass.getConstructor(Object.class);
+            } catch (NoSuchMethodException ex) {
+                logger.error("Unable to get constructor of " + eventClass.getName(), ex);
+                return null;
+            }
 
-        try {
-            event = (ManagerEvent) constructor.newInstance(source);
-        } catch (Exception ex) {
-            logger.error("Unable to create new instance of " + eventClass.getName(), ex);
-            return null;
+            try {
+                event = (ManagerEvent) constructor.newInstance(source);
+            } catch (Exception ex) {
+                logger.error("Unable to create new instance of " + eventClass.getName(), ex);
+                return null;
+            }
         }
 
         if (attributes.get("peersAttributes") != null && attributes.get("peersAttributes") instanceof List) {
@@ -212,9 +216,14 @@ class EventBuilderImpl implements EventBuilder {
             PeersEvent peersEvent = (PeersEvent) event;
             // TODO: This cast is very ugly, we should review how attributes are
             // being passed around.
+            EventBinder<PeerEntryEvent> peerEntryBinder = EventBinder.forClass(PeerEntryEvent.class);
             for (Map<String, Object> peerAttrs : (List<Map<String, Object>>) attributes.get("peersAttributes")) {
                 PeerEntryEvent peerEntryEvent = new PeerEntryEvent(source);
-                EventAttributesHelper.setAttributes(peerEntryEvent, peerAttrs, ignoredAttributes);
+                if (peerEntryBinder != null) {
+                    peerEntryBinder.setAttributes(peerEntryEvent, peerAttrs, ignoredAttributes);
+                } else {
+                    EventAttributesHelper.setAttributes(peerEntryEvent, peerAttrs, ignoredAttributes);
+                }
                 List<PeerEntryEvent> peerEntryEvents = peersEvent.getChildEvents();
                 if (peerEntryEvents == null) {
                     peerEntryEvents = new ArrayList<>();
@@ -223,6 +232,8 @@ class EventBuilderImpl implements EventBuilder {
                 peerEntryEvents.add(peerEntryEvent);
             }
             peersEvent.setActionId(peersEvent.getChildEvents().get(0).getActionId());
+        } else if (binder != null) {
+            binder.setAttributes(event, attributes, ignoredAttributes);
         } else {
             EventAttributesHelper.setAttributes(event, attributes, ignoredAttributes);
         }
@@ -245,6 +256,16 @@ class EventBuilderImpl implements EventBuilder {
         return event;
     }
 
+    @Override
+    public Class<?> getRegisteredEventClass(String eventType) {
+        return registeredEventClasses.get(eventType);
+    }
+
+    @Override
+    public Map<String, Class<?>> getRegisteredEventClasses() {
+        return Collections.unmodifiableMap(registeredEventClasses);
+    }
+
     @Override
     public void deregisterEventClass(Class<? extends ManagerEvent> eventClass) {
 
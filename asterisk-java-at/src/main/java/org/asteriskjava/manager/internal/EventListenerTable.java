@@ -0,0 +1,78 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.ManagerEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable snapshot of the event listeners registered with a
+ * {@link ManagerConnectionImpl} that knows which of them are called for an
+ * event class.
+ * <p>
+ * A {@link TypedManagerEventListener} is only called for events of its class,
+ * all other listeners are called for all events. The listeners of an event
+ * class are computed on the first event of that class, so dispatching an
+ * event is a single lookup. A new table is created whenever a listener is
+ * added or removed.
+ *
+ * @since 3.40.0
+ */
+final class EventListenerTable {
+    static final EventListenerTable EMPTY = new EventListenerTable(new ArrayList<>());
+
+    private final ManagerEventListener[] listeners;
+
+    /**
+     * Not a ClassValue, a table only lives until the next listener is added or
+     * removed and its entries must not outlive it.
+     */
+    private final ConcurrentMap<Class<?>, ManagerEventListener[]> byEventClass = new ConcurrentHashMap<>();
+
+    /**
+     * @param listeners the registered listeners in the order they are called.
+     */
+    EventListenerTable(List<ManagerEventListener> listeners) {
+        this.listeners = listeners.toArray(new ManagerEventListener[0]);
+    }
+
+    /**
+     * Returns the listeners to call for an event in the order they have been
+     * registered.
+     *
+     * @param eventClass the class of the event.
+     * @return the listeners, must not be modified.
+     */
+    ManagerEventListener[] get(Class<?> eventClass) {
+        final ManagerEventListener[] matching = byEventClass.get(eventClass);
+        return matching != null ? matching : byEventClass.computeIfAbsent(eventClass, this::match);
+    }
+
+    private ManagerEventListener[] match(Class<?> eventClass) {
+        final List<ManagerEventListener> matching = new ArrayList<>(listeners.length);
+        for (ManagerEventListener listener : listeners) {
+            if (!(listener instanceof TypedManagerEventListener)
+                    || ((TypedManagerEventListener<?>) listener).accepts(eventClass)) {
+                matching.add(listener);
+            }
+        }
+        return matching.size() == listeners.length ? listeners : matching.toArray(new ManagerEventListener[0]);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.LatencyStatistics;
+import org.asteriskjava.manager.ManagerEventQueueStatistics;
+import org.asteriskjava.manager.internal.ConnectionMetrics.ClassCounters;
+import org.asteriskjava.util.internal.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the event queues of a connection. The connection keeps one
+ * instance across reconnects, each {@link AsyncEventPump} registers its
+ * queue so that the current depth can be reported.
+ *
+ * @since 3.40.0
+ */
+final class EventQueueCounters implements ManagerEventQueueStatistics {
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final ClassCounters droppedByClass = new ClassCounters();
+
+    private volatile EventRingBuffer ringBuffer;
+    private volatile EventSpillFile spillFile;
+
+    void attach(EventRingBuffer ringBuffer, EventSpillFile spillFile) {
+        this.ringBuffer = ringBuffer;
+        this.spillFile = spillFile;
+    }
+
+    void dispatched(long latencyNanos) {
+        dispatched.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+        long max;
+        while (latencyNanos > (max = maxLatencyNanos.get())) {
+            if (maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+                break;
+            }
+        }
+        waitTime.record(latencyNanos);
+    }
+
+    void dropped(Object payload) {
+        dropped.incrementAndGet();
+        if (payload instanceof ManagerEventEnvelope) {
+            droppedByClass.increment(((ManagerEventEnvelope) payload).getEventClass());
+        } else if (payload != null) {
+            droppedByClass.increment(payload.getClass());
+        }
+    }
+
+    void spilled() {
+        spilled.incrementAndGet();
+    }
+
+    @Override
+    public int getCapacity() {
+        final EventRingBuffer currentRingBuffer = ringBuffer;
+        return currentRingBuffer == null ? 0 : currentRingBuffer.capacity();
+    }
+
+    @Override
+    public int getDepth() {
+        final EventRingBuffer currentRingBuffer = ringBuffer;
+        final EventSpillFile currentSpillFile = spillFile;
+        return (currentRingBuffer == null ? 0 : currentRingBuffer.size())
+                + (currentSpillFile == null ? 0 : currentSpillFile.pending());
+    }
+
+    @Override
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    @Override
+    public long getTotalLatencyNanos() {
+        return totalLatencyNanos.get();
+    }
+
+    @Override
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /**
+     * Returns the time the dispatched events have been waiting in the queue.
+     */
+    LatencyStatistics getWaitTime() {
+        return waitTime;
+    }
+
+    Map<Class<?>, Long> getDroppedByClass() {
+        return droppedByClass.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        return "EventQueueCounters[capacity=" + getCapacity() + ",depth=" + getDepth() + ",dispatched="
+                + getDispatchedCount() + ",dropped=" + getDroppedCount() + ",spilled=" + getSpilledCount()
+                + ",maxLatencyNanos=" + getMaxLatencyNanos() + "]";
+    }
+}
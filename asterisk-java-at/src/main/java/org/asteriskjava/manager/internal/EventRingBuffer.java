@@ -0,0 +1,217 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded single producer, single consumer queue backed by a preallocated
+ * array of slots, no objects are allocated per element.
+ * <p>
+ * Only one thread may call the producer methods ({@link #offer(Object, long)},
+ * {@link #dropOldest()} and {@link #awaitSpace(long)}) and only one thread the
+ * consumer methods ({@link #poll(Slot)} and {@link #awaitElement(long)}).
+ * The consumer claims elements with a CAS on the read sequence so that the
+ * producer can discard the oldest element while the consumer is running.
+ *
+ * @since 3.40.0
+ */
+final class EventRingBuffer {
+    /**
+     * An element of the buffer together with the time it has been offered.
+     */
+    static final class Slot {
+        Object payload;
+        long enqueuedNanos;
+    }
+
+    private static final int SPINS = 100;
+
+    private final Slot[] slots;
+    private final int mask;
+
+    /**
+     * Sequence of the next element to read.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Sequence of the next element to write, only changed by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile Thread parkedConsumer;
+    private volatile Thread parkedProducer;
+
+    /**
+     * Creates a new ring buffer.
+     *
+     * @param capacity the minimum capacity, rounded up to the next power of
+     *                 two.
+     */
+    EventRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new Slot[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    int size() {
+        final long h = head.get();
+        return (int) Math.max(0, tail.get() - h);
+    }
+
+    /**
+     * Adds an element if there is room.
+     *
+     * @return <code>false</code> if the buffer is full.
+     */
+    boolean offer(Object payload, long enqueuedNanos) {
+        final long t = tail.get();
+        if (t - head.get() >= slots.length) {
+            return false;
+        }
+
+        final Slot slot = slots[(int) t & mask];
+        slot.payload = payload;
+        slot.enqueuedNanos = enqueuedNanos;
+        // a volatile write, it must not be reordered with the read of
+        // parkedConsumer below or the consumer may miss the wake up
+        tail.set(t + 1);
+
+        final Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Discards the oldest element if the buffer is full.
+     *
+     * @return the payload discarded by this call, <code>null</code> if there
+     * was room anyway.
+     */
+    Object dropOldest() {
+        while (true) {
+            final long h = head.get();
+            if (tail.get() - h < slots.length) {
+                return null;
+            }
+            final Object payload = slots[(int) h & mask].payload;
+            if (head.compareAndSet(h, h + 1)) {
+                return payload;
+            }
+        }
+    }
+
+    /**
+     * Takes the oldest element.
+     *
+     * @param out receives the payload and enqueue time of the element.
+     * @return <code>false</code> if the buffer is empty.
+     */
+    boolean poll(Slot out) {
+        while (true) {
+            final long h = head.get();
+            if (h >= tail.get()) {
+                return false;
+            }
+
+            // copy before claiming, the producer only overwrites the slot
+            // after it has moved the head in dropOldest()
+            final Slot slot = slots[(int) h & mask];
+            final Object payload = slot.payload;
+            final long enqueuedNanos = slot.enqueuedNanos;
+            if (head.compareAndSet(h, h + 1)) {
+                out.payload = payload;
+                out.enqueuedNanos = enqueuedNanos;
+
+                final Thread producer = parkedProducer;
+                if (producer != null) {
+                    LockSupport.unpark(producer);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Waits until the buffer is not empty.
+     *
+     * @param timeout the maximum time to wait in milliseconds.
+     * @return <code>true</code> if there is an element to poll.
+     */
+    boolean awaitElement(long timeout) {
+        for (int i = 0; i < SPINS; i++) {
+            if (size() > 0) {
+                return true;
+            }
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        parkedConsumer = Thread.currentThread();
+        try {
+            while (size() == 0) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            parkedConsumer = null;
+        }
+    }
+
+    /**
+     * Waits until the buffer is not full.
+     *
+     * @param timeout the maximum time to wait in milliseconds.
+     * @return <code>true</code> if there is room to offer an element.
+     */
+    boolean awaitSpace(long timeout) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        parkedProducer = Thread.currentThread();
+        try {
+            while (size() >= slots.length) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            return true;
+        } finally {
+            parkedProducer = null;
+        }
+    }
+}
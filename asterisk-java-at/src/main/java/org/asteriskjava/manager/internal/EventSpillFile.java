@@ -0,0 +1,204 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FIFO overflow of the {@link EventRingBuffer} used with
+ * {@link org.asteriskjava.manager.EventQueueOverflowPolicy#SPILL_TO_DISK}.
+ * <p>
+ * Unbuilt events ({@link ManagerEventEnvelope}s) make up nearly all of the
+ * traffic and are written to a temporary file as their raw attributes.
+ * Everything else (responses, events that have already been built and the
+ * poison of the pump) is rare and kept in memory, a marker in the file
+ * preserves the order. The file is deleted whenever it has been drained.
+ * <p>
+ * Like the ring buffer this supports a single producer and a single
+ * consumer.
+ *
+ * @since 3.40.0
+ */
+final class EventSpillFile implements Closeable {
+    private static final Log logger = LogFactory.getLog(EventSpillFile.class);
+
+    private static final byte ENVELOPE = 1;
+    private static final byte IN_MEMORY = 2;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Object> inMemory = new ArrayDeque<>();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong read = new AtomicLong();
+
+    private File file;
+    private ObjectOutputStream out;
+    private ObjectInputStream in;
+    private long flushed;
+
+    // not serialized, shared by all envelopes of a reader
+    private EventBuilder eventBuilder;
+    private Object eventSource;
+
+    /**
+     * Returns the number of elements that have been written but not yet
+     * read.
+     */
+    int pending() {
+        return (int) (written.get() - read.get());
+    }
+
+    /**
+     * Appends an element.
+     *
+     * @throws IOException if the element could not be written, it is lost in
+     *                     that case.
+     */
+    void write(Object payload, long enqueuedNanos) throws IOException {
+        append(payload, enqueuedNanos, false);
+    }
+
+    /**
+     * Appends an element unless the file has been drained in the meantime.
+     * The consumer only waits for the ring buffer once the file is drained,
+     * so an element appended after that would not be noticed.
+     *
+     * @return <code>false</code> if there were no pending elements and
+     * nothing has been written.
+     * @throws IOException if the element could not be written, it is lost in
+     *                     that case.
+     */
+    boolean writeIfPending(Object payload, long enqueuedNanos) throws IOException {
+        return append(payload, enqueuedNanos, true);
+    }
+
+    private boolean append(Object payload, long enqueuedNanos, boolean onlyIfPending) throws IOException {
+        lock.lock();
+        try {
+            if (onlyIfPending && pending() == 0) {
+                return false;
+            }
+            if (out == null) {
+                file = File.createTempFile("asterisk-java-events", ".spill");
+                file.deleteOnExit();
+                out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                logger.info("Spilling events to " + file);
+            }
+
+            out.writeLong(enqueuedNanos);
+            if (payload instanceof ManagerEventEnvelope && ((ManagerEventEnvelope) payload).getAttributes() != null) {
+                final ManagerEventEnvelope envelope = (ManagerEventEnvelope) payload;
+                eventBuilder = envelope.getEventBuilder();
+                eventSource = envelope.getSource();
+                out.writeByte(ENVELOPE);
+                out.writeObject(envelope.getEventClass());
+                out.writeObject(envelope.getAttributes());
+                out.writeObject(envelope.getDateReceived());
+            } else {
+                out.writeByte(IN_MEMORY);
+                inMemory.add(payload);
+            }
+            // don't let the stream keep references to the written objects
+            out.reset();
+            written.incrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the oldest element.
+     *
+     * @param into receives the payload and enqueue time of the element.
+     * @return <code>false</code> if there are no elements.
+     * @throws IOException if reading the element fails.
+     */
+    @SuppressWarnings("unchecked")
+    boolean read(EventRingBuffer.Slot into) throws IOException {
+        lock.lock();
+        try {
+            if (pending() == 0) {
+                return false;
+            }
+
+            // flush lazily when we run out of flushed data instead of per
+            // write
+            if (read.get() == flushed) {
+                out.flush();
+                flushed = written.get();
+            }
+            if (in == null) {
+                in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+            }
+
+            into.enqueuedNanos = in.readLong();
+            if (in.readByte() == ENVELOPE) {
+                final Class<?> eventClass = (Class<?>) in.readObject();
+                final Map<String, Object> attributes = (Map<String, Object>) in.readObject();
+                final Date dateReceived = (Date) in.readObject();
+                into.payload = new ManagerEventEnvelope(eventClass, attributes, dateReceived, eventBuilder,
+                        eventSource);
+            } else {
+                into.payload = inMemory.poll();
+            }
+            read.incrementAndGet();
+
+            if (pending() == 0) {
+                // drained, start over with a new file next time
+                close();
+            }
+            return true;
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to read spilled event", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            if (file != null) {
+                if (!file.delete()) {
+                    logger.warn("Unable to delete " + file);
+                }
+                file = null;
+            }
+            flushed = 0;
+            read.set(0);
+            written.set(0);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -18,17 +18,19 @@ package org.asteriskjava.manager.internal;
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.lock.Lockable;
 import org.asteriskjava.lock.LockableList;
-import org.asteriskjava.lock.LockableMap;
+import org.asteriskjava.lock.LockableSet;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.*;
 import org.asteriskjava.manager.action.*;
 import org.asteriskjava.manager.event.*;
 import org.asteriskjava.manager.response.*;
 import org.asteriskjava.pbx.util.LogTime;
+import org.asteriskjava.util.DaemonThreadFactory;
 import org.asteriskjava.util.DateUtil;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 import org.asteriskjava.util.SocketConnectionFacade;
+import org.asteriskjava.util.internal.SocketChannelConnectionFacadeImpl;
 import org.asteriskjava.util.internal.SocketConnectionFacadeImpl;
 
 import java.io.IOException;
@@ -40,11 +42,21 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static org.asteriskjava.manager.ManagerConnectionState.*;
 
@@ -161,6 +173,50 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
      */
     private boolean keepAliveAfterAuthenticationFailure = true;
 
+    /**
+     * <code>true</code> to read from a NIO socket channel and parse frames in
+     * place, <code>false</code> to use the line based reader.
+     */
+    private boolean useSocketChannel = false;
+
+    /**
+     * The number of events and responses that can be queued for dispatching.
+     */
+    private int eventQueueCapacity = AsyncEventPump.DEFAULT_CAPACITY;
+
+    /**
+     * What to do when the event queue is full.
+     */
+    private EventQueueOverflowPolicy eventQueueOverflowPolicy = EventQueueOverflowPolicy.DROP_NEWEST;
+
+    /**
+     * Events discarded first by {@link EventQueueOverflowPolicy#DROP_LOW_PRIORITY}.
+     */
+    private Set<Class<? extends ManagerEvent>> lowPriorityEventClasses =
+            AsyncEventPump.DEFAULT_LOW_PRIORITY_EVENT_CLASSES;
+
+    /**
+     * Counters of the event queue, kept across reconnects.
+     */
+    private final EventQueueCounters eventQueueCounters = new EventQueueCounters();
+
+    /**
+     * Metrics of the connection, kept across reconnects.
+     */
+    private final ConnectionMetrics metrics = new ConnectionMetrics(eventQueueCounters);
+
+    /**
+     * The number of threads events are dispatched on, 0 to dispatch them on
+     * the thread of the event queue.
+     */
+    private int eventDispatchThreads = 0;
+
+    /**
+     * Dispatches events in parallel if {@link #eventDispatchThreads} is
+     * greater than 0, created on demand.
+     */
+    private final AtomicReference<OrderedEventExecutor> eventExecutor = new AtomicReference<>();
+
     /**
      * The socket to use for TCP/IP communication with Asterisk.
      */
@@ -201,7 +257,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
      * Key is the internalActionId of the Action sent and value the
      * corresponding ResponseListener.
      */
-    private final LockableMap<String, SendActionCallback> responseListeners;
+    private final ConcurrentMap<String, SendActionCallback> responseListeners;
 
     /**
      * Contains the event handlers that handle ResponseEvents for the
@@ -210,13 +266,49 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
      * Key is the internalActionId of the Action sent and value the
      * corresponding EventHandler.
      */
-    private final LockableMap<String, ManagerEventListener> responseEventListeners;
+    private final ConcurrentMap<String, ManagerEventListener> responseEventListeners;
 
     /**
      * Contains the event handlers that users registered.
      */
     private final LockableList<ManagerEventListener> eventListeners;
 
+    /**
+     * Copy of {@link #eventListeners} that is replaced whenever a listener is
+     * added or removed, events are delivered to the listeners of the copy
+     * without holding the lock.
+     */
+    private volatile EventListenerTable eventListenerTable = EventListenerTable.EMPTY;
+
+    /**
+     * Union of the events required by the registered event listeners.
+     */
+    private volatile ManagerEventSubscriptions eventSubscriptions = ManagerEventSubscriptions.ALL;
+
+    /**
+     * The event filters that have been installed on the Asterisk server
+     * during the current session.
+     */
+    private final LockableSet<String> installedEventFilters;
+
+    /**
+     * Whether a listener without declared interest is registered, all events
+     * must be built in that case.
+     */
+    private volatile boolean unselectiveListenerRegistered;
+
+    /**
+     * Union of the events required by the registered
+     * {@link FilteredManagerEventListener}s or <code>null</code> if there are
+     * none.
+     */
+    private volatile ManagerEventSubscriptions filteredListenerSubscriptions;
+
+    /**
+     * The registered listeners that decide per event whether they want it.
+     */
+    private volatile List<SelectiveManagerEventListener> selectiveListeners = Collections.emptyList();
+
     protected ManagerConnectionState state = INITIAL;
 
     private String eventMask;
@@ -226,9 +318,10 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
      */
     public ManagerConnectionImpl() {
         this.id = idCounter.getAndIncrement();
-        this.responseListeners = new LockableMap<>(new HashMap<>());
-        this.responseEventListeners = new LockableMap<>(new HashMap<>());
+        this.responseListeners = new ConcurrentHashMap<>();
+        this.responseEventListeners = new ConcurrentHashMap<>();
         this.eventListeners = new LockableList<>(new ArrayList<>());
+        this.installedEventFilters = new LockableSet<>(new HashSet<>());
         this.protocolIdentifier = new ProtocolIdentifierWrapper();
     }
 
@@ -402,6 +495,95 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
         reader.registerEventClass(userEventClass);
     }
 
+    /**
+     * Set to <code>true</code> to read from a NIO socket channel and let the
+     * reader parse the received frames directly from the byte buffer instead
+     * of splitting them into lines of text. This reduces the allocations per
+     * received event. It is not supported for SSL connections, these always
+     * use the line based reader.<br>
+     * Default is <code>false</code>.
+     *
+     * @param useSocketChannel <code>true</code> to use the NIO frame reader,
+     *                         <code>false</code> to use the line based reader.
+     * @since 3.40.0
+     */
+    public void setUseSocketChannel(boolean useSocketChannel) {
+        this.useSocketChannel = useSocketChannel;
+    }
+
+    /**
+     * Sets the number of events and responses that can be queued between
+     * the thread reading from Asterisk and the thread dispatching them to
+     * the listeners. The capacity is rounded up to the next power of two.<br>
+     * Default is 20000.
+     *
+     * @param eventQueueCapacity the capacity of the event queue.
+     * @since 3.40.0
+     */
+    public void setEventQueueCapacity(int eventQueueCapacity) {
+        this.eventQueueCapacity = eventQueueCapacity;
+    }
+
+    /**
+     * Sets what to do when the event queue is full.<br>
+     * Default is {@link EventQueueOverflowPolicy#DROP_NEWEST}.
+     *
+     * @param eventQueueOverflowPolicy the overflow policy.
+     * @since 3.40.0
+     */
+    public void setEventQueueOverflowPolicy(EventQueueOverflowPolicy eventQueueOverflowPolicy) {
+        this.eventQueueOverflowPolicy = eventQueueOverflowPolicy;
+    }
+
+    /**
+     * Sets the events (including their subclasses) that are discarded first
+     * when the event queue fills up and the overflow policy is
+     * {@link EventQueueOverflowPolicy#DROP_LOW_PRIORITY}.<br>
+     * Default are VarSet, Newexten and RTCP events.
+     *
+     * @param lowPriorityEventClasses the low priority event classes.
+     * @since 3.40.0
+     */
+    public void setLowPriorityEventClasses(Set<Class<? extends ManagerEvent>> lowPriorityEventClasses) {
+        this.lowPriorityEventClasses = new HashSet<>(lowPriorityEventClasses);
+    }
+
+    /**
+     * Sets the number of threads events are delivered to the listeners on.
+     * <p>
+     * With 0 all events are delivered one after another on a single thread.
+     * With more threads events are distributed by their linkedid (or
+     * uniqueid) so that the events of one call are still delivered in order
+     * on the same thread while events of different calls are delivered in
+     * parallel. Events without a channel are distributed by their type.
+     * Listeners must be thread safe in that case.
+     * <p>
+     * Events of different keys are not ordered relative to each other. In
+     * particular BridgeCreate and BridgeDestroy (keyed by their type) may be
+     * delivered before or after the BridgeEnter and BridgeLeave events of
+     * the same bridge (keyed by the linkedid of the channel), listeners that
+     * depend on that order must use a single thread.
+     * <p>
+     * Connect and disconnect events are delivered after all events received
+     * before them have been delivered.<br>
+     * Default is 0.
+     *
+     * @param eventDispatchThreads the number of threads, usually up to the
+     *                             number of available processors.
+     * @since 3.40.0
+     */
+    public void setEventDispatchThreads(int eventDispatchThreads) {
+        this.eventDispatchThreads = Math.max(0, eventDispatchThreads);
+    }
+
+    public ManagerEventQueueStatistics getEventQueueStatistics() {
+        return eventQueueCounters;
+    }
+
+    public ManagerConnectionMetrics getMetrics() {
+        return metrics;
+    }
+
     public void setSocketTimeout(int socketTimeout) {
         this.socketTimeout = socketTimeout;
     }
@@ -547,6 +729,12 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
             logger.info("Determined Asterisk version: " + version);
 
+            // filters are bound to the session, install them again
+            try (LockCloser filtersCloser = installedEventFilters.withLock()) {
+                installedEventFilters.clear();
+            }
+            installEventFilters(eventSubscriptions);
+
             // generate pseudo event indicating a successful login
             ConnectEvent connectEvent = new ConnectEvent(this);
             connectEvent.setProtocolIdentifier(getProtocolIdentifier());
@@ -652,7 +840,17 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             socket = createSocket();
 
             logger.debug("Passing socket to reader");
+            if (reader instanceof ManagerReaderImpl) {
+                ((ManagerReaderImpl) reader).setEncoding(encoding);
+                ((ManagerReaderImpl) reader).setEventQueue(eventQueueCapacity, eventQueueOverflowPolicy,
+                        lowPriorityEventClasses, eventQueueCounters);
+                ((ManagerReaderImpl) reader).setMetrics(metrics);
+            }
+            if (writer instanceof ManagerWriterImpl) {
+                ((ManagerWriterImpl) writer).setMetrics(metrics);
+            }
             reader.setSocket(socket);
+            reader.setEventSubscriptions(eventSubscriptions);
 
             if (readerThread == null || !readerThread.isAlive() || reader.isDead()) {
                 logger.debug("Creating and starting reader thread");
@@ -664,11 +862,20 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             }
 
             logger.debug("Passing socket to writer");
+            if (writer instanceof ManagerWriterImpl) {
+                ((ManagerWriterImpl) writer).setEncoding(encoding);
+            }
             writer.setSocket(socket);
         }
     }
 
     protected SocketConnectionFacade createSocket() throws IOException {
+        if (useSocketChannel) {
+            if (!ssl) {
+                return new SocketChannelConnectionFacadeImpl(hostname, port, socketTimeout, socketReadTimeout, encoding);
+            }
+            logger.warn("SSL is not supported by the socket channel reader, falling back to the line based reader");
+        }
         return new SocketConnectionFacadeImpl(hostname, port, ssl, socketTimeout, socketReadTimeout, encoding);
     }
 
@@ -691,6 +898,19 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             cleanup();
             state = DISCONNECTED;
         }
+
+        shutdownEventDispatchThreads();
+    }
+
+    /**
+     * Lets the event dispatch threads exit after they have delivered the
+     * events queued so far, they are started again by the next event.
+     */
+    void shutdownEventDispatchThreads() {
+        final OrderedEventExecutor executor = eventExecutor.getAndSet(null);
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 
     /**
@@ -727,7 +947,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
         DefaultSendActionCallback callbackHandler = new DefaultSendActionCallback();
         ManagerResponse response = null;
         try {
-            sendAction(action, callbackHandler);
+            final String internalActionId = registerAndSendAction(action, callbackHandler);
 
             // definitely return null for the response of user events
             if (action instanceof UserEventAction) {
@@ -738,6 +958,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
                 // no response?
                 if (response == null) {
+                    metrics.actionAbandoned(internalActionId);
                     throw new TimeoutException("Timeout waiting for response to " + action.getAction()
                             + (action.getActionId() == null
                             ? ""
@@ -746,6 +967,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
                 }
             } catch (InterruptedException ex) {
                 logger.warn("Interrupted while waiting for result");
+                metrics.actionAbandoned(internalActionId);
                 Thread.currentThread().interrupt();
             }
         } finally {
@@ -756,6 +978,16 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
     public void sendAction(ManagerAction action, SendActionCallback callback)
             throws IOException, IllegalArgumentException, IllegalStateException {
+        registerAndSendAction(action, callback);
+    }
+
+    /**
+     * Sends an action and registers the callback for its response.
+     *
+     * @return the internal action id the callback is registered with.
+     */
+    private String registerAndSendAction(ManagerAction action, SendActionCallback callback)
+            throws IOException, IllegalArgumentException, IllegalStateException {
         final String internalActionId;
 
         if (action == null) {
@@ -785,9 +1017,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
         // if the callbackHandler is null the user is obviously not interested
         // in the response, thats fine.
         if (callback != null) {
-            try (LockCloser closer = this.responseListeners.withLock()) {
-                this.responseListeners.put(internalActionId, callback);
-            }
+            this.responseListeners.put(internalActionId, callback);
         }
 
         Class<? extends ManagerResponse> responseClass = getExpectedResponseClass(action.getClass());
@@ -795,7 +1025,92 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             reader.expectResponseClass(internalActionId, responseClass);
         }
 
-        writer.sendAction(action, internalActionId);
+        try {
+            writeAction(action, internalActionId);
+        } catch (IOException | RuntimeException e) {
+            if (callback != null) {
+                this.responseListeners.remove(internalActionId);
+            }
+            throw e;
+        }
+        return internalActionId;
+    }
+
+    /**
+     * Passes the action to the writer and starts its round-trip time.
+     */
+    private void writeAction(ManagerAction action, String internalActionId) throws IOException {
+        metrics.actionSent(internalActionId, action.getAction());
+        try {
+            writer.sendAction(action, internalActionId);
+        } catch (IOException | RuntimeException e) {
+            metrics.actionAbandoned(internalActionId);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<ManagerResponse> sendActionAsync(ManagerAction action) {
+        return sendActionAsync(action, defaultResponseTimeout);
+    }
+
+    /**
+     * Implements asynchronous sending of "simple" actions, the timeout is
+     * scheduled on the timer shared by all connections.
+     *
+     * @param timeout - in milliseconds
+     */
+    public CompletableFuture<ManagerResponse> sendActionAsync(final ManagerAction action, final long timeout)
+            throws IllegalArgumentException {
+        if (action == null) {
+            throw new IllegalArgumentException("Unable to send action: action is null.");
+        }
+
+        final CompletableFuture<ManagerResponse> future = new CompletableFuture<>();
+        final String internalActionId;
+        try {
+            internalActionId = registerAndSendAction(action, response -> {
+                if (response == null) {
+                    future.completeExceptionally(new IOException(
+                            "Connection lost while waiting for response to " + action.getAction()));
+                } else {
+                    future.complete(response);
+                }
+            });
+        } catch (IOException | IllegalStateException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        // definitely return null for the response of user events
+        if (action instanceof UserEventAction) {
+            responseListeners.remove(internalActionId);
+            future.complete(null);
+            return future;
+        }
+
+        scheduleTimeout(future, timeout, () -> {
+            if (responseListeners.remove(internalActionId) != null) {
+                metrics.actionAbandoned(internalActionId);
+                future.completeExceptionally(new TimeoutException("Timeout waiting for response to "
+                        + action.getAction()
+                        + (action.getActionId() == null ? "" : " (actionId: " + action.getActionId() + ")")
+                        + ", Timeout=" + timeout));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Runs the timeout task after timeout milliseconds unless the future has
+     * been completed before.
+     */
+    private static void scheduleTimeout(CompletableFuture<?> future, long timeout, Runnable timeoutTask) {
+        if (future.isDone()) {
+            return;
+        }
+        final ScheduledFuture<?> scheduled = TimeoutTimer.INSTANCE.schedule(timeoutTask, timeout,
+                TimeUnit.MILLISECONDS);
+        future.whenComplete((result, e) -> scheduled.cancel(false));
     }
 
     boolean isShowVersionCommandAction(ManagerAction action) {
@@ -856,16 +1171,12 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
         try {
             // register response handler...
-            try (LockCloser closer = this.responseListeners.withLock()) {
-                this.responseListeners.put(internalActionId, responseEventHandler);
-            }
+            this.responseListeners.put(internalActionId, responseEventHandler);
 
             // ...and event handler.
-            try (LockCloser closer = this.responseEventListeners.withLock()) {
-                this.responseEventListeners.put(internalActionId, responseEventHandler);
-            }
+            this.responseEventListeners.put(internalActionId, responseEventHandler);
 
-            writer.sendAction(action, internalActionId);
+            writeAction(action, internalActionId);
             // only wait if response has not yet arrived.
             if (responseEvents.getResponse() == null || !responseEvents.isComplete()) {
                 try {
@@ -878,6 +1189,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
             // still no response or not all events received and timed out?
             if (responseEvents.getResponse() == null || !responseEvents.isComplete()) {
+                metrics.actionAbandoned(internalActionId);
                 throw new EventTimeoutException(
                         "Timeout waiting for response or response events to " + action.getAction()
                                 + (action.getActionId() == null ? "" : " (actionId: " + action.getActionId() + ")"),
@@ -886,16 +1198,12 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
         } finally {
             // remove the event handler
-            try (LockCloser closer = this.responseEventListeners.withLock()) {
-                this.responseEventListeners.remove(internalActionId);
-            }
+            this.responseEventListeners.remove(internalActionId);
 
             // Note: The response handler should have already been removed
             // when the response was received, however we remove it here
             // just in case it was never received.
-            try (LockCloser closer = this.responseListeners.withLock()) {
-                this.responseListeners.remove(internalActionId);
-            }
+            this.responseListeners.remove(internalActionId);
 
         }
 
@@ -925,19 +1233,89 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
         if (callback != null) {
             AsyncEventGeneratingResponseHandler responseEventHandler = new AsyncEventGeneratingResponseHandler(
                     action.getActionCompleteEventClass(), callback);
+            registerAndSendEventGeneratingAction(action, internalActionId, responseEventHandler);
+        } else {
+            writeAction(action, internalActionId);
+        }
+    }
 
-            // register response handler...
-            try (LockCloser closer = this.responseListeners.withLock()) {
-                this.responseListeners.put(internalActionId, responseEventHandler);
-            }
+    private void registerAndSendEventGeneratingAction(EventGeneratingAction action, String internalActionId,
+                                                      AsyncEventGeneratingResponseHandler responseEventHandler) throws IOException {
+        // register response handler...
+        this.responseListeners.put(internalActionId, responseEventHandler);
 
-            // ...and event handler.
-            try (LockCloser closer = this.responseEventListeners.withLock()) {
-                this.responseEventListeners.put(internalActionId, responseEventHandler);
-            }
+        // ...and event handler.
+        this.responseEventListeners.put(internalActionId, responseEventHandler);
+
+        try {
+            writeAction(action, internalActionId);
+        } catch (IOException | RuntimeException e) {
+            this.responseListeners.remove(internalActionId);
+            this.responseEventListeners.remove(internalActionId);
+            throw e;
+        }
+    }
+
+    public CompletableFuture<ResponseEvents> sendEventGeneratingActionAsync(EventGeneratingAction action) {
+        return sendEventGeneratingActionAsync(action, defaultEventTimeout);
+    }
+
+    /**
+     * Implements asynchronous sending of event generating actions, the
+     * timeout is scheduled on the timer shared by all connections.
+     */
+    public CompletableFuture<ResponseEvents> sendEventGeneratingActionAsync(final EventGeneratingAction action,
+                                                                            long timeout) throws IllegalArgumentException {
+        if (action == null) {
+            throw new IllegalArgumentException("Unable to send action: action is null.");
+        } else if (action.getActionCompleteEventClass() == null) {
+            throw new IllegalArgumentException(
+                    "Unable to send action: actionCompleteEventClass for " + action.getClass().getName() + " is null.");
+        } else if (!ResponseEvent.class.isAssignableFrom(action.getActionCompleteEventClass())) {
+            throw new IllegalArgumentException(
+                    "Unable to send action: actionCompleteEventClass (" + action.getActionCompleteEventClass().getName()
+                            + ") for " + action.getClass().getName() + " is not a ResponseEvent.");
         }
 
-        writer.sendAction(action, internalActionId);
+        final CompletableFuture<ResponseEvents> future = new CompletableFuture<>();
+        if (state != CONNECTED) {
+            future.completeExceptionally(new IllegalStateException(
+                    "Actions may only be sent when in state " + "CONNECTED but connection is in state " + state));
+            return future;
+        }
+
+        final String internalActionId = createInternalActionId();
+        final AsyncEventGeneratingResponseHandler responseEventHandler = new AsyncEventGeneratingResponseHandler(
+                action.getActionCompleteEventClass(), events -> {
+            if (events.getResponse() != null && ((ResponseEventsImpl) events).isComplete()) {
+                future.complete(events);
+            } else {
+                // disconnected
+                future.completeExceptionally(new EventTimeoutException(
+                        "Connection lost while waiting for response events to " + action.getAction(), events));
+            }
+        });
+        try {
+            registerAndSendEventGeneratingAction(action, internalActionId, responseEventHandler);
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        // the event handler is left registered when the response is an error
+        future.whenComplete((events, e) -> responseEventListeners.remove(internalActionId));
+
+        scheduleTimeout(future, timeout, () -> {
+            // both handlers are removed once the action is complete
+            if (responseListeners.remove(internalActionId) != null
+                    | responseEventListeners.remove(internalActionId) != null) {
+                metrics.actionAbandoned(internalActionId);
+                future.completeExceptionally(new EventTimeoutException(
+                        "Timeout waiting for response or response events to " + action.getAction()
+                                + (action.getActionId() == null ? "" : " (actionId: " + action.getActionId() + ")"),
+                        responseEventHandler.events));
+            }
+        });
+        return future;
     }
 
     /**
@@ -965,14 +1343,101 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             // only add it if its not already there
             if (!this.eventListeners.contains(listener)) {
                 this.eventListeners.add(listener);
+                eventListenerTable = new EventListenerTable(eventListeners);
             }
         }
+        updateEventSubscriptions();
+    }
+
+    public <T extends ManagerEvent> ManagerEventListener addEventListener(final Class<T> eventClass,
+                                                                          final Consumer<? super T> listener) {
+        if (eventClass == null || listener == null) {
+            throw new IllegalArgumentException("Event class and listener must not be null");
+        }
+        final ManagerEventListener typed = new TypedManagerEventListener<>(eventClass, listener);
+        addEventListener(typed);
+        return typed;
     }
 
     public void removeEventListener(final ManagerEventListener listener) {
         try (LockCloser closer = this.eventListeners.withLock()) {
             if (this.eventListeners.contains(listener)) {
                 this.eventListeners.remove(listener);
+                eventListenerTable = new EventListenerTable(eventListeners);
+            }
+        }
+        updateEventSubscriptions();
+    }
+
+    /**
+     * Recomputes the events required by the registered listeners, passes them
+     * to the reader and extends the filters on the Asterisk server if
+     * connected.
+     */
+    private void updateEventSubscriptions() {
+        final ManagerEventSubscriptions subscriptions;
+        try (LockCloser closer = this.eventListeners.withLock()) {
+            final List<ManagerEventListener> filtered = new ArrayList<>();
+            final List<SelectiveManagerEventListener> selective = new ArrayList<>();
+            boolean unselective = false;
+            for (ManagerEventListener listener : eventListeners) {
+                if (listener instanceof SelectiveManagerEventListener) {
+                    selective.add((SelectiveManagerEventListener) listener);
+                } else if (listener instanceof FilteredManagerEventListener
+                        && ((FilteredManagerEventListener) listener).requiredEvents() != null) {
+                    filtered.add(listener);
+                } else {
+                    unselective = true;
+                }
+            }
+            unselectiveListenerRegistered = unselective;
+            filteredListenerSubscriptions = filtered.isEmpty() ? null : ManagerEventSubscriptions.of(filtered);
+            selectiveListeners = selective;
+
+            subscriptions = ManagerEventSubscriptions.of(eventListeners);
+            eventSubscriptions = subscriptions;
+        }
+
+        final ManagerReader currentReader = reader;
+        if (currentReader != null) {
+            currentReader.setEventSubscriptions(subscriptions);
+        }
+        if (state == CONNECTED) {
+            installEventFilters(subscriptions);
+        }
+    }
+
+    /**
+     * Sends a {@link FilterAction} for each filter of the subscriptions that
+     * has not yet been installed in this session.
+     * <p>
+     * Asterisk does not support removing filters, so when listeners are
+     * removed the additional events are discarded by the reader instead.
+     * Nothing is sent as long as all events are subscribed and no filter has
+     * been installed.
+     */
+    private void installEventFilters(ManagerEventSubscriptions subscriptions) {
+        final List<String> filters = new ArrayList<>();
+        try (LockCloser closer = installedEventFilters.withLock()) {
+            if (subscriptions.isAll() && installedEventFilters.isEmpty()) {
+                return;
+            }
+            for (String filter : subscriptions.getFilters(reader.getRegisteredEventClasses())) {
+                if (installedEventFilters.add(filter)) {
+                    filters.add(filter);
+                }
+            }
+        }
+
+        for (final String filter : filters) {
+            try {
+                sendAction(new FilterAction(filter), response -> {
+                    if (response instanceof ManagerError) {
+                        logger.warn("Unable to install event filter '" + filter + "': " + response.getMessage());
+                    }
+                });
+            } catch (Exception e) {
+                logger.warn("Unable to install event filter '" + filter + "'", e);
             }
         }
     }
@@ -1020,15 +1485,12 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
         }
 
         if (internalActionId != null) {
-            try (LockCloser closer = this.responseListeners.withLock()) {
-                listener = responseListeners.get(internalActionId);
-                if (listener != null) {
-                    this.responseListeners.remove(internalActionId);
-                } else {
-                    // when using the async sendAction it's ok not to register a
-                    // callback so if we don't find a response handler thats ok
-                    logger.debug("No response listener registered for " + "internalActionId '" + internalActionId + "'");
-                }
+            metrics.responseReceived(internalActionId);
+            listener = responseListeners.remove(internalActionId);
+            if (listener == null) {
+                // when using the async sendAction it's ok not to register a
+                // callback so if we don't find a response handler thats ok
+                logger.debug("No response listener registered for " + "internalActionId '" + internalActionId + "'");
             }
         } else {
             logger.error(
@@ -1036,18 +1498,90 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
         }
 
         if (listener != null) {
-            LogTime timer = new LogTime();
+            final long start = System.nanoTime();
             try {
                 listener.onResponse(response);
             } catch (Exception e) {
                 logger.warn("Unexpected exception in response listener " + listener.getClass().getName(), e);
             } finally {
-                if (requiredHandlingTime != null && timer.timeTaken() > requiredHandlingTime) {
-                    logger.warn("Slow processing of event " + listener.getClass().getCanonicalName() + " "
-                            + timer.timeTaken() + "MS \n" + response);
-                }
+                listenerCalled(listener, start, requiredHandlingTime, response);
+            }
+        }
+    }
+
+    /**
+     * This method is called by the reader for events that have not been
+     * built yet. The event is only built and dispatched if at least one
+     * registered listener wants it.
+     *
+     * @param envelope the unbuilt event received by the reader
+     * @see SelectiveManagerEventListener
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void dispatchEvent(ManagerEventEnvelope envelope, Integer requiredHandlingTime) {
+        final Class<? extends ManagerEvent> eventClass = (Class<? extends ManagerEvent>) envelope.getEventClass();
+
+        // DialBeginEvents are also needed to generate legacy DialEvents
+        if (!isWanted(eventClass) && !(eventClass == DialBeginEvent.class && isWanted(DialEvent.class))) {
+            return;
+        }
+
+        // build the event on the thread it is delivered on
+        final OrderedEventExecutor executor = getEventExecutor();
+        if (executor != null && !executor.isWorkerThread()) {
+            executor.execute(OrderedEventExecutor.keyOf(envelope.getAttributes()), eventClass,
+                    () -> dispatchBuiltEvent(envelope, requiredHandlingTime));
+            return;
+        }
+        dispatchBuiltEvent(envelope, requiredHandlingTime);
+    }
+
+    private void dispatchBuiltEvent(ManagerEventEnvelope envelope, Integer requiredHandlingTime) {
+        final ManagerEvent event = envelope.getEvent();
+        if (event != null) {
+            dispatchEvent(event, requiredHandlingTime);
+        }
+    }
+
+    /**
+     * Returns the executor for parallel dispatching, starting it if needed.
+     *
+     * @return the executor or <code>null</code> if events are dispatched on
+     * the thread of the event queue.
+     */
+    private OrderedEventExecutor getEventExecutor() {
+        OrderedEventExecutor executor = eventExecutor.get();
+        if (executor == null && eventDispatchThreads > 0 && state != DISCONNECTING && state != DISCONNECTED) {
+            final OrderedEventExecutor created = new OrderedEventExecutor(
+                    "Asterisk-Java ManagerConnection-" + id, eventDispatchThreads,
+                    OrderedEventExecutor.DEFAULT_QUEUE_CAPACITY);
+            if (eventExecutor.compareAndSet(null, created)) {
+                created.start();
+                executor = created;
+            } else {
+                executor = eventExecutor.get();
+            }
+        }
+        return executor == null || executor.isShutdown() ? null : executor;
+    }
+
+    private boolean isWanted(Class<? extends ManagerEvent> eventClass) {
+        if (unselectiveListenerRegistered) {
+            return true;
+        }
+
+        final ManagerEventSubscriptions filtered = filteredListenerSubscriptions;
+        if (filtered != null && filtered.isSubscribed(eventClass)) {
+            return true;
+        }
+
+        for (SelectiveManagerEventListener listener : selectiveListeners) {
+            if (listener.isInterestedIn(eventClass)) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
@@ -1082,23 +1616,16 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             responseEvent = (ResponseEvent) event;
             internalActionId = responseEvent.getInternalActionId();
             if (internalActionId != null) {
-                try (LockCloser closer = responseEventListeners.withLock()) {
-                    ManagerEventListener listener;
-
-                    listener = responseEventListeners.get(internalActionId);
-                    if (listener != null) {
-                        LogTime timer = new LogTime();
-                        try {
-                            listener.onManagerEvent(event);
-                        } catch (Exception e) {
-                            logger.warn("Unexpected exception in response event listener " + listener.getClass().getName(),
-                                    e);
-                        } finally {
-                            if (requiredHandlingTime != null && timer.timeTaken() > requiredHandlingTime) {
-                                logger.warn("Slow processing of event " + listener.getClass().getCanonicalName() + " "
-                                        + timer.timeTaken() + "MS \n" + event);
-                            }
-                        }
+                final ManagerEventListener listener = responseEventListeners.get(internalActionId);
+                if (listener != null) {
+                    final long start = System.nanoTime();
+                    try {
+                        listener.onManagerEvent(event);
+                    } catch (Exception e) {
+                        logger.warn("Unexpected exception in response event listener " + listener.getClass().getName(),
+                                e);
+                    } finally {
+                        listenerCalled(listener, start, requiredHandlingTime, event);
                     }
                 }
             } else {
@@ -1176,23 +1703,57 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
      * @param event the event to propagate
      */
     private void fireEvent(ManagerEvent event, Integer requiredHandlingTime) {
-        try (LockCloser closer = eventListeners.withLock()) {
-            for (ManagerEventListener listener : eventListeners) {
-                LogTime timer = new LogTime();
-                try {
-                    listener.onManagerEvent(event);
-                } catch (RuntimeException e) {
-                    logger.warn("Unexpected exception in eventHandler " + listener.getClass().getName(), e);
-                } finally {
-                    if (requiredHandlingTime != null && timer.timeTaken() > requiredHandlingTime) {
-                        logger.warn("Slow processing of event " + listener.getClass().getCanonicalName() + " "
-                                + timer.timeTaken() + "MS \n" + event);
-                    }
-                }
+        final OrderedEventExecutor executor = getEventExecutor();
+        if (executor == null || executor.isWorkerThread()) {
+            fireEventNow(event, requiredHandlingTime);
+        } else if (event instanceof ConnectEvent || event instanceof DisconnectEvent) {
+            // keep the order relative to the events of all calls
+            executor.awaitQuiescence();
+            fireEventNow(event, requiredHandlingTime);
+        } else {
+            executor.execute(OrderedEventExecutor.keyOf(event), event.getClass(),
+                    () -> fireEventNow(event, requiredHandlingTime));
+        }
+    }
+
+    private void fireEventNow(ManagerEvent event, Integer requiredHandlingTime) {
+        for (ManagerEventListener listener : eventListenerTable.get(event.getClass())) {
+            if (listener instanceof SelectiveManagerEventListener
+                    && !((SelectiveManagerEventListener) listener).isInterestedIn(event.getClass())) {
+                continue;
+            }
+            final long start = System.nanoTime();
+            try {
+                listener.onManagerEvent(event);
+            } catch (RuntimeException e) {
+                logger.warn("Unexpected exception in eventHandler " + listener.getClass().getName(), e);
+            } finally {
+                listenerCalled(listener, start, requiredHandlingTime, event);
             }
         }
     }
 
+    /**
+     * Records the time a listener took and warns if it took longer than
+     * required.
+     *
+     * @param listener             the listener that has been called.
+     * @param start                the value of {@link System#nanoTime()} before
+     *                             the call.
+     * @param requiredHandlingTime the time in milliseconds the listener should
+     *                             have finished in or <code>null</code>.
+     * @param cause                the event or response passed to the listener.
+     */
+    private void listenerCalled(Object listener, long start, Integer requiredHandlingTime, Object cause) {
+        final long elapsed = System.nanoTime() - start;
+        metrics.listenerCalled(listener, elapsed);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (requiredHandlingTime != null && elapsedMillis > requiredHandlingTime) {
+            logger.warn("Slow processing of event " + listener.getClass().getCanonicalName() + " " + elapsedMillis
+                    + "MS \n" + cause);
+        }
+    }
+
     private boolean isSupportedProtocolIdentifier(final String identifier) {
 
         // Normal version checks
@@ -1266,11 +1827,13 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
                     if (state != RECONNECTING) {
                         break;
                     }
+                    metrics.reconnectAttempted();
                     connect();
 
                     try {
                         doLogin(defaultResponseTimeout, eventMask);
                         logger.info("Successfully reconnected.");
+                        metrics.reconnected();
                         // everything is ok again, so we leave
                         // when successful doLogin set the state to CONNECTED so
                         // no
@@ -1318,13 +1881,18 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
      * @param event
      */
     private void cleanupActionListeners(DisconnectEvent event) {
-        HashMap<String, SendActionCallback> oldResponseListeners = null;
-
-        try (LockCloser closer = responseListeners.withLock()) {
-            // Store remaining response listeners to be notified outside of
-            // synchronized
-            oldResponseListeners = new HashMap<String, SendActionCallback>(responseListeners);
-            responseListeners.clear();
+        // responses to the actions sent so far will never arrive
+        metrics.disconnected();
+
+        // Take the remaining response listeners, each one is removed
+        // atomically so a response arriving concurrently is either
+        // dispatched or notified here but not both
+        final HashMap<String, SendActionCallback> oldResponseListeners = new HashMap<>();
+        for (String internalActionId : responseListeners.keySet()) {
+            final SendActionCallback listener = responseListeners.remove(internalActionId);
+            if (listener != null) {
+                oldResponseListeners.put(internalActionId, listener);
+            }
         }
 
         // Clear pending responseListeners that will not receive their responses
@@ -1337,12 +1905,12 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             }
         }
 
-        HashMap<String, ManagerEventListener> oldResponseEventListeners = null;
-        try (LockCloser closer = responseEventListeners.withLock()) {
-            // Store remaining responseEventListeners to be notified outside of
-            // synchronized
-            oldResponseEventListeners = new HashMap<String, ManagerEventListener>(responseEventListeners);
-            responseEventListeners.clear();
+        final HashMap<String, ManagerEventListener> oldResponseEventListeners = new HashMap<>();
+        for (String internalActionId : responseEventListeners.keySet()) {
+            final ManagerEventListener listener = responseEventListeners.remove(internalActionId);
+            if (listener != null) {
+                oldResponseEventListeners.put(internalActionId, listener);
+            }
         }
 
         // Remove those already cleaned up via oldResponseListeners
@@ -1384,6 +1952,21 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
 
     /* Helper classes */
 
+    /**
+     * Timer for the timeouts of the actions sent asynchronously, shared by
+     * all connections.
+     */
+    private static final class TimeoutTimer {
+        static final ScheduledThreadPoolExecutor INSTANCE = create();
+
+        private static ScheduledThreadPoolExecutor create() {
+            final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+            // most actions complete long before their timeout
+            timer.setRemoveOnCancelPolicy(true);
+            return timer;
+        }
+    }
+
     /**
      * A simple data object to store a ManagerResult.
      */
@@ -1524,9 +2107,7 @@ public class ManagerConnectionImpl extends Lockable implements ManagerConnection
             if (actionCompleteEventClass.isAssignableFrom(event.getClass())) {
                 events.setComplete(true);
                 String internalActionId = responseEvent.getInternalActionId();
-                try (LockCloser closer = responseEventListeners.withLock()) {
-                    responseEventListeners.remove(internalActionId);
-                }
+                responseEventListeners.remove(internalActionId);
                 callback.onResponse(events);
             }
         }
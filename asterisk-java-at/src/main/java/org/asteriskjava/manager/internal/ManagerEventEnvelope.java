@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A received event that has not been built yet.
+ * <p>
+ * The envelope holds the raw attributes and the event class resolved from the
+ * event type so that the {@link Dispatcher} can route it by type. The
+ * {@link ManagerEvent} is only built when {@link #getEvent()} is called for
+ * the first time, events no listener wants are never built.
+ * <p>
+ * Envelopes are not thread safe, they are meant to be consumed by the
+ * dispatching thread only.
+ *
+ * @since 3.40.0
+ */
+final class ManagerEventEnvelope {
+    private final Class<?> eventClass;
+    private final Date dateReceived;
+    private final EventBuilder eventBuilder;
+    private final Object source;
+    private Map<String, Object> attributes;
+    private ManagerEvent event;
+
+    /**
+     * Creates a new envelope.
+     *
+     * @param eventClass   the class registered for the event type.
+     * @param attributes   the attributes of the event, the envelope takes
+     *                     ownership of the map.
+     * @param dateReceived the date the event has been received.
+     * @param eventBuilder the builder to build the event with.
+     * @param source       the source of the event.
+     */
+    ManagerEventEnvelope(Class<?> eventClass, Map<String, Object> attributes, Date dateReceived,
+                         EventBuilder eventBuilder, Object source) {
+        this.eventClass = eventClass;
+        this.attributes = attributes;
+        this.dateReceived = dateReceived;
+        this.eventBuilder = eventBuilder;
+        this.source = source;
+    }
+
+    /**
+     * Returns the class of the event without building it.
+     *
+     * @return the class registered for the event type.
+     */
+    Class<?> getEventClass() {
+        return eventClass;
+    }
+
+    /**
+     * Returns the raw attributes.
+     *
+     * @return the attributes or <code>null</code> if the event has already
+     * been built.
+     */
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    Date getDateReceived() {
+        return dateReceived;
+    }
+
+    EventBuilder getEventBuilder() {
+        return eventBuilder;
+    }
+
+    Object getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the event, building it on the first call.
+     *
+     * @return the event or <code>null</code> if it could not be built.
+     */
+    ManagerEvent getEvent() {
+        if (attributes != null) {
+            event = eventBuilder.buildEvent(source, attributes);
+            if (event != null) {
+                event.setDateReceived(dateReceived);
+            }
+            attributes = null;
+        }
+        return event;
+    }
+
+    @Override
+    public String toString() {
+        return "ManagerEventEnvelope[eventClass=" + eventClass.getName() + ",built=" + (attributes == null) + "]";
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.util.SocketChannelConnectionFacade;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses Manager API frames directly from the bytes received from a
+ * {@link SocketChannelConnectionFacade}.
+ * <p>
+ * Lines are split in place in the receive buffer without creating a String
+ * per line. Header names found in a fixed table of well known names are
+ * resolved to the constant (lower case) String of that table, so the common
+ * keys are neither allocated nor lower cased. Only the values and unknown
+ * header names are decoded.
+ * <p>
+ * The resulting attribute maps are identical to the ones built by the line
+ * based path in {@link ManagerReaderImpl}.
+ *
+ * @since 3.40.0
+ */
+class ManagerFrameParser {
+    /**
+     * Type of the unit returned by {@link #next(Map)}.
+     */
+    enum Token {
+        /**
+         * A protocol identifier line, see {@link #getProtocolIdentifier()}.
+         */
+        PROTOCOL_IDENTIFIER,
+
+        /**
+         * An empty line, terminating the frame collected so far.
+         */
+        END_OF_FRAME,
+
+        /**
+         * The end of the stream has been reached.
+         */
+        END_OF_STREAM
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] PROTOCOL_IDENTIFIER_PREFIXES = {"Asterisk Call Manager/",
+            "Asterisk Call Manager Proxy/", "Asterisk Manager Proxy/", "OpenPBX Call Manager/",
+            "CallWeaver Call Manager/"};
+
+    private static final byte[] END_COMMAND = "--END COMMAND--".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Header names that are interned, this covers the headers of the most
+     * frequent events and responses.
+     */
+    private static final String[] KNOWN_HEADERS = {"event", "privilege", "response", "actionid", "message",
+            "channel", "uniqueid", "linkedid", "channelstate", "channelstatedesc", "calleridnum", "calleridname",
+            "connectedlinenum", "connectedlinename", "language", "accountcode", "context", "exten", "extension",
+            "priority", "application", "appdata", "data", "systemname", "timestamp", "sequencenumber", "file",
+            "line", "func", "variable", "value", "cause", "cause-txt", "destchannel", "destuniqueid",
+            "destlinkedid", "destchannelstate", "destchannelstatedesc", "destcalleridnum", "destcalleridname",
+            "destconnectedlinenum", "destconnectedlinename", "destlanguage", "destaccountcode", "destcontext",
+            "destexten", "destpriority", "bridgeuniqueid", "bridgetype", "bridgetechnology", "bridgecreator",
+            "bridgename", "bridgenumchannels", "bridgevideosourcemode", "queue", "interface", "membername",
+            "stateinterface", "status", "paused", "penalty", "callstaken", "lastcall", "incall", "position",
+            "count", "peer", "peerstatus", "address", "channeltype", "digit", "direction", "durationms", "begin",
+            "end", "eventlist", "listitems", "dialstatus", "dialstring", "forward", "hangupcause", "device",
+            "state", "from", "to", "sentrtp", "receivedrtp", "ssrc", "sourcessrc", "reportcount", "ourssrc",
+            "report0sourcessrc", "report0fractionlost", "report0cumulativelost", "report0highestsequence",
+            "report0sequencenumbercycles", "report0iajitter", "report0lsr", "report0dlsr", "rtt", "ntptimestamp",
+            "rtptimestamp", "packetcount", "octetcount", "pt", "mes", "sentpackets", "sentoctets", "reportnumber",
+            "subtype", "securityevent", "eventtv", "severity", "service", "eventversion", "accountid", "sessionid",
+            "localaddress", "remoteaddress", "usingpassword", "module", "userevent", "agent", "objecttype",
+            "objectname", "endpointname", "contact", "contactstatus", "aor", "uri", "roundtripusec", "mailbox",
+            "waiting", "new", "old", "hint", "statustext", "dnid", "rdnis", "callerid", "callerid1", "callerid2",
+            "channel1", "channel2", "uniqueid1", "uniqueid2"};
+
+    private static final int TABLE_SIZE = 512;
+    private static final int TABLE_MASK = TABLE_SIZE - 1;
+    private static final String[] headerTable = new String[TABLE_SIZE];
+    private static final byte[][] headerBytesTable = new byte[TABLE_SIZE][];
+
+    static {
+        for (String header : KNOWN_HEADERS) {
+            final byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+            int slot = hash(bytes, 0, bytes.length) & TABLE_MASK;
+            while (headerTable[slot] != null) {
+                if (headerTable[slot].equals(header)) {
+                    throw new IllegalStateException("Duplicate known header " + header);
+                }
+                slot = (slot + 1) & TABLE_MASK;
+            }
+            headerTable[slot] = header;
+            headerBytesTable[slot] = bytes;
+        }
+    }
+
+    private final Charset encoding;
+    private ByteBuffer buffer;
+    private SocketChannelConnectionFacade source;
+    private String protocolIdentifier;
+    private ConnectionMetrics metrics;
+
+    /**
+     * Time spent parsing the current frame so far, excluding the time spent
+     * waiting for bytes.
+     */
+    private long frameNanos;
+
+    ManagerFrameParser(Charset encoding) {
+        this.encoding = encoding;
+        this.buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    /**
+     * Sets the source to read from and discards any bytes buffered from a
+     * previous source.
+     *
+     * @param source the source to read from
+     */
+    void setSource(SocketChannelConnectionFacade source) {
+        this.source = source;
+        this.frameNanos = 0;
+        this.buffer.clear();
+        this.buffer.flip();
+    }
+
+    /**
+     * Sets the metrics to record the received bytes and the parse time of
+     * each frame in.
+     *
+     * @param metrics the metrics or <code>null</code> to record nothing.
+     */
+    void setMetrics(ConnectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the protocol identifier after {@link #next(Map)} returned
+     * {@link Token#PROTOCOL_IDENTIFIER}.
+     *
+     * @return the protocol identifier line
+     */
+    String getProtocolIdentifier() {
+        return protocolIdentifier;
+    }
+
+    /**
+     * Reads lines and adds their attributes to the frame until either an empty
+     * line or a protocol identifier is received or the end of stream is
+     * reached.
+     *
+     * @param frame the map to add the attributes of the current frame to, it
+     *              is not cleared by this method.
+     * @return the type of unit that has been read.
+     * @throws IOException if reading from the source fails.
+     */
+    Token next(Map<String, Object> frame) throws IOException {
+        final ConnectionMetrics currentMetrics = metrics;
+        long startNanos = currentMetrics == null ? 0 : System.nanoTime();
+        while (true) {
+            final byte[] bytes = buffer.array();
+            final int limit = buffer.limit();
+            int start = buffer.position();
+
+            for (int i = start; i < limit - 1; i++) {
+                if (bytes[i] != '\r' || bytes[i + 1] != '\n') {
+                    continue;
+                }
+                buffer.position(i + 2);
+
+                if (i == start) {
+                    if (currentMetrics != null) {
+                        currentMetrics.frameParsed(frameNanos + System.nanoTime() - startNanos);
+                        frameNanos = 0;
+                    }
+                    return Token.END_OF_FRAME;
+                }
+                if (isProtocolIdentifier(bytes, start, i)) {
+                    protocolIdentifier = new String(bytes, start, i - start, encoding);
+                    return Token.PROTOCOL_IDENTIFIER;
+                }
+                parseLine(frame, bytes, start, i);
+                start = i + 2;
+            }
+
+            if (currentMetrics != null) {
+                frameNanos += System.nanoTime() - startNanos;
+            }
+            if (!fill()) {
+                return Token.END_OF_STREAM;
+            }
+            if (currentMetrics != null) {
+                startNanos = System.nanoTime();
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // a single line does not fit into the buffer
+            final ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        final int count = source.read(buffer);
+        buffer.flip();
+        if (count > 0 && metrics != null) {
+            metrics.bytesReceived(count);
+        }
+        return count >= 0;
+    }
+
+    private void parseLine(Map<String, Object> frame, byte[] bytes, int from, int to) {
+        /*
+         * Special handling for "Response: Follows" (CommandResponse) As we
+         * are using "\r\n" as the delimiter for line this also handles
+         * multiline results as long as they only contain "\n".
+         */
+        if (endsWith(bytes, from, to, END_COMMAND) && "Follows".equals(frame.get("response"))) {
+            frame.put(ManagerReader.COMMAND_RESULT_RESPONSE_KEY, new String(bytes, from, to - from, encoding));
+            return;
+        }
+
+        // workaround for Asterisk bug 13319, see AJ-77
+        final int delimiter;
+        if (startsWith(bytes, from, to, "From ") || startsWith(bytes, from, to, "To ")) {
+            delimiter = indexOf(bytes, from, to, (byte) ' ');
+        } else {
+            delimiter = indexOf(bytes, from, to, (byte) ':');
+        }
+
+        if (delimiter <= from || delimiter + 1 >= to) {
+            return;
+        }
+
+        int nameFrom = from;
+        int nameTo = delimiter;
+        while (nameFrom < nameTo && bytes[nameFrom] <= ' ') {
+            nameFrom++;
+        }
+        while (nameTo > nameFrom && bytes[nameTo - 1] <= ' ') {
+            nameTo--;
+        }
+
+        int valueFrom = delimiter + 1;
+        int valueTo = to;
+        while (valueFrom < valueTo && bytes[valueFrom] <= ' ') {
+            valueFrom++;
+        }
+        while (valueTo > valueFrom && bytes[valueTo - 1] <= ' ') {
+            valueTo--;
+        }
+
+        ManagerReaderImpl.addToBuffer(frame, headerName(bytes, nameFrom, nameTo),
+                new String(bytes, valueFrom, valueTo - valueFrom, encoding));
+    }
+
+    private String headerName(byte[] bytes, int from, int to) {
+        int slot = hash(bytes, from, to) & TABLE_MASK;
+        String candidate;
+        while ((candidate = headerTable[slot]) != null) {
+            if (equalsIgnoreCase(headerBytesTable[slot], bytes, from, to)) {
+                return candidate;
+            }
+            slot = (slot + 1) & TABLE_MASK;
+        }
+        return new String(bytes, from, to - from, encoding).toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Case insensitive hash over the ASCII letters of the given range.
+     */
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + toLowerCase(bytes[i]);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] lowerCase, byte[] bytes, int from, int to) {
+        if (lowerCase.length != to - from) {
+            return false;
+        }
+        for (int i = 0; i < lowerCase.length; i++) {
+            if (lowerCase[i] != toLowerCase(bytes[from + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isProtocolIdentifier(byte[] bytes, int from, int to) {
+        // all identifiers start with an upper case letter followed by a lower
+        // case one, fail fast for the usual "Name: value" lines
+        if (bytes[from] != 'A' && bytes[from] != 'O' && bytes[from] != 'C') {
+            return false;
+        }
+        for (String prefix : PROTOCOL_IDENTIFIER_PREFIXES) {
+            if (startsWith(bytes, from, to, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] bytes, int from, int to, String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean endsWith(byte[] bytes, int from, int to, byte[] suffix) {
+        if (to - from < suffix.length) {
+            return false;
+        }
+        final int offset = to - suffix.length;
+        for (int i = 0; i < suffix.length; i++) {
+            if (bytes[offset + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
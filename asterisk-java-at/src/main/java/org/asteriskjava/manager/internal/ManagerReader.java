@@ -16,11 +16,13 @@
  */
 package org.asteriskjava.manager.internal;
 
+import org.asteriskjava.manager.ManagerEventSubscriptions;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.util.SocketConnectionFacade;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * The ManagerReader reads events and responses from the asterisk server, parses
@@ -59,6 +61,15 @@ public interface ManagerReader extends Runnable {
 
     void expectResponseClass(String internalActionId, Class<? extends ManagerResponse> responseClass);
 
+    /**
+     * Sets the events required by the listeners of the connection. Events
+     * that are not subscribed are discarded without being built.
+     *
+     * @param subscriptions the events required by the listeners.
+     * @since 3.40.0
+     */
+    void setEventSubscriptions(ManagerEventSubscriptions subscriptions);
+
     /**
      * Terminates this reader.
      */
@@ -81,4 +92,12 @@ public interface ManagerReader extends Runnable {
     IOException getTerminationException();
 
     void deregisterEventClass(Class<? extends ManagerEvent> eventClass);
+
+    /**
+     * Returns the registered event classes.
+     *
+     * @return an unmodifiable view of the registered event classes by lower
+     * case event type.
+     */
+    Map<String, Class<?>> getRegisteredEventClasses();
 }
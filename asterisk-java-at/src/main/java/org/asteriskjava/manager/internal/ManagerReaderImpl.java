@@ -17,6 +17,8 @@
 package org.asteriskjava.manager.internal;
 
 import com.google.common.util.concurrent.RateLimiter;
+import org.asteriskjava.manager.EventQueueOverflowPolicy;
+import org.asteriskjava.manager.ManagerEventSubscriptions;
 import org.asteriskjava.manager.event.DisconnectEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent;
@@ -26,9 +28,12 @@ import org.asteriskjava.pbx.util.LogTime;
 import org.asteriskjava.util.DateUtil;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
+import org.asteriskjava.util.SocketChannelConnectionFacade;
 import org.asteriskjava.util.SocketConnectionFacade;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -48,7 +53,7 @@ public class ManagerReaderImpl implements ManagerReader {
      * The event builder utility to convert a map of attributes reveived from
      * asterisk to instances of registered event classes.
      */
-    private final EventBuilder eventBuilder;
+    private final MeteredEventBuilder eventBuilder;
 
     /**
      * The response builder utility to convert a map of attributes reveived from
@@ -91,6 +96,37 @@ public class ManagerReaderImpl implements ManagerReader {
 
     private final Dispatcher rawDispatcher;
 
+    private static final long SLOW_EVENT_THRESHOLD_MS = 10;
+
+    private final RateLimiter slowEventLogLimiter = RateLimiter.create(4);
+
+    private long timeOfLastEvent;
+
+    private long reserve;
+
+    /**
+     * Encoding used to decode frames when parsing raw bytes.
+     */
+    private Charset encoding = StandardCharsets.UTF_8;
+
+    private ManagerFrameParser frameParser;
+
+    private int eventQueueCapacity = AsyncEventPump.DEFAULT_CAPACITY;
+
+    private EventQueueOverflowPolicy eventQueueOverflowPolicy = EventQueueOverflowPolicy.DROP_NEWEST;
+
+    private Set<Class<? extends ManagerEvent>> lowPriorityEventClasses =
+            AsyncEventPump.DEFAULT_LOW_PRIORITY_EVENT_CLASSES;
+
+    private EventQueueCounters eventQueueCounters = new EventQueueCounters();
+
+    private ConnectionMetrics metrics;
+
+    /**
+     * Events required by the listeners, events not included are not built.
+     */
+    private volatile ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.ALL;
+
     /**
      * Creates a new ManagerReaderImpl.
      *
@@ -102,7 +138,7 @@ public class ManagerReaderImpl implements ManagerReader {
         this.rawDispatcher = dispatcher;
         this.source = source;
 
-        this.eventBuilder = new EventBuilderImpl();
+        this.eventBuilder = new MeteredEventBuilder(new EventBuilderImpl());
         this.responseBuilder = new ResponseBuilderImpl();
         this.expectedResponseClasses = new ConcurrentHashMap<>();
     }
@@ -116,16 +152,61 @@ public class ManagerReaderImpl implements ManagerReader {
         this.socket = socket;
     }
 
+    /**
+     * Sets the encoding used to decode the bytes received from a
+     * {@link SocketChannelConnectionFacade}. Default is UTF-8.
+     *
+     * @param encoding the encoding used by the connection
+     */
+    public void setEncoding(Charset encoding) {
+        this.encoding = encoding;
+        this.frameParser = null;
+    }
+
+    /**
+     * Configures the queue between this reader and the dispatcher, takes
+     * effect on the next call to {@link #run()}.
+     *
+     * @param capacity                the number of events and responses that
+     *                                can be queued.
+     * @param overflowPolicy          what to do when the queue is full.
+     * @param lowPriorityEventClasses the events discarded first by
+     *                                {@link EventQueueOverflowPolicy#DROP_LOW_PRIORITY}.
+     * @param counters                the counters to update.
+     */
+    void setEventQueue(int capacity, EventQueueOverflowPolicy overflowPolicy,
+                       Set<Class<? extends ManagerEvent>> lowPriorityEventClasses, EventQueueCounters counters) {
+        this.eventQueueCapacity = capacity;
+        this.eventQueueOverflowPolicy = overflowPolicy;
+        this.lowPriorityEventClasses = lowPriorityEventClasses;
+        this.eventQueueCounters = counters;
+    }
+
+    /**
+     * Sets the metrics to record the received bytes and events in.
+     *
+     * @param metrics the metrics or <code>null</code> to record nothing.
+     */
+    void setMetrics(ConnectionMetrics metrics) {
+        this.metrics = metrics;
+        this.eventBuilder.setMetrics(metrics);
+    }
+
     public void registerEventClass(Class<? extends ManagerEvent> eventClass) {
         eventBuilder.registerEventClass(eventClass);
     }
 
+    public void setEventSubscriptions(ManagerEventSubscriptions subscriptions) {
+        this.subscriptions = subscriptions;
+    }
+
     public void expectResponseClass(String internalActionId, Class<? extends ManagerResponse> responseClass) {
         expectedResponseClasses.put(internalActionId, responseClass);
     }
 
     /**
-     * Reads line by line from the asterisk server, sets the protocol identifier
+     * Reads line by line (or frame by frame if the socket is a
+     * {@link SocketChannelConnectionFacade}) from the asterisk server, sets the protocol identifier
      * (using a generated
      * {@link org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent})
      * as soon as it is received and dispatches the received events and
@@ -135,9 +216,7 @@ public class ManagerReaderImpl implements ManagerReader {
      * @see org.asteriskjava.manager.internal.Dispatcher#dispatchResponse(ManagerResponse)
      */
     public void run() {
-        long timeOfLastEvent = 0;
-        long reserve = 0;
-        final Map<String, Object> buffer = new HashMap<>();
+        Map<String, Object> buffer = new HashMap<>();
         String line;
 
         if (socket == null) {
@@ -146,138 +225,71 @@ public class ManagerReaderImpl implements ManagerReader {
 
         this.die = false;
         this.dead = false;
+        this.timeOfLastEvent = 0;
+        this.reserve = 0;
 
-        AsyncEventPump dispatcher = new AsyncEventPump(this, rawDispatcher, Thread.currentThread().getName());
-        long slowEventThresholdMs = 10;
-        RateLimiter slowEventLogLimiter = RateLimiter.create(4);
+        AsyncEventPump dispatcher = new AsyncEventPump(this, rawDispatcher, Thread.currentThread().getName(),
+                eventQueueCapacity, eventQueueOverflowPolicy, lowPriorityEventClasses, eventQueueCounters);
         try {
-            // main loop
-            while (!this.die && (line = socket.readLine()) != null) {
-                // maybe we will find a better way to identify the protocol
-                // identifier but for now
-                // this works quite well.
-                if (line.startsWith("Asterisk Call Manager/") || line.startsWith("Asterisk Call Manager Proxy/")
-                        || line.startsWith("Asterisk Manager Proxy/") || line.startsWith("OpenPBX Call Manager/")
-                        || line.startsWith("CallWeaver Call Manager/")) {
-                    ProtocolIdentifierReceivedEvent protocolIdentifierReceivedEvent;
-                    protocolIdentifierReceivedEvent = new ProtocolIdentifierReceivedEvent(source);
-                    protocolIdentifierReceivedEvent.setProtocolIdentifier(line);
-                    protocolIdentifierReceivedEvent.setDateReceived(DateUtil.getDate());
-                    dispatcher.dispatchEvent(protocolIdentifierReceivedEvent, null);
-                    continue;
-                }
+            if (socket instanceof SocketChannelConnectionFacade) {
+                readFrames((SocketChannelConnectionFacade) socket, buffer, dispatcher);
+            } else {
+                // main loop
+                while (!this.die && (line = socket.readLine()) != null) {
+                    if (metrics != null) {
+                        // close enough for the usual ASCII, plus the line break
+                        metrics.bytesReceived(line.length() + 2L);
+                    }
+                    // maybe we will find a better way to identify the protocol
+                    // identifier but for now
+                    // this works quite well.
+                    if (line.startsWith("Asterisk Call Manager/") || line.startsWith("Asterisk Call Manager Proxy/")
+                            || line.startsWith("Asterisk Manager Proxy/") || line.startsWith("OpenPBX Call Manager/")
+                            || line.startsWith("CallWeaver Call Manager/")) {
+                        dispatchProtocolIdentifier(line, dispatcher);
+                        continue;
+                    }
 
-                /*
-                 * Special handling for "Response: Follows" (CommandResponse) As
-                 * we are using "\r\n" as the delimiter for line this also
-                 * handles multiline results as long as they only contain "\n".
-                 */
-                if ("Follows".equals(buffer.get("response")) && line.endsWith("--END COMMAND--")) {
-                    buffer.put(COMMAND_RESULT_RESPONSE_KEY, line);
-                    continue;
-                }
+                    /*
+                     * Special handling for "Response: Follows" (CommandResponse) As
+                     * we are using "\r\n" as the delimiter for line this also
+                     * handles multiline results as long as they only contain "\n".
+                     */
+                    if ("Follows".equals(buffer.get("response")) && line.endsWith("--END COMMAND--")) {
+                        buffer.put(COMMAND_RESULT_RESPONSE_KEY, line);
+                        continue;
+                    }
 
-                if (line.length() > 0) {
-                    // begin of workaround for Astersik bug 13319
-                    // see AJ-77
-                    // Use this workaround only when line starts from "From "
-                    // and "To "
-                    int isFromAtStart = line.indexOf("From ");
-                    int isToAtStart = line.indexOf("To ");
+                    if (line.length() > 0) {
+                        // begin of workaround for Astersik bug 13319
+                        // see AJ-77
+                        // Use this workaround only when line starts from "From "
+                        // and "To "
+                        int isFromAtStart = line.indexOf("From ");
+                        int isToAtStart = line.indexOf("To ");
 
-                    int delimiterIndex = isFromAtStart == 0 || isToAtStart == 0 ? line.indexOf(" ") : line.indexOf(":");
-                    // end of workaround for Astersik bug 13319
+                        int delimiterIndex = isFromAtStart == 0 || isToAtStart == 0 ? line.indexOf(" ") : line.indexOf(":");
+                        // end of workaround for Astersik bug 13319
 
-                    int delimiterLength = 1;
+                        int delimiterLength = 1;
 
-                    if (delimiterIndex > 0 && line.length() > delimiterIndex + delimiterLength) {
-                        String name = line.substring(0, delimiterIndex).toLowerCase(Locale.ENGLISH).trim();
-                        String value = line.substring(delimiterIndex + delimiterLength).trim();
+                        if (delimiterIndex > 0 && line.length() > delimiterIndex + delimiterLength) {
+                            String name = line.substring(0, delimiterIndex).toLowerCase(Locale.ENGLISH).trim();
+                            String value = line.substring(delimiterIndex + delimiterLength).trim();
 
-                        addToBuffer(buffer, name, value);
-                        // TODO tracing
-                        // logger.debug("Got name [" + name + "], value: [" +
-                        // value + "]");
-                    }
-                }
-
-                // an empty line indicates a normal response's or event's end so
-                // we build
-                // the corresponding value object and dispatch it through the
-                // ManagerConnection.
-                if (line.length() == 0) {
-                    Object cause = null;
-                    LogTime timer = new LogTime();
-                    if (buffer.containsKey("event")) {
-                        // TODO tracing
-                        // logger.debug("attempting to build event: " +
-                        // buffer.get("event"));
-                        ManagerEvent event = buildEvent(source, buffer);
-                        if (event != null) {
-                            cause = event;
-                            dispatcher.dispatchEvent(event, null);
-
-                            // Backwards compatibility for bridge events.
-                            // Asterisk 13 uses BridgeCreate,
-                            // BridgeEnter, BridgeLeave and BridgeDestroy
-                            // events.
-                            // So here we track active bridges and simulate
-                            // BridgeEvent's for them allowing legacy code to
-                            // still work with BridgeEvent's
-                            ManagerEvent secondaryEvent = compatibility.handleEvent(event);
-                            if (secondaryEvent != null) {
-                                dispatcher.dispatchEvent(secondaryEvent, null);
-                            }
-                        } else {
-                            logger.debug("buildEvent returned null");
-                        }
-                    } else if (buffer.containsKey("response")) {
-                        ManagerResponse response = buildResponse(buffer);
-                        // TODO tracing
-                        // logger.debug("attempting to build response");
-                        if (response != null) {
-                            cause = response;
-                            dispatcher.dispatchResponse(response, null);
-                        }
-                    } else {
-                        if (!buffer.isEmpty()) {
-                            logger.debug("Buffer contains neither response nor event");
+                            addToBuffer(buffer, name, value);
+                            // TODO tracing
+                            // logger.debug("Got name [" + name + "], value: [" +
+                            // value + "]");
                         }
                     }
 
-                    buffer.clear();
-
-                    // some math to determine if events are being processed
-                    // slowly
-                    long elapsed = timer.timeTaken();
-                    long now = System.currentTimeMillis();
-                    long add = now - timeOfLastEvent;
-
-                    // double the elapsed time, this allows 50% slack. Also note
-                    // that we
-                    // would never be able to exhaust the reserve if we don't
-                    // artificially increase the elapsed time. I'd have probably
-                    // gone for 1.3 but I am trying to avoid floating point math
-                    reserve = (reserve + add) - (elapsed * 2);
-
-                    // don't allow reserve to exceed 500 ms
-                    reserve = Math.min(500, reserve);
-
-                    // don't allow reserve to go negative, otherwise we might
-                    // accrue a large debt
-                    reserve = Math.max(0, reserve);
-                    timeOfLastEvent = now;
-
-                    // check if the event was slow to build and dispatch
-                    if (elapsed > slowEventThresholdMs) {
-                        // check for to many slow events this second.
-                        if (reserve <= 0) {
-                            // check we haven't already logged this to often
-                            if (slowEventLogLimiter.tryAcquire()) {
-                                logger.warn("(This is normal during JVM warmup) Slow processing of event " + elapsed + "\n"
-                                        + cause);
-                            }
-                        }
+                    // an empty line indicates a normal response's or event's end so
+                    // we build
+                    // the corresponding value object and dispatch it through the
+                    // ManagerConnection.
+                    if (line.length() == 0) {
+                        buffer = dispatchFrame(buffer, dispatcher);
                     }
                 }
             }
@@ -305,8 +317,142 @@ public class ManagerReaderImpl implements ManagerReader {
         }
     }
 
+    /**
+     * Main loop for sockets that provide raw bytes, the frames are parsed in
+     * place by a {@link ManagerFrameParser} instead of line by line.
+     */
+    private void readFrames(SocketChannelConnectionFacade channel, Map<String, Object> buffer,
+                            AsyncEventPump dispatcher) throws IOException {
+        if (frameParser == null) {
+            frameParser = new ManagerFrameParser(encoding);
+        }
+        frameParser.setSource(channel);
+        frameParser.setMetrics(metrics);
+
+        ManagerFrameParser.Token token;
+        while (!this.die && (token = frameParser.next(buffer)) != ManagerFrameParser.Token.END_OF_STREAM) {
+            if (token == ManagerFrameParser.Token.PROTOCOL_IDENTIFIER) {
+                dispatchProtocolIdentifier(frameParser.getProtocolIdentifier(), dispatcher);
+            } else {
+                buffer = dispatchFrame(buffer, dispatcher);
+            }
+        }
+    }
+
+    private void dispatchProtocolIdentifier(String line, AsyncEventPump dispatcher) {
+        ProtocolIdentifierReceivedEvent protocolIdentifierReceivedEvent;
+        protocolIdentifierReceivedEvent = new ProtocolIdentifierReceivedEvent(source);
+        protocolIdentifierReceivedEvent.setProtocolIdentifier(line);
+        protocolIdentifierReceivedEvent.setDateReceived(DateUtil.getDate());
+        dispatcher.dispatchEvent(protocolIdentifierReceivedEvent, null);
+    }
+
+    /**
+     * Builds the event or response collected in the buffer and dispatches it.
+     * <p>
+     * Events that are neither correlated with an action nor needed for
+     * backwards compatibility are dispatched as {@link ManagerEventEnvelope}
+     * and only built if a listener wants them. The buffer is handed over to
+     * the envelope in that case.
+     *
+     * @return the (empty) buffer to collect the next frame in.
+     */
+    private Map<String, Object> dispatchFrame(Map<String, Object> buffer, AsyncEventPump dispatcher) {
+        Object cause = null;
+        LogTime timer = new LogTime();
+        final Class<?> eventClass = buffer.containsKey("event") ? resolveEventClass(buffer) : null;
+        if (metrics != null && buffer.containsKey("event")) {
+            metrics.eventReceived(eventClass);
+        }
+        if (eventClass != null && !buffer.containsKey("actionid")) {
+            if (!subscriptions.isSubscribed(eventClass)) {
+                // no listener wants this event, don't bother building it
+                buffer.clear();
+                return buffer;
+            }
+            if (!compatibility.isSourceEvent(eventClass)) {
+                // let the dispatcher decide whether the event is built
+                dispatcher.dispatchEvent(
+                        new ManagerEventEnvelope(eventClass, buffer, DateUtil.getDate(), eventBuilder, source), null);
+                return new HashMap<>();
+            }
+        }
+        if (buffer.containsKey("event")) {
+            // TODO tracing
+            // logger.debug("attempting to build event: " +
+            // buffer.get("event"));
+            ManagerEvent event = buildEvent(source, buffer);
+            if (event != null) {
+                cause = event;
+                dispatcher.dispatchEvent(event, null);
+
+                // Backwards compatibility for bridge events.
+                // Asterisk 13 uses BridgeCreate,
+                // BridgeEnter, BridgeLeave and BridgeDestroy
+                // events.
+                // So here we track active bridges and simulate
+                // BridgeEvent's for them allowing legacy code to
+                // still work with BridgeEvent's
+                ManagerEvent secondaryEvent = compatibility.handleEvent(event);
+                if (secondaryEvent != null) {
+                    dispatcher.dispatchEvent(secondaryEvent, null);
+                }
+            } else {
+                logger.debug("buildEvent returned null");
+            }
+        } else if (buffer.containsKey("response")) {
+            ManagerResponse response = buildResponse(buffer);
+            // TODO tracing
+            // logger.debug("attempting to build response");
+            if (response != null) {
+                cause = response;
+                dispatcher.dispatchResponse(response, null);
+            }
+        } else {
+            if (!buffer.isEmpty()) {
+                logger.debug("Buffer contains neither response nor event");
+            }
+        }
+
+        buffer.clear();
+
+        // some math to determine if events are being processed
+        // slowly
+        long elapsed = timer.timeTaken();
+        long now = System.currentTimeMillis();
+        long add = now - timeOfLastEvent;
+
+        // double the elapsed time, this allows 50% slack. Also note
+        // that we
+        // would never be able to exhaust the reserve if we don't
+        // artificially increase the elapsed time. I'd have probably
+        // gone for 1.3 but I am trying to avoid floating point math
+        reserve = (reserve + add) - (elapsed * 2);
+
+        // don't allow reserve to exceed 500 ms
+        reserve = Math.min(500, reserve);
+
+        // don't allow reserve to go negative, otherwise we might
+        // accrue a large debt
+        reserve = Math.max(0, reserve);
+        timeOfLastEvent = now;
+
+        // check if the event was slow to build and dispatch
+        if (elapsed > SLOW_EVENT_THRESHOLD_MS) {
+            // check for to many slow events this second.
+            if (reserve <= 0) {
+                // check we haven't already logged this to often
+                if (slowEventLogLimiter.tryAcquire()) {
+                    logger.warn("(This is normal during JVM warmup) Slow processing of event " + elapsed + "\n"
+                            + cause);
+                }
+            }
+        }
+        return buffer;
+    }
+
     @SuppressWarnings("unchecked")
-    private void addToBuffer(Map<String, Object> buffer, String name, String value) {
+    static void addToBuffer(Map<String, Object> buffer, String name, String value) {
         // if we already have a value for that key, convert the value to a list
         // and add
         // the new value to that list.
@@ -358,6 +504,31 @@ public class ManagerReaderImpl implements ManagerReader {
         return response;
     }
 
+    /**
+     * Resolves the class registered for the event in the buffer without
+     * building it.
+     *
+     * @return the event class or <code>null</code> if the event type is
+     * malformed or unknown, these events are left to the EventBuilder.
+     */
+    private Class<?> resolveEventClass(Map<String, Object> buffer) {
+        final Object eventType = buffer.get("event");
+        if (!(eventType instanceof String)) {
+            return null;
+        }
+
+        String key = ((String) eventType).toLowerCase(Locale.US);
+        if ("userevent".equals(key)) {
+            final Object userEventType = buffer.get("userevent");
+            if (!(userEventType instanceof String)) {
+                return null;
+            }
+            key = key + ((String) userEventType).toLowerCase(Locale.US);
+        }
+
+        return eventBuilder.getRegisteredEventClass(key);
+    }
+
     private ManagerEvent buildEvent(Object source, Map<String, Object> buffer) {
         ManagerEvent event;
 
@@ -376,4 +547,9 @@ public class ManagerReaderImpl implements ManagerReader {
         eventBuilder.deregisterEventClass(eventClass);
 
     }
+
+    @Override
+    public Map<String, Class<?>> getRegisteredEventClasses() {
+        return eventBuilder.getRegisteredEventClasses();
+    }
 }
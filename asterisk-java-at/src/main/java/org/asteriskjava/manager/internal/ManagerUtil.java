@@ -16,6 +16,11 @@
  */
 package org.asteriskjava.manager.internal;
 
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.UserEvent;
+
+import java.util.Locale;
+
 /**
  * Utilitiy class with some static helper methods that are used in multiple
  * contexts within the manager package.
@@ -117,4 +122,31 @@ public class ManagerUtil {
         }
         return internalActionId + INTERNAL_ACTION_ID_DELIMITER + actionId;
     }
+
+    /**
+     * Returns the event type an event class is registered for by default. The
+     * type is derived from the name of the class by stripping the package
+     * name and the suffix "Event" and converting it to lower case. User
+     * events are prefixed with "userevent".
+     *
+     * @param clazz the event class.
+     * @return the lower case event type, for example "newchannel" for
+     * {@link org.asteriskjava.manager.event.NewChannelEvent}.
+     */
+    public static String getEventType(Class<? extends ManagerEvent> clazz) {
+        String className;
+        String eventType;
+
+        className = clazz.getName();
+        eventType = className.substring(className.lastIndexOf('.') + 1).toLowerCase(Locale.ENGLISH);
+
+        if (eventType.endsWith("event")) {
+            eventType = eventType.substring(0, eventType.length() - "event".length());
+        }
+
+        if (UserEvent.class.isAssignableFrom(clazz) && !eventType.startsWith("userevent")) {
+            eventType = "userevent" + eventType;
+        }
+        return eventType;
+    }
 }
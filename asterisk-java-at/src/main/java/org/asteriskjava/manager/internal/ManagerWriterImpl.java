@@ -20,17 +20,40 @@ import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.lock.Lockable;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.util.SocketChannelConnectionFacade;
 import org.asteriskjava.util.SocketConnectionFacade;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Default implementation of ManagerWriter interface.
+ * <p>
+ * Actions sent concurrently are coalesced: every action is queued and the
+ * thread that gets the lock writes all queued actions with a single flush.
+ * Threads that find their action already written return without writing.
+ * When the socket gives access to its channel the actions are encoded into
+ * pooled direct buffers and sent with one gathering write.
  *
  * @author srt
  * @version $Id$
  */
 public class ManagerWriterImpl extends Lockable implements ManagerWriter {
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 16;
+
     /**
      * Instance logger.
      */
@@ -40,10 +63,21 @@ public class ManagerWriterImpl extends Lockable implements ManagerWriter {
      * The action builder utility to convert ManagerAction to a String suitable
      * to be sent to the asterisk server.
      */
-    private final ActionBuilder actionBuilder;
+    private final ActionBuilderImpl actionBuilder;
+
+    private final Queue<PendingAction> pending = new ConcurrentLinkedQueue<>();
+
+    // the fields below are guarded by the lock
+    private final List<PendingAction> batch = new ArrayList<>();
+    private final StringBuilder actionString = new StringBuilder(512);
+    private final Deque<ByteBuffer> bufferPool = new ArrayDeque<>();
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private CharsetEncoder encoder = newEncoder(StandardCharsets.UTF_8);
 
     private SocketConnectionFacade socket;
 
+    private volatile ConnectionMetrics metrics;
+
     /**
      * Creates a new ManagerWriter.
      */
@@ -55,29 +89,189 @@ public class ManagerWriterImpl extends Lockable implements ManagerWriter {
         actionBuilder.setTargetVersion(version);
     }
 
+    /**
+     * Sets the encoding used for actions written directly to the socket
+     * channel, it must match the encoding of the socket.
+     *
+     * @param encoding the encoding used by the connection.
+     * @since 3.40.0
+     */
+    public void setEncoding(Charset encoding) {
+        try (LockCloser closer = this.withLock()) {
+            this.encoder = newEncoder(encoding);
+        }
+    }
+
     public void setSocket(final SocketConnectionFacade socket) {
         try (LockCloser closer = this.withLock()) {
             this.socket = socket;
         }
     }
 
+    /**
+     * Sets the metrics to record the sent bytes in.
+     *
+     * @param metrics the metrics or <code>null</code> to record nothing.
+     */
+    void setMetrics(ConnectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public void sendAction(final ManagerAction action, final String internalActionId) throws IOException {
+        final PendingAction pendingAction = new PendingAction(action, internalActionId);
+        pending.add(pendingAction);
+
         try (LockCloser closer = this.withLock()) {
-            final String actionString;
+            // another thread may have written our action while we waited
+            if (!pendingAction.written) {
+                writePending();
+            }
+        }
+
+        if (pendingAction.failure instanceof IOException) {
+            throw (IOException) pendingAction.failure;
+        } else if (pendingAction.failure instanceof RuntimeException) {
+            throw (RuntimeException) pendingAction.failure;
+        } else if (pendingAction.failure instanceof Error) {
+            throw (Error) pendingAction.failure;
+        }
+
+        // TODO tracing
+        // logger.debug("Sent " + action.getAction() + " action with
+        // actionId '"
+        // + action.getActionId() + "':\n" + actionString);
+    }
+
+    private void writePending() {
+        PendingAction next;
+        while ((next = pending.poll()) != null) {
+            batch.add(next);
+        }
 
+        try {
             if (socket == null) {
-                throw new IllegalStateException("Unable to send action: socket is null");
+                fail(new IllegalStateException("Unable to send action: socket is null"));
+            } else if (socket instanceof SocketChannelConnectionFacade) {
+                writeBuffers((SocketChannelConnectionFacade) socket);
+            } else {
+                writeStrings(socket);
             }
+        } catch (IOException | RuntimeException | Error e) {
+            fail(e);
+        } finally {
+            for (PendingAction pendingAction : batch) {
+                pendingAction.written = true;
+            }
+            batch.clear();
+            releaseBuffers();
+        }
+    }
+
+    private void writeStrings(SocketConnectionFacade socket) throws IOException {
+        long count = 0;
+        for (PendingAction pendingAction : batch) {
+            if (build(pendingAction)) {
+                socket.write(actionString.toString());
+                count += actionString.length();
+            }
+        }
+        socket.flush();
+        bytesSent(count);
+    }
+
+    private void writeBuffers(SocketChannelConnectionFacade socket) throws IOException {
+        for (PendingAction pendingAction : batch) {
+            if (build(pendingAction)) {
+                encode();
+            }
+        }
+        long count = 0;
+        for (ByteBuffer buffer : buffers) {
+            buffer.flip();
+            count += buffer.remaining();
+        }
+        socket.write(buffers.toArray(new ByteBuffer[0]));
+        bytesSent(count);
+    }
+
+    private void bytesSent(long count) {
+        final ConnectionMetrics currentMetrics = metrics;
+        if (currentMetrics != null && count > 0) {
+            currentMetrics.bytesSent(count);
+        }
+    }
+
+    /**
+     * Builds the action into {@link #actionString}, a failure only fails the
+     * action itself and not the whole batch.
+     */
+    private boolean build(PendingAction pendingAction) {
+        actionString.setLength(0);
+        try {
+            actionBuilder.appendAction(actionString, pendingAction.action, pendingAction.internalActionId);
+            return true;
+        } catch (RuntimeException e) {
+            pendingAction.failure = e;
+            return false;
+        }
+    }
+
+    private void encode() {
+        final CharBuffer chars = CharBuffer.wrap(actionString);
+        encoder.reset();
+        ByteBuffer buffer = buffers.isEmpty() ? nextBuffer() : buffers.get(buffers.size() - 1);
+        CoderResult result = encoder.encode(chars, buffer, true);
+        while (result.isOverflow()) {
+            buffer = nextBuffer();
+            result = encoder.encode(chars, buffer, true);
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            buffer = nextBuffer();
+        }
+    }
+
+    private ByteBuffer nextBuffer() {
+        final ByteBuffer buffer = bufferPool.isEmpty() ? ByteBuffer.allocateDirect(BUFFER_SIZE) : bufferPool.pop();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private void releaseBuffers() {
+        for (ByteBuffer buffer : buffers) {
+            if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+                buffer.clear();
+                bufferPool.push(buffer);
+            }
+        }
+        buffers.clear();
+    }
+
+    private void fail(Throwable failure) {
+        for (PendingAction pendingAction : batch) {
+            if (pendingAction.failure == null) {
+                pendingAction.failure = failure;
+            }
+        }
+    }
+
+    private static CharsetEncoder newEncoder(Charset encoding) {
+        // same replacement behaviour as the writers of the socket facades
+        return encoding.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
 
-            actionString = actionBuilder.buildAction(action, internalActionId);
+    private static final class PendingAction {
+        private final ManagerAction action;
+        private final String internalActionId;
 
-            socket.write(actionString);
-            socket.flush();
+        // guarded by the lock of the writer
+        private boolean written;
+        private Throwable failure;
 
-            // TODO tracing
-            // logger.debug("Sent " + action.getAction() + " action with
-            // actionId '"
-            // + action.getActionId() + "':\n" + actionString);
+        PendingAction(ManagerAction action, String internalActionId) {
+            this.action = action;
+            this.internalActionId = internalActionId;
         }
     }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+
+import java.util.Map;
+
+/**
+ * Decorates an {@link EventBuilder} to record the events it builds and the
+ * time it takes in the {@link ConnectionMetrics} of the connection.
+ * <p>
+ * Events are built on the reader thread or, if they are dispatched in a
+ * {@link ManagerEventEnvelope}, lazily on the dispatching thread.
+ *
+ * @since 3.40.0
+ */
+final class MeteredEventBuilder implements EventBuilder {
+    private final EventBuilder delegate;
+    private volatile ConnectionMetrics metrics;
+
+    MeteredEventBuilder(EventBuilder delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sets the metrics to record in.
+     *
+     * @param metrics the metrics or <code>null</code> to record nothing.
+     */
+    void setMetrics(ConnectionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void registerEventClass(Class<? extends ManagerEvent> clazz) throws IllegalArgumentException {
+        delegate.registerEventClass(clazz);
+    }
+
+    @Override
+    public ManagerEvent buildEvent(Object source, Map<String, Object> attributes) {
+        final ConnectionMetrics currentMetrics = metrics;
+        if (currentMetrics == null) {
+            return delegate.buildEvent(source, attributes);
+        }
+
+        final long start = System.nanoTime();
+        final ManagerEvent event = delegate.buildEvent(source, attributes);
+        if (event != null) {
+            currentMetrics.eventBuilt(event.getClass(), System.nanoTime() - start);
+        }
+        return event;
+    }
+
+    @Override
+    public void deregisterEventClass(Class<? extends ManagerEvent> eventClass) {
+        delegate.deregisterEventClass(eventClass);
+    }
+
+    @Override
+    public Class<?> getRegisteredEventClass(String eventType) {
+        return delegate.getRegisteredEventClass(eventType);
+    }
+
+    @Override
+    public Map<String, Class<?>> getRegisteredEventClasses() {
+        return delegate.getRegisteredEventClasses();
+    }
+}
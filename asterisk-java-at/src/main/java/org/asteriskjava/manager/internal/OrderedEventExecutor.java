@@ -0,0 +1,261 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs event dispatching tasks on a fixed number of worker threads while
+ * preserving the order of the tasks with the same key.
+ * <p>
+ * Each worker has its own queue and a key is always mapped to the same
+ * worker. Events are keyed by their linkedid or, if there is none, their
+ * uniqueid so that the events of a call are delivered in order while the
+ * events of different calls are delivered in parallel. Events without a
+ * channel are keyed by their class, so they are not ordered relative to the
+ * events of the calls they relate to (for example BridgeCreate and the
+ * BridgeEnter events of the same bridge).
+ * <p>
+ * The queues are bounded, when a worker falls behind the submitting thread
+ * is blocked which in turn lets the event queue of the
+ * {@link AsyncEventPump} apply its overflow policy.
+ *
+ * @since 3.40.0
+ */
+final class OrderedEventExecutor {
+    private static final Log logger = LogFactory.getLog(OrderedEventExecutor.class);
+
+    static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    private static final String[] KEY_GETTERS = {"getLinkedId", "getUniqueId"};
+
+    /**
+     * Getters for the key of built events, the event classes are not
+     * consistent about the case of linkedid and uniqueid.
+     */
+    private static final ClassValue<MethodHandle[]> KEY_HANDLES = new ClassValue<MethodHandle[]>() {
+        @Override
+        protected MethodHandle[] computeValue(Class<?> type) {
+            final MethodHandle[] handles = new MethodHandle[KEY_GETTERS.length];
+            for (Method method : type.getMethods()) {
+                if (method.getParameterCount() != 0 || method.getReturnType() != String.class
+                        || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                for (int i = 0; i < KEY_GETTERS.length; i++) {
+                    if (handles[i] == null && KEY_GETTERS[i].equalsIgnoreCase(method.getName())) {
+                        try {
+                            handles[i] = MethodHandles.publicLookup().unreflect(method);
+                        } catch (IllegalAccessException e) {
+                            logger.debug("Unable to access " + method, e);
+                        }
+                    }
+                }
+            }
+            return handles;
+        }
+    };
+
+    private final Worker[] workers;
+    private volatile boolean shutdown;
+
+    /**
+     * Creates a new executor, the workers are started by {@link #start()}.
+     *
+     * @param threadName    the workers are named with a variant of threadName.
+     * @param threads       the number of workers.
+     * @param queueCapacity the number of tasks that can be queued per worker.
+     */
+    OrderedEventExecutor(String threadName, int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(this, threadName + ":EventDispatcher-" + i, queueCapacity);
+        }
+    }
+
+    void start() {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Checks whether the current thread is one of the workers of this
+     * executor. Tasks running on a worker must not be submitted again.
+     */
+    boolean isWorkerThread() {
+        final Thread current = Thread.currentThread();
+        return current instanceof Worker && ((Worker) current).executor == this;
+    }
+
+    boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Queues a task behind all other tasks with the same key.
+     *
+     * @param key        the key, usually from {@link #keyOf(ManagerEvent)}
+     *                   or {@link #keyOf(Map)}, may be <code>null</code>.
+     * @param eventClass the class of the event, used as key if there is
+     *                   none.
+     * @param task       the task.
+     */
+    void execute(String key, Class<?> eventClass, Runnable task) {
+        final int hash = key != null ? key.hashCode() : eventClass.hashCode();
+        final Worker worker = workers[Math.floorMod(hash ^ (hash >>> 16), workers.length)];
+        try {
+            worker.queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while queueing event, running it on the current thread");
+            task.run();
+        }
+    }
+
+    /**
+     * Waits until all tasks that have been queued so far have been run. Does
+     * nothing when called from a worker.
+     */
+    void awaitQuiescence() {
+        if (isWorkerThread() || shutdown) {
+            return;
+        }
+        final CountDownLatch latch = new CountDownLatch(workers.length);
+        for (Worker worker : workers) {
+            execute(worker, latch::countDown);
+        }
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Lets the workers exit after they have run the tasks that have been
+     * queued so far.
+     */
+    void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            execute(worker, Worker.POISON);
+        }
+    }
+
+    private void execute(Worker worker, Runnable task) {
+        try {
+            worker.queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the key of a built event.
+     *
+     * @return the linkedid or uniqueid of the event or <code>null</code> if
+     * it has neither.
+     */
+    static String keyOf(ManagerEvent event) {
+        for (MethodHandle handle : KEY_HANDLES.get(event.getClass())) {
+            if (handle == null) {
+                continue;
+            }
+            try {
+                final String key = (String) handle.invoke(event);
+                if (key != null && !key.isEmpty()) {
+                    return key;
+                }
+            } catch (Throwable e) {
+                logger.debug("Unable to get key of " + event.getClass().getName(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key of an event that has not been built yet.
+     *
+     * @param attributes the received attributes, keys are lower case.
+     * @return the linkedid or uniqueid of the event or <code>null</code> if
+     * it has neither.
+     */
+    static String keyOf(Map<String, Object> attributes) {
+        if (attributes == null) {
+            return null;
+        }
+        Object key = attributes.get("linkedid");
+        if (!(key instanceof String) || ((String) key).isEmpty()) {
+            key = attributes.get("uniqueid");
+        }
+        return key instanceof String && !((String) key).isEmpty() ? (String) key : null;
+    }
+
+    private static final class Worker extends Thread {
+        static final Runnable POISON = () -> {
+        };
+
+        private final OrderedEventExecutor executor;
+        private final BlockingQueue<Runnable> queue;
+
+        Worker(OrderedEventExecutor executor, String name, int queueCapacity) {
+            super(name);
+            this.executor = executor;
+            this.queue = new LinkedBlockingQueue<>(queueCapacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final Runnable task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    logger.warn(getName() + " interrupted, exiting");
+                    return;
+                }
+                if (task == POISON) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error(e, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.util.SocketConnectionFacade;
+import org.asteriskjava.util.internal.CaptureReader;
+import org.asteriskjava.util.internal.CaptureTrace;
+import org.asteriskjava.util.internal.ReplayConnectionFacade;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A manager connection that replays a capture written by {@link CaptureTrace}
+ * instead of connecting to Asterisk.
+ * <p>
+ * Listeners receive the captured events like from a live connection, which
+ * allows to reproduce incidents and to measure how many events the listeners
+ * can process. Actions sent by the application are answered with a successful
+ * response without any effect, see {@link ReplayConnectionFacade}.
+ *
+ * <pre>
+ * ReplayManagerConnection connection = new ReplayManagerConnection(capture, ReplayConnectionFacade.MAX_SPEED);
+ * connection.addEventListener(listener);
+ * connection.login();
+ * connection.replayFinished().get();
+ * connection.logoff();
+ * </pre>
+ *
+ * @since 3.40.0
+ */
+public class ReplayManagerConnection extends ManagerConnectionImpl {
+    private final File capture;
+    private final double speed;
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+    /**
+     * Creates a new replaying connection.
+     *
+     * @param capture the first segment of the capture.
+     * @param speed   how much faster than captured to replay, 1 for the
+     *                captured pace or {@link ReplayConnectionFacade#MAX_SPEED}.
+     */
+    public ReplayManagerConnection(File capture, double speed) {
+        super();
+        this.capture = capture;
+        this.speed = speed;
+        setHostname("replay");
+        setUsername("replay");
+        setPassword("replay");
+    }
+
+    /**
+     * Returns a future that is completed when all captured data has been
+     * handed to the reader. Events may still be dispatched to the listeners.
+     *
+     * @return the future.
+     */
+    public CompletableFuture<Void> replayFinished() {
+        return finished;
+    }
+
+    @Override
+    protected SocketConnectionFacade createSocket() throws IOException {
+        final ReplayConnectionFacade replay = new ReplayConnectionFacade(new CaptureReader(capture), speed);
+        replay.finished().thenRun(() -> finished.complete(null));
+        return replay;
+    }
+}
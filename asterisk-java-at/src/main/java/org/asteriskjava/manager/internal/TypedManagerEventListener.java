@@ -0,0 +1,69 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.FilteredManagerEventListener;
+import org.asteriskjava.manager.event.ManagerEvent;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Listener registered by
+ * {@link org.asteriskjava.manager.ManagerConnection#addEventListener(Class, Consumer)}
+ * that receives the events of one class and its subclasses.
+ *
+ * @param <T> the class of the events.
+ * @since 3.40.0
+ */
+final class TypedManagerEventListener<T extends ManagerEvent> implements FilteredManagerEventListener {
+    private final Class<T> eventClass;
+    private final Consumer<? super T> consumer;
+
+    TypedManagerEventListener(Class<T> eventClass, Consumer<? super T> consumer) {
+        this.eventClass = eventClass;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Checks whether the listener receives events of the given class.
+     *
+     * @param eventClass the class of the event.
+     * @return <code>true</code> if the class is the subscribed class or one of
+     * its subclasses.
+     */
+    boolean accepts(Class<?> eventClass) {
+        return this.eventClass.isAssignableFrom(eventClass);
+    }
+
+    @Override
+    public Set<Class<? extends ManagerEvent>> requiredEvents() {
+        return Collections.singleton(eventClass);
+    }
+
+    @Override
+    public void onManagerEvent(ManagerEvent event) {
+        if (eventClass.isInstance(event)) {
+            consumer.accept(eventClass.cast(event));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TypedManagerEventListener[eventClass=" + eventClass.getName() + ", consumer=" + consumer + "]";
+    }
+}
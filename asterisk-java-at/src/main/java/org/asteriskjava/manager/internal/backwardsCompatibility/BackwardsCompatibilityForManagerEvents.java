@@ -1,10 +1,23 @@
 package org.asteriskjava.manager.internal.backwardsCompatibility;
 
-import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.*;
 import org.asteriskjava.manager.internal.backwardsCompatibility.bridge.BridgesActive;
 import org.asteriskjava.manager.internal.backwardsCompatibility.meetme.MeetmeCompatibility;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class BackwardsCompatibilityForManagerEvents {
+    /**
+     * Events that are tracked to generate legacy events, these must always be
+     * passed to {@link #handleEvent(ManagerEvent)}.
+     */
+    private static final Set<Class<? extends ManagerEvent>> sourceEvents = new HashSet<>(Arrays.asList(
+            BridgeCreateEvent.class, BridgeDestroyEvent.class, BridgeEnterEvent.class, BridgeLeaveEvent.class,
+            ConfbridgeStartEvent.class, ConfbridgeEndEvent.class, ConfbridgeJoinEvent.class,
+            ConfbridgeLeaveEvent.class));
+
     // Logger logger = LogManager.getLogger();
     BridgesActive bridges = new BridgesActive();
     MeetmeCompatibility meetme = new MeetmeCompatibility();
@@ -17,4 +30,16 @@ public class BackwardsCompatibilityForManagerEvents {
         return newEvent;
     }
 
+    /**
+     * Checks whether events of the given class are needed to generate legacy
+     * events.
+     *
+     * @param eventClass the class of the event
+     * @return <code>true</code> if events of this class must be passed to
+     * {@link #handleEvent(ManagerEvent)}.
+     */
+    public boolean isSourceEvent(Class<?> eventClass) {
+        return sourceEvents.contains(eventClass);
+    }
+
 }
@@ -54,88 +54,22 @@ public class EventAttributesHelper {
                 continue;
             }
 
-            setterName = ReflectionUtil.stripIllegalCharacters(entry.getKey());
-
-            /*
-             * The source property needs special handling as it is already
-             * defined in java.util.EventObject (the base class of
-             * ManagerEvent), so we have to translate it.
-             */
-            if ("source".equals(setterName)) {
-                setterName = "src";
-            } else if ("class".equals(setterName)) {
-                setterName = "clazz";
-            }
-
-            setter = setters.get(setterName);
-
-            if (setter == null && !setterName.endsWith("s")) // no exact match
-            // => try plural
-            {
-                setter = setters.get(setterName + "s");
-                // but only for maps
-                if (setter != null && !(setter.getParameterTypes()[0].isAssignableFrom(Map.class))) {
-                    setter = null;
-                }
-            }
-
-            // it seems silly to warn if it's a user event -- maybe it was
-            // intentional
-            if (setter == null && !(target instanceof UserEvent) && !target.getClass().equals(ManagerResponse.class)) {
-
-                //CDR has dynamic properties
-                if (target instanceof CdrEvent) {
-                    try {
-                        Method addproperty= CdrEvent.class.getMethod("addDynamicProperties", String.class, String.class);
-                        addproperty.invoke(target, entry.getKey(), entry.getValue().toString());
-                    } catch (Exception e) {
-                        logger.error("Unable to set Dynamic CDR Property '" + entry.getKey() + "' to '" + entry.getValue(), e);
-                        continue;
-                    }
-
-                } else {
-                    logger.warn("Unable to set property '" + entry.getKey() + "' to '" + entry.getValue() + "' on "
-                        + target.getClass().getName()
-                        + ": no setter. Please report at https://github.com/asterisk-java/asterisk-java/issues");
-
-                    for (Map.Entry<String, Object> entry2 : attributes.entrySet()) {
-                        logger.debug("Key: " + entry2.getKey() + " Value: " + entry2.getValue());
-                    }
-                }
-            }
+            setterName = toSetterName(entry.getKey());
+            setter = findSetter(setters, setterName);
 
             if (setter == null) {
+                handleMissingSetter(target, entry, attributes);
                 continue;
             }
 
             try {
                 dataType = setter.getParameterTypes()[0];
 
-                if (dataType == Boolean.class) {
-                    value = AstUtil.isTrue(entry.getValue());
-                } else if (dataType.isAssignableFrom(String.class)) {
-                    value = parseString(entry);
-                } else if (dataType.isAssignableFrom(Map.class)) {
-                    value = parseMap(entry);
-                } else if (dataType.isAssignableFrom(double.class) || dataType.isAssignableFrom(Double.class)) {
-                    value = parseDouble(entry);
-                } else if (dataType.isAssignableFrom(long.class) || dataType.isAssignableFrom(Long.class)) {
-                    value = parseLong(entry);
-                } else if (dataType.isAssignableFrom(int.class) || dataType.isAssignableFrom(Integer.class)) {
-                    value = parseInteger(entry);
-                } else {
-                    try {
-                        Constructor<?> constructor = dataType.getConstructor(String.class);
-                        // Asterisk sometimes uses yes/no instead of True/False for boolean.  java.lang.Boolean(String) doesn't handle this.
-                        if (dataType.isAssignableFrom(Boolean.class)) {
-                            value = constructor.newInstance(AstUtil.convertAsteriskBooleanStringToStandardBooleanString((String) entry.getValue()));
-                        } else value = constructor.newInstance(entry.getValue());
-                    } catch (Exception e) {
-                        logger.error("Unable to convert value: Called the constructor of " + dataType + " with value '"
-                            + entry.getValue() + "' for the attribute '" + entry.getKey() + "'\n of event type "
-                            + target.getClass().getName() + " with resulting error: " + e.getMessage(), e);
-                        continue;
-                    }
+                try {
+                    value = converterFor(dataType).convert(entry.getValue());
+                } catch (Exception e) {
+                    logConversionFailure(target, entry, dataType, e);
+                    continue;
                 }
 
                 setter.invoke(target, value);
@@ -146,9 +80,134 @@ public class EventAttributesHelper {
         }
     }
 
-    private static Integer parseInteger(Map.Entry<String, Object> entry) {
+    /**
+     * Resolves the setter name for an attribute key as sent by Asterisk, i.e.
+     * strips illegal characters and translates names that clash with
+     * properties of {@link java.util.EventObject} or {@link Object}.
+     *
+     * @param key the (lower case) attribute key
+     * @return the name of the setter (without the "set" prefix)
+     */
+    static String toSetterName(String key) {
+        String setterName = ReflectionUtil.stripIllegalCharacters(key);
+
+        /*
+         * The source property needs special handling as it is already
+         * defined in java.util.EventObject (the base class of
+         * ManagerEvent), so we have to translate it.
+         */
+        if ("source".equals(setterName)) {
+            setterName = "src";
+        } else if ("class".equals(setterName)) {
+            setterName = "clazz";
+        }
+        return setterName;
+    }
+
+    /**
+     * Looks up the setter for the given setter name. If there is no exact
+     * match the plural form is tried, but only for setters that take a map.
+     *
+     * @param setters    the setters of the target class
+     * @param setterName the name as returned by {@link #toSetterName(String)}
+     * @return the setter or <code>null</code> if there is none
+     */
+    static Method findSetter(Map<String, Method> setters, String setterName) {
+        Method setter = setters.get(setterName);
+
+        if (setter == null && !setterName.endsWith("s")) // no exact match
+        // => try plural
+        {
+            setter = setters.get(setterName + "s");
+            // but only for maps
+            if (setter != null && !(setter.getParameterTypes()[0].isAssignableFrom(Map.class))) {
+                setter = null;
+            }
+        }
+        return setter;
+    }
+
+    static void handleMissingSetter(Object target, Map.Entry<String, Object> entry, Map<String, Object> attributes) {
+        // it seems silly to warn if it's a user event -- maybe it was
+        // intentional
+        if (target instanceof UserEvent || target.getClass().equals(ManagerResponse.class)) {
+            return;
+        }
+
+        //CDR has dynamic properties
+        if (target instanceof CdrEvent) {
+            try {
+                ((CdrEvent) target).addDynamicProperties(entry.getKey(), entry.getValue().toString());
+            } catch (Exception e) {
+                logger.error("Unable to set Dynamic CDR Property '" + entry.getKey() + "' to '" + entry.getValue(), e);
+            }
+        } else {
+            logger.warn("Unable to set property '" + entry.getKey() + "' to '" + entry.getValue() + "' on "
+                + target.getClass().getName()
+                + ": no setter. Please report at https://github.com/asterisk-java/asterisk-java/issues");
+
+            for (Map.Entry<String, Object> entry2 : attributes.entrySet()) {
+                logger.debug("Key: " + entry2.getKey() + " Value: " + entry2.getValue());
+            }
+        }
+    }
+
+    static void logConversionFailure(Object target, Map.Entry<String, Object> entry, Class<?> dataType, Exception e) {
+        logger.error("Unable to convert value: Called the constructor of " + dataType + " with value '"
+            + entry.getValue() + "' for the attribute '" + entry.getKey() + "'\n of event type "
+            + target.getClass().getName() + " with resulting error: " + e.getMessage(), e);
+    }
+
+    /**
+     * Converts a raw attribute value to the type expected by a setter.
+     */
+    @FunctionalInterface
+    interface AttributeConverter {
+        Object convert(Object value) throws Exception;
+    }
+
+    /**
+     * Selects the converter for the given setter parameter type. The
+     * selection is done once per setter so that the chain of type checks is
+     * not evaluated for every attribute.
+     *
+     * @param dataType the parameter type of the setter
+     * @return the converter to use
+     */
+    static AttributeConverter converterFor(final Class<?> dataType) {
+        if (dataType == Boolean.class) {
+            return AstUtil::isTrue;
+        } else if (dataType.isAssignableFrom(String.class)) {
+            return EventAttributesHelper::parseString;
+        } else if (dataType.isAssignableFrom(Map.class)) {
+            return EventAttributesHelper::parseMap;
+        } else if (dataType.isAssignableFrom(double.class) || dataType.isAssignableFrom(Double.class)) {
+            return EventAttributesHelper::parseDouble;
+        } else if (dataType.isAssignableFrom(long.class) || dataType.isAssignableFrom(Long.class)) {
+            return EventAttributesHelper::parseLong;
+        } else if (dataType.isAssignableFrom(int.class) || dataType.isAssignableFrom(Integer.class)) {
+            return EventAttributesHelper::parseInteger;
+        }
+
+        final Constructor<?> constructor;
+        try {
+            constructor = dataType.getConstructor(String.class);
+        } catch (NoSuchMethodException e) {
+            return value -> {
+                throw e;
+            };
+        }
+
+        // Asterisk sometimes uses yes/no instead of True/False for boolean.  java.lang.Boolean(String) doesn't handle this.
+        if (dataType.isAssignableFrom(Boolean.class)) {
+            return value -> constructor.newInstance(AstUtil.convertAsteriskBooleanStringToStandardBooleanString((String) value));
+        }
+        return constructor::newInstance;
+    }
+
+    private static Integer parseInteger(Object rawValue) {
         Integer value;
-        String stringValue = (String) entry.getValue();
+        String stringValue = (String) rawValue;
         if (stringValue != null && stringValue.length() > 0) {
             value = Integer.parseInt(stringValue);
         } else {
@@ -158,13 +217,13 @@ public class EventAttributesHelper {
     }
 
     @SuppressWarnings("unchecked")
-    private static Map<String, String> parseMap(Map.Entry<String, Object> entry) {
+    private static Map<String, String> parseMap(Object rawValue) {
         Map<String, String> value;
-        if (entry.getValue() instanceof List) {
-            List<String> list = (List<String>) entry.getValue();
+        if (rawValue instanceof List) {
+            List<String> list = (List<String>) rawValue;
             value = buildMap(list.toArray(new String[list.size()]));
-        } else if (entry.getValue() instanceof String) {
-            value = buildMap((String) entry.getValue());
+        } else if (rawValue instanceof String) {
+            value = buildMap((String) rawValue);
         } else {
             value = null;
         }
@@ -172,9 +231,9 @@ public class EventAttributesHelper {
     }
 
     @SuppressWarnings("unchecked")
-    private static Object parseString(Map.Entry<String, Object> entry) {
+    private static Object parseString(Object rawValue) {
         Object value;
-        value = entry.getValue();
+        value = rawValue;
         if (AstUtil.isNull(value)) {
 
             value = null;
@@ -191,9 +250,9 @@ public class EventAttributesHelper {
         return value;
     }
 
-    private static Double parseDouble(Map.Entry<String, Object> entry) {
+    private static Double parseDouble(Object rawValue) {
         Double value;
-        String stringValue = (String) entry.getValue();
+        String stringValue = (String) rawValue;
         if (stringValue != null && stringValue.length() > 0) {
             value = Double.parseDouble(stringValue);
         } else {
@@ -202,9 +261,9 @@ public class EventAttributesHelper {
         return value;
     }
 
-    private static Long parseLong(Map.Entry<String, Object> entry) {
+    private static Long parseLong(Object rawValue) {
         Long value;
-        String stringValue = (String) entry.getValue();
+        String stringValue = (String) rawValue;
         if (stringValue != null && stringValue.length() > 0) {
             value = Long.parseLong(stringValue);
         } else {
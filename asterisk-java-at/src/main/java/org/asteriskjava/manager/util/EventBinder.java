@@ -0,0 +1,245 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.manager.util;
+
+import org.asteriskjava.manager.util.EventAttributesHelper.AttributeConverter;
+import org.asteriskjava.util.ReflectionUtil;
+import org.slf4j.Logger;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Precompiled, reflection-free binder that creates an event and populates it
+ * from a map of attributes.
+ * <p>
+ * For every setter of the bound class a lambda is spun via
+ * {@link LambdaMetafactory} and paired with a converter that is selected once
+ * based on the setter's parameter type. Attribute keys are resolved to setters
+ * the first time they are seen and cached afterwards, so building an event
+ * costs one map lookup and one direct call per attribute. Keys without a
+ * setter are not cached, they are chosen by Asterisk (for example the headers
+ * of UserEvents) and would let the cache grow without bound.
+ * <p>
+ * Binders are only compiled for classes that are visible to the class loader
+ * of Asterisk-Java (the built-in events). Event classes registered by client
+ * code keep using {@link EventAttributesHelper}.
+ * <p>
+ * Client code is not supposed to use this class.
+ *
+ * @param <T> the type of the bound class
+ */
+public final class EventBinder<T> {
+    private static final Logger logger = getLogger(EventBinder.class);
+
+    private static final MethodType SETTER_SAM_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType FACTORY_SAM_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<EventBinder<?>> binders = new ClassValue<EventBinder<?>>() {
+        @Override
+        protected EventBinder<?> computeValue(Class<?> type) {
+            try {
+                return compile(type);
+            } catch (Throwable e) {
+                logger.warn("Unable to compile binder for " + type.getName() + ", falling back to reflection", e);
+                return null;
+            }
+        }
+    };
+
+    private final Class<T> targetClass;
+    private final Function<Object, Object> factory;
+    private final Map<String, PropertyBinder> propertiesBySetterName;
+    private final Map<String, PropertyBinder> propertiesByKey = new ConcurrentHashMap<>();
+
+    private EventBinder(Class<T> targetClass, Function<Object, Object> factory,
+                        Map<String, PropertyBinder> propertiesBySetterName) {
+        this.targetClass = targetClass;
+        this.factory = factory;
+        this.propertiesBySetterName = propertiesBySetterName;
+    }
+
+    /**
+     * Returns the binder for the given class, compiling it on first use.
+     *
+     * @param clazz the class to bind, must have a public constructor taking
+     *              the event source
+     * @return the binder or <code>null</code> if no binder could be compiled
+     * for the class, in this case reflection must be used.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EventBinder<T> forClass(Class<T> clazz) {
+        return (EventBinder<T>) binders.get(clazz);
+    }
+
+    public Class<T> getTargetClass() {
+        return targetClass;
+    }
+
+    /**
+     * Creates a new instance of the bound class.
+     *
+     * @param source the source of the event
+     * @return the new instance
+     */
+    public T newInstance(Object source) {
+        return targetClass.cast(factory.apply(source));
+    }
+
+    /**
+     * Sets the attributes on the target, the same way
+     * {@link EventAttributesHelper#setAttributes(Object, Map, Set)} does.
+     *
+     * @param target            the object to populate
+     * @param attributes        attributes as received from Asterisk
+     * @param ignoredAttributes keys to skip, may be <code>null</code>
+     */
+    public void setAttributes(T target, Map<String, Object> attributes, Set<String> ignoredAttributes) {
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            final String key = entry.getKey();
+            final PropertyBinder property;
+            final Object value;
+
+            if (ignoredAttributes != null && ignoredAttributes.contains(key)) {
+                continue;
+            }
+
+            property = resolve(key);
+            if (property == null) {
+                EventAttributesHelper.handleMissingSetter(target, entry, attributes);
+                continue;
+            }
+
+            try {
+                value = property.converter.convert(entry.getValue());
+            } catch (Exception e) {
+                EventAttributesHelper.logConversionFailure(target, entry, property.dataType, e);
+                continue;
+            }
+
+            try {
+                property.setter.accept(target, value);
+            } catch (Exception e) {
+                logger.error("Unable to set property '" + key + "' to '" + entry.getValue() + "' on "
+                    + targetClass.getName() + " " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of attribute keys resolved to a setter so far.
+     */
+    int getResolvedKeyCount() {
+        return propertiesByKey.size();
+    }
+
+    /**
+     * Returns the property to set for an attribute key.
+     *
+     * @return the property or <code>null</code> if there is no setter.
+     */
+    private PropertyBinder resolve(String key) {
+        PropertyBinder property = propertiesByKey.get(key);
+        if (property == null) {
+            final String setterName = EventAttributesHelper.toSetterName(key);
+
+            property = propertiesBySetterName.get(setterName);
+            if (property == null && !setterName.endsWith("s")) {
+                // same plural rule as EventAttributesHelper.findSetter(), only for maps
+                property = propertiesBySetterName.get(setterName + "s");
+                if (property != null && !property.dataType.isAssignableFrom(Map.class)) {
+                    property = null;
+                }
+            }
+            if (property != null) {
+                propertiesByKey.put(key, property);
+            }
+        }
+        return property;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> EventBinder<T> compile(Class<T> clazz) throws Throwable {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final Constructor<T> constructor = clazz.getConstructor(Object.class);
+        final Map<String, PropertyBinder> properties = new HashMap<>();
+
+        final CallSite factorySite = LambdaMetafactory.metafactory(lookup, "apply",
+            MethodType.methodType(Function.class), FACTORY_SAM_TYPE, lookup.unreflectConstructor(constructor),
+            MethodType.methodType(clazz, Object.class));
+        final Function<Object, Object> factory = (Function<Object, Object>) factorySite.getTarget().invoke();
+
+        for (Map.Entry<String, Method> entry : ReflectionUtil.getSetters(clazz).entrySet()) {
+            final Method setter = entry.getValue();
+            final Class<?> dataType = setter.getParameterTypes()[0];
+
+            properties.put(entry.getKey(),
+                new PropertyBinder(compileSetter(lookup, setter), EventAttributesHelper.converterFor(dataType), dataType));
+        }
+
+        logger.debug("Compiled binder for " + clazz.getName() + " with " + properties.size() + " setters");
+        return new EventBinder<>(clazz, factory, properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compileSetter(MethodHandles.Lookup lookup, Method setter) {
+        try {
+            final MethodHandle handle = lookup.unreflect(setter);
+            final Class<?> dataType = setter.getParameterTypes()[0];
+            final MethodType instantiatedType = MethodType.methodType(void.class, setter.getDeclaringClass(),
+                MethodType.methodType(dataType).wrap().returnType());
+
+            final CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class), SETTER_SAM_TYPE, handle, instantiatedType);
+            return (BiConsumer<Object, Object>) site.getTarget().invoke();
+        } catch (Throwable e) {
+            // e.g. public setter declared in a non public super class
+            logger.debug("Using reflection for " + setter + ": " + e.getMessage());
+            return (target, value) -> {
+                try {
+                    setter.invoke(target, value);
+                } catch (ReflectiveOperationException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            };
+        }
+    }
+
+    private static final class PropertyBinder {
+        private final BiConsumer<Object, Object> setter;
+        private final AttributeConverter converter;
+        private final Class<?> dataType;
+
+        private PropertyBinder(BiConsumer<Object, Object> setter, AttributeConverter converter, Class<?> dataType) {
+            this.setter = setter;
+            this.converter = converter;
+            this.dataType = dataType;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.asteriskjava.pbx;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -160,6 +161,16 @@ public interface Channel {
 
     boolean isQuiescent();
 
+    /**
+     * Returns a future that is completed with this channel as soon as the
+     * channel is quiescent, i.e. once the rename or masquerade events that end
+     * its current transition have been processed. The future is completed from
+     * the event dispatch thread so dependent stages must not block.
+     *
+     * @return a future, already completed if the channel is quiescent.
+     */
+    CompletableFuture<Channel> awaitQuiescent();
+
     boolean hasCallerID();
 
     AgiChannelActivityAction getCurrentActivityAction();
@@ -174,6 +185,14 @@ public interface Channel {
 
     boolean waitForChannelToReachAgi(long timeout, TimeUnit timeunit) throws InterruptedException;
 
+    /**
+     * Returns a future that is completed with this channel when the channel
+     * arrives in the AGI.
+     *
+     * @return a future, already completed if the channel has reached the AGI.
+     */
+    CompletableFuture<Channel> awaitInAgi();
+
     void setCallerId(CallerID buildCallerID);
 
     /**
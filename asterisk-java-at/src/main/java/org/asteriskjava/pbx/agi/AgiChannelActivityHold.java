@@ -8,6 +8,7 @@ import org.asteriskjava.pbx.Channel;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -16,12 +17,14 @@ public class AgiChannelActivityHold implements AgiChannelActivityAction {
 
     CountDownLatch latch = new CountDownLatch(1);
     volatile boolean callReachedAgi = false;
+    private final CompletableFuture<Channel> reachedAgi = new CompletableFuture<>();
     long timer = System.currentTimeMillis();
 
     @Override
     public void execute(AgiChannel channel, Channel ichannel) throws AgiException, InterruptedException {
         try {
             callReachedAgi = true;
+            reachedAgi.complete(ichannel);
             channel.answer();
             channel.playMusicOnHold();
             long secondsOnHold = Math.abs(System.currentTimeMillis() - timer) / 1000;
@@ -63,4 +66,12 @@ public class AgiChannelActivityHold implements AgiChannelActivityAction {
     public boolean hasCallReachedAgi() {
         return callReachedAgi;
     }
+
+    /**
+     * Returns a future that is completed with the channel once this action is
+     * executed by the AGI.
+     */
+    public CompletableFuture<Channel> awaitCallReachedAgi() {
+        return reachedAgi;
+    }
 }
@@ -0,0 +1,263 @@
+package org.asteriskjava.pbx.internal.activity;
+
+import org.asteriskjava.util.DaemonThreadFactory;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs activities on a shared executor rather than on a thread of their own.
+ * <p>
+ * At most maxConcurrent top level activities run at the same time, the others
+ * are queued in the order they have been submitted. The default executor is a
+ * cached pool of daemon threads, so a burst of activities reuses the threads
+ * of activities that have finished. On a JVM with virtual threads an executor
+ * that starts a virtual thread per task can be installed with
+ * {@link #setInstance(ActivityExecutor)}.
+ * <p>
+ * A task submitted while another task is running on the same thread becomes
+ * a child of that task. Children do not count against maxConcurrent, as their
+ * parent already does and usually waits for them. Their deadline is never
+ * later than the one of the parent and they are cancelled when the parent is
+ * cancelled, times out or fails. A parent that completes normally leaves its
+ * children running, as activities are also started from the callbacks of the
+ * activity that has just finished. Cancelling a running task interrupts its
+ * thread.
+ */
+public final class ActivityExecutor {
+    private static final Log logger = LogFactory.getLog(ActivityExecutor.class);
+
+    /**
+     * The number of top level activities that may run at the same time.
+     */
+    static final int MAX_CONCURRENT = Integer.getInteger("org.asteriskjava.pbx.activity.maxConcurrent", 200);
+
+    private static final ThreadLocal<ActivityTask<?>> CURRENT = new ThreadLocal<>();
+
+    private static volatile ActivityExecutor instance;
+
+    private final Executor executor;
+    private final int maxConcurrent;
+    private final Queue<ActivityTask<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final ScheduledThreadPoolExecutor timer;
+
+    /**
+     * @param executor      runs the activities, it must not queue tasks
+     *                      itself as the children of running activities are
+     *                      handed to it directly.
+     * @param maxConcurrent the number of top level activities that may run at
+     *                      the same time.
+     */
+    public ActivityExecutor(Executor executor, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.timer = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static ActivityExecutor getInstance() {
+        ActivityExecutor result = instance;
+        if (result == null) {
+            synchronized (ActivityExecutor.class) {
+                result = instance;
+                if (result == null) {
+                    result = new ActivityExecutor(Executors.newCachedThreadPool(new DaemonThreadFactory()),
+                            MAX_CONCURRENT);
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the executor activities are started on. Activities that have
+     * already been submitted keep running on the former one.
+     *
+     * @param executor the executor to use from now on.
+     */
+    public static void setInstance(ActivityExecutor executor) {
+        instance = executor;
+    }
+
+    /**
+     * Submits a task without a timeout of its own.
+     *
+     * @see #submit(String, Callable, long, TimeUnit)
+     */
+    public <T> CompletableFuture<T> submit(String name, Callable<T> task) {
+        return submit(name, task, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Submits a task.
+     *
+     * @param name    the name of the thread while it runs the task.
+     * @param task    the task to run.
+     * @param timeout how long the task may take from now on, 0 for no limit.
+     *                The task is cancelled once it is exceeded.
+     * @param unit    the unit of the timeout.
+     * @return a future that is completed with the result of the task. It is
+     * completed exceptionally with a TimeoutException if the task took too
+     * long. Cancelling it interrupts the task and cancels its children.
+     */
+    public <T> CompletableFuture<T> submit(String name, Callable<T> task, long timeout, TimeUnit unit) {
+        final ActivityTask<?> parent = CURRENT.get();
+        long deadline = timeout > 0 ? System.nanoTime() + unit.toNanos(timeout) : Long.MAX_VALUE;
+        if (parent != null && parent.deadline != Long.MAX_VALUE
+                && (deadline == Long.MAX_VALUE || parent.deadline - deadline < 0)) {
+            deadline = parent.deadline;
+        }
+
+        final ActivityTask<T> activity = new ActivityTask<>(name, task, parent, deadline);
+        if (deadline != Long.MAX_VALUE) {
+            final long delay = deadline - System.nanoTime();
+            activity.timeout = timer.schedule(() -> activity.completeExceptionally(
+                    new TimeoutException("Activity " + name + " timed out")), delay, TimeUnit.NANOSECONDS);
+        }
+
+        if (parent != null) {
+            parent.children.add(activity);
+            if (parent.isDone()) {
+                activity.cancel(true);
+            } else {
+                execute(activity, false);
+            }
+        } else {
+            pending.add(activity);
+            drain();
+        }
+        return activity;
+    }
+
+    /**
+     * Returns the number of top level activities that are running.
+     */
+    int getRunning() {
+        return running.get();
+    }
+
+    private void drain() {
+        while (!pending.isEmpty()) {
+            final int current = running.get();
+            if (current >= maxConcurrent) {
+                return;
+            }
+            if (!running.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            final ActivityTask<?> activity = pending.poll();
+            if (activity == null || activity.isDone()) {
+                running.decrementAndGet();
+            } else {
+                execute(activity, true);
+            }
+        }
+    }
+
+    private void execute(ActivityTask<?> activity, boolean topLevel) {
+        try {
+            executor.execute(() -> {
+                try {
+                    activity.run();
+                } finally {
+                    if (topLevel) {
+                        running.decrementAndGet();
+                        drain();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("Unable to start activity " + activity.name, e);
+            activity.completeExceptionally(e);
+            if (topLevel) {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class ActivityTask<T> extends CompletableFuture<T> implements Runnable {
+        private final String name;
+        private final Callable<T> task;
+        private final long deadline;
+        private final Queue<ActivityTask<?>> children = new ConcurrentLinkedQueue<>();
+        private Thread runner;
+        private volatile ScheduledFuture<?> timeout;
+
+        ActivityTask(String name, Callable<T> task, ActivityTask<?> parent, long deadline) {
+            this.name = name;
+            this.task = task;
+            this.deadline = deadline;
+            whenComplete((result, e) -> {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                if (parent != null) {
+                    parent.children.remove(this);
+                }
+                if (e != null) {
+                    ActivityTask<?> child;
+                    while ((child = children.poll()) != null) {
+                        child.cancel(true);
+                    }
+                    interrupt();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            final Thread thread = Thread.currentThread();
+            synchronized (this) {
+                if (isDone()) {
+                    return;
+                }
+                runner = thread;
+            }
+
+            final String threadName = thread.getName();
+            final ActivityTask<?> previous = CURRENT.get();
+            thread.setName(name);
+            CURRENT.set(this);
+            try {
+                complete(task.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+                synchronized (this) {
+                    runner = null;
+                    // a late cancellation must not interrupt the next task
+                    Thread.interrupted();
+                }
+                thread.setName(threadName);
+            }
+        }
+
+        private synchronized void interrupt() {
+            if (runner != null && runner != Thread.currentThread()) {
+                runner.interrupt();
+            }
+        }
+    }
+}
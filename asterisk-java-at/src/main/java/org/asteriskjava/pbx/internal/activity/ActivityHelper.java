@@ -12,6 +12,7 @@ import org.asteriskjava.util.LogFactory;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class ActivityHelper<T extends Activity> extends Lockable implements Runnable, Activity {
     private static final Log logger = LogFactory.getLog(ActivityHelper.class);
@@ -35,6 +36,8 @@ public abstract class ActivityHelper<T extends Activity> extends Lockable implem
 
     Exception callSite = new Exception("Invoked from here");
 
+    private volatile CompletableFuture<T> completion;
+
     public ActivityHelper(final String activityName, final ActivityCallback<T> callback) {
 
         this.callback = callback;
@@ -81,10 +84,24 @@ public abstract class ActivityHelper<T extends Activity> extends Lockable implem
             this.callback.progress((T) this, ActivityStatusEnum.START, ActivityStatusEnum.START.getDefaultMessage());
         }
 
-        final Thread thread = new Thread(this, this.activityName);
-        thread.setDaemon(true);
-        thread.start();
+        this.completion = ActivityExecutor.getInstance().submit(this.activityName, () -> {
+            this.run();
+            return (T) this;
+        });
+
+    }
 
+    /**
+     * Returns a future that is completed with this activity once it has
+     * finished, after the callback has been told about the outcome. Use
+     * isSuccess() to check the outcome. Cancelling the future interrupts the
+     * activity.
+     *
+     * @return the future or <code>null</code> if the activity has not been
+     * started.
+     */
+    public CompletableFuture<T> getCompletion() {
+        return this.completion;
     }
 
     @Override
@@ -13,6 +13,8 @@ import org.asteriskjava.util.LogFactory;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The SplitActivity is used by the AsteriksPBX to split a call and place the
@@ -153,14 +155,10 @@ public class RedirectToActivityImpl extends ActivityHelper<RedirectToActivity> i
 
                 // final ManagerResponse response =
                 pbx.sendAction(redirect, 1000);
-                double ctr = 0;
-                while (!agi1.hasCallReachedAgi() && ctr < 10) {
-                    Thread.sleep(100);
-                    ctr += 100.0 / 1000.0;
-                    if (!agi1.hasCallReachedAgi()) {
-                        logger.warn("Waiting on (agi1) " + channel1);
-                    }
-
+                try {
+                    agi1.awaitCallReachedAgi().get(10, TimeUnit.SECONDS);
+                } catch (final TimeoutException e) {
+                    logger.warn("Waiting on (agi1) " + channel1);
                 }
                 ret = agi1.hasCallReachedAgi();
 
@@ -16,8 +16,10 @@ import org.asteriskjava.util.LogFactory;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -233,10 +235,10 @@ public class SplitActivityImpl extends ActivityHelper<SplitActivity> implements
                             + " cannot be split as they are still in transition.");
                 }
 
-                double ctr = 0;
-                while ((!agi1.hasCallReachedAgi() || !agi2.hasCallReachedAgi()) && ctr < 10) {
-                    Thread.sleep(100);
-                    ctr += 100.0 / 1000.0;
+                try {
+                    CompletableFuture.allOf(agi1.awaitCallReachedAgi(), agi2.awaitCallReachedAgi()).get(10,
+                            TimeUnit.SECONDS);
+                } catch (final TimeoutException e) {
                     if (!agi1.hasCallReachedAgi()) {
                         logger.info("Waiting on (agi1) " + channel1);
                     }
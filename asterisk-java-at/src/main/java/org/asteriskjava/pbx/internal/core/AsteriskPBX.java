@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public enum AsteriskPBX implements PBX, ChannelHangupListener {
@@ -616,35 +618,44 @@ public enum AsteriskPBX implements PBX, ChannelHangupListener {
      */
     @Override
     public boolean waitForChannelsToQuiescent(List<Channel> channels, long timeout) {
-        long elapsed = 0;
-        while (elapsed < timeout && !channelsAreQuiesent(channels)) {
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                logger.error(e, e);
+        final CompletableFuture<?>[] waiters = new CompletableFuture<?>[channels.size()];
+        int i = 0;
+        for (Channel channel : channels) {
+            waiters[i++] = channel.awaitQuiescent();
+        }
+        final CompletableFuture<Void> quiescent = CompletableFuture.allOf(waiters);
+        if (quiescent.isDone()) {
+            return true;
+        }
+
+        logger.info("Waiting for channels to Quiescent");
+        final long start = System.currentTimeMillis();
+        boolean ret = false;
+        try {
+            quiescent.get(timeout, TimeUnit.MILLISECONDS);
+            ret = true;
+        } catch (InterruptedException e) {
+            logger.error(e, e);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | java.util.concurrent.TimeoutException e) {
+            // reported below
+        } finally {
+            for (CompletableFuture<?> waiter : waiters) {
+                waiter.cancel(false);
             }
-            logger.info("Waiting for channesl to Quiescent");
-            elapsed += 200;
         }
 
+        final long elapsed = System.currentTimeMillis() - start;
         if (elapsed > timeout / 2) {
             logger.warn("Took " + elapsed + "ms for channels to Quiescent");
         }
-        if (elapsed >= timeout) {
+        if (!ret) {
             logger.error("Channels didn't Quiescent");
             for (Channel channel : channels) {
                 logger.error(channel);
             }
 
         }
-        return timeout > elapsed;
-    }
-
-    private boolean channelsAreQuiesent(List<Channel> channels) {
-        boolean ret = true;
-        for (Channel channel : channels) {
-            ret &= channel.isQuiescent();
-        }
         return ret;
     }
 
@@ -666,9 +677,10 @@ public enum AsteriskPBX implements PBX, ChannelHangupListener {
                 final ManagerResponse response = sendAction(redirect, 1000);
                 if ((response != null) && (response.getResponse().compareToIgnoreCase("success") == 0))//$NON-NLS-1$
                 {
-                    int limit = 50;
-                    while (!channel.isInAgi() && limit-- > 0) {
-                        Thread.sleep(100);
+                    try {
+                        channel.awaitInAgi().get(5, TimeUnit.SECONDS);
+                    } catch (final java.util.concurrent.TimeoutException e) {
+                        // reported below
                     }
                     isInAgi = channel.isInAgi();
                     if (!isInAgi) {
@@ -4,6 +4,7 @@ import org.asteriskjava.pbx.*;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -293,7 +294,7 @@ public class ChannelImpl implements Channel {
      * @return
      */
     private String cleanChannelName(final String name) {
-        String cleanedName = name.trim().toUpperCase();
+        final String upperName = name.trim().toUpperCase();
 
         // If if the channel is the console
         this._isConsole = false;
@@ -306,10 +307,9 @@ public class ChannelImpl implements Channel {
         boolean wasInAction = this._isInAction;
         this._isInAction = false;
         for (final String prefix : ChannelImpl._actions) {
-            if (cleanedName.startsWith(prefix)) {
+            if (upperName.startsWith(prefix)) {
                 this._isInAction = true;
-                this._actionPrefix = cleanedName.substring(0, prefix.length() - 1);
-                cleanedName = cleanedName.substring(prefix.length());
+                this._actionPrefix = upperName.substring(0, prefix.length() - 1);
                 break;
             }
         }
@@ -322,24 +322,44 @@ public class ChannelImpl implements Channel {
         // so we need to strip of the zombie suffix and just mark the channel
         // as a
         // zombie.
-        this._isZombie = false;
-        if (cleanedName.contains(ChannelImpl.ZOMBIE)) {
-            this._isZombie = true;
-            cleanedName = cleanedName.substring(0, cleanedName.indexOf(ChannelImpl.ZOMBIE));
-        }
+        final int zombieIndex = upperName.indexOf(ChannelImpl.ZOMBIE);
+        this._isZombie = zombieIndex >= 0;
 
         // Channels can be marked as in a MASQ state
         // This happens during transfers (and other times) when the channel is
         // replaced
         // by a new channel in the call. The old channel is renamed with the
         // word
-        // <MASQ> added as a suffix.
-        this._isMasqueraded = false;
+        // <MASQ> added as a suffix. Anything after the zombie suffix has
+        // already been stripped with it.
+        this._isMasqueraded = (this._isZombie ? upperName.substring(0, zombieIndex) : upperName)
+                .contains(ChannelImpl.MASQ);
+
+        return baseChannelName(name);
+    }
+
+    /**
+     * Strips an extended channel name down to the channel name a channel
+     * would keep for it, without touching any state. cleanChannelName uses it
+     * as well, so the channel's name and the key it is indexed by match.
+     *
+     * @param extendedChannelName e.g. PARKED/SIP/100-000009823&lt;MASQ&gt;
+     * @return the channel name e.g. SIP/100-000009823
+     */
+    static String baseChannelName(final String extendedChannelName) {
+        String cleanedName = extendedChannelName.trim().toUpperCase();
+        for (final String prefix : ChannelImpl._actions) {
+            if (cleanedName.startsWith(prefix)) {
+                cleanedName = cleanedName.substring(prefix.length());
+                break;
+            }
+        }
+        if (cleanedName.contains(ChannelImpl.ZOMBIE)) {
+            cleanedName = cleanedName.substring(0, cleanedName.indexOf(ChannelImpl.ZOMBIE));
+        }
         if (cleanedName.contains(ChannelImpl.MASQ)) {
-            this._isMasqueraded = true;
             cleanedName = cleanedName.substring(0, cleanedName.indexOf(ChannelImpl.MASQ));
         }
-
         return cleanedName;
     }
 
@@ -783,4 +803,14 @@ public class ChannelImpl implements Channel {
         throw new RuntimeException("This method is only implemented in ChannelProxy");
     }
 
+    @Override
+    public CompletableFuture<Channel> awaitQuiescent() {
+        throw new RuntimeException("This method is only implemented in ChannelProxy");
+    }
+
+    @Override
+    public CompletableFuture<Channel> awaitInAgi() {
+        throw new RuntimeException("This method is only implemented in ChannelProxy");
+    }
+
 }
@@ -6,9 +6,13 @@ import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -162,6 +166,7 @@ public class ChannelProxy implements Channel, ChannelHangupListener {
     @Override
     public void rename(String newName, String uniqueId) throws InvalidChannelName {
         this._channel.rename(newName, uniqueId);
+        this.completeQuiescentWaiters();
     }
 
     @Override
@@ -195,6 +200,9 @@ public class ChannelProxy implements Channel, ChannelHangupListener {
         cloneProxy._channel.addHangupListener(cloneProxy);
 
         logger.debug(originalChannel + " Channel proxy now points to " + this._channel);
+
+        this.completeQuiescentWaiters();
+        cloneProxy.completeQuiescentWaiters();
     }
 
     public ChannelImpl getRealChannel() {
@@ -314,7 +322,7 @@ public class ChannelProxy implements Channel, ChannelHangupListener {
     @Override
     public void setIsInAgi(boolean b) {
         if (b) {
-            hasReachedAgi.countDown();
+            hasReachedAgi.complete(this);
         }
         isInAgi = b;
         logger.info("Setting is in agi to " + b + " for channel " + this);
@@ -326,16 +334,59 @@ public class ChannelProxy implements Channel, ChannelHangupListener {
         return isInAgi;
     }
 
-    final CountDownLatch hasReachedAgi = new CountDownLatch(1);
+    final CompletableFuture<Channel> hasReachedAgi = new CompletableFuture<>();
 
     @Override
     public boolean waitForChannelToReachAgi(long timeout, TimeUnit timeunit) throws InterruptedException {
         logger.info("Waiting for channel to reach agi " + this);
-        boolean tmp = hasReachedAgi.await(timeout, timeunit);
+        boolean tmp;
+        try {
+            hasReachedAgi.get(timeout, timeunit);
+            tmp = true;
+        } catch (ExecutionException | TimeoutException e) {
+            tmp = false;
+        }
         logger.info("Result of waiting for channel to reach agi " + this + " " + tmp);
         return tmp;
     }
 
+    @Override
+    public CompletableFuture<Channel> awaitInAgi() {
+        // a dependent future so that callers cannot complete the shared one
+        return hasReachedAgi.thenApply(channel -> channel);
+    }
+
+    /**
+     * The futures returned by awaitQuiescent() that are waiting for the
+     * channel to finish its transition. The proxy is only renamed and
+     * masqueraded by the LiveChannelManager so that is where they are
+     * completed.
+     */
+    private final Queue<CompletableFuture<Channel>> quiescentWaiters = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public CompletableFuture<Channel> awaitQuiescent() {
+        if (isQuiescent()) {
+            return CompletableFuture.completedFuture(this);
+        }
+        final CompletableFuture<Channel> waiter = new CompletableFuture<>();
+        quiescentWaiters.add(waiter);
+        // a waiter that is given up on must not stay queued
+        waiter.whenComplete((channel, e) -> quiescentWaiters.remove(waiter));
+        // the channel may have settled before the waiter was queued
+        completeQuiescentWaiters();
+        return waiter;
+    }
+
+    private void completeQuiescentWaiters() {
+        if (!quiescentWaiters.isEmpty() && isQuiescent()) {
+            CompletableFuture<Channel> waiter;
+            while ((waiter = quiescentWaiters.poll()) != null) {
+                waiter.complete(this);
+            }
+        }
+    }
+
     @Override
     public String getUniqueId() {
         return _channel.getUniqueId();
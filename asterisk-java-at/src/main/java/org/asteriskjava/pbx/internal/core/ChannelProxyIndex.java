@@ -0,0 +1,199 @@
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.pbx.EndPoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * The live channel proxies of the {@link LiveChannelManager}, indexed by
+ * unique id, channel name, end point and proxy identity.
+ * <p>
+ * The indexes only narrow down the candidates, each lookup still applies the
+ * predicate the former linear scan used and returns the matching proxy that
+ * was added first, so the results do not change.
+ * <p>
+ * Lookups do not lock. Changes have to be serialised by the caller and a
+ * proxy has to be re-indexed whenever its channel is renamed or swapped by a
+ * masquerade.
+ */
+final class ChannelProxyIndex {
+    private final ConcurrentMap<ChannelProxy, Keys> proxies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<ChannelProxy>> byUniqueId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<ChannelProxy>> byName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, List<ChannelProxy>> byEndPoint = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ChannelProxy> byIdentity = new ConcurrentHashMap<>();
+    private long nextOrder;
+
+    void add(ChannelProxy proxy) {
+        final Keys keys = new Keys(proxy, nextOrder++);
+        if (proxies.putIfAbsent(proxy, keys) == null) {
+            index(proxy, keys);
+            byIdentity.put(String.valueOf(proxy.getIdentity()), proxy);
+        }
+    }
+
+    boolean remove(ChannelProxy proxy) {
+        final Keys keys = proxies.remove(proxy);
+        if (keys == null) {
+            return false;
+        }
+        unindex(proxy, keys);
+        byIdentity.remove(String.valueOf(proxy.getIdentity()), proxy);
+        return true;
+    }
+
+    /**
+     * Updates the indexes after the name or unique id of the channel behind
+     * the proxy has changed. The proxy keeps its position.
+     */
+    void reindex(ChannelProxy proxy) {
+        final Keys oldKeys = proxies.get(proxy);
+        if (oldKeys == null) {
+            return;
+        }
+        final Keys newKeys = new Keys(proxy, oldKeys.order);
+        proxies.put(proxy, newKeys);
+        unindex(proxy, oldKeys);
+        index(proxy, newKeys);
+    }
+
+    /**
+     * Returns the first proxy with the given unique id that satisfies the
+     * predicate.
+     */
+    ChannelProxy findByUniqueId(String uniqueId, Predicate<ChannelProxy> predicate) {
+        return first(predicate, candidates(byUniqueId, uniqueIdKey(uniqueId)));
+    }
+
+    /**
+     * Returns the first proxy whose channel has the name of the given extended
+     * channel name and that satisfies the predicate.
+     */
+    ChannelProxy findByExtendedName(String extendedChannelName, Predicate<ChannelProxy> predicate) {
+        if (extendedChannelName == null) {
+            return null;
+        }
+        return first(predicate, candidates(byName, ChannelImpl.baseChannelName(extendedChannelName)));
+    }
+
+    /**
+     * Returns the first proxy that has the unique id or the channel name of
+     * the given channel and that satisfies the predicate.
+     */
+    ChannelProxy findBySameChannel(ChannelImpl channel, Predicate<ChannelProxy> predicate) {
+        return first(predicate, candidates(byUniqueId, uniqueIdKey(channel.getUniqueId())),
+                candidates(byName, channel.getChannelName()));
+    }
+
+    ChannelProxy findByEndPoint(EndPoint endPoint, Predicate<ChannelProxy> predicate) {
+        return first(predicate, candidates(byEndPoint, endPoint.getFullyQualifiedName()));
+    }
+
+    ChannelProxy findByIdentity(String identity) {
+        return identity == null ? null : byIdentity.get(identity);
+    }
+
+    /**
+     * Returns all proxies in the order they have been added.
+     */
+    List<ChannelProxy> getAll() {
+        final List<Map.Entry<ChannelProxy, Keys>> entries = new ArrayList<>(proxies.entrySet());
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().order));
+        final List<ChannelProxy> all = new ArrayList<>(entries.size());
+        for (Map.Entry<ChannelProxy, Keys> entry : entries) {
+            all.add(entry.getKey());
+        }
+        return all;
+    }
+
+    int size() {
+        return proxies.size();
+    }
+
+    @SafeVarargs
+    private final ChannelProxy first(Predicate<ChannelProxy> predicate, List<ChannelProxy>... candidates) {
+        ChannelProxy found = null;
+        long foundOrder = Long.MAX_VALUE;
+        for (List<ChannelProxy> list : candidates) {
+            for (ChannelProxy proxy : list) {
+                final Keys keys = proxies.get(proxy);
+                if (keys != null && keys.order < foundOrder && predicate.test(proxy)) {
+                    found = proxy;
+                    foundOrder = keys.order;
+                }
+            }
+        }
+        return found;
+    }
+
+    private void index(ChannelProxy proxy, Keys keys) {
+        add(byUniqueId, keys.uniqueId, proxy);
+        add(byName, keys.name, proxy);
+        add(byEndPoint, keys.endPoint, proxy);
+    }
+
+    private void unindex(ChannelProxy proxy, Keys keys) {
+        remove(byUniqueId, keys.uniqueId, proxy);
+        remove(byName, keys.name, proxy);
+        remove(byEndPoint, keys.endPoint, proxy);
+    }
+
+    private static String uniqueIdKey(String uniqueId) {
+        if (uniqueId == null || uniqueId.equals(ChannelImpl.UNKNOWN_UNIQUE_ID)) {
+            return null;
+        }
+        return uniqueId.toUpperCase();
+    }
+
+    private static List<ChannelProxy> candidates(ConcurrentMap<String, List<ChannelProxy>> index, String key) {
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        final List<ChannelProxy> list = index.get(key);
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    private static void add(ConcurrentMap<String, List<ChannelProxy>> index, String key, ChannelProxy proxy) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, list) -> {
+            final List<ChannelProxy> updated = list == null ? new CopyOnWriteArrayList<>() : list;
+            updated.add(proxy);
+            return updated;
+        });
+    }
+
+    private static void remove(ConcurrentMap<String, List<ChannelProxy>> index, String key, ChannelProxy proxy) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, list) -> {
+            list.remove(proxy);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private static final class Keys {
+        private final long order;
+        private final String uniqueId;
+        private final String name;
+        private final String endPoint;
+
+        Keys(ChannelProxy proxy, long order) {
+            final ChannelImpl channel = proxy.getRealChannel();
+            this.order = order;
+            this.uniqueId = uniqueIdKey(channel.getUniqueId());
+            this.name = channel.getChannelName();
+            this.endPoint = channel.getEndPoint().getFullyQualifiedName();
+        }
+    }
+}
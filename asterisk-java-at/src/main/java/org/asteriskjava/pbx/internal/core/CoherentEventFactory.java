@@ -1,87 +1,152 @@
 package org.asteriskjava.pbx.internal.core;
 
 import org.asteriskjava.pbx.asterisk.wrap.actions.ManagerAction;
-import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
-import org.asteriskjava.pbx.asterisk.wrap.events.ResponseEvent;
+import org.asteriskjava.pbx.asterisk.wrap.events.*;
 import org.asteriskjava.pbx.asterisk.wrap.response.CommandResponse;
 import org.asteriskjava.pbx.asterisk.wrap.response.ManagerError;
 import org.asteriskjava.pbx.asterisk.wrap.response.ManagerResponse;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
-import org.asteriskjava.util.ReflectionUtil;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
-import java.util.Hashtable;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class maps asterisk-java events to our internal events that use iChannel
  * rather than raw channel names.
+ * <p>
+ * Each wrapper event in <code>org.asteriskjava.pbx.asterisk.wrap.events</code>
+ * is registered below with the asterisk-java event of the same name and its
+ * constructor, so neither a scan of the classpath nor reflection is needed.
+ * A new wrapper event must be added to the list.
  *
  * @author bsutton
  */
-@SuppressWarnings({"unchecked"})
 public class CoherentEventFactory {
     private static final Log logger = LogFactory.getLog(CoherentEventFactory.class);
 
     // Events
-    static Hashtable<Class<org.asteriskjava.manager.event.ManagerEvent>, Class<ManagerEvent>> mapEvents = new Hashtable<>();
+    static final Map<Class<? extends org.asteriskjava.manager.event.ManagerEvent>, Class<? extends ManagerEvent>> mapEvents =
+            new HashMap<>();
 
     // Response
-    static Hashtable<Class<? extends org.asteriskjava.manager.event.ResponseEvent>, Class<? extends ResponseEvent>> mapResponses = new Hashtable<>();
+    static final Map<Class<? extends org.asteriskjava.manager.event.ResponseEvent>, Class<? extends ResponseEvent>> mapResponses =
+            new HashMap<>();
+
+    private static final Map<Class<?>, WrapperFactory<?, ?>> eventFactories = new HashMap<>();
+
+    private static final Map<Class<?>, WrapperFactory<?, ?>> responseFactories = new HashMap<>();
+
+    private static final ClassValue<WrapperFactory<?, ?>> EVENT_FACTORIES = new ClassValue<WrapperFactory<?, ?>>() {
+        @Override
+        protected WrapperFactory<?, ?> computeValue(Class<?> eventClass) {
+            return eventFactories.get(eventClass);
+        }
+    };
+
+    private static final ClassValue<WrapperFactory<?, ?>> RESPONSE_FACTORIES = new ClassValue<WrapperFactory<?, ?>>() {
+        @Override
+        protected WrapperFactory<?, ?> computeValue(Class<?> eventClass) {
+            return responseFactories.get(eventClass);
+        }
+    };
+
+    /**
+     * Creates the wrapper of an asterisk-java event.
+     *
+     * @param <S> the class of the asterisk-java event.
+     * @param <T> the class of the wrapper event.
+     */
+    private interface WrapperFactory<S extends org.asteriskjava.manager.event.ManagerEvent, T extends ManagerEvent> {
+        T create(S event) throws Exception;
+    }
 
     // static initialiser
     static {
+        registerFactories();
+    }
 
-        Set<Class<ManagerEvent>> knownClasses = ReflectionUtil.loadClasses("org.asteriskjava.pbx.asterisk.wrap.events",
-                ManagerEvent.class);
-
-        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        for (Class<?> known : knownClasses) {
-            Class<?> clazz = null;
-            try {
-                clazz = classLoader.loadClass("org.asteriskjava.manager.event" + "." + known.getSimpleName());
-
-                if (!Modifier.isAbstract(clazz.getModifiers())) {
-                    if (known.getConstructor(clazz) != null) {
-                        if (ResponseEvent.class.isAssignableFrom(known)) {
-                            CoherentEventFactory.mapResponses.put(
-                                    (Class<org.asteriskjava.manager.event.ResponseEvent>) clazz,
-                                    (Class<ResponseEvent>) known);
-                            logger.info("Response Event Added " + clazz + " --> " + known);
-
-                        } else {
-                            CoherentEventFactory.mapEvents.put((Class<org.asteriskjava.manager.event.ManagerEvent>) clazz,
-                                    (Class<ManagerEvent>) known);
-                            logger.info("Manager Event Added " + clazz + " --> " + known);
-                        }
-                    } else {
-                        logger.warn("Skipping class " + clazz + " it doesn't have a public constructor with one arg of type "
-                                + known);
-                    }
-                } else {
-                    logger.info("Skipping abstract class " + clazz);
-                }
-            } catch (ClassNotFoundException e) {
-                logger.error(e, e);
-                throw new RuntimeException(e);
-            } catch (NoSuchMethodException e) {
-                logger.error(clazz.getCanonicalName() + " doesn't have an appropriate event constructor");
-            } catch (SecurityException e) {
-                logger.error(e, e);
-            }
-        }
+    // the wrappers of the deprecated LinkEvent and UnlinkEvent stay
+    // registered for pbx listeners that still require them
+    @SuppressWarnings("deprecation")
+    private static void registerFactories() {
+        event(org.asteriskjava.manager.event.AgentCalledEvent.class, AgentCalledEvent.class, AgentCalledEvent::new);
+        event(org.asteriskjava.manager.event.AgentConnectEvent.class, AgentConnectEvent.class, AgentConnectEvent::new);
+        event(org.asteriskjava.manager.event.BlindTransferEvent.class, BlindTransferEvent.class,
+                BlindTransferEvent::new);
+        event(org.asteriskjava.manager.event.BridgeEvent.class, BridgeEvent.class, BridgeEvent::new);
+        event(org.asteriskjava.manager.event.ConfbridgeListCompleteEvent.class, ConfbridgeListCompleteEvent.class,
+                ConfbridgeListCompleteEvent::new);
+        event(org.asteriskjava.manager.event.ConnectEvent.class, ConnectEvent.class, ConnectEvent::new);
+        event(org.asteriskjava.manager.event.DbGetResponseEvent.class, DbGetResponseEvent.class,
+                DbGetResponseEvent::new);
+        event(org.asteriskjava.manager.event.DialBeginEvent.class, DialBeginEvent.class, DialBeginEvent::new);
+        event(org.asteriskjava.manager.event.DialEndEvent.class, DialEndEvent.class, DialEndEvent::new);
+        event(org.asteriskjava.manager.event.DialEvent.class, DialEvent.class, DialEvent::new);
+        event(org.asteriskjava.manager.event.DisconnectEvent.class, DisconnectEvent.class, DisconnectEvent::new);
+        event(org.asteriskjava.manager.event.DndStateEvent.class, DndStateEvent.class, DndStateEvent::new);
+        event(org.asteriskjava.manager.event.ExtensionStatusEvent.class, ExtensionStatusEvent.class,
+                ExtensionStatusEvent::new);
+        event(org.asteriskjava.manager.event.HangupEvent.class, HangupEvent.class, HangupEvent::new);
+        event(org.asteriskjava.manager.event.LinkEvent.class, LinkEvent.class, LinkEvent::new);
+        event(org.asteriskjava.manager.event.MasqueradeEvent.class, MasqueradeEvent.class, MasqueradeEvent::new);
+        event(org.asteriskjava.manager.event.MeetMeJoinEvent.class, MeetMeJoinEvent.class, MeetMeJoinEvent::new);
+        event(org.asteriskjava.manager.event.MeetMeLeaveEvent.class, MeetMeLeaveEvent.class, MeetMeLeaveEvent::new);
+        event(org.asteriskjava.manager.event.NewChannelEvent.class, NewChannelEvent.class, NewChannelEvent::new);
+        event(org.asteriskjava.manager.event.NewExtenEvent.class, NewExtenEvent.class, NewExtenEvent::new);
+        event(org.asteriskjava.manager.event.NewStateEvent.class, NewStateEvent.class, NewStateEvent::new);
+        event(org.asteriskjava.manager.event.ParkedCallEvent.class, ParkedCallEvent.class, ParkedCallEvent::new);
+        event(org.asteriskjava.manager.event.PeerStatusEvent.class, PeerStatusEvent.class, PeerStatusEvent::new);
+        event(org.asteriskjava.manager.event.QueueCallerLeaveEvent.class, QueueCallerLeaveEvent.class,
+                QueueCallerLeaveEvent::new);
+        event(org.asteriskjava.manager.event.ReloadEvent.class, ReloadEvent.class, ReloadEvent::new);
+        event(org.asteriskjava.manager.event.RenameEvent.class, RenameEvent.class, RenameEvent::new);
+        event(org.asteriskjava.manager.event.UnlinkEvent.class, UnlinkEvent.class, UnlinkEvent::new);
+        event(org.asteriskjava.manager.event.UnparkedCallEvent.class, UnparkedCallEvent.class, UnparkedCallEvent::new);
+        event(org.asteriskjava.manager.event.VarSetEvent.class, VarSetEvent.class, VarSetEvent::new);
+
+        response(org.asteriskjava.manager.event.ConfbridgeListEvent.class, ConfbridgeListEvent.class,
+                ConfbridgeListEvent::new);
+        response(org.asteriskjava.manager.event.OriginateResponseEvent.class, OriginateResponseEvent.class,
+                OriginateResponseEvent::new);
+        response(org.asteriskjava.manager.event.PeerEntryEvent.class, PeerEntryEvent.class, PeerEntryEvent::new);
+        response(org.asteriskjava.manager.event.PeerlistCompleteEvent.class, PeerlistCompleteEvent.class,
+                PeerlistCompleteEvent::new);
+        response(org.asteriskjava.manager.event.ResponseEvent.class, ResponseEvent.class, ResponseEvent::new);
+        response(org.asteriskjava.manager.event.StatusCompleteEvent.class, StatusCompleteEvent.class,
+                StatusCompleteEvent::new);
+        response(org.asteriskjava.manager.event.StatusEvent.class, StatusEvent.class, StatusEvent::new);
+    }
 
-        CoherentEventFactory.mapResponses.put(org.asteriskjava.manager.event.ResponseEvent.class, ResponseEvent.class);
+    private static <S extends org.asteriskjava.manager.event.ManagerEvent, T extends ManagerEvent> void event(
+            Class<S> eventClass, Class<T> wrapperClass, WrapperFactory<S, T> factory) {
+        mapEvents.put(eventClass, wrapperClass);
+        eventFactories.put(eventClass, factory);
+    }
 
+    private static <S extends org.asteriskjava.manager.event.ResponseEvent, T extends ResponseEvent> void response(
+            Class<S> eventClass, Class<T> wrapperClass, WrapperFactory<S, T> factory) {
+        mapResponses.put(eventClass, wrapperClass);
+        responseFactories.put(eventClass, factory);
     }
 
     public static Class<? extends ManagerEvent> getShadowEvent(org.asteriskjava.manager.event.ManagerEvent event) {
-        Class<? extends ManagerEvent> result = CoherentEventFactory.mapEvents.get(event.getClass());
+        return getShadowEvent(event.getClass());
+    }
+
+    /**
+     * Returns the class of the shadow event for events of the given class
+     * without the need for an event instance.
+     *
+     * @param eventClass the class of the manager event
+     * @return the class of the shadow event or null if the event is not
+     *         supported.
+     */
+    public static Class<? extends ManagerEvent> getShadowEvent(
+            Class<? extends org.asteriskjava.manager.event.ManagerEvent> eventClass) {
+        Class<? extends ManagerEvent> result = CoherentEventFactory.mapEvents.get(eventClass);
         if (result == null) {
-            Class<? extends ResponseEvent> response = CoherentEventFactory.mapResponses.get(event.getClass());
+            Class<? extends ResponseEvent> response = CoherentEventFactory.mapResponses.get(eventClass);
             result = response;
         }
 
@@ -90,50 +155,33 @@ public class CoherentEventFactory {
     }
 
     public static ManagerEvent build(final org.asteriskjava.manager.event.ManagerEvent event) {
-        ManagerEvent iEvent = null;
-
-        Class<? extends ManagerEvent> target = null;
+        final WrapperFactory<?, ?> factory;
 
         if (event instanceof org.asteriskjava.manager.event.ResponseEvent)
-            target = CoherentEventFactory.mapResponses.get(event.getClass());
+            factory = RESPONSE_FACTORIES.get(event.getClass());
         else
-            target = CoherentEventFactory.mapEvents.get(event.getClass());
-
-        if (target == null) {
-            logger.warn("The given event " + event.getClass().getName() + " is not supported "); //$NON-NLS-1$ //$NON-NLS-2$
-        } else {
-
-            try {
-                iEvent = target.getDeclaredConstructor(event.getClass()).newInstance(event);
-            } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException
-                     | IllegalArgumentException | InvocationTargetException e) {
-                CoherentEventFactory.logger.error(e, e);
+            factory = EVENT_FACTORIES.get(event.getClass());
 
-            }
-        }
-        return iEvent;
+        return create(factory, event);
     }
 
     public static ResponseEvent build(org.asteriskjava.manager.event.ResponseEvent event) {
-        ResponseEvent response = null;
-
-        final Class<? extends ResponseEvent> target = CoherentEventFactory.mapResponses.get(event.getClass());
+        return (ResponseEvent) create(RESPONSE_FACTORIES.get(event.getClass()), event);
+    }
 
-        if (target == null) {
+    @SuppressWarnings("unchecked")
+    private static ManagerEvent create(WrapperFactory<?, ?> factory, org.asteriskjava.manager.event.ManagerEvent event) {
+        if (factory == null) {
             logger.warn("The given event " + event.getClass().getName() + " is not supported "); //$NON-NLS-1$ //$NON-NLS-2$
-        } else {
-
-            try {
-                final Constructor<? extends ResponseEvent> declaredConstructor = target
-                        .getDeclaredConstructor(event.getClass());
-                response = declaredConstructor.newInstance(event);
-            } catch (NoSuchMethodException | SecurityException | InstantiationException | IllegalAccessException
-                     | IllegalArgumentException | InvocationTargetException e) {
-                CoherentEventFactory.logger.error(e, e);
+            return null;
+        }
 
-            }
+        try {
+            return ((WrapperFactory<org.asteriskjava.manager.event.ManagerEvent, ?>) factory).create(event);
+        } catch (Exception e) {
+            CoherentEventFactory.logger.error(e, e);
+            return null;
         }
-        return response;
     }
 
     public static ManagerResponse build(org.asteriskjava.manager.response.ManagerResponse response) {
@@ -1,23 +1,22 @@
 package org.asteriskjava.pbx.internal.core;
 
-import org.asteriskjava.lock.LockableSet;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.ManagerConnection;
-import org.asteriskjava.manager.ManagerEventListener;
-import org.asteriskjava.pbx.asterisk.wrap.events.BridgeEvent;
-import org.asteriskjava.pbx.asterisk.wrap.events.LinkEvent;
+import org.asteriskjava.manager.SelectiveManagerEventListener;
 import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
-import org.asteriskjava.pbx.asterisk.wrap.events.UnlinkEvent;
 import org.asteriskjava.pbx.internal.eventQueue.EventLifeMonitor;
-import org.asteriskjava.pbx.util.LogTime;
+import org.asteriskjava.util.DaemonThreadFactory;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class provides a method of accepting, queueing and delivering manager
@@ -27,10 +26,17 @@ import java.util.concurrent.*;
  * follows: manager.addEventListener(new
  * CoherentManagerEventQueue(originalListener)); This affectively daisy changes
  * the originalListener via our queue.
+ * <p>
+ * Each listener has its own mailbox that is drained by a shared pool of
+ * threads (see {@link ListenerMailbox}), so a slow listener only delays its
+ * own events and the listeners of lower priority. Listeners of the same
+ * priority receive the next events while a slow one is still busy. The
+ * number of threads can be set with the system property
+ * <code>org.asteriskjava.pbx.eventQueue.dispatchThreads</code>.
  *
  * @author bsutton
  */
-class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
+class CoherentManagerEventQueue implements SelectiveManagerEventListener, Runnable {
     private static final Log logger = LogFactory.getLog(CoherentManagerEventQueue.class);
 
     private final ListenerManager listeners = new ListenerManager();
@@ -38,14 +44,46 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
     private volatile boolean _stop = false;
 
     private static final int QUEUE_SIZE = 1000;
+
+    /**
+     * The number of events that may wait for a single listener before the
+     * dispatching thread waits for it.
+     */
+    private static final int MAILBOX_SIZE = 1000;
+
+    private static final int DISPATCH_THREADS = Integer.getInteger("org.asteriskjava.pbx.eventQueue.dispatchThreads",
+            Math.max(4, Runtime.getRuntime().availableProcessors()));
     private final BlockingQueue<EventLifeMonitor<org.asteriskjava.manager.event.ManagerEvent>> _eventQueue = new LinkedBlockingQueue<>(
             QUEUE_SIZE);
 
     long suppressQueueSizeErrorUntil = 0;
 
-    private LockableSet<Class<? extends ManagerEvent>> globalEvents = new LockableSet<>(new HashSet<>());
+    /**
+     * The mailboxes of the listeners of each event class in priority order,
+     * rebuilt whenever a listener is added or removed.
+     */
+    private volatile Map<Class<? extends ManagerEvent>, ListenerMailbox[]> routes = Collections.emptyMap();
+
+    /**
+     * The mailboxes of all listeners in priority order.
+     */
+    private volatile ListenerMailbox[] mailboxes = new ListenerMailbox[0];
+
+    /**
+     * The sequence number of the last dispatched event, only used by the
+     * dispatching thread.
+     */
+    private long sequence;
+
+    private final AtomicLong scheduleOrder = new AtomicLong();
+
+    private final ThreadPoolExecutor executor;
 
     public CoherentManagerEventQueue(String name, ManagerConnection connection) {
+        // mailboxes are comparable, so the executor runs them by priority
+        executor = new ThreadPoolExecutor(DISPATCH_THREADS, DISPATCH_THREADS, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new DaemonThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
 
         connection.addEventListener(this);
 
@@ -55,6 +93,16 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
         _th.start();
     }
 
+    /**
+     * Lets the connection skip building events none of our listeners is
+     * interested in.
+     */
+    @Override
+    public boolean isInterestedIn(Class<? extends org.asteriskjava.manager.event.ManagerEvent> eventClass) {
+        final Class<? extends ManagerEvent> shadowEvent = CoherentEventFactory.getShadowEvent(eventClass);
+        return shadowEvent != null && this.routes.containsKey(shadowEvent);
+    }
+
     /**
      * handles manager events passed to us in our role as a listener. We queue
      * the event so that it can be read, by the run method of this class, and
@@ -63,21 +111,12 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
     @Override
     public void onManagerEvent(final org.asteriskjava.manager.event.ManagerEvent event) {
 
-        // logger.error(event);
-        boolean wanted = false;
         /**
          * Dump any events we arn't interested in ASAP to minimise the
          * processing overhead of these events.
          */
         // Only enqueue the events that are of interest to one of our listeners.
-        try (LockCloser closer = this.globalEvents.withLock()) {
-            Class<? extends ManagerEvent> shadowEvent = CoherentEventFactory.getShadowEvent(event);
-            if (this.globalEvents.contains(shadowEvent)) {
-                wanted = true;
-            }
-        }
-
-        if (wanted) {
+        if (isInterestedIn(event.getClass())) {
             // We don't support all events.
             this._eventQueue.add(new EventLifeMonitor<>(event));
             if (_eventQueue.remainingCapacity() < QUEUE_SIZE / 10
@@ -147,78 +186,73 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
         }
     }
 
-    //
-    private final ExecutorService executors = Executors.newCachedThreadPool();
+    boolean isStopped() {
+        return this._stop;
+    }
 
     /**
      * Events are sent here from the CoherentManagerEventQueue after being
      * converted from a ManagerEvent to an ManagerEvent. This method is called
      * from a dedicated thread attached to the event queue which it uses for
      * dispatching events.
+     * <p>
+     * The event is added to the mailboxes of the listeners that want it, the
+     * method only waits if a listener is far behind.
      */
     public void dispatchEvent(final ManagerEvent event) {
         if (logger.isDebugEnabled()) {
             logger.debug("dispatch=" + event.toString()); //$NON-NLS-1$
         }
 
-        // take a copy of the listeners so they can be modified whilst we
-        // iterate over them
-        // The iteration may call some long running processes.
-        final List<FilteredManagerListenerWrapper> listenerCopy;
-        try (LockCloser closer = this.listeners.withLock()) {
-            listenerCopy = this.listeners.getCopyAsList();
+        final ListenerMailbox[] targets = this.routes.get(event.getClass());
+        if (targets == null) {
+            return;
         }
 
+        final long eventSequence = ++this.sequence;
         try {
-            final LogTime totalTime = new LogTime();
-
-            CountDownLatch latch = new CountDownLatch(listenerCopy.size());
-
-            for (final FilteredManagerListenerWrapper filter : listenerCopy) {
-                if (filter.requiredEvents.contains(event.getClass())) {
-                    dispatchEventOnThread(event, filter, latch);
-                } else {
-                    // this listener didn't want the event, so just decrease the
-                    // countdown
-                    latch.countDown();
+            for (final ListenerMailbox mailbox : targets) {
+                if (!mailbox.post(eventSequence, event)) {
+                    return;
                 }
             }
-
-            if (!latch.await(2, TimeUnit.SECONDS)) {
-                logger.error("Timeout waiting for event to be processed " + event);
-            }
-
-            if (totalTime.timeTaken() > 100) {
-                logger.warn("Too long to process event " + event + " time taken: " + totalTime.timeTaken()); //$NON-NLS-1$ //$NON-NLS-2$
-            }
         } catch (InterruptedException e) {
-            Thread.interrupted();
+            Thread.currentThread().interrupt();
         }
     }
 
-    private void dispatchEventOnThread(final ManagerEvent event, final FilteredManagerListenerWrapper filter,
-                                       final CountDownLatch latch) {
-        Runnable runner = new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    final LogTime time = new LogTime();
-
-                    filter._listener.onManagerEvent(event);
-                    if (time.timeTaken() > 500) {
-                        logger.warn("ManagerListener :" + filter._listener.getName() //$NON-NLS-1$
-                                + " is taken too long to process event " + event + " time taken: " + time.timeTaken()); //$NON-NLS-1$ //$NON-NLS-2$
-                    }
-                } catch (Exception e) {
-                    logger.error(e, e);
-                } finally {
-                    latch.countDown();
-                }
+    /**
+     * Checks whether an event may be delivered to a listener now.
+     *
+     * @param mailbox  the mailbox of the listener.
+     * @param sequence the sequence number of the event.
+     * @return <code>false</code> if a listener with a higher priority still
+     * has to handle an older event.
+     */
+    boolean mayDeliver(ListenerMailbox mailbox, long sequence) {
+        for (ListenerMailbox other : this.mailboxes) {
+            if (!other.hasHigherPriorityThan(mailbox)) {
+                break;
             }
-        };
+            if (other.getPendingSequence() < sequence) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        executors.execute(runner);
+    /**
+     * Called by a mailbox after an event has been delivered, wakes the
+     * mailboxes that wait for it.
+     */
+    void delivered() {
+        for (ListenerMailbox other : this.mailboxes) {
+            other.wakeUp();
+        }
+    }
 
+    long nextScheduleOrder() {
+        return this.scheduleOrder.incrementAndGet();
     }
 
     /**
@@ -233,56 +267,62 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
     public void addListener(final FilteredManagerListener<ManagerEvent> listener) {
         try (LockCloser closer = this.listeners.withLock()) {
             this.listeners.addListener(listener);
-            try (LockCloser closer2 = this.globalEvents.withLock()) {
-                Collection<Class<? extends ManagerEvent>> expandEvents = expandEvents(listener.requiredEvents());
-                this.globalEvents.addAll(expandEvents);
-            }
+            updateRoutes();
         }
         logger.debug("listener  added " + listener);
     }
 
-    /**
-     * in order to get Bridge Events, we must subscribe to Link and Unlink
-     * events for asterisk 1.4, so we automatically add them if the Bridge Event
-     * is required
-     *
-     * @param events
-     * @return
-     */
-    Collection<Class<? extends ManagerEvent>> expandEvents(Collection<Class<? extends ManagerEvent>> events) {
-        Collection<Class<? extends ManagerEvent>> requiredEvents = new HashSet<>();
-        for (Class<? extends ManagerEvent> event : events) {
-            requiredEvents.add(event);
-            if (event.equals(BridgeEvent.class)) {
-                requiredEvents.add(UnlinkEvent.class);
-                requiredEvents.add(LinkEvent.class);
-            }
-        }
-
-        return requiredEvents;
-    }
-
     public void removeListener(final FilteredManagerListener<ManagerEvent> melf) {
         if (melf != null) {
             try (LockCloser closer = this.listeners.withLock()) {
-                this.listeners.removeListener(melf);
-
-                // When we remove a listener we must unfortunately
-                // completely
-                // recalculate the set of required events.
-                try (LockCloser closer2 = this.globalEvents.withLock()) {
-                    this.globalEvents.clear();
-                    Iterator<FilteredManagerListenerWrapper> itr = this.listeners.iterator();
-                    while (itr.hasNext()) {
-                        FilteredManagerListenerWrapper readdContainer = itr.next();
-                        this.globalEvents.addAll(expandEvents(readdContainer._listener.requiredEvents()));
-                    }
+                if (this.listeners.removeListener(melf)) {
+                    updateRoutes();
                 }
+            }
+        }
+    }
 
+    /**
+     * Rebuilds the routing table from the registered listeners, the mailboxes
+     * of listeners that are still registered are kept and those of removed
+     * listeners are closed. Must be called with the lock of the listeners
+     * held.
+     */
+    private void updateRoutes() {
+        final Map<FilteredManagerListener<ManagerEvent>, ListenerMailbox> existing = new HashMap<>();
+        for (ListenerMailbox mailbox : this.mailboxes) {
+            existing.put(mailbox.getListener(), mailbox);
+        }
+
+        final List<ListenerMailbox> all = new ArrayList<>();
+        final Map<Class<? extends ManagerEvent>, List<ListenerMailbox>> byEvent = new HashMap<>();
+        Iterator<FilteredManagerListenerWrapper> itr = this.listeners.iterator();
+        while (itr.hasNext()) {
+            final FilteredManagerListenerWrapper wrapper = itr.next();
+            ListenerMailbox mailbox = existing.remove(wrapper._listener);
+            if (mailbox == null) {
+                mailbox = new ListenerMailbox(wrapper._listener, this, this.executor, MAILBOX_SIZE);
             }
+            all.add(mailbox);
+            for (Class<? extends ManagerEvent> eventClass : wrapper.requiredEvents) {
+                byEvent.computeIfAbsent(eventClass, k -> new ArrayList<>()).add(mailbox);
+            }
+        }
+
+        final Map<Class<? extends ManagerEvent>, ListenerMailbox[]> newRoutes = new HashMap<>();
+        for (Map.Entry<Class<? extends ManagerEvent>, List<ListenerMailbox>> entry : byEvent.entrySet()) {
+            newRoutes.put(entry.getKey(), entry.getValue().toArray(new ListenerMailbox[0]));
+        }
+        this.mailboxes = all.toArray(new ListenerMailbox[0]);
+        this.routes = newRoutes;
 
+        // a removed listener must not receive the events still queued for it
+        for (ListenerMailbox removed : existing.values()) {
+            removed.close();
         }
 
+        // a removed listener no longer holds back the others
+        delivered();
     }
 
     /**
@@ -300,6 +340,7 @@ class CoherentManagerEventQueue implements ManagerEventListener, Runnable {
                     this.addListener(listener._listener);
                 }
                 eventQueue.listeners.clear();
+                eventQueue.updateRoutes();
             }
         }
     }
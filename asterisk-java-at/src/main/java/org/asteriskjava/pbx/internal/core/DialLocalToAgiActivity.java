@@ -5,6 +5,7 @@ import org.asteriskjava.pbx.agi.ActivityAgi;
 import org.asteriskjava.pbx.agi.ActivityArrivalListener;
 import org.asteriskjava.pbx.asterisk.wrap.actions.OriginateAction;
 import org.asteriskjava.pbx.asterisk.wrap.response.ManagerResponse;
+import org.asteriskjava.pbx.internal.activity.ActivityExecutor;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -12,6 +13,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -19,7 +21,7 @@ public class DialLocalToAgiActivity implements Runnable, Activity {
 
     private EndPoint from;
     private CallerID fromCallerID;
-    private Thread thread;
+    private final CompletableFuture<DialLocalToAgiActivity> completion;
     private final Log logger = LogFactory.getLog(this.getClass());
 
     CountDownLatch latch = new CountDownLatch(1);
@@ -34,8 +36,18 @@ public class DialLocalToAgiActivity implements Runnable, Activity {
         this.callback = callback;
         this.channelVarsToSet = channelVarsToSet;
 
-        thread = new Thread(this, "Dial " + from + " to AGI");
-        thread.start();
+        completion = ActivityExecutor.getInstance().submit("Dial " + from + " to AGI", () -> {
+            run();
+            return this;
+        });
+    }
+
+    /**
+     * Returns a future that is completed with this activity once it has
+     * finished, after the callback has been told about the outcome.
+     */
+    public CompletableFuture<DialLocalToAgiActivity> getCompletion() {
+        return completion;
     }
     // Logger logger = LogManager.getLogger();
 
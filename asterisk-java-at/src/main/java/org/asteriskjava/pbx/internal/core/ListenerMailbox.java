@@ -0,0 +1,220 @@
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.pbx.ListenerPriority;
+import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
+import org.asteriskjava.pbx.util.LogTime;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The events waiting to be delivered to one listener of a
+ * {@link CoherentManagerEventQueue}.
+ * <p>
+ * The events are delivered in the order they have been posted by at most one
+ * thread of the queue's executor at a time. Mailboxes of higher priority
+ * listeners are drained first when the executor is busy.
+ * <p>
+ * An event is only delivered once no listener with a higher priority has an
+ * older event pending, so a listener never gets ahead of the listeners that
+ * are meant to see an event first (for example the LiveChannelManager).
+ * Listeners of the same priority do not wait for each other.
+ */
+final class ListenerMailbox implements Runnable, Comparable<ListenerMailbox> {
+    private static final Log logger = LogFactory.getLog(ListenerMailbox.class);
+
+    /**
+     * The number of events delivered before the thread is handed to the next
+     * mailbox.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final FilteredManagerListener<ManagerEvent> listener;
+    private final ListenerPriority priority;
+    private final CoherentManagerEventQueue queue;
+    private final Executor executor;
+    private final BlockingQueue<Delivery> deliveries;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Set when the next event has to wait for a higher priority listener.
+     */
+    private volatile boolean blocked;
+
+    /**
+     * Set when the listener has been removed, pending events are dropped.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Orders mailboxes of the same priority in the executor's queue.
+     */
+    private long scheduleOrder;
+
+    ListenerMailbox(FilteredManagerListener<ManagerEvent> listener, CoherentManagerEventQueue queue, Executor executor,
+                    int capacity) {
+        this.listener = listener;
+        this.priority = listener.getPriority();
+        this.queue = queue;
+        this.executor = executor;
+        this.deliveries = new LinkedBlockingQueue<>(capacity);
+    }
+
+    FilteredManagerListener<ManagerEvent> getListener() {
+        return listener;
+    }
+
+    boolean hasHigherPriorityThan(ListenerMailbox other) {
+        return priority.compare(other.priority) < 0;
+    }
+
+    /**
+     * Returns the sequence number of the oldest event that has not yet been
+     * delivered completely.
+     *
+     * @return the sequence number or {@link Long#MAX_VALUE} if the mailbox is
+     * empty.
+     */
+    long getPendingSequence() {
+        final Delivery head = deliveries.peek();
+        return head == null ? Long.MAX_VALUE : head.sequence;
+    }
+
+    /**
+     * Adds an event, waiting for space if the listener is behind.
+     *
+     * @param sequence the sequence number of the event in the queue.
+     * @param event    the event.
+     * @return <code>false</code> if the queue was stopped while waiting.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean post(long sequence, ManagerEvent event) throws InterruptedException {
+        if (closed) {
+            return true;
+        }
+        final Delivery delivery = new Delivery(sequence, event);
+        while (!deliveries.offer(delivery, 2, TimeUnit.SECONDS)) {
+            if (queue.isStopped()) {
+                return false;
+            }
+            logger.error("ManagerListener :" + listener.getName() + " has not taken an event for 2 seconds, "
+                    + deliveries.size() + " events pending");
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * Closes the mailbox after its listener has been removed. The events that
+     * have not yet been delivered are dropped, an event the listener is
+     * handling right now is finished.
+     */
+    void close() {
+        closed = true;
+        deliveries.clear();
+    }
+
+    /**
+     * Wakes the mailbox if it waits for a higher priority listener.
+     */
+    void wakeUp() {
+        if (blocked) {
+            blocked = false;
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            scheduleOrder = queue.nextScheduleOrder();
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                logger.error("Unable to deliver events to " + listener.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            drain();
+        } finally {
+            scheduled.set(false);
+            // an event may have been posted or a higher priority listener may
+            // have caught up after we looked the last time
+            final long next = getPendingSequence();
+            if (next != Long.MAX_VALUE && queue.mayDeliver(this, next)) {
+                schedule();
+            }
+        }
+    }
+
+    private void drain() {
+        blocked = false;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            if (closed) {
+                // events posted while the listener was being removed
+                deliveries.clear();
+                return;
+            }
+            final Delivery next = deliveries.peek();
+            if (next == null) {
+                return;
+            }
+            if (!queue.mayDeliver(this, next.sequence)) {
+                blocked = true;
+                return;
+            }
+
+            try {
+                deliver(next.event);
+            } finally {
+                deliveries.poll();
+                queue.delivered();
+            }
+        }
+    }
+
+    private void deliver(ManagerEvent event) {
+        try {
+            final LogTime time = new LogTime();
+
+            listener.onManagerEvent(event);
+            if (time.timeTaken() > 500) {
+                logger.warn("ManagerListener :" + listener.getName() + " is taken too long to process event " + event
+                        + " time taken: " + time.timeTaken());
+            }
+        } catch (Exception e) {
+            logger.error(e, e);
+        }
+    }
+
+    @Override
+    public int compareTo(ListenerMailbox other) {
+        final int result = priority.compare(other.priority);
+        return result != 0 ? result : Long.compare(scheduleOrder, other.scheduleOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "ListenerMailbox[" + listener.getName() + ", pending=" + deliveries.size() + "]";
+    }
+
+    private static final class Delivery {
+        private final long sequence;
+        private final ManagerEvent event;
+
+        Delivery(long sequence, ManagerEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+}
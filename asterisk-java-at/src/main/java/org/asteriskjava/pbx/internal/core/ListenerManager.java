@@ -41,15 +41,6 @@ public class ListenerManager extends Lockable {
         listeners.add(new FilteredManagerListenerWrapper(listener));
     }
 
-    List<FilteredManagerListenerWrapper> getCopyAsList() {
-        List<FilteredManagerListenerWrapper> list = new LinkedList<>();
-        for (FilteredManagerListenerWrapper listener : listeners) {
-            list.add(listener);
-        }
-
-        return list;
-    }
-
     boolean removeListener(FilteredManagerListener<ManagerEvent> toRemove) {
         boolean removed = false;
         Iterator<FilteredManagerListenerWrapper> itr = listeners.iterator();
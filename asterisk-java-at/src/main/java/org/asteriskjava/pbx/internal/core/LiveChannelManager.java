@@ -1,7 +1,6 @@
 package org.asteriskjava.pbx.internal.core;
 
 import org.asteriskjava.lock.Lockable;
-import org.asteriskjava.lock.LockableList;
 import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.manager.TimeoutException;
 import org.asteriskjava.pbx.Channel;
@@ -18,7 +17,6 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The LiveChannelManager keeps a list of all of the live channels present on an
@@ -58,10 +56,11 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
 
     /**
      * A collection of all of the live proxies in the system. We monitor the
-     * channels and remove them as they hangup. The hash is keyed by the
-     * channel's name. e.g. SIP/100-000000100
+     * channels and remove them as they hangup. The proxies are indexed by the
+     * channel's unique id, name e.g. SIP/100-000000100 and end point. Changes
+     * are made while holding the lock of the LiveChannelManager.
      */
-    private final LockableList<ChannelProxy> _liveChannels = new LockableList<>(new CopyOnWriteArrayList<>());
+    private final ChannelProxyIndex _liveChannels = new ChannelProxyIndex();
 
     public LiveChannelManager() {
         CoherentManagerConnection.getInstance().addListener(this);
@@ -92,19 +91,11 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
     }
 
     public ChannelProxy getChannelByEndPoint(EndPoint endPoint) {
-        ChannelProxy connectedChannel = null;
-        for (final ChannelProxy channel : _liveChannels) {
-            if (channel.isConnectedTo(endPoint)) {
-                connectedChannel = channel;
-                break;
-            }
-
-        }
-        return connectedChannel;
+        return _liveChannels.findByEndPoint(endPoint, channel -> channel.isConnectedTo(endPoint));
     }
 
     public void add(ChannelProxy proxy) {
-        try (LockCloser closer = _liveChannels.withLock()) {
+        try (LockCloser closer = this.withLock()) {
             ChannelProxy index = findProxy(proxy);
             if (index == null)
                 this._liveChannels.add(proxy);
@@ -119,7 +110,7 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
     private void dumpProxies(ChannelProxy proxy, String cause) {
         if (logger.isDebugEnabled()) {
             logger.debug("Dump of LiveChannels, cause:" + cause + ": " + proxy); //$NON-NLS-2$
-            for (ChannelProxy aProxy : _liveChannels) {
+            for (ChannelProxy aProxy : _liveChannels.getAll()) {
                 logger.debug("ChannelProxy: " + aProxy);
             }
         }
@@ -127,10 +118,12 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
 
     public void remove(ChannelProxy proxy) {
 
-        ChannelProxy index = findProxy(proxy);
-        if (index != null) {
-            logger.info("Removing liveChannel " + proxy);
-            this._liveChannels.remove(index);
+        try (LockCloser closer = this.withLock()) {
+            ChannelProxy index = findProxy(proxy);
+            if (index != null) {
+                logger.info("Removing liveChannel " + proxy);
+                this._liveChannels.remove(index);
+            }
         }
         dumpProxies(proxy, "Removing");
 
@@ -140,40 +133,28 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
         ChannelProxy proxy = null;
         logger.debug("Trying to find channel " + extendedChannelName + " " + uniqueID);
 
-        String localUniqueId = uniqueID;
-        if (localUniqueId == null)
-            localUniqueId = ChannelImpl.UNKNOWN_UNIQUE_ID;
+        final String localUniqueId = uniqueID == null ? ChannelImpl.UNKNOWN_UNIQUE_ID : uniqueID;
 
         // In order to get the 'best' match we first match each by unique id.
         // Sometimes we can have two channels with the same name but
         // different
 
         if (localUniqueId.compareTo(ChannelImpl.UNKNOWN_UNIQUE_ID) != 0) {
-
-            for (ChannelProxy aChannel : _liveChannels) {
-                if (aChannel.sameUniqueID(localUniqueId)) {
-                    proxy = aChannel;
-                    break;
-                }
-            }
+            proxy = _liveChannels.findByUniqueId(localUniqueId,
+                    aChannel -> aChannel.sameUniqueID(localUniqueId));
         }
 
         // If we don't have a match from the first pass and the new uniqueID
         // is unknown
         // then do a search matching by name.
         if (proxy == null) {
-            for (ChannelProxy aChannel : _liveChannels) {
-
-                if (aChannel.isSame(extendedChannelName, localUniqueId)) {
-                    proxy = aChannel;
-                    break;
-                }
-            }
+            proxy = _liveChannels.findByExtendedName(extendedChannelName,
+                    aChannel -> aChannel.isSame(extendedChannelName, localUniqueId));
         }
 
-        if (proxy == null) {
+        if (proxy == null && logger.isDebugEnabled()) {
             logger.debug("Failed to match channel to any of...");
-            for (ChannelProxy aChannel : _liveChannels) {
+            for (ChannelProxy aChannel : _liveChannels.getAll()) {
                 logger.debug(aChannel);
             }
 
@@ -183,12 +164,16 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
     }
 
     private ChannelProxy findProxy(Channel original) {
-        for (ChannelProxy aChannel : _liveChannels) {
-            if (aChannel.isSame(original)) {
-                return aChannel;
-            }
+        if (original == null) {
+            return null;
         }
-        return null;
+        ChannelImpl channel;
+        if (original instanceof ChannelImpl) {
+            channel = (ChannelImpl) original;
+        } else {
+            channel = ((ChannelProxy) original).getRealChannel();
+        }
+        return _liveChannels.findBySameChannel(channel, aChannel -> aChannel.isSame(original));
     }
 
     @Override
@@ -207,12 +192,7 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
     }
 
     ChannelProxy findProxyById(String id) {
-        for (ChannelProxy aChannel : _liveChannels) {
-            if (("" + aChannel.getIdentity()).equals(id)) {
-                return aChannel;
-            }
-        }
-        return null;
+        return _liveChannels.findByIdentity(id);
     }
 
     @Override
@@ -249,7 +229,11 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
                     // one channel which will be the clone channel which is
                     // now the active channel
                     // and everyone will be happy.
-                    originalProxy.masquerade(cloneProxy);
+                    try (LockCloser closer = this.withLock()) {
+                        originalProxy.masquerade(cloneProxy);
+                        _liveChannels.reindex(originalProxy);
+                        _liveChannels.reindex(cloneProxy);
+                    }
                     dumpProxies(cloneProxy, "Masquerade");
                     sanityCheck();
                 } catch (InvalidChannelName e) {
@@ -268,7 +252,10 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
             ChannelProxy oldChannel = findProxy(rename.getChannel());
             if (oldChannel != null) {
                 try {
-                    oldChannel.rename(rename.getNewName(), rename.getUniqueId());
+                    try (LockCloser closer = this.withLock()) {
+                        oldChannel.rename(rename.getNewName(), rename.getUniqueId());
+                        _liveChannels.reindex(oldChannel);
+                    }
 
                     dumpProxies(oldChannel, "RenameEvent");
                     sanityCheck();
@@ -298,7 +285,9 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
                 if (proxy != null) {
                     logger.debug("Removing proxy " + proxy);
 
-                    this._liveChannels.remove(proxy);
+                    try (LockCloser closer = this.withLock()) {
+                        this._liveChannels.remove(proxy);
+                    }
                     logger.debug("Removing liveChannel " + proxy);
                     proxy.getChannel().notifyHangupListeners(hangup.getCause(), hangup.getCauseTxt());
                     dumpProxies(proxy, "HangupEvent");
@@ -325,11 +314,12 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
         if (logger.isDebugEnabled()) {
             logger.error("Performing Sanity Check");
             Set<String> channels = new HashSet<>();
-            for (ChannelProxy channel : _liveChannels) {
+            List<ChannelProxy> liveChannels = _liveChannels.getAll();
+            for (ChannelProxy channel : liveChannels) {
                 if (!channels.add(channel.getChannel().getExtendedChannelName())) {
                     logger.error(
                             "Multiple channels by the name " + channel.getChannel().getExtendedChannelName() + " exist");
-                    for (ChannelProxy channel2 : _liveChannels) {
+                    for (ChannelProxy channel2 : liveChannels) {
                         if (channel2.getChannel().getExtendedChannelName()
                                 .equals(channel.getChannel().getExtendedChannelName())) {
                             logger.error(channel2);
@@ -345,7 +335,7 @@ public class LiveChannelManager extends Lockable implements FilteredManagerListe
 
     public List<ChannelProxy> getChannelList() {
         List<ChannelProxy> channels = new LinkedList<>();
-        channels.addAll(_liveChannels);
+        channels.addAll(_liveChannels.getAll());
         return channels;
     }
 
@@ -198,6 +198,16 @@ public class Peer implements CallEndedListener {
         this.dnd = on;
     }
 
+    /**
+     * Returns true if the peer has at least one call whose channels may need
+     * to be swept.
+     */
+    boolean hasCalls() {
+        try (LockCloser closer = this.callList.withLock()) {
+            return !this.callList.isEmpty();
+        }
+    }
+
     public void startSweep() {
         Peer.logger.debug("Starting sweep for " + this.peerEndPoint.getFullyQualifiedName());//$NON-NLS-1$
         try (LockCloser closer = this.callList.withLock()) {
@@ -1,12 +1,11 @@
 package org.asteriskjava.pbx.internal.core;
 
-import org.asteriskjava.lock.LockableList;
-import org.asteriskjava.lock.Locker.LockCloser;
 import org.asteriskjava.pbx.*;
 import org.asteriskjava.pbx.asterisk.wrap.actions.SipPeersAction;
 import org.asteriskjava.pbx.asterisk.wrap.actions.StatusAction;
 import org.asteriskjava.pbx.asterisk.wrap.events.*;
 import org.asteriskjava.pbx.internal.managerAPI.EventListenerBaseClass;
+import org.asteriskjava.util.DaemonThreadFactory;
 import org.asteriskjava.util.Log;
 import org.asteriskjava.util.LogFactory;
 
@@ -14,19 +13,42 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /*
  * this class tracks the status of all peers on asterisk.
  */
-public class PeerMonitor extends EventListenerBaseClass implements Runnable {
+public class PeerMonitor extends EventListenerBaseClass {
 
     private static final Log logger = LogFactory.getLog(PeerMonitor.class);
 
-    LockableList<Peer> peerList = new LockableList<>(new LinkedList<>());
+    /**
+     * How long after a call has been seen the channels are swept (in
+     * milliseconds).
+     */
+    private static final long SWEEP_INTERVAL = 120000;
+
+    /**
+     * The peers keyed by the fully qualified name of their end point.
+     */
+    private final ConcurrentMap<String, Peer> peers = new ConcurrentHashMap<>();
+
+    /**
+     * The peers in the order they have been registered.
+     */
+    final List<Peer> peerList = new CopyOnWriteArrayList<>();
 
     boolean initSip = false;
 
-    private final Thread markAndSweepThread;
+    private final ScheduledThreadPoolExecutor sweepExecutor;
+
+    private final AtomicBoolean sweepScheduled = new AtomicBoolean();
 
     private static PeerMonitor self;
 
@@ -56,7 +78,7 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
 
     private PeerMonitor() {
         super("PeerMonitor", PBXFactory.getActivePBX()); //$NON-NLS-1$
-        this.peerList = new LockableList<>(new LinkedList<>());
+        this.sweepExecutor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
         this.startListener();
         this.addSipsToMonitor();
         try {
@@ -68,12 +90,6 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
         } catch (final Exception e) {
             PeerMonitor.logger.error(e, e);
         }
-
-        this.markAndSweepThread = new Thread(this);
-        this.markAndSweepThread.setName("PeerMonitor-MarkAndSweep"); //$NON-NLS-1$
-        this.markAndSweepThread.setDaemon(true);
-        this.markAndSweepThread.start();
-
     }
 
     public void addSipsToMonitor() {
@@ -105,37 +121,20 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
             return null;
         }
 
-        try (LockCloser closer = peerList.withLock()) {
-            Peer peer = this.findPeer(endPoint);
-            if (peer == null) {
-                peer = new Peer(endPoint);
-                this.peerList.add(peer);
-            }
+        return this.peers.computeIfAbsent(endPoint.getFullyQualifiedName(), name -> {
+            final Peer peer = new Peer(endPoint);
+            this.peerList.add(peer);
             return peer;
-        }
-
+        });
     }
 
     public Peer findPeer(final EndPoint peerEndPoint) {
-        Peer found = null;
-
-        try (LockCloser closer = peerList.withLock()) {
-            for (final Peer peer : this.peerList) {
-                if (peer.getEndPoint().isSame(peerEndPoint)) {
-                    found = peer;
-                    break;
-                }
-            }
-        }
-        return found;
+        return this.peers.get(peerEndPoint.getFullyQualifiedName());
     }
 
     public Iterator<Peer> getIterator() {
-        try (LockCloser closer = peerList.withLock()) {
-            final List<Peer> clone = new LinkedList<Peer>(this.peerList);
-            return clone.iterator();
-        }
-
+        final List<Peer> clone = new LinkedList<Peer>(this.peerList);
+        return clone.iterator();
     }
 
     @Override
@@ -180,35 +179,44 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
         }
     }
 
+    /**
+     * Returns the peer the channel is connected to. Only that peer is
+     * interested in the events of the channel.
+     */
+    private Peer findPeer(final Channel channel) {
+        if (channel == null) {
+            return null;
+        }
+        return this.peers.get(channel.getEndPoint().getFullyQualifiedName());
+    }
+
     private void handleEvent(NewStateEvent event) {
-        try (LockCloser closer = peerList.withLock()) {
-            for (Peer peer : this.peerList) {
-                peer.handleEvent(event);
-            }
+        final Peer peer = this.findPeer(event.getChannel());
+        if (peer != null) {
+            peer.handleEvent(event);
+            this.scheduleSweep();
         }
     }
 
     private void handleEvent(final NewChannelEvent event) {
-        try (LockCloser closer = peerList.withLock()) {
-            for (Peer peer : this.peerList) {
-                peer.handleEvent(event);
-            }
+        final Peer peer = this.findPeer(event.getChannel());
+        if (peer != null) {
+            peer.handleEvent(event);
+            this.scheduleSweep();
         }
     }
 
     private void handleEvent(final MasqueradeEvent event) {
-        try (LockCloser closer = peerList.withLock()) {
-            for (Peer peer : this.peerList) {
-                peer.handleEvent(event);
-            }
+        final Peer peer = this.findPeer(event.getClone());
+        if (peer != null) {
+            peer.handleEvent(event);
         }
     }
 
     private void handleEvent(final StatusEvent event) {
-        try (LockCloser closer = peerList.withLock()) {
-            for (Peer peer : this.peerList) {
-                peer.handleEvent(event);
-            }
+        final Peer peer = this.findPeer(event.getChannel());
+        if (peer != null) {
+            peer.handleEvent(event);
         }
     }
 
@@ -236,10 +244,8 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
      * @param event
      */
     private void handleEvent(final StatusCompleteEvent event) {
-        try (LockCloser closer = peerList.withLock()) {
-            for (final Peer peer : this.peerList) {
-                peer.endSweep();
-            }
+        for (final Peer peer : this.peerList) {
+            peer.endSweep();
         }
         PeerMonitor.logger.debug("Channel Mark and Sweep complete"); //$NON-NLS-1$
     }
@@ -250,7 +256,7 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
 
     public void stop() {
         this.close();
-
+        this.sweepExecutor.shutdownNow();
     }
 
     /**************************************************************************************
@@ -258,22 +264,34 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
      **************************************************************************************/
 
     /**
-     * Runs the mark and sweep operation every 120 seconds on all channels to
-     * clean up any channels that have died and for which (for some reason) we
-     * missed the hangup event.
+     * Schedules a mark and sweep operation in 120 seconds to clean up any
+     * channels that have died and for which (for some reason) we missed the
+     * hangup event. It is scheduled when a channel event is seen for a peer and
+     * repeated for as long as peers have calls, so an idle system is not swept.
      */
-    @Override
-    public void run() {
-        while (true) {
+    private void scheduleSweep() {
+        if (this.sweepScheduled.compareAndSet(false, true)) {
             try {
-                Thread.sleep(120000);
-                PeerMonitor.getInstance().startSweep();
-            } catch (final InterruptedException e) {
-                PeerMonitor.logger.error(e, e);
-
+                this.sweepExecutor.schedule(this::sweepIfBusy, SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (final RejectedExecutionException e) {
+                // stopped
             }
         }
+    }
 
+    private void sweepIfBusy() {
+        this.sweepScheduled.set(false);
+        boolean busy = false;
+        for (final Peer peer : this.peerList) {
+            if (peer.hasCalls()) {
+                busy = true;
+                break;
+            }
+        }
+        if (busy) {
+            this.startSweep();
+            this.scheduleSweep();
+        }
     }
 
     /**
@@ -288,10 +306,8 @@ public class PeerMonitor extends EventListenerBaseClass implements Runnable {
         PeerMonitor.logger.debug("Starting channel mark and sweep"); //$NON-NLS-1$
 
         // Mark every channel as 'clearing'
-        try (LockCloser closer = peerList.withLock()) {
-            for (final Peer peer : this.peerList) {
-                peer.startSweep();
-            }
+        for (final Peer peer : this.peerList) {
+            peer.startSweep();
         }
 
         /**
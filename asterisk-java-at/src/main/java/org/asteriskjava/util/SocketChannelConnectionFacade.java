@@ -0,0 +1,55 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A SocketConnectionFacade that gives access to the raw bytes received from
+ * the socket.<p>
+ * Readers that understand the wire protocol can parse the bytes in place
+ * instead of going through {@link #readLine()}. A single connection must be
+ * read either line by line or byte wise, mixing both is not supported.
+ *
+ * @since 3.40.0
+ */
+public interface SocketChannelConnectionFacade extends SocketConnectionFacade {
+    /**
+     * Reads a sequence of bytes from the socket connection into the given
+     * buffer. The current thread is blocked until at least one byte is
+     * available, the end of stream is reached or an IOException encounters.
+     *
+     * @param dst the buffer to transfer bytes into.
+     * @return the number of bytes read, or -1 if the end of stream has been
+     * reached.
+     * @throws IOException if the connection has been closed or the read
+     *                     timed out.
+     */
+    int read(ByteBuffer dst) throws IOException;
+
+    /**
+     * Writes the remaining bytes of the given buffers to the socket connection
+     * with as few system calls as possible. Text that has been written by
+     * {@link #write(String)} but not yet flushed is sent first. The current
+     * thread is blocked until all bytes have been written.
+     *
+     * @param srcs the buffers to write, their positions are advanced.
+     * @throws IOException if the bytes cannot be written, maybe because the
+     *                     connection has already been closed.
+     */
+    void write(ByteBuffer[] srcs) throws IOException;
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the frames of a capture written by {@link CaptureTrace}, following
+ * the segments in order.
+ *
+ * @since 3.40.0
+ */
+public class CaptureReader implements Closeable {
+    private final File directory;
+    private final String baseName;
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private long startMillis;
+
+    /**
+     * Creates a new reader.
+     *
+     * @param firstSegment the first segment of the capture, the file ending
+     *                     with <code>-00000.ajcap</code>.
+     * @throws IOException if the segment cannot be read or is not a capture.
+     */
+    public CaptureReader(File firstSegment) throws IOException {
+        final String name = firstSegment.getName();
+        final String suffix = "-00000" + CaptureTrace.FILE_SUFFIX;
+        if (!name.endsWith(suffix)) {
+            throw new IllegalArgumentException("Not the first segment of a capture: " + firstSegment);
+        }
+        this.directory = firstSegment.getAbsoluteFile().getParentFile();
+        this.baseName = name.substring(0, name.length() - suffix.length());
+        if (!openSegment(0)) {
+            throw new IOException("No such capture: " + firstSegment);
+        }
+    }
+
+    /**
+     * Returns the time the capture was started.
+     *
+     * @return the start of the capture in milliseconds since the epoch.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Returns the next frame.
+     *
+     * @return the next frame or <code>null</code> if there are no more frames.
+     * @throws IOException if a segment cannot be read.
+     */
+    public Frame next() throws IOException {
+        while (segment != null) {
+            if (segment.remaining() >= CaptureTrace.FRAME_HEADER_SIZE) {
+                final int size = segment.getInt();
+                if (size > 0) {
+                    final long nanos = segment.getLong();
+                    final byte type = segment.get();
+                    final byte[] payload = new byte[size - (CaptureTrace.FRAME_HEADER_SIZE - 4)];
+                    segment.get(payload);
+                    return new Frame(nanos, type, payload);
+                }
+            }
+            if (!openSegment(segmentIndex + 1)) {
+                segment = null;
+            }
+        }
+        return null;
+    }
+
+    private boolean openSegment(int index) throws IOException {
+        final File file = CaptureTrace.segmentFile(directory, baseName, index);
+        if (!file.isFile()) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        if (segment.remaining() < CaptureTrace.HEADER_SIZE || segment.getInt() != CaptureTrace.MAGIC) {
+            throw new IOException("Not a capture: " + file);
+        }
+        final int version = segment.getInt();
+        if (version != CaptureTrace.VERSION) {
+            throw new IOException("Unsupported capture version " + version + ": " + file);
+        }
+        startMillis = segment.getLong();
+        segment.position(CaptureTrace.HEADER_SIZE);
+        segmentIndex = index;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        segment = null;
+    }
+
+    /**
+     * A chunk of data sent or received.
+     */
+    public static final class Frame {
+        private final long nanos;
+        private final byte type;
+        private final byte[] payload;
+
+        Frame(long nanos, byte type, byte[] payload) {
+            this.nanos = nanos;
+            this.type = type;
+            this.payload = payload;
+        }
+
+        /**
+         * Returns when the frame was captured.
+         *
+         * @return nanoseconds since the capture was started.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        public boolean isSent() {
+            return type == CaptureTrace.TYPE_SENT;
+        }
+
+        /**
+         * Returns whether the payload is a line received by a connection that
+         * reads line by line, the line delimiter is not part of the payload.
+         *
+         * @return <code>true</code> for a received line, <code>false</code>
+         * for raw data.
+         */
+        public boolean isLine() {
+            return type == CaptureTrace.TYPE_RECEIVED_LINE;
+        }
+
+        /**
+         * Returns the UTF-8 encoded data.
+         *
+         * @return the data.
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util.internal;
+
+import org.asteriskjava.util.DaemonThreadFactory;
+import org.asteriskjava.util.DateUtil;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.Socket;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes a binary capture of the traffic that can be replayed by
+ * {@link ReplayConnectionFacade}.
+ * <p>
+ * The thread calling the trace only timestamps the data and queues it, a
+ * background thread appends the frames to memory mapped segment files. When
+ * the queue is full frames are dropped rather than blocking the connection.
+ * <p>
+ * A segment starts with a header (magic, format version, capture start as
+ * epoch milliseconds, segment index) followed by frames of size (the number
+ * of bytes following the size), nanoseconds since the capture started, frame
+ * type and the UTF-8 encoded payload. A size of zero marks the end of the
+ * frames in a segment.
+ *
+ * @see CaptureReader
+ * @since 3.40.0
+ */
+public class CaptureTrace implements Trace {
+    public static final String FILE_PREFIX = "aj-capture";
+    public static final String FILE_SUFFIX = ".ajcap";
+
+    static final int MAGIC = 0x414a4350; // "AJCP"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int FRAME_HEADER_SIZE = 4 + 8 + 1;
+
+    static final byte TYPE_RECEIVED = 1;
+    static final byte TYPE_RECEIVED_LINE = 2;
+    static final byte TYPE_SENT = 3;
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    private static final DaemonThreadFactory threadFactory = new DaemonThreadFactory();
+
+    private final Log logger = LogFactory.getLog(CaptureTrace.class);
+
+    private final File directory;
+    private final String baseName;
+    private final int segmentSize;
+    private final long startMillis;
+    private final long startNanos;
+    private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    // only accessed by the writer thread after construction
+    private MappedByteBuffer segment;
+    private int segmentIndex = -1;
+    private boolean exceptionLogged;
+
+    public CaptureTrace(Socket socket) throws IOException {
+        this(new File(System.getProperty(FileTrace.TRACE_DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir"))),
+                getBaseName(socket), DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a capture that is not bound to a socket, for example to record
+     * traffic of a custom connection.
+     *
+     * @param directory   the directory to write the segments to.
+     * @param baseName    the name of the segment files without index and
+     *                    suffix.
+     * @param segmentSize the size of a segment in bytes.
+     * @throws IOException if the first segment cannot be created.
+     */
+    public CaptureTrace(File directory, String baseName, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.segmentSize = segmentSize;
+        this.startMillis = DateUtil.getDate().getTime();
+        this.startNanos = System.nanoTime();
+
+        // fail early if the capture cannot be written at all
+        openSegment(0);
+        logger.info("Writing capture to " + segmentFile(directory, baseName, 0));
+
+        this.writerThread = threadFactory.newThread(this::writeFrames);
+        this.writerThread.setName("Asterisk-Java CaptureTrace " + baseName);
+        this.writerThread.start();
+    }
+
+    static File segmentFile(File directory, String baseName, int index) {
+        return new File(directory, baseName + "-" + String.format(Locale.US, "%05d", index) + FILE_SUFFIX);
+    }
+
+    private static String getBaseName(Socket socket) {
+        return FILE_PREFIX + "_" + new SimpleDateFormat("yyyyMMddHHmmss").format(DateUtil.getDate()) + "_"
+                + socket.getLocalAddress().getHostAddress() + "_" + socket.getLocalPort() + "_"
+                + socket.getInetAddress().getHostAddress() + "_" + socket.getPort();
+    }
+
+    @Override
+    public void received(String s) {
+        enqueue(TYPE_RECEIVED, s);
+    }
+
+    @Override
+    public void receivedLine(String line) {
+        enqueue(TYPE_RECEIVED_LINE, line);
+    }
+
+    @Override
+    public void sent(String s) {
+        enqueue(TYPE_SENT, s);
+    }
+
+    /**
+     * Returns the number of frames that have been dropped because the writer
+     * could not keep up.
+     *
+     * @return the number of dropped frames.
+     */
+    public long getDroppedFrames() {
+        return dropped.get();
+    }
+
+    private void enqueue(byte type, String data) {
+        if (closed || data == null) {
+            return;
+        }
+        if (!queue.offer(new Record(System.nanoTime() - startNanos, type, data))
+                && dropped.getAndIncrement() == 0) {
+            logger.warn("Capture cannot keep up with the traffic, dropping frames");
+        }
+    }
+
+    /**
+     * Writes the frames until the trace is closed and all queued frames have
+     * been written.
+     */
+    private void writeFrames() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                final Record record = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    write(record);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (segment != null) {
+                segment.force();
+                segment = null;
+            }
+        }
+    }
+
+    private void write(Record record) {
+        if (segment == null) {
+            return;
+        }
+        final byte[] payload = record.data.getBytes(StandardCharsets.UTF_8);
+        // keep room for the end marker
+        final int required = FRAME_HEADER_SIZE + payload.length + 4;
+        try {
+            if (segment.remaining() < required) {
+                segment.force();
+                openSegment(segmentIndex + 1, required);
+            }
+        } catch (IOException e) {
+            segment = null;
+            logException(e);
+            return;
+        }
+        segment.putInt(FRAME_HEADER_SIZE - 4 + payload.length);
+        segment.putLong(record.nanos);
+        segment.put(record.type);
+        segment.put(payload);
+    }
+
+    private void openSegment(int index) throws IOException {
+        openSegment(index, 0);
+    }
+
+    private void openSegment(int index, int required) throws IOException {
+        final int size = Math.max(segmentSize, HEADER_SIZE + required);
+        try (RandomAccessFile file = new RandomAccessFile(segmentFile(directory, baseName, index), "rw")) {
+            // the mapping stays valid after the file has been closed
+            segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segmentIndex = index;
+        segment.putInt(MAGIC);
+        segment.putInt(VERSION);
+        segment.putLong(startMillis);
+        segment.putInt(index);
+        segment.position(HEADER_SIZE);
+    }
+
+    private void logException(IOException e) {
+        // avoid excessive failure logging
+        if (exceptionLogged) {
+            return;
+        }
+        logger.warn("Unable to write capture to disk", e);
+        exceptionLogged = true;
+    }
+
+    /**
+     * Writes the frames queued so far and closes the capture.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Record {
+        private final long nanos;
+        private final byte type;
+        private final String data;
+
+        Record(long nanos, byte type, String data) {
+            this.nanos = nanos;
+            this.type = type;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util.internal;
+
+import org.asteriskjava.util.SocketChannelConnectionFacade;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A connection that plays back the data received in a capture written by
+ * {@link CaptureTrace} instead of talking to Asterisk.
+ * <p>
+ * The received frames are returned with the delays they have been captured
+ * with, divided by the speed. Frames that have been sent are skipped.
+ * <p>
+ * Actions written to the connection are answered with a successful response
+ * carrying their action id, so that a manager connection can log in and
+ * determine the version. Responses are only inserted between two frames of
+ * the capture. Responses contained in the capture refer to the action ids of
+ * the captured session and are not matched by the replaying connection.
+ * After the last frame the connection stays open until it is closed.
+ *
+ * @since 3.40.0
+ */
+public class ReplayConnectionFacade implements SocketChannelConnectionFacade {
+    /**
+     * Replays the frames without any delay.
+     */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private static final String DEFAULT_ASTERISK_VERSION = "16.30.0";
+
+    private final CaptureReader capture;
+    private final double speed;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final CompletableFuture<Void> finished = new CompletableFuture<>();
+    private volatile String asteriskVersion = DEFAULT_ASTERISK_VERSION;
+
+    // guarded by lock
+    private final Deque<byte[]> responses = new ArrayDeque<>();
+    private boolean closed;
+
+    // only accessed by the reading thread
+    private CaptureReader.Frame nextFrame;
+    private ByteBuffer current;
+    private boolean currentIsResponse;
+    private long firstNanos;
+    private long replayStart;
+    private boolean started;
+    private int lines;
+    private int lineLength;
+    private boolean atFrameBoundary = true;
+
+    // only accessed by the writing thread
+    private final StringBuilder written = new StringBuilder();
+
+    /**
+     * Creates a new replay.
+     *
+     * @param capture the capture to replay, it is closed with the connection.
+     * @param speed   how much faster than captured to replay, 1 for the
+     *                captured pace or {@link #MAX_SPEED}.
+     */
+    public ReplayConnectionFacade(CaptureReader capture, double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive: " + speed);
+        }
+        this.capture = capture;
+        this.speed = speed;
+    }
+
+    /**
+     * Sets the version reported in response to a CoreSettings action.
+     *
+     * @param asteriskVersion the version, for example "18.20.0".
+     */
+    public void setAsteriskVersion(String asteriskVersion) {
+        this.asteriskVersion = asteriskVersion;
+    }
+
+    /**
+     * Returns a future that is completed when all received frames of the
+     * capture have been returned by {@link #read(ByteBuffer)}.
+     *
+     * @return the future.
+     */
+    public CompletableFuture<Void> finished() {
+        return finished;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        lock.lock();
+        try {
+            while (!closed) {
+                if (current != null && current.hasRemaining()) {
+                    return copy(dst);
+                }
+                if (atFrameBoundary && !responses.isEmpty()) {
+                    current = ByteBuffer.wrap(responses.poll());
+                    currentIsResponse = true;
+                    continue;
+                }
+                if (nextFrame == null) {
+                    nextFrame = nextReceivedFrame();
+                }
+                if (nextFrame == null) {
+                    finished.complete(null);
+                    changed.await();
+                    continue;
+                }
+
+                final long delay = due(nextFrame) - System.nanoTime();
+                if (delay > 0) {
+                    changed.awaitNanos(delay);
+                    continue;
+                }
+                current = ByteBuffer.wrap(payload(nextFrame));
+                currentIsResponse = false;
+                nextFrame = null;
+            }
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while replaying");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CaptureReader.Frame nextReceivedFrame() throws IOException {
+        CaptureReader.Frame frame;
+        while ((frame = capture.next()) != null && frame.isSent()) {
+            // skip
+        }
+        return frame;
+    }
+
+    private long due(CaptureReader.Frame frame) {
+        if (!started) {
+            started = true;
+            firstNanos = frame.getNanos();
+            replayStart = System.nanoTime();
+        }
+        if (Double.isInfinite(speed)) {
+            return replayStart;
+        }
+        return replayStart + (long) ((frame.getNanos() - firstNanos) / speed);
+    }
+
+    private static byte[] payload(CaptureReader.Frame frame) {
+        if (!frame.isLine()) {
+            return frame.getPayload();
+        }
+        // the line delimiter has been removed by the capturing connection
+        final byte[] payload = frame.getPayload();
+        final byte[] line = new byte[payload.length + 2];
+        System.arraycopy(payload, 0, line, 0, payload.length);
+        line[payload.length] = '\r';
+        line[payload.length + 1] = '\n';
+        return line;
+    }
+
+    private int copy(ByteBuffer dst) {
+        final int count = Math.min(dst.remaining(), current.remaining());
+        for (int i = 0; i < count; i++) {
+            final byte b = current.get();
+            dst.put(b);
+            if (!currentIsResponse) {
+                track(b);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Keeps track of whether the bytes returned so far end with a complete
+     * frame, that is after the protocol identifier or an empty line.
+     */
+    private void track(byte b) {
+        if (b == '\n') {
+            atFrameBoundary = lineLength == 0 || lines == 0;
+            lines++;
+            lineLength = 0;
+        } else {
+            if (b != '\r') {
+                lineLength++;
+            }
+            atFrameBoundary = false;
+        }
+    }
+
+    @Override
+    public String readLine() {
+        throw new UnsupportedOperationException("A replay can only be read byte wise");
+    }
+
+    @Override
+    public void write(String s) {
+        written.append(s);
+    }
+
+    @Override
+    public void write(ByteBuffer[] srcs) {
+        for (ByteBuffer src : srcs) {
+            written.append(StandardCharsets.UTF_8.decode(src));
+        }
+        flush();
+    }
+
+    @Override
+    public void flush() {
+        int end;
+        while ((end = written.indexOf("\r\n\r\n")) >= 0) {
+            final String action = written.substring(0, end);
+            written.delete(0, end + 4);
+            respond(action);
+        }
+    }
+
+    private void respond(String action) {
+        final String name = header(action, "action");
+        final String actionId = header(action, "actionid");
+        final StringBuilder sb = new StringBuilder("Response: Success\r\n");
+        if (actionId != null) {
+            sb.append("ActionID: ").append(actionId).append("\r\n");
+        }
+        if ("challenge".equalsIgnoreCase(name)) {
+            sb.append("Challenge: 000000000\r\n");
+        } else if ("coresettings".equalsIgnoreCase(name)) {
+            sb.append("AsteriskVersion: ").append(asteriskVersion).append("\r\n");
+        }
+        sb.append("Message: Replayed\r\n\r\n");
+
+        lock.lock();
+        try {
+            responses.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static String header(String action, String name) {
+        final String prefix = name + ":";
+        for (String line : action.split("\r\n")) {
+            if (line.toLowerCase(Locale.ENGLISH).startsWith(prefix)) {
+                return line.substring(prefix.length()).trim();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            capture.close();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        lock.lock();
+        try {
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+        return InetAddress.getLoopbackAddress();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return 0;
+    }
+
+    @Override
+    public InetAddress getRemoteAddress() {
+        return InetAddress.getLoopbackAddress();
+    }
+
+    @Override
+    public int getRemotePort() {
+        return 0;
+    }
+}
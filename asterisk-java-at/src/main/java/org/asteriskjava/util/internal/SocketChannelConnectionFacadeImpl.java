@@ -0,0 +1,243 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util.internal;
+
+import org.asteriskjava.util.SocketChannelConnectionFacade;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Implementation of the SocketChannelConnectionFacade interface using a
+ * non-blocking {@link SocketChannel} for use with the Manager API.<p>
+ * Reads block on a selector so that the read timeout is honoured. SSL is not
+ * supported, use {@link SocketConnectionFacadeImpl} for SSL connections.
+ *
+ * @since 3.40.0
+ */
+public class SocketChannelConnectionFacadeImpl implements SocketChannelConnectionFacade {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    private final SocketChannel channel;
+    private final Selector readSelector;
+    private final Selector writeSelector;
+    private final Charset encoding;
+    private final int readTimeout;
+    private final ByteBuffer lineBuffer;
+    private ByteBuffer writeBuffer;
+    private Trace trace;
+
+    /**
+     * Creates a new instance for use with the Manager API that uses the given
+     * encoding and CRNL ("\r\n") as line delimiter.
+     *
+     * @param host        the foreign host to connect to.
+     * @param port        the foreign port to connect to.
+     * @param timeout     0 incidcates default
+     * @param readTimeout the read timeout in milliseconds, 0 for no timeout
+     * @param encoding    the encoding used for transmission of strings (all
+     *                    connections should use the same encoding)
+     * @throws IOException if the connection cannot be established.
+     */
+    public SocketChannelConnectionFacadeImpl(String host, int port, int timeout, int readTimeout, Charset encoding)
+            throws IOException {
+        this.channel = SocketChannel.open();
+        this.encoding = encoding;
+        this.readTimeout = readTimeout;
+
+        try {
+            // connect in blocking mode to honour the connect timeout
+            channel.socket().connect(new InetSocketAddress(host, port), timeout);
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+
+            this.readSelector = Selector.open();
+            this.writeSelector = Selector.open();
+            channel.register(readSelector, SelectionKey.OP_READ);
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.lineBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.lineBuffer.flip();
+        this.writeBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+        trace = TraceFactory.getTrace(channel.socket());
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        final long deadline = readTimeout > 0 ? System.currentTimeMillis() + readTimeout : 0;
+        final int position = dst.position();
+
+        while (true) {
+            final int count = channel.read(dst);
+            if (count != 0) {
+                if (count > 0 && trace != null && dst.hasArray()) {
+                    trace.received(new String(dst.array(), dst.arrayOffset() + position, count, encoding));
+                }
+                return count;
+            }
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+
+            final long wait = deadline == 0 ? 0 : deadline - System.currentTimeMillis();
+            if (deadline != 0 && wait <= 0) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+            await(readSelector, wait);
+        }
+    }
+
+    private void await(Selector selector, long timeout) throws IOException {
+        try {
+            selector.select(timeout);
+            selector.selectedKeys().clear();
+        } catch (ClosedSelectorException e) {
+            throw new ClosedChannelException();
+        }
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    public String readLine() throws IOException {
+        while (true) {
+            final byte[] bytes = lineBuffer.array();
+            final int start = lineBuffer.position();
+            final int limit = lineBuffer.limit();
+
+            for (int i = start; i < limit - 1; i++) {
+                if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                    lineBuffer.position(i + 2);
+                    return new String(bytes, start, i - start, encoding);
+                }
+            }
+
+            lineBuffer.compact();
+            if (!lineBuffer.hasRemaining()) {
+                throw new IOException("Line exceeds " + lineBuffer.capacity() + " bytes");
+            }
+            final int count = read(lineBuffer);
+            lineBuffer.flip();
+            if (count < 0) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void write(String s) throws IOException {
+        final byte[] bytes = s.getBytes(encoding);
+        if (writeBuffer.remaining() < bytes.length) {
+            final ByteBuffer larger = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2,
+                    writeBuffer.position() + bytes.length));
+            writeBuffer.flip();
+            larger.put(writeBuffer);
+            writeBuffer = larger;
+        }
+        writeBuffer.put(bytes);
+        if (trace != null) {
+            trace.sent(s);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBuffer.flip();
+        try {
+            while (writeBuffer.hasRemaining()) {
+                if (channel.write(writeBuffer) == 0) {
+                    await(writeSelector, 0);
+                }
+            }
+        } finally {
+            writeBuffer.compact();
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer[] srcs) throws IOException {
+        flush();
+        if (trace != null) {
+            for (ByteBuffer src : srcs) {
+                trace.sent(encoding.decode(src.duplicate()).toString());
+            }
+        }
+        for (ByteBuffer src : srcs) {
+            while (src.hasRemaining()) {
+                if (channel.write(srcs) == 0) {
+                    await(writeSelector, 0);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            // unblock the reader and writer, they will notice the closed channel
+            readSelector.wakeup();
+            writeSelector.wakeup();
+            readSelector.close();
+            writeSelector.close();
+            // close the trace only if it was activated (the object is not null)
+            if (trace != null) {
+                trace.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+        return channel.socket().getLocalAddress();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    @Override
+    public InetAddress getRemoteAddress() {
+        return channel.socket().getInetAddress();
+    }
+
+    @Override
+    public int getRemotePort() {
+        return channel.socket().getPort();
+    }
+}
@@ -126,9 +126,7 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade {
         socket.connect(new InetSocketAddress(host, port), timeout);
 
         initialize(socket, encoding, lineDelimiter);
-        if (System.getProperty(Trace.TRACE_PROPERTY, "false").equalsIgnoreCase("true")) {
-            trace = new FileTrace(socket);
-        }
+        trace = TraceFactory.getTrace(socket);
     }
 
     /**
@@ -191,7 +189,7 @@ public class SocketConnectionFacadeImpl implements SocketConnectionFacade {
         }
 
         if (trace != null) {
-            trace.received(line);
+            trace.receivedLine(line);
         }
         return line;
     }
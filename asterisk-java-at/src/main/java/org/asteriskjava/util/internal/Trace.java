@@ -10,6 +10,16 @@ public interface Trace {
      */
     String TRACE_PROPERTY = "org.asteriskjava.trace";
 
+    /**
+     * Name of the system property to choose the trace format.<p>
+     * Either <code>text</code> (the default) for a human readable trace or
+     * <code>capture</code> for a binary capture that can be replayed.
+     *
+     * @see CaptureTrace
+     * @since 3.40.0
+     */
+    String TRACE_FORMAT_PROPERTY = "org.asteriskjava.trace.format";
+
     /**
      * Writes data that has been received from the network to the trace.
      *
@@ -17,6 +27,18 @@ public interface Trace {
      */
     void received(String s);
 
+    /**
+     * Writes a line that has been received from the network to the trace.
+     * Used by connections that read line by line, the line delimiter has
+     * been removed.
+     *
+     * @param line the line that has been received.
+     * @since 3.40.0
+     */
+    default void receivedLine(String line) {
+        received(line);
+    }
+
     /**
      * Writes data that has been sent to the network to the trace.
      *
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.util.internal;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Creates the trace for a socket depending on
+ * {@link Trace#TRACE_FORMAT_PROPERTY}.
+ *
+ * @since 3.40.0
+ */
+public final class TraceFactory {
+    public static final String FORMAT_TEXT = "text";
+    public static final String FORMAT_CAPTURE = "capture";
+
+    private TraceFactory() {
+    }
+
+    /**
+     * Creates a trace if tracing has been enabled by {@link Trace#TRACE_PROPERTY}.
+     *
+     * @param socket the socket to trace.
+     * @return the trace or <code>null</code> if tracing is disabled.
+     * @throws IOException if the trace file cannot be created.
+     */
+    public static Trace getTrace(Socket socket) throws IOException {
+        if (!System.getProperty(Trace.TRACE_PROPERTY, "false").equalsIgnoreCase("true")) {
+            return null;
+        }
+        if (FORMAT_CAPTURE.equalsIgnoreCase(System.getProperty(Trace.TRACE_FORMAT_PROPERTY, FORMAT_TEXT))) {
+            return new CaptureTrace(socket);
+        }
+        return new FileTrace(socket);
+    }
+}
@@ -0,0 +1,192 @@
+package org.asteriskjava.fastagi;
+
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs a large number of concurrent AGI sessions against a local fake
+ * Asterisk. All scripts wait until every session has been answered, so the
+ * server must serve all of them at the same time.
+ * <p>
+ * The test only runs if the system property <code>agiLoadTest</code> is set
+ * to <code>true</code>. By default 100 sessions are run, the number can be
+ * changed with the system property <code>agiLoadTest.sessions</code>, each
+ * session needs two file descriptors.
+ */
+class AgiServerLoadTest {
+    private static final Log logger = LogFactory.getLog(AgiServerLoadTest.class);
+    private static final byte[] REPLY = "200 result=0\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void shouldServeConcurrentSessions() throws Exception {
+        assumeTrue(Boolean.getBoolean("agiLoadTest"), "agiLoadTest is not enabled");
+        final int sessions = Integer.getInteger("agiLoadTest.sessions", 100);
+
+        final CountDownLatch answered = new CountDownLatch(sessions);
+        final AtomicInteger completed = new AtomicInteger();
+        final AgiScript script = (request, channel) -> {
+            channel.answer();
+            answered.countDown();
+            try {
+                if (!answered.await(60, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            channel.hangup();
+            completed.incrementAndGet();
+        };
+
+        final DefaultAgiServer server = new DefaultAgiServer(new StaticMappingStrategy(script));
+        server.setAddress(InetAddress.getLoopbackAddress());
+        server.setPort(findFreePort());
+        server.setMaximumPoolSize(sessions + 10);
+        server.setUseVirtualThreads(true);
+
+        final Thread serverThread = new Thread(server::run, "AgiServerLoadTest");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        try {
+            final long start = System.nanoTime();
+            final int closed = new FakeAsterisk(server.getPort(), sessions).run(TimeUnit.SECONDS.toMillis(120));
+            final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            logger.info(sessions + " concurrent AGI sessions on "
+                    + (server.isUseVirtualThreads() ? "virtual threads" : "the thread pool") + " in " + elapsed
+                    + " ms");
+            assertThat(answered.getCount()).isZero();
+            assertThat(completed).hasValue(sessions);
+            assertThat(closed).isEqualTo(sessions);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Opens the AGI sessions like Asterisk would and replies with success to
+     * every command, all on a single thread.
+     */
+    private static final class FakeAsterisk {
+        private final int port;
+        private final int sessions;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+
+        FakeAsterisk(int port, int sessions) {
+            this.port = port;
+            this.sessions = sessions;
+        }
+
+        /**
+         * @return the number of sessions closed by the server.
+         */
+        int run(long timeout) throws IOException, InterruptedException {
+            final long deadline = System.currentTimeMillis() + timeout;
+            int closed = 0;
+            try (Selector selector = Selector.open()) {
+                for (int i = 0; i < sessions; i++) {
+                    final SocketChannel channel = connect();
+                    channel.configureBlocking(false);
+                    channel.register(selector, SelectionKey.OP_READ);
+                    write(channel, ByteBuffer.wrap(environment(i).getBytes(StandardCharsets.US_ASCII)));
+                }
+
+                while (closed < sessions && System.currentTimeMillis() < deadline) {
+                    selector.select(1000);
+                    final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        if (!read(key)) {
+                            key.cancel();
+                            key.channel().close();
+                            closed++;
+                        }
+                    }
+                }
+
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+            }
+            return closed;
+        }
+
+        private SocketChannel connect() throws IOException, InterruptedException {
+            // the backlog of the server may be full for a moment
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                } catch (IOException e) {
+                    if (attempt == 50) {
+                        throw e;
+                    }
+                    Thread.sleep(100);
+                }
+            }
+        }
+
+        private static String environment(int session) {
+            return "agi_network: yes\n" + "agi_network_script: load\n" + "agi_request: agi://localhost/load\n"
+                    + "agi_channel: PJSIP/load-" + session + "\n" + "agi_uniqueid: 1000." + session + "\n"
+                    + "agi_version: 18.10.0\n" + "\n";
+        }
+
+        /**
+         * Replies to each received command line.
+         *
+         * @return <code>false</code> if the server has closed the session.
+         */
+        private boolean read(SelectionKey key) throws IOException {
+            final SocketChannel channel = (SocketChannel) key.channel();
+            readBuffer.clear();
+            final int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                return false;
+            }
+            if (read < 0) {
+                return false;
+            }
+            for (int i = 0; i < read; i++) {
+                if (readBuffer.get(i) == '\n') {
+                    write(channel, ByteBuffer.wrap(REPLY));
+                }
+            }
+            return true;
+        }
+
+        private static void write(SocketChannel channel, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.asteriskjava.fastagi;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NioAgiServerTest {
+    private NioAgiServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRunNonBlockingScript() throws Exception {
+        final CompletableFuture<String> value = new CompletableFuture<>();
+        final NonBlockingAgiScript script = (request, channel) -> channel.answer()
+                .thenCompose(reply -> channel.getVariable("FOO"))
+                .thenCompose(foo -> {
+                    value.complete(foo);
+                    return channel.setVariable("BAR", foo);
+                });
+        startServer(script);
+
+        try (FakeAsterisk asterisk = new FakeAsterisk(server.getPort())) {
+            asterisk.sendRequest("agi://localhost/test");
+
+            assertThat(asterisk.readCommand()).isEqualTo("ANSWER");
+            // progress and the reply split across writes
+            asterisk.send("100 result=0 Trying...\n200 res");
+            asterisk.send("ult=0\n");
+            assertThat(asterisk.readCommand()).isEqualTo("GET VARIABLE \"FOO\"");
+            asterisk.send("200 result=1 (hello)\n");
+            assertThat(asterisk.readCommand()).isEqualTo("SET VARIABLE \"BAR\" \"hello\"");
+            asterisk.send("200 result=1\n");
+            assertThat(asterisk.readCommand()).isEqualTo("SET VARIABLE \"AJ_AGISTATUS\" \"SUCCESS\"");
+            asterisk.send("200 result=1\n");
+            assertThat(asterisk.readCommand()).isNull();
+        }
+        assertThat(value.get(5, TimeUnit.SECONDS)).isEqualTo("hello");
+    }
+
+    @Test
+    void shouldFailOnInvalidCommandSyntax() throws Exception {
+        final CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        final NonBlockingAgiScript script = (request, channel) -> channel.answer()
+                .whenComplete((reply, e) -> failure.complete(e));
+        startServer(script);
+
+        try (FakeAsterisk asterisk = new FakeAsterisk(server.getPort())) {
+            asterisk.sendRequest("agi://localhost/test");
+
+            assertThat(asterisk.readCommand()).isEqualTo("ANSWER");
+            asterisk.send("520-Invalid command syntax.  Proper usage follows:\n"
+                    + " Usage: ANSWER\n" + "520 End of proper usage.\n");
+            assertThat(asterisk.readCommand()).isEqualTo("SET VARIABLE \"AJ_AGISTATUS\" \"FAILED\"");
+            asterisk.send("200 result=1\n");
+            assertThat(asterisk.readCommand()).isNull();
+        }
+        assertThat(failure.get(5, TimeUnit.SECONDS)).isInstanceOf(InvalidCommandSyntaxException.class);
+    }
+
+    @Test
+    void shouldRunBlockingScriptOnPool() throws Exception {
+        final CompletableFuture<String> value = new CompletableFuture<>();
+        final AgiScript script = (request, channel) -> {
+            channel.answer();
+            value.complete(channel.getVariable("FOO"));
+        };
+        startServer(script);
+
+        try (FakeAsterisk asterisk = new FakeAsterisk(server.getPort())) {
+            asterisk.sendRequest("agi://localhost/test");
+
+            assertThat(asterisk.readCommand()).isEqualTo("ANSWER");
+            asterisk.send("200 result=0\n");
+            assertThat(asterisk.readCommand()).isEqualTo("GET VARIABLE \"FOO\"");
+            asterisk.send("HANGUP200 result=1 (bye)\n");
+            assertThat(asterisk.readCommand()).isEqualTo("SET VARIABLE \"AJ_AGISTATUS\" \"SUCCESS\"");
+            asterisk.send("200 result=1\n");
+            assertThat(asterisk.readCommand()).isNull();
+        }
+        assertThat(value.get(5, TimeUnit.SECONDS)).isEqualTo("bye");
+    }
+
+    @Test
+    void shouldDetermineScriptOnPoolAndRunNonBlockingScriptOnSelector() throws Exception {
+        final CompletableFuture<Thread> scriptThread = new CompletableFuture<>();
+        final NonBlockingAgiScript script = (request, channel) -> {
+            scriptThread.complete(Thread.currentThread());
+            return channel.answer();
+        };
+        // reads the channel, which is not possible on the selector thread
+        final MappingStrategy mappingStrategy = (request, channel) -> {
+            try {
+                return "yes".equals(channel.getVariable("NONBLOCKING")) ? script : null;
+            } catch (AgiException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        startServer(mappingStrategy);
+
+        try (FakeAsterisk asterisk = new FakeAsterisk(server.getPort())) {
+            asterisk.sendRequest("agi://localhost/test");
+
+            assertThat(asterisk.readCommand()).isEqualTo("GET VARIABLE \"NONBLOCKING\"");
+            asterisk.send("200 result=1 (yes)\n");
+            assertThat(asterisk.readCommand()).isEqualTo("ANSWER");
+            asterisk.send("200 result=0\n");
+            assertThat(asterisk.readCommand()).isEqualTo("SET VARIABLE \"AJ_AGISTATUS\" \"SUCCESS\"");
+            asterisk.send("200 result=1\n");
+            assertThat(asterisk.readCommand()).isNull();
+        }
+        assertThat(scriptThread.get(5, TimeUnit.SECONDS).getName()).isEqualTo("NioAgiServerTest");
+    }
+
+    private void startServer(AgiScript script) throws Exception {
+        startServer(new StaticMappingStrategy(script));
+    }
+
+    private void startServer(MappingStrategy mappingStrategy) throws Exception {
+        server = new NioAgiServer(mappingStrategy);
+        server.setAddress(InetAddress.getLoopbackAddress());
+        try (ServerSocket socket = new ServerSocket(0)) {
+            server.setPort(socket.getLocalPort());
+        }
+        final NioAgiServer started = server;
+        final Thread thread = new Thread(() -> {
+            try {
+                started.startup();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "NioAgiServerTest");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static final class FakeAsterisk implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final OutputStream out;
+
+        FakeAsterisk(int port) throws Exception {
+            Socket connected = null;
+            // wait for the server to bind
+            for (int attempt = 0; connected == null; attempt++) {
+                try {
+                    connected = new Socket(InetAddress.getLoopbackAddress(), port);
+                } catch (IOException e) {
+                    if (attempt == 50) {
+                        throw e;
+                    }
+                    Thread.sleep(100);
+                }
+            }
+            socket = connected;
+            socket.setSoTimeout(5000);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = socket.getOutputStream();
+        }
+
+        void sendRequest(String url) throws IOException {
+            send("agi_network: yes\n" + "agi_network_script: test\n" + "agi_request: " + url + "\n"
+                    + "agi_channel: PJSIP/test-1\n" + "agi_uniqueid: 1000.1\n" + "agi_version: 18.10.0\n" + "\n");
+        }
+
+        void send(String s) throws IOException {
+            out.write(s.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        String readCommand() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.asteriskjava.live.internal;
+
+import org.asteriskjava.manager.event.AgentCalledEvent;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AgentManagerTest {
+    @Test
+    void shouldIgnoreAgentCalledEventWithoutAgentCalled() {
+        final AgentManager agentManager = new AgentManager(new AsteriskServerImpl());
+
+        // Asterisk 12 and later only send the Interface
+        final AgentCalledEvent event = new AgentCalledEvent(this);
+        event.setInterface("SIP/1001");
+        agentManager.handleAgentCalledEvent(event);
+
+        assertThat(agentManager.getAgentByAgentId(null)).isNull();
+    }
+}
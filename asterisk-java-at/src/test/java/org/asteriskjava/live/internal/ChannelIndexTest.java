@@ -0,0 +1,95 @@
+package org.asteriskjava.live.internal;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.util.DateUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelIndexTest {
+    private AsteriskServerImpl server;
+    private ChannelIndex index;
+
+    @BeforeEach
+    void setUp() {
+        server = new AsteriskServerImpl();
+        index = new ChannelIndex();
+    }
+
+    @Test
+    void shouldFollowNameAndStateChanges() {
+        final AsteriskChannelImpl channel = newChannel("SIP/1234-1", "1000.1");
+        index.add(channel);
+
+        assertThat(index.getById("1000.1")).isSameAs(channel);
+        assertThat(index.getByName("SIP/1234-1")).containsExactly(channel);
+        assertThat(index.getByState(ChannelState.DOWN)).containsExactly(channel);
+
+        channel.nameChanged(DateUtil.getDate(), "SIP/1234-1<MASQ>");
+        channel.stateChanged(DateUtil.getDate(), ChannelState.UP);
+
+        assertThat(index.getByName("SIP/1234-1")).isEmpty();
+        assertThat(index.getByName("SIP/1234-1<MASQ>")).containsExactly(channel);
+        assertThat(index.getByState(ChannelState.DOWN)).isEmpty();
+        assertThat(index.getByState(ChannelState.UP)).containsExactly(channel);
+        assertThat(index.getActive()).containsExactly(channel);
+
+        channel.hungup(DateUtil.getDate(), null, null);
+        assertThat(index.getActive()).isEmpty();
+        assertThat(index.getByState(ChannelState.HUNGUP)).containsExactly(channel);
+    }
+
+    @Test
+    void shouldFollowIdChanges() {
+        final AsteriskChannelImpl channel = newChannel("Local/100@default-1;1", "1000.1");
+        final AsteriskChannelImpl other = newChannel("Local/100@default-1;1", "1000.2");
+        index.add(channel);
+        index.add(other);
+        assertThat(index.getByName("Local/100@default-1;1")).containsExactly(channel, other);
+
+        channel.idChanged(DateUtil.getDate(), "1000.3");
+
+        assertThat(index.getById("1000.1")).isNull();
+        assertThat(index.getById("1000.3")).isSameAs(channel);
+        // moved to the end like the former map did
+        assertThat(index.getByName("Local/100@default-1;1")).containsExactly(other, channel);
+    }
+
+    @Test
+    void shouldIndexLinkedIdAndTraceId() {
+        final AsteriskChannelImpl caller = newChannel("SIP/1234-1", "1000.1");
+        final AsteriskChannelImpl callee = newChannel("SIP/5678-1", "1000.2");
+        caller.setLinkedId("1000.1");
+        index.add(caller);
+        index.add(callee);
+
+        index.linkedIdChanged(callee, "1000.1");
+        index.traceIdChanged(callee, "trace");
+
+        assertThat(index.getByLinkedId("1000.1")).containsExactly(caller, callee);
+        assertThat(index.getByTraceId("trace")).containsExactly(callee);
+        assertThat(callee.getTraceId()).isEqualTo("trace");
+    }
+
+    @Test
+    void shouldStopFollowingRemovedChannels() {
+        final AsteriskChannelImpl channel = newChannel("SIP/1234-1", "1000.1");
+        index.add(channel);
+        index.remove(channel);
+
+        channel.stateChanged(DateUtil.getDate(), ChannelState.UP);
+        index.traceIdChanged(channel, "trace");
+
+        assertThat(index.size()).isZero();
+        assertThat(index.getByName("SIP/1234-1")).isEmpty();
+        assertThat(index.getByState(ChannelState.UP)).isEmpty();
+        assertThat(index.getByTraceId("trace")).isEmpty();
+    }
+
+    private AsteriskChannelImpl newChannel(String name, String id) {
+        final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, name, id, DateUtil.getDate());
+        channel.stateChanged(DateUtil.getDate(), ChannelState.DOWN);
+        return channel;
+    }
+}
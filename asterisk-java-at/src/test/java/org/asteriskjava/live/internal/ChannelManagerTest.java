@@ -0,0 +1,122 @@
+package org.asteriskjava.live.internal;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+import org.asteriskjava.util.DateUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelManagerTest {
+    private static final long START = 1_600_000_000_000L;
+
+    private AsteriskServerImpl server;
+    private ChannelManager channelManager;
+
+    @BeforeEach
+    void setUp() {
+        server = new AsteriskServerImpl();
+        channelManager = new ChannelManager(server);
+        DateUtil.overrideCurrentDate(new Date(START));
+    }
+
+    @AfterEach
+    void tearDown() {
+        DateUtil.overrideCurrentDate(null);
+    }
+
+    @Test
+    void shouldRemoveHungupChannelsAfterRetention() {
+        channelManager.setRemovalThreshold(60_000L);
+        addChannel("SIP/1-1", "1000.1");
+        addChannel("SIP/2-1", "1000.2");
+        addChannel("SIP/3-1", "1000.3");
+
+        hangup("1000.1", START);
+        hangup("1000.2", START + 30_000L);
+
+        DateUtil.overrideCurrentDate(new Date(START + 59_999L));
+        channelManager.removeOldChannels();
+        assertThat(channelManager.getChannelImplById("1000.1")).isNotNull();
+
+        DateUtil.overrideCurrentDate(new Date(START + 60_000L));
+        channelManager.removeOldChannels();
+        assertThat(channelManager.getChannelImplById("1000.1")).isNull();
+        assertThat(channelManager.getChannelImplById("1000.2")).isNotNull();
+        assertThat(channelManager.getChannelImplByName("SIP/1-1")).isNull();
+
+        DateUtil.overrideCurrentDate(new Date(START + 120_000L));
+        channelManager.removeOldChannels();
+        assertThat(channelManager.getChannelImplById("1000.2")).isNull();
+        // never removed while active
+        assertThat(channelManager.getChannelImplById("1000.3")).isNotNull();
+    }
+
+    @Test
+    void shouldLimitNumberOfHungupChannels() {
+        channelManager.setMaxHungupChannels(2);
+        for (int i = 1; i <= 4; i++) {
+            addChannel("SIP/" + i + "-1", "1000." + i);
+            hangup("1000." + i, START);
+        }
+        // hanging up twice must not count twice
+        hangup("1000.4", START);
+
+        assertThat(channelManager.getChannelImplById("1000.1")).isNull();
+        assertThat(channelManager.getChannelImplById("1000.2")).isNull();
+        assertThat(channelManager.getChannelImplById("1000.3")).isNotNull();
+        assertThat(channelManager.getChannelImplById("1000.4")).isNotNull();
+    }
+
+    @Test
+    void shouldTakeTraceIdFromChannelVariables() {
+        final NewChannelEvent event = new NewChannelEvent(this);
+        event.setUniqueId("1000.1");
+        event.setLinkedid("1000.1");
+        event.setChannel("SIP/1-1");
+        event.setChannelState(ChannelState.RING.getStatus());
+        event.setDateReceived(DateUtil.getDate());
+        event.setChanVariables(Collections.singletonMap(Constants.VARIABLE_TRACE_ID, "trace-1"));
+        channelManager.handleNewChannelEvent(event);
+
+        final AsteriskChannelImpl channel = channelManager.getChannelImplById("1000.1");
+        assertThat(channel.getTraceId()).isEqualTo("trace-1");
+        assertThat(channelManager.getChannelImplsByTraceId("trace-1")).containsExactly(channel);
+        assertThat(channelManager.getChannelImplsByLinkedId("1000.1")).containsExactly(channel);
+    }
+
+    @Test
+    void shouldTakeTraceIdFromVarSetEvent() {
+        addChannel("SIP/1-1", "1000.1");
+
+        final VarSetEvent event = new VarSetEvent(this);
+        event.setUniqueId("1000.1");
+        event.setVariable("__" + Constants.VARIABLE_TRACE_ID);
+        event.setValue("trace-2");
+        channelManager.handleVarSetEvent(event);
+
+        assertThat(channelManager.getChannelImplsByTraceId("trace-2"))
+                .containsExactly(channelManager.getChannelImplById("1000.1"));
+    }
+
+    private void addChannel(String name, String id) {
+        final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, name, id, DateUtil.getDate());
+        channel.stateChanged(DateUtil.getDate(), ChannelState.UP);
+        channelManager.channels.add(channel);
+    }
+
+    private void hangup(String id, long date) {
+        final HangupEvent event = new HangupEvent(this);
+        event.setUniqueId(id);
+        event.setCause(16);
+        event.setDateReceived(new Date(date));
+        channelManager.handleHangupEvent(event);
+    }
+}
@@ -0,0 +1,104 @@
+package org.asteriskjava.live.internal;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.manager.SendActionCallback;
+import org.asteriskjava.manager.action.GetVarAction;
+import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.DateUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceIdResolverTest {
+    private ScheduledThreadPoolExecutor executor;
+    private FakeServer server;
+    private Map<AsteriskChannelImpl, String> resolved;
+    private TraceIdResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ScheduledThreadPoolExecutor(1);
+        server = new FakeServer();
+        resolved = new ConcurrentHashMap<>();
+        resolver = new TraceIdResolver(server, executor, 20, resolved::put);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldSendOneBatchWithoutWaitingForResponses() throws Exception {
+        final AsteriskChannelImpl channel1 = newChannel("SIP/1-1", "1000.1");
+        final AsteriskChannelImpl channel2 = newChannel("SIP/2-1", "1000.2");
+        resolver.resolve(channel1);
+        resolver.resolve(channel2);
+
+        awaitActions(2);
+        assertThat(((GetVarAction) server.actions.get(0)).getChannel()).isEqualTo("SIP/1-1");
+        assertThat(((GetVarAction) server.actions.get(1)).getChannel()).isEqualTo("SIP/2-1");
+        assertThat(resolved).isEmpty();
+
+        server.reply(0, "trace-1");
+        assertThat(resolved).containsEntry(channel1, "trace-1").hasSize(1);
+    }
+
+    @Test
+    void shouldRetryEmptyTraceIdOnce() throws Exception {
+        final AsteriskChannelImpl channel = newChannel("SIP/1-1", "1000.1");
+        resolver.resolve(channel);
+
+        awaitActions(1);
+        server.reply(0, "");
+        awaitActions(2);
+        server.reply(1, "");
+
+        Thread.sleep(100);
+        assertThat(resolved).isEmpty();
+        assertThat(server.actions).hasSize(2);
+    }
+
+    private void awaitActions(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (server.actions.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(server.actions).hasSize(count);
+    }
+
+    private AsteriskChannelImpl newChannel(String name, String id) {
+        final AsteriskChannelImpl channel = new AsteriskChannelImpl(server, name, id, DateUtil.getDate());
+        channel.stateChanged(DateUtil.getDate(), ChannelState.UP);
+        return channel;
+    }
+
+    private static final class FakeServer extends AsteriskServerImpl {
+        private final List<ManagerAction> actions = new CopyOnWriteArrayList<>();
+        private final List<SendActionCallback> callbacks = new CopyOnWriteArrayList<>();
+
+        @Override
+        void sendAction(ManagerAction action, SendActionCallback callback) {
+            actions.add(action);
+            callbacks.add(callback);
+        }
+
+        void reply(int index, String value) {
+            final ManagerResponse response = new ManagerResponse();
+            response.setResponse("Success");
+            response.setAttributes(new ConcurrentHashMap<>());
+            response.getAttributes().put("value", value);
+            callbacks.get(index).onResponse(response);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.asteriskjava.lock;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.asteriskjava.lock.Locker.LockCloser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LockProfilerTest {
+    private final Lockable lockable = new Lockable();
+
+    @BeforeEach
+    void setUp() {
+        Locker.disable();
+        LockProfiler.reset();
+        LockProfiler.enable(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        LockProfiler.disable();
+        LockProfiler.reset();
+    }
+
+    @Test
+    void shouldRecordWaitAndHoldPerCallSite() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final Thread holder = new Thread(() -> {
+            try (LockCloser closer = lockable.withLock()) {
+                locked.countDown();
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        locked.await();
+        try (LockCloser closer = lockable.withLock()) {
+            // waits for the holder
+        }
+        holder.join();
+
+        final List<LockCallSite> callSites = LockProfiler.getCallSites();
+        assertThat(callSites).hasSize(2);
+        final LockCallSite waiter = callSites.get(0);
+        assertThat(waiter.getName()).contains("LockProfilerTest.shouldRecordWaitAndHoldPerCallSite");
+        assertThat(waiter.getLockClass()).isEqualTo(Lockable.class.getName());
+        assertThat(waiter.getSampledCount()).isEqualTo(1);
+        assertThat(waiter.getContendedCount()).isEqualTo(1);
+        assertThat(waiter.getWaitTime().getMaxNanos()).isGreaterThan(10_000_000L);
+        assertThat(callSites.get(1).getHoldTime().getMaxNanos()).isGreaterThan(10_000_000L);
+    }
+
+    @Test
+    void shouldNotProfileWhenDisabled() {
+        LockProfiler.disable();
+        try (LockCloser closer = lockable.withLock()) {
+            // not sampled
+        }
+        assertThat(LockProfiler.getCallSites()).isEmpty();
+    }
+
+    @Test
+    void shouldEmitJfrEvents() throws Exception {
+        final Path file = Files.createTempFile("locks", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.asteriskjava.LockAcquisition");
+            recording.start();
+            try (LockCloser closer = lockable.withLock()) {
+                // sampled
+            }
+            recording.stop();
+            recording.dump(file);
+
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events).isNotEmpty();
+            assertThat(events.get(0).getString("callSite")).contains("LockProfilerTest.shouldEmitJfrEvents");
+            assertThat(events.get(0).getBoolean("contended")).isFalse();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.asteriskjava.lock;
+
+import org.asteriskjava.lock.Locker.LockCloser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LockableConcurrentMapTest {
+    @Test
+    void shouldReadWithoutLockWhileWriterHoldsLock() throws Exception {
+        final LockableConcurrentMap<String, Integer> map = new LockableConcurrentMap<>();
+        map.put("a", 1);
+
+        try (LockCloser closer = map.withLock()) {
+            map.put("b", 2);
+            final CompletableFuture<List<Object>> read = CompletableFuture.supplyAsync(() -> {
+                final List<Object> result = new ArrayList<>();
+                result.add(map.get("a"));
+                result.add(map.get("b"));
+                result.add(map.size());
+                result.add(new ArrayList<>(map.values()));
+                return result;
+            });
+
+            // the reader must not wait for the lock held by this thread
+            assertThat(read.get(5, TimeUnit.SECONDS)).containsExactly(1, 2, 2, List.of(1, 2));
+        }
+    }
+
+    @Test
+    void shouldMakeCompoundUpdatesAtomicUnderLock() throws Exception {
+        final LockableConcurrentMap<String, Integer> map = new LockableConcurrentMap<>();
+        final int threads = 4;
+        final int increments = 10_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < increments; i++) {
+                        try (LockCloser closer = map.withLock()) {
+                            final Integer value = map.get("counter");
+                            map.put("counter", value == null ? 1 : value + 1);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(map.get("counter")).isEqualTo(threads * increments);
+    }
+
+    @Test
+    void shouldTreatNullKeyAsAbsent() {
+        final LockableConcurrentMap<String, Integer> map = new LockableConcurrentMap<>();
+        map.put("a", 1);
+
+        assertThat(map.get(null)).isNull();
+        assertThat(map.containsKey(null)).isFalse();
+        assertThat(map.getOrDefault(null, 2)).isEqualTo(2);
+        assertThat(map.remove(null)).isNull();
+        assertThat(map.remove(null, 1)).isFalse();
+        assertThat(map).containsOnlyKeys("a");
+    }
+}
@@ -0,0 +1,83 @@
+package org.asteriskjava.lock;
+
+import org.asteriskjava.lock.Locker.LockCloser;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LockableCopyOnWriteListTest {
+    @Test
+    void shouldReadWithoutLockWhileWriterHoldsLock() throws Exception {
+        final LockableCopyOnWriteList<String> list = new LockableCopyOnWriteList<>();
+        list.add("a");
+
+        try (LockCloser closer = list.withLock()) {
+            list.add("b");
+            final CompletableFuture<List<String>> read = CompletableFuture.supplyAsync(() -> new ArrayList<>(list));
+
+            // the reader must not wait for the lock held by this thread
+            assertThat(read.get(5, TimeUnit.SECONDS)).containsExactly("a", "b");
+        }
+    }
+
+    @Test
+    void shouldIterateOverSnapshot() {
+        final LockableCopyOnWriteList<String> list = new LockableCopyOnWriteList<>();
+        list.add("a");
+        list.add("b");
+
+        final Iterator<String> iterator = list.iterator();
+        list.remove("a");
+        list.add("c");
+
+        final List<String> seen = new ArrayList<>();
+        iterator.forEachRemaining(seen::add);
+        assertThat(seen).containsExactly("a", "b");
+        assertThat(list).containsExactly("b", "c");
+    }
+
+    @Test
+    void shouldMakeCompoundUpdatesAtomicUnderLock() throws Exception {
+        final LockableCopyOnWriteList<Integer> list = new LockableCopyOnWriteList<>();
+        final int threads = 4;
+        final int adds = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < adds; i++) {
+                        try (LockCloser closer = list.withLock()) {
+                            list.add(list.size());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // each element is the size of the list when it was added
+        assertThat(list).hasSize(threads * adds);
+        for (int i = 0; i < list.size(); i++) {
+            assertThat(list.get(i)).isEqualTo(i);
+        }
+    }
+}
@@ -2,8 +2,14 @@ package org.asteriskjava.manager;
 
 import org.asteriskjava.manager.event.JoinEvent;
 import org.asteriskjava.manager.event.LeaveEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AbstractManagerEventListenerTest {
@@ -32,6 +38,26 @@ class AbstractManagerEventListenerTest {
         assertTrue(listener.leaveEventHandled);
     }
 
+    @Test
+    void shouldHandleEventsOfAnonymousListener() {
+        //given
+        List<ManagerEvent> handled = new ArrayList<>();
+        AbstractManagerEventListener listener = new AbstractManagerEventListener() {
+            @Override
+            public void handleEvent(JoinEvent event) {
+                handled.add(event);
+            }
+        };
+        JoinEvent joinEvent = new JoinEvent(this);
+
+        //when
+        listener.onManagerEvent(joinEvent);
+        listener.onManagerEvent(new LeaveEvent(this));
+
+        //then
+        assertEquals(Collections.singletonList(joinEvent), handled);
+    }
+
     private static class EventListener extends AbstractManagerEventListener {
         public boolean joinEventHandled;
         public boolean leaveEventHandled;
@@ -0,0 +1,114 @@
+package org.asteriskjava.manager;
+
+import org.asteriskjava.manager.event.*;
+import org.asteriskjava.manager.internal.ManagerUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ManagerEventSubscriptionsTest {
+    @Test
+    void shouldSubscribeToAllEventsWithoutListeners() {
+        assertThat(ManagerEventSubscriptions.of(Collections.emptyList())).isSameAs(ManagerEventSubscriptions.ALL);
+    }
+
+    @Test
+    void shouldSubscribeToAllEventsIfAnyListenerIsNotFiltered() {
+        ManagerEventListener plain = event -> {
+        };
+
+        ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.of(
+                Arrays.asList(new FilteredListener(HangupEvent.class), plain));
+
+        assertThat(subscriptions.isAll()).isTrue();
+        assertThat(subscriptions.isSubscribed(VarSetEvent.class)).isTrue();
+    }
+
+    @Test
+    void shouldIncludeSubclassesAndSourcesOfLegacyEvents() {
+        ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.of(
+                Arrays.asList(new FilteredListener(AbstractChannelEvent.class), new FilteredListener(DialEvent.class)));
+
+        assertThat(subscriptions.isAll()).isFalse();
+        assertThat(subscriptions.isSubscribed(HangupEvent.class)).isTrue();
+        assertThat(subscriptions.isSubscribed(DialEvent.class)).isTrue();
+        assertThat(subscriptions.isSubscribed(DialBeginEvent.class)).isTrue();
+        assertThat(subscriptions.isSubscribed(VarSetEvent.class)).isFalse();
+    }
+
+    @Test
+    void shouldBuildCaseInsensitiveFilters() {
+        ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.of(
+                Collections.singletonList(new FilteredListener(HangupEvent.class)));
+
+        assertThat(subscriptions.getFilters(registry(HangupEvent.class, VarSetEvent.class)))
+                .containsExactlyInAnyOrder("ActionID: ", "^Event: [Hh][Aa][Nn][Gg][Uu][Pp][^A-Za-z0-9]");
+    }
+
+    @Test
+    void shouldFilterOnServerForSubclassesOfRequiredEvents() {
+        ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.of(
+                Collections.singletonList(new FilteredListener(DialEvent.class)));
+
+        assertThat(subscriptions.getFilters(registry(DialEvent.class, DialBeginEvent.class, DialEndEvent.class,
+                HangupEvent.class)))
+                .containsExactlyInAnyOrder("ActionID: ",
+                        "^Event: [Dd][Ii][Aa][Ll][^A-Za-z0-9]",
+                        "^Event: [Dd][Ii][Aa][Ll][Bb][Ee][Gg][Ii][Nn][^A-Za-z0-9]",
+                        "^Event: [Dd][Ii][Aa][Ll][Ee][Nn][Dd][^A-Za-z0-9]");
+    }
+
+    @Test
+    void shouldFilterOnServerForRegisteredSubclassesOfAbstractEvents() {
+        ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.of(
+                Collections.singletonList(new FilteredListener(AbstractChannelEvent.class)));
+
+        assertThat(subscriptions.getFilters(registry(HangupEvent.class, NewChannelEvent.class, VarSetEvent.class)))
+                .containsExactlyInAnyOrder("ActionID: ",
+                        "^Event: [Hh][Aa][Nn][Gg][Uu][Pp][^A-Za-z0-9]",
+                        "^Event: [Nn][Ee][Ww][Cc][Hh][Aa][Nn][Nn][Ee][Ll][^A-Za-z0-9]");
+    }
+
+    @Test
+    void shouldNotFilterOnServerForUnregisteredEvents() {
+        ManagerEventSubscriptions subscriptions = ManagerEventSubscriptions.of(
+                Collections.singletonList(new FilteredListener(AbstractChannelEvent.class)));
+
+        assertThat(subscriptions.getFilters(registry(VarSetEvent.class)))
+                .containsExactlyInAnyOrder("ActionID: ", "^Event: ");
+    }
+
+    @SafeVarargs
+    private static Map<String, Class<?>> registry(Class<? extends ManagerEvent>... eventClasses) {
+        final Map<String, Class<?>> registry = new HashMap<>();
+        for (Class<? extends ManagerEvent> eventClass : eventClasses) {
+            registry.put(ManagerUtil.getEventType(eventClass), eventClass);
+        }
+        return registry;
+    }
+
+    private static class FilteredListener implements FilteredManagerEventListener {
+        private final Set<Class<? extends ManagerEvent>> requiredEvents;
+
+        @SafeVarargs
+        FilteredListener(Class<? extends ManagerEvent>... requiredEvents) {
+            this.requiredEvents = new HashSet<>(Arrays.asList(requiredEvents));
+        }
+
+        @Override
+        public Set<Class<? extends ManagerEvent>> requiredEvents() {
+            return requiredEvents;
+        }
+
+        @Override
+        public void onManagerEvent(ManagerEvent event) {
+        }
+    }
+}
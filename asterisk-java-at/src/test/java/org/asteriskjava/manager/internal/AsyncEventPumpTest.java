@@ -0,0 +1,177 @@
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.EventQueueOverflowPolicy;
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.VarSetEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncEventPumpTest {
+    @Test
+    void shouldCountDroppedEvents() throws Exception {
+        BlockingDispatcher dispatcher = new BlockingDispatcher();
+        EventQueueCounters counters = new EventQueueCounters();
+        AsyncEventPump pump = new AsyncEventPump(this, dispatcher, "test", 2, EventQueueOverflowPolicy.DROP_NEWEST,
+                AsyncEventPump.DEFAULT_LOW_PRIORITY_EVENT_CLASSES, counters);
+
+        pump.dispatchEvent(new HangupEvent(this), null);
+        dispatcher.awaitBlocked();
+        for (int i = 0; i < 4; i++) {
+            pump.dispatchEvent(new NewChannelEvent(this), null);
+        }
+
+        assertThat(counters.getDepth()).isEqualTo(2);
+        assertThat(counters.getDroppedCount()).isEqualTo(2);
+
+        dispatcher.release();
+        pump.stop();
+
+        assertThat(dispatcher.received).hasSize(3);
+        assertThat(counters.getDispatchedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldDropLowPriorityEventsFirst() throws Exception {
+        BlockingDispatcher dispatcher = new BlockingDispatcher();
+        EventQueueCounters counters = new EventQueueCounters();
+        AsyncEventPump pump = new AsyncEventPump(this, dispatcher, "test", 4,
+                EventQueueOverflowPolicy.DROP_LOW_PRIORITY, AsyncEventPump.DEFAULT_LOW_PRIORITY_EVENT_CLASSES,
+                counters);
+
+        pump.dispatchEvent(new HangupEvent(this), null);
+        dispatcher.awaitBlocked();
+        for (int i = 0; i < 3; i++) {
+            pump.dispatchEvent(new NewChannelEvent(this), null);
+        }
+        pump.dispatchEvent(new VarSetEvent(this), null);
+
+        assertThat(counters.getDroppedCount()).isEqualTo(1);
+
+        dispatcher.release();
+        pump.stop();
+
+        assertThat(dispatcher.received).hasSize(4).noneMatch(VarSetEvent.class::isInstance);
+    }
+
+    @Test
+    void shouldSpillToDiskInOrder() throws Exception {
+        BlockingDispatcher dispatcher = new BlockingDispatcher();
+        EventQueueCounters counters = new EventQueueCounters();
+        EventBuilder eventBuilder = new EventBuilderImpl();
+        AsyncEventPump pump = new AsyncEventPump(this, dispatcher, "test", 2, EventQueueOverflowPolicy.SPILL_TO_DISK,
+                Collections.emptySet(), counters);
+
+        pump.dispatchEvent(new HangupEvent(this), null);
+        dispatcher.awaitBlocked();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put("event", "Newchannel");
+            attributes.put("channel", "SIP/" + i);
+            pump.dispatchEvent(new ManagerEventEnvelope(NewChannelEvent.class, attributes, new Date(), eventBuilder,
+                    this), null);
+        }
+
+        assertThat(counters.getSpilledCount()).isEqualTo(8);
+        assertThat(counters.getDepth()).isEqualTo(10);
+
+        dispatcher.release();
+        pump.stop();
+
+        assertThat(counters.getDroppedCount()).isZero();
+        assertThat(dispatcher.received).hasSize(11);
+        for (int i = 0; i < 10; i++) {
+            NewChannelEvent event = (NewChannelEvent) dispatcher.received.get(i + 1);
+            assertThat(event.getChannel()).isEqualTo("SIP/" + i);
+            assertThat(event.getSource()).isSameAs(this);
+        }
+    }
+
+    @Test
+    void shouldNotStallWhenSpillFileIsDrainedWhileSpilling() throws Exception {
+        final int count = 20_000;
+        final List<ManagerEvent> received = Collections.synchronizedList(new ArrayList<>());
+        EventQueueCounters counters = new EventQueueCounters();
+        AsyncEventPump pump = new AsyncEventPump(this, new CollectingDispatcher(received), "test", 2,
+                EventQueueOverflowPolicy.SPILL_TO_DISK, Collections.emptySet(), counters);
+
+        // the consumer keeps draining the spill file while the producer
+        // switches between the spill file and the ring buffer
+        for (int i = 0; i < count; i++) {
+            pump.dispatchEvent(new NewChannelEvent(this), null);
+        }
+        pump.stop();
+
+        assertThat(counters.getDroppedCount()).isZero();
+        assertThat(received).hasSize(count);
+    }
+
+    /**
+     * Blocks on the first event until released.
+     */
+    private static class BlockingDispatcher implements Dispatcher {
+        final List<ManagerEvent> received = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        @Override
+        public void dispatchResponse(ManagerResponse response, Integer requiredHandlingTime) {
+        }
+
+        @Override
+        public void dispatchEvent(ManagerEvent event, Integer requiredHandlingTime) {
+            received.add(event);
+            blocked.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    private static class CollectingDispatcher implements Dispatcher {
+        private final List<ManagerEvent> received;
+
+        CollectingDispatcher(List<ManagerEvent> received) {
+            this.received = received;
+        }
+
+        @Override
+        public void dispatchResponse(ManagerResponse response, Integer requiredHandlingTime) {
+        }
+
+        @Override
+        public void dispatchEvent(ManagerEvent event, Integer requiredHandlingTime) {
+            received.add(event);
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
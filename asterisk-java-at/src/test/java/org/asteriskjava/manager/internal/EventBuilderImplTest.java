@@ -454,6 +454,19 @@ class EventBuilderImplTest {
         assertEquals(1, event.getVariables().size(), "Invalid size of variables property");
     }
 
+    @Test
+    void testBuildEventWithChanVariables() {
+        NewChannelEvent event;
+
+        properties.put("event", "Newchannel");
+        properties.put("chanvariable", Arrays.asList("AJ_TRACE_ID=abc", "FOO=bar"));
+        event = (NewChannelEvent) eventBuilder.buildEvent(this, properties);
+
+        assertNotNull(event);
+        assertEquals("abc", event.getChanVariables().get("AJ_TRACE_ID"), "Property chanVariables is not set correctly");
+        assertEquals(2, event.getChanVariables().size(), "Invalid size of chanVariables property");
+    }
+
     @Test
     void testBuildEventWithSpace() {
         T38FaxStatusEvent event;
@@ -0,0 +1,68 @@
+package org.asteriskjava.manager.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRingBufferTest {
+    @Test
+    void shouldRoundUpCapacityToPowerOfTwo() {
+        assertThat(new EventRingBuffer(1).capacity()).isEqualTo(1);
+        assertThat(new EventRingBuffer(5).capacity()).isEqualTo(8);
+        assertThat(new EventRingBuffer(20000).capacity()).isEqualTo(32768);
+    }
+
+    @Test
+    void shouldRejectWhenFullAndDropOldest() {
+        EventRingBuffer ringBuffer = new EventRingBuffer(2);
+        EventRingBuffer.Slot slot = new EventRingBuffer.Slot();
+
+        assertThat(ringBuffer.offer("a", 1)).isTrue();
+        assertThat(ringBuffer.offer("b", 2)).isTrue();
+        assertThat(ringBuffer.offer("c", 3)).isFalse();
+        assertThat(ringBuffer.dropOldest()).isEqualTo("a");
+        assertThat(ringBuffer.offer("c", 3)).isTrue();
+
+        assertThat(ringBuffer.poll(slot)).isTrue();
+        assertThat(slot.payload).isEqualTo("b");
+        assertThat(slot.enqueuedNanos).isEqualTo(2);
+        assertThat(ringBuffer.poll(slot)).isTrue();
+        assertThat(slot.payload).isEqualTo("c");
+        assertThat(ringBuffer.poll(slot)).isFalse();
+        assertThat(ringBuffer.dropOldest()).isNull();
+    }
+
+    @Test
+    void shouldPreserveOrderBetweenThreads() throws Exception {
+        final int count = 100_000;
+        EventRingBuffer ringBuffer = new EventRingBuffer(64);
+        List<Object> received = new ArrayList<>();
+
+        Thread consumer = new Thread(() -> {
+            EventRingBuffer.Slot slot = new EventRingBuffer.Slot();
+            while (received.size() < count) {
+                if (ringBuffer.poll(slot)) {
+                    received.add(slot.payload);
+                } else {
+                    ringBuffer.awaitElement(1000);
+                }
+            }
+        });
+        consumer.start();
+
+        for (int i = 0; i < count; i++) {
+            while (!ringBuffer.offer(i, 0)) {
+                ringBuffer.awaitSpace(1000);
+            }
+        }
+        consumer.join(10_000);
+
+        assertThat(received).hasSize(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(received.get(i)).isEqualTo(i);
+        }
+    }
+}
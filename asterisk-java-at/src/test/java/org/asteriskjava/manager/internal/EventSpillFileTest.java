@@ -0,0 +1,31 @@
+package org.asteriskjava.manager.internal;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSpillFileTest {
+    @Test
+    void shouldOnlyAppendBehindPendingElements() throws Exception {
+        try (EventSpillFile spillFile = new EventSpillFile()) {
+            EventRingBuffer.Slot slot = new EventRingBuffer.Slot();
+
+            assertThat(spillFile.writeIfPending("a", 1)).isFalse();
+            assertThat(spillFile.pending()).isZero();
+
+            spillFile.write("a", 1);
+            assertThat(spillFile.writeIfPending("b", 2)).isTrue();
+            assertThat(spillFile.pending()).isEqualTo(2);
+
+            assertThat(spillFile.read(slot)).isTrue();
+            assertThat(slot.payload).isEqualTo("a");
+            assertThat(spillFile.read(slot)).isTrue();
+            assertThat(slot.payload).isEqualTo("b");
+            assertThat(slot.enqueuedNanos).isEqualTo(2);
+
+            // drained, the consumer goes back to the ring buffer
+            assertThat(spillFile.writeIfPending("c", 3)).isFalse();
+            assertThat(spillFile.read(slot)).isFalse();
+        }
+    }
+}
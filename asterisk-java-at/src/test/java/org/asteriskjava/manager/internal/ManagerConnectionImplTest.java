@@ -18,15 +18,21 @@ package org.asteriskjava.manager.internal;
 
 import org.asteriskjava.AsteriskVersion;
 import org.asteriskjava.manager.AuthenticationFailedException;
+import org.asteriskjava.manager.EventTimeoutException;
+import org.asteriskjava.manager.ManagerConnectionMetrics;
 import org.asteriskjava.manager.ManagerConnectionState;
 import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.ResponseEvents;
+import org.asteriskjava.manager.SelectiveManagerEventListener;
 import org.asteriskjava.manager.TimeoutException;
 import org.asteriskjava.manager.action.CommandAction;
 import org.asteriskjava.manager.action.CoreSettingsAction;
 import org.asteriskjava.manager.action.PingAction;
 import org.asteriskjava.manager.action.StatusAction;
+import org.asteriskjava.manager.event.AbstractChannelEvent;
 import org.asteriskjava.manager.event.ConnectEvent;
 import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.HangupEvent;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.event.NewChannelEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
@@ -36,10 +42,19 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ManagerConnectionImplTest {
@@ -139,6 +154,23 @@ class ManagerConnectionImplTest {
                 "login() took longer than 2 second, probably a notify error (duration was " + duration + " is msec)");
     }
 
+    @Test
+    void testLoginMetrics() throws Exception {
+        MockedManagerEventListener listener = new MockedManagerEventListener();
+
+        mc.setUsername("username");
+        mc.setPassword("password");
+        mc.addEventListener(listener);
+        mc.login();
+
+        ManagerConnectionMetrics metrics = mc.getMetrics();
+        assertEquals(1, metrics.getActionRoundTripTimes().get("Challenge").getCount());
+        assertEquals(1, metrics.getActionRoundTripTimes().get("Login").getCount());
+        assertEquals(0, metrics.getPendingActions());
+        assertEquals(1, metrics.getListenerTimes().get(MockedManagerEventListener.class.getName()).getCount());
+        assertEquals(0, metrics.getReconnects());
+    }
+
     @Test
     void testLoginIncorrectKey() throws Exception {
         mockSocket.close();
@@ -359,6 +391,75 @@ class ManagerConnectionImplTest {
         }
 
         assertEquals(1, mockWriter.otherActionsSent, "other actions not sent 1 time");
+        assertEquals(0, mc.getMetrics().getPendingActions(), "timed out action still pending");
+    }
+
+    @Test
+    void testSendActionAsync() throws Exception {
+        final List<CompletableFuture<ManagerResponse>> futures = new ArrayList<>();
+
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+        for (int i = 0; i < 10; i++) {
+            final StatusAction statusAction = new StatusAction();
+            statusAction.setActionId(String.valueOf(i));
+            futures.add(mc.sendActionAsync(statusAction));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            final ManagerResponse response = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(String.valueOf(i), response.getActionId(), "incorrect actionId in response");
+            assertEquals("Success", response.getResponse(), "incorrect response");
+        }
+        assertEquals(10, mockWriter.otherActionsSent, "other actions not sent 10 times");
+    }
+
+    @Test
+    void testSendActionAsyncTimeout() throws Exception {
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+
+        // provoke timeout
+        mockWriter.setSendResponse(false);
+        final CompletableFuture<ManagerResponse> future = mc.sendActionAsync(new StatusAction(), 100);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("No TimeoutException thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException, "unexpected exception " + e.getCause());
+        }
+        assertEquals(0, mc.getMetrics().getPendingActions(), "timed out action still pending");
+    }
+
+    @Test
+    void testSendActionAsyncWhenNotConnected() throws Exception {
+        final CompletableFuture<ManagerResponse> future = mc.sendActionAsync(new StatusAction());
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("No IllegalStateException thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException, "unexpected exception " + e.getCause());
+        }
+    }
+
+    @Test
+    void testSendEventGeneratingActionAsyncTimeout() throws Exception {
+        // fake connect
+        mc.connect();
+        mc.setState(ManagerConnectionState.CONNECTED);
+
+        // the response is sent but no StatusCompleteEvent
+        final CompletableFuture<ResponseEvents> future = mc.sendEventGeneratingActionAsync(new StatusAction(), 200);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("No EventTimeoutException thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof EventTimeoutException, "unexpected exception " + e.getCause());
+            final ResponseEvents partialResult = ((EventTimeoutException) e.getCause()).getPartialResult();
+            assertEquals("Success", partialResult.getResponse().getResponse(), "incorrect response");
+        }
     }
 
     @Test
@@ -516,6 +617,62 @@ class ManagerConnectionImplTest {
         mc.dispatchEvent(event, null);
     }
 
+    @Test
+    void testDispatchEnvelopeBuildsOnlyWantedEvents() {
+        EventBuilder eventBuilder = mock(EventBuilder.class);
+        Map<String, Object> newChannelAttributes = new HashMap<>();
+        Map<String, Object> hangupAttributes = new HashMap<>();
+        newChannelAttributes.put("event", "Newchannel");
+        hangupAttributes.put("event", "Hangup");
+        NewChannelEvent newChannelEvent = new NewChannelEvent(this);
+        when(eventBuilder.buildEvent(this, newChannelAttributes)).thenReturn(newChannelEvent);
+        List<ManagerEvent> received = new ArrayList<>();
+
+        mc.addEventListener(new SelectiveManagerEventListener() {
+            public boolean isInterestedIn(Class<? extends ManagerEvent> eventClass) {
+                return eventClass == NewChannelEvent.class;
+            }
+
+            public void onManagerEvent(ManagerEvent event) {
+                received.add(event);
+            }
+        });
+
+        mc.dispatchEvent(new ManagerEventEnvelope(HangupEvent.class, hangupAttributes, new Date(), eventBuilder, this),
+                null);
+        mc.dispatchEvent(new ManagerEventEnvelope(NewChannelEvent.class, newChannelAttributes, new Date(),
+                eventBuilder, this), null);
+
+        verify(eventBuilder, never()).buildEvent(this, hangupAttributes);
+        assertEquals(1, received.size(), "only the wanted event must be dispatched");
+        assertSame(newChannelEvent, received.get(0));
+    }
+
+    @Test
+    void testDispatchEventToTypedEventListeners() {
+        List<String> received = new ArrayList<>();
+        mc.addEventListener(AbstractChannelEvent.class, event -> received.add("channel " + event.getChannel()));
+        ManagerEventListener hangupListener = mc.addEventListener(HangupEvent.class,
+                event -> received.add("hangup " + event.getCause()));
+        mc.addEventListener(event -> received.add("all " + event.getClass().getSimpleName()));
+
+        NewChannelEvent newChannelEvent = new NewChannelEvent(this);
+        newChannelEvent.setChannel("SIP/1-1");
+        HangupEvent hangupEvent = new HangupEvent(this);
+        hangupEvent.setChannel("SIP/1-1");
+        hangupEvent.setCause(16);
+
+        mc.dispatchEvent(newChannelEvent, null);
+        mc.dispatchEvent(hangupEvent, null);
+        assertEquals(Arrays.asList("channel SIP/1-1", "all NewChannelEvent", "channel SIP/1-1", "hangup 16",
+                "all HangupEvent"), received);
+
+        received.clear();
+        mc.removeEventListener(hangupListener);
+        mc.dispatchEvent(hangupEvent, null);
+        assertEquals(Arrays.asList("channel SIP/1-1", "all HangupEvent"), received);
+    }
+
     @Test
     void testIsShowVersionCommandAction() {
         assertTrue(mc.isShowVersionCommandAction(new CoreSettingsAction()));
@@ -0,0 +1,160 @@
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.util.SocketChannelConnectionFacade;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.asteriskjava.manager.internal.ManagerFrameParser.Token.END_OF_FRAME;
+import static org.asteriskjava.manager.internal.ManagerFrameParser.Token.END_OF_STREAM;
+import static org.asteriskjava.manager.internal.ManagerFrameParser.Token.PROTOCOL_IDENTIFIER;
+
+class ManagerFrameParserTest {
+    private static final String TRAFFIC = "Asterisk Call Manager/5.0.1\r\n"
+            + "Event: Newchannel\r\n"
+            + "Privilege: call,all\r\n"
+            + "Channel: PJSIP/1000-00000001\r\n"
+            + "CallerIDName:  Jörg \r\n"
+            + "X-Custom-Header: Value\r\n"
+            + "Variable: a=1\r\n"
+            + "Variable: b=2\r\n"
+            + "Empty:\r\n"
+            + "From 1000 to 2000\r\n"
+            + "\r\n"
+            + "Response: Follows\r\n"
+            + "ActionID: 678#12345\r\n"
+            + "Line1\nLine2\n--END COMMAND--\r\n"
+            + "\r\n";
+
+    @Test
+    void shouldParseFramesRegardlessOfChunkSize() throws Exception {
+        for (int chunkSize : new int[]{1, 2, 7, 64, 4096}) {
+            ManagerFrameParser parser = new ManagerFrameParser(StandardCharsets.UTF_8);
+            parser.setSource(new ChunkedSource(TRAFFIC.getBytes(StandardCharsets.UTF_8), chunkSize));
+            Map<String, Object> frame = new HashMap<>();
+
+            assertThat(parser.next(frame)).isEqualTo(PROTOCOL_IDENTIFIER);
+            assertThat(parser.getProtocolIdentifier()).isEqualTo("Asterisk Call Manager/5.0.1");
+
+            assertThat(parser.next(frame)).isEqualTo(END_OF_FRAME);
+            assertThat(frame)
+                    .containsEntry("event", "Newchannel")
+                    .containsEntry("privilege", "call,all")
+                    .containsEntry("channel", "PJSIP/1000-00000001")
+                    .containsEntry("calleridname", "Jörg")
+                    .containsEntry("x-custom-header", "Value")
+                    .containsEntry("variable", Arrays.asList("a=1", "b=2"))
+                    .containsEntry("from", "1000 to 2000")
+                    .doesNotContainKey("empty");
+            frame.clear();
+
+            assertThat(parser.next(frame)).isEqualTo(END_OF_FRAME);
+            assertThat(frame)
+                    .containsEntry("response", "Follows")
+                    .containsEntry("actionid", "678#12345")
+                    .containsEntry(ManagerReader.COMMAND_RESULT_RESPONSE_KEY, "Line1\nLine2\n--END COMMAND--");
+            frame.clear();
+
+            assertThat(parser.next(frame)).isEqualTo(END_OF_STREAM);
+        }
+    }
+
+    @Test
+    void shouldInternKnownHeaderNames() throws Exception {
+        ManagerFrameParser parser = new ManagerFrameParser(StandardCharsets.UTF_8);
+        parser.setSource(new ChunkedSource("UniqueID: 1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8), 100));
+        Map<String, Object> frame = new HashMap<>();
+
+        parser.next(frame);
+
+        assertThat(frame.keySet().iterator().next()).isSameAs("uniqueid");
+    }
+
+    @Test
+    void shouldGrowBufferForLongLines() throws Exception {
+        char[] chars = new char[200_000];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+        ManagerFrameParser parser = new ManagerFrameParser(StandardCharsets.UTF_8);
+        parser.setSource(new ChunkedSource(("Message: " + value + "\r\n\r\n").getBytes(StandardCharsets.UTF_8), 8192));
+        Map<String, Object> frame = new HashMap<>();
+
+        assertThat(parser.next(frame)).isEqualTo(END_OF_FRAME);
+        assertThat(frame).containsEntry("message", value);
+    }
+
+    private static class ChunkedSource implements SocketChannelConnectionFacade {
+        private final byte[] data;
+        private final int chunkSize;
+        private int position;
+
+        ChunkedSource(byte[] data, int chunkSize) {
+            this.data = data;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (position == data.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(chunkSize, dst.remaining()), data.length - position);
+            dst.put(data, position, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public String readLine() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(String s) {
+        }
+
+        @Override
+        public void write(ByteBuffer[] srcs) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        public InetAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public int getLocalPort() {
+            return 0;
+        }
+
+        @Override
+        public InetAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int getRemotePort() {
+            return 0;
+        }
+    }
+}
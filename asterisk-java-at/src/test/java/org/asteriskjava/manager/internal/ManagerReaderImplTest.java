@@ -16,6 +16,9 @@
  */
 package org.asteriskjava.manager.internal;
 
+import org.asteriskjava.manager.FilteredManagerEventListener;
+import org.asteriskjava.manager.ManagerEventListener;
+import org.asteriskjava.manager.ManagerEventSubscriptions;
 import org.asteriskjava.manager.event.*;
 import org.asteriskjava.manager.response.CommandResponse;
 import org.asteriskjava.manager.response.ManagerResponse;
@@ -27,8 +30,12 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -102,6 +109,31 @@ class ManagerReaderImplTest {
         assertEquals(DisconnectEvent.class, dispatcher.dispatchedEvents.get(1).getClass(), "second event must be a DisconnectEvent");
     }
 
+    @Test
+    void testRunSkipsUnsubscribedEvents() throws Exception {
+        when(socketConnectionFacade.readLine())
+                .thenReturn("Event: VarSet")
+                .thenReturn("Variable: foo")
+                .thenReturn("")
+                .thenReturn("Event: Hangup")
+                .thenReturn("Channel: SIP/1000-00000001")
+                .thenReturn("")
+                .thenReturn("Event: VarSet")
+                .thenReturn("ActionID: 123")
+                .thenReturn("")
+                .thenReturn(null);
+
+        ManagerEventListener listener = new FilteredListener(HangupEvent.class);
+        managerReader.setEventSubscriptions(ManagerEventSubscriptions.of(Collections.singletonList(listener)));
+        managerReader.setSocket(socketConnectionFacade);
+        managerReader.run();
+
+        assertEquals(3, dispatcher.dispatchedEvents.size(), "not exactly three events dispatched");
+        assertEquals(HangupEvent.class, dispatcher.dispatchedEvents.get(0).getClass(), "first event must be a HangupEvent");
+        assertEquals(VarSetEvent.class, dispatcher.dispatchedEvents.get(1).getClass(), "events with an ActionID must not be skipped");
+        assertEquals(DisconnectEvent.class, dispatcher.dispatchedEvents.get(2).getClass(), "third event must be a DisconnectEvent");
+    }
+
     @Test
     void testRunReceivingEventWithMapProperty() throws Exception {
         when(socketConnectionFacade.readLine())
@@ -292,4 +324,22 @@ class ManagerReaderImplTest {
             // NO_OP
         }
     }
+
+    private static class FilteredListener implements FilteredManagerEventListener {
+        private final Set<Class<? extends ManagerEvent>> requiredEvents;
+
+        @SafeVarargs
+        FilteredListener(Class<? extends ManagerEvent>... requiredEvents) {
+            this.requiredEvents = new HashSet<>(Arrays.asList(requiredEvents));
+        }
+
+        @Override
+        public Set<Class<? extends ManagerEvent>> requiredEvents() {
+            return requiredEvents;
+        }
+
+        @Override
+        public void onManagerEvent(ManagerEvent event) {
+        }
+    }
 }
@@ -16,11 +16,14 @@
  */
 package org.asteriskjava.manager.internal;
 
+import org.asteriskjava.manager.ManagerEventSubscriptions;
 import org.asteriskjava.manager.event.ManagerEvent;
 import org.asteriskjava.manager.response.ManagerResponse;
 import org.asteriskjava.util.SocketConnectionFacade;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 public class ManagerReaderMock implements ManagerReader {
     public int setSocketCalls = 0;
@@ -35,6 +38,9 @@ public class ManagerReaderMock implements ManagerReader {
         throw new UnsupportedOperationException();
     }
 
+    public void setEventSubscriptions(ManagerEventSubscriptions subscriptions) {
+    }
+
     public void setSocket(SocketConnectionFacade socket) {
         setSocketCalls++;
     }
@@ -63,4 +69,9 @@ public class ManagerReaderMock implements ManagerReader {
     public void deregisterEventClass(Class<? extends ManagerEvent> eventClass) {
 
     }
+
+    @Override
+    public Map<String, Class<?>> getRegisteredEventClasses() {
+        return Collections.emptyMap();
+    }
 }
@@ -16,13 +16,27 @@
  */
 package org.asteriskjava.manager.internal;
 
+import org.asteriskjava.manager.action.ManagerAction;
+import org.asteriskjava.manager.action.PingAction;
 import org.asteriskjava.manager.action.StatusAction;
+import org.asteriskjava.util.SocketChannelConnectionFacade;
 import org.asteriskjava.util.SocketConnectionFacade;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
 class ManagerWriterImplTest {
@@ -54,4 +68,78 @@ class ManagerWriterImplTest {
         managerWriter.setSocket(socketConnectionFacade);
         managerWriter.sendAction(new StatusAction(), null);
     }
+
+    @Test
+    void testSendActionToSocketChannel() throws Exception {
+        final List<String> writes = new CopyOnWriteArrayList<>();
+        final SocketChannelConnectionFacade socket = mock(SocketChannelConnectionFacade.class);
+        doAnswer(invocation -> {
+            writes.add(drain(invocation.getArgument(0)));
+            return null;
+        }).when(socket).write(any(ByteBuffer[].class));
+
+        managerWriter.setSocket(socket);
+        managerWriter.sendAction(new StatusAction(), null);
+        managerWriter.sendAction(new StatusAction(), "1");
+
+        assertThat(writes).containsExactly("action: Status\r\n\r\n", "action: Status\r\nactionid: 1#\r\n\r\n");
+    }
+
+    @Test
+    void testCoalesceConcurrentActions() throws Exception {
+        final List<String> writes = new CopyOnWriteArrayList<>();
+        final CountDownLatch firstWrite = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final SocketChannelConnectionFacade socket = mock(SocketChannelConnectionFacade.class);
+        doAnswer(invocation -> {
+            writes.add(drain(invocation.getArgument(0)));
+            firstWrite.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(socket).write(any(ByteBuffer[].class));
+        managerWriter.setSocket(socket);
+
+        final List<Thread> threads = new ArrayList<>();
+        threads.add(send(new StatusAction()));
+        assertTrue(firstWrite.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            threads.add(send(new PingAction()));
+        }
+        // wait until the senders queued their actions and block on the lock
+        for (Thread thread : threads.subList(1, threads.size())) {
+            while (thread.getState() == Thread.State.RUNNABLE || thread.getState() == Thread.State.NEW) {
+                Thread.sleep(5);
+            }
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        assertThat(writes).hasSize(2);
+        assertThat(writes.get(0)).isEqualTo("action: Status\r\n\r\n");
+        assertThat(writes.get(1)).isEqualTo("action: Ping\r\n\r\naction: Ping\r\n\r\naction: Ping\r\n\r\n");
+    }
+
+    private Thread send(ManagerAction action) {
+        final Thread thread = new Thread(() -> {
+            try {
+                managerWriter.sendAction(action, null);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static String drain(ByteBuffer[] buffers) {
+        final StringBuilder sb = new StringBuilder();
+        for (ByteBuffer buffer : buffers) {
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            sb.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,91 @@
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.manager.event.NewStateEvent;
+import org.asteriskjava.manager.event.PeerStatusEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderedEventExecutorTest {
+    @Test
+    void shouldUseLinkedIdBeforeUniqueId() {
+        NewStateEvent newState = new NewStateEvent(this);
+        newState.setUniqueId("1.2");
+        assertThat(OrderedEventExecutor.keyOf(newState)).isEqualTo("1.2");
+        newState.setLinkedId("1.1");
+        assertThat(OrderedEventExecutor.keyOf(newState)).isEqualTo("1.1");
+
+        // lower case getter
+        NewChannelEvent newChannel = new NewChannelEvent(this);
+        newChannel.setLinkedid("2.1");
+        assertThat(OrderedEventExecutor.keyOf(newChannel)).isEqualTo("2.1");
+
+        assertThat(OrderedEventExecutor.keyOf(new PeerStatusEvent(this))).isNull();
+    }
+
+    @Test
+    void shouldUseLinkedIdBeforeUniqueIdOfAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        assertThat(OrderedEventExecutor.keyOf(attributes)).isNull();
+        attributes.put("uniqueid", "1.2");
+        assertThat(OrderedEventExecutor.keyOf(attributes)).isEqualTo("1.2");
+        attributes.put("linkedid", "1.1");
+        assertThat(OrderedEventExecutor.keyOf(attributes)).isEqualTo("1.1");
+    }
+
+    @Test
+    void shouldPreserveOrderPerKey() {
+        final int keys = 50;
+        final int tasksPerKey = 200;
+        OrderedEventExecutor executor = new OrderedEventExecutor("test", 4, 16);
+        executor.start();
+
+        List<List<Integer>> received = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            received.add(new ArrayList<>());
+        }
+        AtomicBoolean onWorker = new AtomicBoolean(true);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                final List<Integer> list = received.get(k);
+                final int value = i;
+                executor.execute("key-" + k, Object.class, () -> {
+                    if (!executor.isWorkerThread()) {
+                        onWorker.set(false);
+                    }
+                    list.add(value);
+                });
+            }
+        }
+        executor.awaitQuiescence();
+        executor.shutdown();
+
+        assertThat(onWorker).isTrue();
+        for (List<Integer> list : received) {
+            assertThat(list).hasSize(tasksPerKey).isSorted();
+        }
+        assertThat(executor.isWorkerThread()).isFalse();
+    }
+
+    @Test
+    void shouldRunQueuedTasksBeforeQuiescence() {
+        OrderedEventExecutor executor = new OrderedEventExecutor("test", 2, 1000);
+        executor.start();
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(null, i % 2 == 0 ? String.class : Integer.class, counter::incrementAndGet);
+        }
+        executor.awaitQuiescence();
+        assertThat(counter).hasValue(1000);
+        executor.shutdown();
+        assertThat(executor.isShutdown()).isTrue();
+    }
+}
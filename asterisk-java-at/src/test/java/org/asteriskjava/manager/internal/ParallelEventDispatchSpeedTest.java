@@ -0,0 +1,100 @@
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewStateEvent;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dispatches a synthetic stream of events for thousands of concurrent calls
+ * to a listener doing some work per event and logs the throughput with an
+ * increasing number of dispatch threads.
+ */
+class ParallelEventDispatchSpeedTest {
+    private static final Log logger = LogFactory.getLog(ParallelEventDispatchSpeedTest.class);
+    private static final int CALLS = 2000;
+    private static final int EVENTS_PER_CALL = 10;
+    private static final int WORK_PER_EVENT = 2000;
+
+    // keeps the simulated work from being optimized away
+    private static volatile int sink;
+
+    @Test
+    void shouldScaleWithDispatchThreads() throws Exception {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        logger.info("Dispatching " + CALLS * EVENTS_PER_CALL + " events of " + CALLS + " calls, "
+                + processors + " processors");
+
+        // warm up
+        run(0);
+
+        logger.info("serial: " + run(0) + " events/s");
+        for (int threads = 1; threads <= processors; threads <<= 1) {
+            logger.info(threads + " threads: " + run(threads) + " events/s");
+        }
+        if (Integer.bitCount(processors) != 1) {
+            logger.info(processors + " threads: " + run(processors) + " events/s");
+        }
+    }
+
+    private long run(int threads) throws Exception {
+        final int total = CALLS * EVENTS_PER_CALL;
+        final ManagerConnectionImpl connection = new ManagerConnectionImpl();
+        connection.setEventDispatchThreads(threads);
+
+        final CountDownLatch done = new CountDownLatch(total);
+        final Map<String, Integer> lastSequence = new ConcurrentHashMap<>();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        connection.addEventListener(event -> {
+            final NewStateEvent newState = (NewStateEvent) event;
+            final int sequence = Integer.parseInt(newState.getUniqueId());
+            final Integer last = lastSequence.put(newState.getLinkedId(), sequence);
+            if (last != null && last != sequence - 1) {
+                outOfOrder.incrementAndGet();
+            }
+            simulateWork(newState);
+            done.countDown();
+        });
+
+        final ManagerEvent[] events = new ManagerEvent[total];
+        for (int i = 0; i < total; i++) {
+            final NewStateEvent event = new NewStateEvent(this);
+            event.setLinkedId("call-" + i % CALLS);
+            event.setUniqueId(String.valueOf(i / CALLS));
+            event.setChannelStateDesc("Up");
+            events[i] = event;
+        }
+
+        final long start = System.nanoTime();
+        final long elapsed;
+        try {
+            for (ManagerEvent event : events) {
+                connection.dispatchEvent(event, null);
+            }
+            assertThat(done.await(60, TimeUnit.SECONDS)).isTrue();
+            elapsed = System.nanoTime() - start;
+        } finally {
+            connection.shutdownEventDispatchThreads();
+        }
+
+        assertThat(outOfOrder).hasValue(0);
+        return total * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsed);
+    }
+
+    private static void simulateWork(NewStateEvent event) {
+        int hash = event.getChannelStateDesc().hashCode();
+        for (int i = 0; i < WORK_PER_EVENT; i++) {
+            hash = hash * 31 + i;
+        }
+        sink = hash;
+    }
+}
@@ -0,0 +1,92 @@
+package org.asteriskjava.manager.internal;
+
+import org.asteriskjava.manager.event.HangupEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.asteriskjava.util.internal.CaptureTrace;
+import org.asteriskjava.util.internal.ReplayConnectionFacade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplayManagerConnectionTest {
+    private static final String NEW_CHANNEL = "Event: Newchannel\r\nPrivilege: call,all\r\n"
+            + "Channel: PJSIP/1001-00000a3c\r\nChannelState: 4\r\nUniqueid: 1697040000.10812\r\n\r\n";
+    private static final String HANGUP = "Event: Hangup\r\nPrivilege: call,all\r\n"
+            + "Channel: PJSIP/1001-00000a3c\r\nUniqueid: 1697040000.10812\r\nCause: 16\r\n\r\n";
+
+    @TempDir
+    File directory;
+
+    private ReplayManagerConnection connection;
+
+    @AfterEach
+    void tearDown() {
+        if (connection != null) {
+            connection.logoff();
+        }
+    }
+
+    @Test
+    void shouldReplayEventsAtMaxSpeed() throws Exception {
+        final CaptureTrace trace = newTrace();
+        trace.received("Asterisk Call Manager/5.0.5\r\n");
+        // split inside a frame like a read from the socket may do
+        trace.received(NEW_CHANNEL.substring(0, 30));
+        trace.received(NEW_CHANNEL.substring(30) + HANGUP);
+        trace.close();
+
+        final List<ManagerEvent> events = replay(ReplayConnectionFacade.MAX_SPEED);
+
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0)).isInstanceOf(NewChannelEvent.class);
+        assertThat(((NewChannelEvent) events.get(0)).getUniqueId()).isEqualTo("1697040000.10812");
+        assertThat(events.get(1)).isInstanceOf(HangupEvent.class);
+    }
+
+    @Test
+    void shouldKeepCapturedDelaysDividedBySpeed() throws Exception {
+        final CaptureTrace trace = newTrace();
+        trace.received("Asterisk Call Manager/5.0.5\r\n");
+        trace.received(NEW_CHANNEL);
+        Thread.sleep(400);
+        trace.received(HANGUP);
+        trace.close();
+
+        final long start = System.nanoTime();
+        final List<ManagerEvent> events = replay(2);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(190);
+        assertThat(events).hasSize(2);
+    }
+
+    private CaptureTrace newTrace() throws Exception {
+        return new CaptureTrace(directory, "replay", 64 * 1024);
+    }
+
+    private List<ManagerEvent> replay(double speed) throws Exception {
+        final List<ManagerEvent> events = new CopyOnWriteArrayList<>();
+        connection = new ReplayManagerConnection(new File(directory, "replay-00000" + CaptureTrace.FILE_SUFFIX),
+                speed);
+        connection.addEventListener(event -> {
+            if (event instanceof NewChannelEvent || event instanceof HangupEvent) {
+                events.add(event);
+            }
+        });
+        connection.login();
+        connection.replayFinished().get(5, TimeUnit.SECONDS);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (events.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return events;
+    }
+}
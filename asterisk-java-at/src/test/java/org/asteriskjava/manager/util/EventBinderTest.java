@@ -0,0 +1,90 @@
+package org.asteriskjava.manager.util;
+
+import org.asteriskjava.manager.event.AgentCalledEvent;
+import org.asteriskjava.manager.event.CdrEvent;
+import org.asteriskjava.manager.event.NewChannelEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventBinderTest {
+    private static final Set<String> IGNORED = new HashSet<>(Arrays.asList("event"));
+
+    @Test
+    void shouldBindSameValuesAsReflection() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("event", "Newchannel");
+        attributes.put("channel", "SIP/1234-00000001");
+        attributes.put("uniqueid", "1234567.1");
+        attributes.put("linkedid", "1234567.0");
+        attributes.put("channelstate", "4");
+        attributes.put("calleridnum", "<unknown>");
+        attributes.put("priority", "1");
+
+        EventBinder<NewChannelEvent> binder = EventBinder.forClass(NewChannelEvent.class);
+        assertThat(binder).isNotNull();
+
+        NewChannelEvent bound = binder.newInstance(this);
+        binder.setAttributes(bound, attributes, IGNORED);
+
+        NewChannelEvent reflected = new NewChannelEvent(this);
+        EventAttributesHelper.setAttributes(reflected, attributes, IGNORED);
+
+        assertThat(bound.getSource()).isSameAs(this);
+        assertThat(bound.getChannel()).isEqualTo("SIP/1234-00000001");
+        assertThat(bound.getUniqueId()).isEqualTo(reflected.getUniqueId());
+        assertThat(bound.getLinkedid()).isEqualTo(reflected.getLinkedid());
+        assertThat(bound.getChannelState()).isEqualTo(4).isEqualTo(reflected.getChannelState());
+        assertThat(bound.getCallerIdNum()).isNull();
+        assertThat(bound.getPriority()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldBindPluralMapSetterAndSourceTranslation() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("variable", Arrays.asList("var1=a", "var2=b"));
+
+        EventBinder<AgentCalledEvent> binder = EventBinder.forClass(AgentCalledEvent.class);
+        AgentCalledEvent event = binder.newInstance(this);
+        binder.setAttributes(event, attributes, IGNORED);
+
+        assertThat(event.getVariables()).containsEntry("var1", "a").containsEntry("var2", "b");
+
+        Map<String, Object> cdrAttributes = new HashMap<>();
+        cdrAttributes.put("source", "1000");
+        cdrAttributes.put("duration", "42");
+        cdrAttributes.put("x-custom", "value");
+
+        EventBinder<CdrEvent> cdrBinder = EventBinder.forClass(CdrEvent.class);
+        CdrEvent cdrEvent = cdrBinder.newInstance(this);
+        cdrBinder.setAttributes(cdrEvent, cdrAttributes, IGNORED);
+
+        assertThat(cdrEvent.getSrc()).isEqualTo("1000");
+        assertThat(cdrEvent.getDuration()).isEqualTo(42);
+        assertThat(cdrEvent.getDynamicProperties()).containsEntry("x-custom", "value");
+    }
+
+    @Test
+    void shouldNotCacheKeysWithoutSetter() {
+        EventBinder<CdrEvent> binder = EventBinder.forClass(CdrEvent.class);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("duration", "42");
+        binder.setAttributes(binder.newInstance(this), attributes, IGNORED);
+        int resolved = binder.getResolvedKeyCount();
+
+        for (int i = 0; i < 100; i++) {
+            attributes.put("x-header-" + i, "value");
+        }
+        CdrEvent event = binder.newInstance(this);
+        binder.setAttributes(event, attributes, IGNORED);
+
+        assertThat(event.getDynamicProperties()).hasSize(100);
+        assertThat(binder.getResolvedKeyCount()).isEqualTo(resolved);
+    }
+}
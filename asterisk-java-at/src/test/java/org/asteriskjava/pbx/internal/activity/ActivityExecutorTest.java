@@ -0,0 +1,131 @@
+package org.asteriskjava.pbx.internal.activity;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ActivityExecutorTest {
+    private ExecutorService pool;
+    private ActivityExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newCachedThreadPool();
+        executor = new ActivityExecutor(pool, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void shouldBoundConcurrentActivities() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger started = new AtomicInteger();
+        final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final int n = i;
+            futures.add(executor.submit("activity-" + i, () -> {
+                started.incrementAndGet();
+                release.await();
+                return n;
+            }));
+        }
+
+        awaitValue(started, 2);
+        Thread.sleep(50);
+        assertThat(started).hasValue(2);
+        assertThat(executor.getRunning()).isEqualTo(2);
+
+        release.countDown();
+        for (int i = 0; i < 5; i++) {
+            assertThat(futures.get(i).get(5, TimeUnit.SECONDS)).isEqualTo(i);
+        }
+        assertThat(started).hasValue(5);
+    }
+
+    @Test
+    void shouldPropagateTimeoutToChildren() throws Exception {
+        final AtomicReference<CompletableFuture<Object>> child = new AtomicReference<>();
+        final CompletableFuture<Object> parent = executor.submit("parent", () -> {
+            child.set(executor.submit("child", () -> {
+                Thread.sleep(10_000);
+                return null;
+            }));
+            Thread.sleep(10_000);
+            return null;
+        }, 100, TimeUnit.MILLISECONDS);
+
+        assertThatThrownBy(() -> parent.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        // cancelled with the parent or timed out with the inherited deadline
+        assertThat(child.get()).isCompletedExceptionally();
+        // the child of a running parent does not take a slot
+        assertThat(executor.getRunning()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void shouldInterruptCancelledActivity() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CompletableFuture<Object> future = executor.submit("activity", () -> {
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        future.cancel(true);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    void shouldKeepChildrenOfCompletedParentRunning() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<CompletableFuture<String>> child = new AtomicReference<>();
+        final CompletableFuture<Object> parent = executor.submit("parent", () -> {
+            child.set(executor.submit("child", () -> {
+                release.await();
+                return "done";
+            }));
+            return null;
+        });
+
+        parent.get(5, TimeUnit.SECONDS);
+        assertThat(child.get()).isNotDone();
+        release.countDown();
+        assertThat(child.get().get(5, TimeUnit.SECONDS)).isEqualTo("done");
+    }
+
+    private static void awaitValue(AtomicInteger value, int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (value.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(value).hasValue(expected);
+    }
+}
@@ -0,0 +1,97 @@
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.pbx.InvalidChannelName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelProxyIndexTest {
+    private ChannelProxyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ChannelProxyIndex();
+    }
+
+    @Test
+    void shouldFindByUniqueIdNameEndPointAndIdentity() throws InvalidChannelName {
+        final ChannelProxy first = newProxy("SIP/100-00000001", "1000.1");
+        final ChannelProxy second = newProxy("SIP/200-00000002", "1000.2");
+        index.add(first);
+        index.add(second);
+
+        assertThat(index.findByUniqueId("1000.2", proxy -> proxy.sameUniqueID("1000.2"))).isSameAs(second);
+        assertThat(index.findByUniqueId(ChannelImpl.UNKNOWN_UNIQUE_ID, proxy -> true)).isNull();
+        assertThat(index.findByExtendedName("sip/100-00000001", proxy -> true)).isSameAs(first);
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/200"), proxy -> true)).isSameAs(second);
+        assertThat(index.findByIdentity("" + first.getIdentity())).isSameAs(first);
+        assertThat(index.findBySameChannel(newProxy("SIP/100-00000001", "1000.1").getRealChannel(),
+                proxy -> true)).isSameAs(first);
+    }
+
+    @Test
+    void shouldStripActionPrefixAndSuffixesFromExtendedNames() throws InvalidChannelName {
+        final ChannelProxy proxy = newProxy("SIP/100-00000001<MASQ>", ChannelImpl.UNKNOWN_UNIQUE_ID);
+        index.add(proxy);
+
+        assertThat(index.findByExtendedName("PARKED/SIP/100-00000001<ZOMBIE>", p -> true)).isSameAs(proxy);
+        assertThat(index.findByExtendedName("SIP/100-00000001<MASQ>",
+                p -> p.isSame("SIP/100-00000001<MASQ>", ChannelImpl.UNKNOWN_UNIQUE_ID))).isSameAs(proxy);
+        assertThat(index.findByExtendedName("SIP/100-00000001",
+                p -> p.isSame("SIP/100-00000001", ChannelImpl.UNKNOWN_UNIQUE_ID))).isNull();
+    }
+
+    @Test
+    void shouldReturnFirstAddedMatch() throws InvalidChannelName {
+        final ChannelProxy first = newProxy("SIP/100-00000001", ChannelImpl.UNKNOWN_UNIQUE_ID);
+        final ChannelProxy second = newProxy("SIP/100-00000002", "1000.2");
+        index.add(first);
+        index.add(second);
+
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/100"), proxy -> true)).isSameAs(first);
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/100"), proxy -> proxy != first)).isSameAs(second);
+        assertThat(index.getAll()).containsExactly(first, second);
+
+        index.remove(first);
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/100"), proxy -> true)).isSameAs(second);
+        assertThat(index.findByIdentity("" + first.getIdentity())).isNull();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFollowRename() throws InvalidChannelName {
+        final ChannelProxy proxy = newProxy("SIP/100-00000001", ChannelImpl.UNKNOWN_UNIQUE_ID);
+        index.add(proxy);
+
+        proxy.rename("SIP/200-00000002", "1000.1");
+        index.reindex(proxy);
+
+        assertThat(index.findByExtendedName("SIP/100-00000001", p -> true)).isNull();
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/100"), p -> true)).isNull();
+        assertThat(index.findByExtendedName("SIP/200-00000002", p -> true)).isSameAs(proxy);
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/200"), p -> true)).isSameAs(proxy);
+        assertThat(index.findByUniqueId("1000.1", p -> true)).isSameAs(proxy);
+    }
+
+    @Test
+    void shouldFollowMasquerade() throws InvalidChannelName {
+        final ChannelProxy original = newProxy("SIP/100-00000001", "1000.1");
+        final ChannelProxy clone = newProxy("SIP/200-00000002", "1000.2");
+        index.add(original);
+        index.add(clone);
+
+        original.masquerade(clone);
+        index.reindex(original);
+        index.reindex(clone);
+
+        assertThat(index.findByUniqueId("1000.2", p -> true)).isSameAs(original);
+        assertThat(index.findByUniqueId("1000.1", p -> true)).isSameAs(clone);
+        assertThat(index.findByEndPoint(new EndPointImpl("SIP/200"), p -> true)).isSameAs(original);
+        assertThat(index.getAll()).containsExactly(original, clone);
+    }
+
+    private static ChannelProxy newProxy(String name, String uniqueId) throws InvalidChannelName {
+        return new ChannelProxy(new ChannelImpl(name, uniqueId));
+    }
+}
@@ -0,0 +1,54 @@
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.pbx.Channel;
+import org.asteriskjava.pbx.InvalidChannelName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChannelProxyTest {
+    @Test
+    void shouldCompleteAwaitQuiescentOnRename() throws Exception {
+        final ChannelProxy proxy = newProxy("PARKED/SIP/100-00000001", "1000.1");
+        assertThat(proxy.isQuiescent()).isFalse();
+
+        final CompletableFuture<Channel> quiescent = proxy.awaitQuiescent();
+        assertThat(quiescent).isNotDone();
+
+        proxy.rename("SIP/100-00000001", "1000.1");
+        assertThat(quiescent.get(0, TimeUnit.MILLISECONDS)).isSameAs(proxy);
+        assertThat(proxy.awaitQuiescent()).isDone();
+    }
+
+    @Test
+    void shouldCompleteAwaitQuiescentOnMasquerade() throws Exception {
+        final ChannelProxy original = newProxy("SIP/100-00000001<MASQ>", "1000.1");
+        final ChannelProxy clone = newProxy("SIP/100-00000002", "1000.2");
+
+        final CompletableFuture<Channel> quiescent = original.awaitQuiescent();
+        assertThat(quiescent).isNotDone();
+
+        original.masquerade(clone);
+        assertThat(quiescent).isCompletedWithValue(original);
+        assertThat(clone.awaitQuiescent()).isNotDone();
+    }
+
+    @Test
+    void shouldCompleteAwaitInAgiWhenChannelArrives() throws Exception {
+        final ChannelProxy proxy = newProxy("SIP/100-00000001", "1000.1");
+        final CompletableFuture<Channel> inAgi = proxy.awaitInAgi();
+        assertThat(inAgi).isNotDone();
+        assertThat(proxy.waitForChannelToReachAgi(0, TimeUnit.MILLISECONDS)).isFalse();
+
+        proxy.setIsInAgi(true);
+        assertThat(inAgi).isCompletedWithValue(proxy);
+        assertThat(proxy.waitForChannelToReachAgi(0, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    private static ChannelProxy newProxy(String name, String uniqueId) throws InvalidChannelName {
+        return new ChannelProxy(new ChannelImpl(name, uniqueId));
+    }
+}
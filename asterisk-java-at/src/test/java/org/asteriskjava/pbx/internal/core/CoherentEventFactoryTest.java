@@ -0,0 +1,66 @@
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
+import org.asteriskjava.pbx.asterisk.wrap.events.ReloadEvent;
+import org.asteriskjava.pbx.asterisk.wrap.events.ResponseEvent;
+import org.asteriskjava.util.ReflectionUtil;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoherentEventFactoryTest {
+
+    /**
+     * The factories are registered by hand, make sure none of the wrapper
+     * events is missing.
+     */
+    @Test
+    void shouldRegisterAllWrapperEvents() throws Exception {
+        final Map<Class<?>, Class<?>> expectedEvents = new HashMap<>();
+        final Map<Class<?>, Class<?>> expectedResponses = new HashMap<>();
+        // the abstract response event is mapped as a fallback
+        expectedResponses.put(org.asteriskjava.manager.event.ResponseEvent.class, ResponseEvent.class);
+        for (Class<ManagerEvent> wrapper : ReflectionUtil.loadClasses("org.asteriskjava.pbx.asterisk.wrap.events",
+                ManagerEvent.class)) {
+            final Class<?> source = Class.forName("org.asteriskjava.manager.event." + wrapper.getSimpleName());
+            if (Modifier.isAbstract(source.getModifiers()) || !hasConstructor(wrapper, source)) {
+                continue;
+            }
+            if (ResponseEvent.class.isAssignableFrom(wrapper)) {
+                expectedResponses.put(source, wrapper);
+            } else {
+                expectedEvents.put(source, wrapper);
+            }
+        }
+
+        assertThat(CoherentEventFactory.mapEvents).isEqualTo(expectedEvents);
+        assertThat(CoherentEventFactory.mapResponses).isEqualTo(expectedResponses);
+    }
+
+    @Test
+    void shouldBuildWrapperEvents() {
+        final org.asteriskjava.manager.event.ReloadEvent reloadEvent =
+                new org.asteriskjava.manager.event.ReloadEvent(this);
+        final org.asteriskjava.manager.event.ResponseEvent responseEvent =
+                new org.asteriskjava.manager.event.ResponseEvent(this) {
+                };
+
+        assertThat(CoherentEventFactory.build(reloadEvent)).isInstanceOf(ReloadEvent.class);
+        assertThat(CoherentEventFactory.getShadowEvent(reloadEvent)).isEqualTo(ReloadEvent.class);
+        // only exact classes are mapped
+        assertThat(CoherentEventFactory.build(responseEvent)).isNull();
+    }
+
+    private static boolean hasConstructor(Class<?> wrapper, Class<?> source) {
+        try {
+            wrapper.getConstructor(source);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.asteriskjava.pbx.internal.core;
+
+import org.asteriskjava.manager.ManagerConnection;
+import org.asteriskjava.pbx.ListenerPriority;
+import org.asteriskjava.pbx.asterisk.wrap.events.ManagerEvent;
+import org.asteriskjava.pbx.asterisk.wrap.events.ReloadEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CoherentManagerEventQueueTest {
+    private CoherentManagerEventQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new CoherentManagerEventQueue("test", mock(ManagerConnection.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    void shouldDeliverToOtherListenersWhileOneIsBusy() throws Exception {
+        final RecordingListener slow = new RecordingListener("slow", ListenerPriority.NORMAL);
+        final RecordingListener fast = new RecordingListener("fast", ListenerPriority.NORMAL);
+        fast.release.countDown();
+        queue.addListener(slow);
+        queue.addListener(fast);
+
+        final List<ManagerEvent> events = newEvents(3);
+        for (ManagerEvent event : events) {
+            queue.dispatchEvent(event);
+        }
+
+        fast.await(3);
+        assertThat(fast.received).containsExactlyElementsOf(events);
+        assertThat(slow.received).containsExactly(events.get(0));
+
+        slow.release.countDown();
+        slow.await(3);
+        assertThat(slow.received).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    void shouldNotDeliverAheadOfHigherPriorityListeners() throws Exception {
+        final RecordingListener critical = new RecordingListener("critical", ListenerPriority.CRITICAL);
+        final RecordingListener normal = new RecordingListener("normal", ListenerPriority.NORMAL);
+        normal.release.countDown();
+        queue.addListener(normal);
+        queue.addListener(critical);
+
+        final List<ManagerEvent> events = newEvents(2);
+        for (ManagerEvent event : events) {
+            queue.dispatchEvent(event);
+        }
+
+        // both may work on the first event at the same time
+        normal.await(1);
+        Thread.sleep(100);
+        assertThat(normal.received).containsExactly(events.get(0));
+
+        critical.release.countDown();
+        normal.await(2);
+        assertThat(critical.received).containsExactlyElementsOf(events);
+        assertThat(normal.received).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    void shouldOnlyDeliverRequiredEvents() throws Exception {
+        final RecordingListener listener = new RecordingListener("listener", ListenerPriority.NORMAL);
+        listener.release.countDown();
+        queue.addListener(listener);
+
+        assertThat(queue.isInterestedIn(org.asteriskjava.manager.event.ReloadEvent.class)).isTrue();
+        assertThat(queue.isInterestedIn(org.asteriskjava.manager.event.HangupEvent.class)).isFalse();
+
+        queue.removeListener(listener);
+        assertThat(queue.isInterestedIn(org.asteriskjava.manager.event.ReloadEvent.class)).isFalse();
+        queue.dispatchEvent(newEvents(1).get(0));
+        Thread.sleep(50);
+        assertThat(listener.received).isEmpty();
+    }
+
+    @Test
+    void shouldNotDeliverQueuedEventsAfterListenerHasBeenRemoved() throws Exception {
+        final RecordingListener listener = new RecordingListener("listener", ListenerPriority.NORMAL);
+        queue.addListener(listener);
+
+        final List<ManagerEvent> events = newEvents(3);
+        for (ManagerEvent event : events) {
+            queue.dispatchEvent(event);
+        }
+        listener.await(1);
+
+        queue.removeListener(listener);
+        listener.release.countDown();
+        queue.dispatchEvent(newEvents(1).get(0));
+        Thread.sleep(100);
+        assertThat(listener.received).containsExactly(events.get(0));
+    }
+
+    private List<ManagerEvent> newEvents(int count) {
+        final List<ManagerEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(new ReloadEvent(new org.asteriskjava.manager.event.ReloadEvent(this)));
+        }
+        return events;
+    }
+
+    /**
+     * Records the events and blocks on the first one until released.
+     */
+    private static final class RecordingListener implements FilteredManagerListener<ManagerEvent> {
+        private final String name;
+        private final ListenerPriority priority;
+        private final List<ManagerEvent> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        RecordingListener(String name, ListenerPriority priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        void await(int count) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(received).hasSizeGreaterThanOrEqualTo(count);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Set<Class<? extends ManagerEvent>> requiredEvents() {
+            final Set<Class<? extends ManagerEvent>> events = new HashSet<>();
+            events.add(ReloadEvent.class);
+            return events;
+        }
+
+        @Override
+        public void onManagerEvent(ManagerEvent event) {
+            received.add(event);
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public ListenerPriority getPriority() {
+            return priority;
+        }
+    }
+}
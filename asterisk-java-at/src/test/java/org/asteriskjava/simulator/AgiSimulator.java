@@ -0,0 +1,228 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.simulator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Simulates the FastAGI side of Asterisk: opens AGI sessions against a
+ * FastAGI server on the loopback interface and replies to every command, all
+ * on a single thread.
+ * <p>
+ * The configured number of sessions is kept open at the same time, a session
+ * closed by the server is replaced by a new one until all sessions have been
+ * run. The time from a reply to the next command of the same session is
+ * recorded as the turnaround of the server.
+ *
+ * @since 3.40.0
+ */
+public class AgiSimulator {
+    private final int port;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+    private final LatencyRecorder turnaround = new LatencyRecorder(100_000);
+    private final LatencyRecorder sessionDuration = new LatencyRecorder(100_000);
+
+    private int concurrentSessions = 100;
+    private int sessions = 1000;
+    private int opened;
+    private int closed;
+    private long commands;
+
+    /**
+     * @param port the port of the FastAGI server on the loopback interface.
+     */
+    public AgiSimulator(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Sets the number of sessions that are open at the same time. Default is
+     * 100, each session needs two file descriptors.
+     */
+    public void setConcurrentSessions(int concurrentSessions) {
+        this.concurrentSessions = concurrentSessions;
+    }
+
+    /**
+     * Sets the total number of sessions to run. Default is 1000.
+     */
+    public void setSessions(int sessions) {
+        this.sessions = sessions;
+    }
+
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * Returns the number of sessions that have been closed by the server.
+     */
+    public int getClosedSessions() {
+        return closed;
+    }
+
+    public LatencyRecorder getTurnaround() {
+        return turnaround;
+    }
+
+    public LatencyRecorder getSessionDuration() {
+        return sessionDuration;
+    }
+
+    /**
+     * Runs the sessions.
+     *
+     * @param timeout the maximum time to run (in milliseconds).
+     * @return <code>true</code> if all sessions have been closed by the
+     * server within the timeout.
+     */
+    public boolean run(long timeout) throws IOException, InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        try (Selector selector = Selector.open()) {
+            while (opened < Math.min(concurrentSessions, sessions)) {
+                open(selector);
+            }
+
+            while (closed < sessions && System.currentTimeMillis() < deadline) {
+                selector.select(1000);
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!read(key)) {
+                        final Session session = (Session) key.attachment();
+                        sessionDuration.record(System.nanoTime() - session.opened);
+                        key.cancel();
+                        key.channel().close();
+                        closed++;
+                        if (opened < sessions) {
+                            open(selector);
+                        }
+                    }
+                }
+            }
+
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+        return closed == sessions;
+    }
+
+    private void open(Selector selector) throws IOException, InterruptedException {
+        final int id = opened++;
+        final SocketChannel channel = connect();
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Session());
+        write(channel, environment(id));
+    }
+
+    private SocketChannel connect() throws IOException, InterruptedException {
+        // the backlog of the server may be full for a moment
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            } catch (IOException e) {
+                if (attempt == 50) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static String environment(int session) {
+        return "agi_network: yes\n" + "agi_network_script: simulator\n"
+                + "agi_request: agi://localhost/simulator?session=" + session + "\n"
+                + "agi_channel: PJSIP/simulator-" + String.format("%08x", session) + "\n"
+                + "agi_language: en\n" + "agi_type: PJSIP\n" + "agi_uniqueid: 1000." + session + "\n"
+                + "agi_version: 18.10.0\n" + "agi_callerid: " + (1000 + session % 9000) + "\n"
+                + "agi_calleridname: unknown\n" + "agi_context: from-internal\n" + "agi_extension: 2000\n"
+                + "agi_priority: 1\n" + "agi_enhanced: 0.0\n" + "agi_accountcode: \n" + "\n";
+    }
+
+    /**
+     * Replies to each received command line.
+     *
+     * @return <code>false</code> if the server has closed the session.
+     */
+    private boolean read(SelectionKey key) throws IOException {
+        final SocketChannel channel = (SocketChannel) key.channel();
+        final Session session = (Session) key.attachment();
+        readBuffer.clear();
+        final int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            return false;
+        }
+        if (read < 0) {
+            return false;
+        }
+        for (int i = 0; i < read; i++) {
+            final byte b = readBuffer.get(i);
+            if (b != '\n') {
+                session.line.append((char) b);
+                continue;
+            }
+            final long now = System.nanoTime();
+            if (session.lastReply != 0) {
+                turnaround.record(now - session.lastReply);
+            }
+            commands++;
+            write(channel, reply(session.line.toString()));
+            session.line.setLength(0);
+            session.lastReply = System.nanoTime();
+        }
+        return true;
+    }
+
+    private static String reply(String command) {
+        final String upper = command.trim().toUpperCase(Locale.ENGLISH);
+        if (upper.startsWith("GET VARIABLE") || upper.startsWith("GET FULL VARIABLE")) {
+            return "200 result=1 (simulated)\n";
+        }
+        if (upper.startsWith("CHANNEL STATUS")) {
+            return "200 result=6\n";
+        }
+        if (upper.startsWith("HANGUP")) {
+            return "200 result=1\n";
+        }
+        return "200 result=0\n";
+    }
+
+    private static void write(SocketChannel channel, String s) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class Session {
+        private final long opened = System.nanoTime();
+        private final StringBuilder line = new StringBuilder();
+        private long lastReply;
+    }
+}
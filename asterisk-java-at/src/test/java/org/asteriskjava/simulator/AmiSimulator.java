@@ -0,0 +1,847 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.simulator;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.manager.internal.ManagerUtil;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A simulated Asterisk Manager Interface on the loopback interface.
+ * <p>
+ * Clients log in with the challenge/response or plain text authentication
+ * of the real Asterisk and may send any action. The actions needed to
+ * connect a ManagerConnection and initialize an AsteriskServer are answered
+ * like Asterisk 13 and later would, including the event lists of Status,
+ * CoreShowChannels, SIPpeers and QueueStatus. All other actions are
+ * acknowledged with a success response.
+ * <p>
+ * The channels are created by a {@link CallLoadGenerator} or an Originate
+ * action, their events are sent to all logged in sessions that have not
+ * turned events off. Each session is written by its own thread so a slow
+ * client does not hold back the generator.
+ *
+ * @since 3.40.0
+ */
+public class AmiSimulator implements Closeable {
+    private static final Log logger = LogFactory.getLog(AmiSimulator.class);
+
+    public static final String DEFAULT_USERNAME = "manager";
+    public static final String DEFAULT_PASSWORD = "secret";
+
+    private static final byte[] CLOSE = new byte[0];
+
+    private final ServerSocket serverSocket;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<String, Channel> channelsById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Channel> channelsByName = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> queues = new ConcurrentHashMap<>();
+    private final Map<String, String> peers = new ConcurrentHashMap<>();
+    private final String uniqueIdPrefix = (System.currentTimeMillis() / 1000) + ".";
+    private final AtomicLong uniqueIdSequence = new AtomicLong();
+    private final AtomicInteger channelSequence = new AtomicInteger();
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong actionsHandled = new AtomicLong();
+
+    private volatile String username = DEFAULT_USERNAME;
+    private volatile String password = DEFAULT_PASSWORD;
+    private volatile String asteriskVersion = "18.10.0";
+    private volatile Thread acceptThread;
+
+    /**
+     * Creates a new simulator listening on a free port of the loopback
+     * interface. Connections are accepted once {@link #start()} is called.
+     *
+     * @throws IOException if the server socket cannot be bound.
+     */
+    public AmiSimulator() throws IOException {
+        this.serverSocket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+    }
+
+    public String getHostname() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void setCredentials(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * Sets the version reported by CoreSettings and "core show version".
+     * Versions before 14 answer commands with "Response: Follows" instead of
+     * "Output" lines. Default is 18.10.0.
+     *
+     * @param asteriskVersion the version like "13.38.3".
+     */
+    public void setAsteriskVersion(String asteriskVersion) {
+        this.asteriskVersion = asteriskVersion;
+    }
+
+    /**
+     * Adds a queue that is reported by QueueStatus.
+     *
+     * @param name    the name of the queue.
+     * @param members the interfaces of the static members.
+     */
+    public void addQueue(String name, String... members) {
+        final List<String> list = new ArrayList<>();
+        Collections.addAll(list, members);
+        queues.put(name, list);
+    }
+
+    /**
+     * Returns the interfaces of the members of a queue.
+     *
+     * @param name the name of the queue.
+     * @return the members or <code>null</code> if there is no such queue.
+     */
+    public List<String> getQueueMembers(String name) {
+        return queues.get(name);
+    }
+
+    /**
+     * Adds a SIP peer that is reported by SIPpeers.
+     *
+     * @param name    the name of the peer.
+     * @param address its IP address.
+     */
+    public void addPeer(String name, String address) {
+        peers.put(name, address);
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        final Thread thread = new Thread(this::accept, "AmiSimulator-" + getPort());
+        thread.setDaemon(true);
+        acceptThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops accepting connections and closes all sessions.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Session session : sessions) {
+            session.close();
+        }
+        final Thread thread = acceptThread;
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events published to the sessions, each event is
+     * counted once no matter how many sessions received it.
+     */
+    public long getEventsPublished() {
+        return eventsPublished.get();
+    }
+
+    public long getActionsHandled() {
+        return actionsHandled.get();
+    }
+
+    /**
+     * Returns the number of sessions that are logged in.
+     */
+    public int getSessionCount() {
+        int count = 0;
+        for (Session session : sessions) {
+            if (session.loggedIn) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns <code>true</code> if all published events and responses have
+     * been written to the sockets.
+     */
+    public boolean isFlushed() {
+        for (Session session : sessions) {
+            if (!session.queue.isEmpty() || session.writing) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Collection<Channel> getChannels() {
+        return Collections.unmodifiableCollection(channelsById.values());
+    }
+
+    public Channel getChannelByName(String name) {
+        return channelsByName.get(name);
+    }
+
+    /**
+     * Creates a channel and publishes its Newchannel event.
+     *
+     * @param technology   the technology and peer like "PJSIP/1000".
+     * @param state        the initial state.
+     * @param callerIdNum  the caller id number.
+     * @param context      the dialplan context.
+     * @param exten        the extension.
+     * @param linkedId     the unique id of the first channel of the call or
+     *                     <code>null</code> if this is the first channel.
+     * @return the new channel.
+     */
+    public Channel newChannel(String technology, ChannelState state, String callerIdNum, String context,
+                              String exten, String linkedId) {
+        final String uniqueId = uniqueIdPrefix + uniqueIdSequence.incrementAndGet();
+        final String name = technology + "-" + String.format("%08x", channelSequence.incrementAndGet());
+        final Channel channel = new Channel(name, uniqueId, linkedId == null ? uniqueId : linkedId, callerIdNum,
+                context, exten, state);
+        channelsById.put(uniqueId, channel);
+        channelsByName.put(name, channel);
+        publish(channel.event("Newchannel"));
+        return channel;
+    }
+
+    /**
+     * Changes the state of a channel and publishes a Newstate event.
+     */
+    public void setState(Channel channel, ChannelState state) {
+        channel.state = state;
+        publish(channel.event("Newstate"));
+    }
+
+    /**
+     * Sets a channel variable and publishes a VarSet event.
+     */
+    public void setVariable(Channel channel, String variable, String value) {
+        channel.variables.put(variable, value);
+        publish(channel.event("VarSet").add("Variable", variable).add("Value", value));
+    }
+
+    /**
+     * Hangs up a channel and publishes its Hangup event, does nothing if the
+     * channel has already been hung up.
+     *
+     * @param channel the channel to hang up.
+     * @param cause   the hangup cause like 16 for normal clearing.
+     */
+    public void hangup(Channel channel, int cause) {
+        if (!channelsById.remove(channel.uniqueId, channel)) {
+            return;
+        }
+        channelsByName.remove(channel.name, channel);
+        channel.hungup = true;
+        publish(channel.event("Hangup").add("Cause", cause).add("Cause-txt",
+                cause == 16 ? "Normal Clearing" : "Unknown"));
+    }
+
+    /**
+     * Publishes an event to all sessions that receive events.
+     *
+     * @param event the event.
+     */
+    public void publish(Frame event) {
+        final byte[] bytes = event.toBytes();
+        eventsPublished.incrementAndGet();
+        for (Session session : sessions) {
+            if (session.loggedIn && session.events) {
+                session.send(bytes);
+            }
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Unable to accept connection", e);
+                }
+                return;
+            }
+            try {
+                final Session session = new Session(socket);
+                sessions.add(session);
+                session.start();
+            } catch (IOException e) {
+                logger.warn("Unable to start session", e);
+            }
+        }
+    }
+
+    private void handle(Session session, Map<String, String> action) {
+        final String name = action.getOrDefault("action", "").toLowerCase(Locale.ENGLISH);
+        final String actionId = action.get("actionid");
+        actionsHandled.incrementAndGet();
+
+        if (!session.loggedIn && !"challenge".equals(name) && !"login".equals(name)) {
+            session.send(error(actionId, "Permission denied"));
+            return;
+        }
+
+        switch (name) {
+            case "challenge":
+                session.challenge = String.valueOf(ThreadLocalRandom.current().nextInt(100_000_000, 999_999_999));
+                session.send(success(actionId).add("Challenge", session.challenge));
+                break;
+            case "login":
+                login(session, action, actionId);
+                break;
+            case "logoff":
+                session.send(new Frame("Response", "Goodbye").add("ActionID", actionId)
+                        .add("Message", "Thanks for all the fish."));
+                session.send(CLOSE);
+                break;
+            case "ping":
+                session.send(success(actionId).add("Ping", "Pong")
+                        .add("Timestamp", String.format(Locale.ENGLISH, "%.6f", System.currentTimeMillis() / 1000.0)));
+                break;
+            case "coresettings":
+                session.send(success(actionId).add("AMIversion", "5.0.1").add("AsteriskVersion", asteriskVersion)
+                        .add("SystemName", "simulator").add("CoreMaxCalls", 0).add("CoreMaxLoadAvg", "0.000000")
+                        .add("CoreRunUser", "asterisk").add("CoreRunGroup", "asterisk")
+                        .add("CoreMaxFilehandles", 0).add("CoreRealTimeEnabled", "No")
+                        .add("CoreCDRenabled", "No").add("CoreHTTPenabled", "No"));
+                break;
+            case "command":
+                command(session, action.getOrDefault("command", ""), actionId);
+                break;
+            case "events":
+                session.events = !"off".equalsIgnoreCase(action.get("eventmask"));
+                session.send(success(actionId).add("Events", session.events ? "On" : "Off"));
+                break;
+            case "status":
+                status(session, action.get("channel"), actionId);
+                break;
+            case "coreshowchannels":
+                coreShowChannels(session, actionId);
+                break;
+            case "sippeers":
+                sipPeers(session, actionId);
+                break;
+            case "queuestatus":
+                queueStatus(session, action.get("queue"), actionId);
+                break;
+            case "agents":
+                session.send(success(actionId).add("Message", "Agents will follow"));
+                session.send(new Frame("Event", "AgentsComplete").add("ActionID", actionId));
+                break;
+            case "getvar":
+                getVar(session, action, actionId);
+                break;
+            case "setvar":
+                setVar(session, action, actionId);
+                break;
+            case "hangup":
+                hangupAction(session, action, actionId);
+                break;
+            case "originate":
+                originate(session, action, actionId);
+                break;
+            default:
+                session.send(success(actionId).add("Message", "Simulated"));
+                break;
+        }
+    }
+
+    private void login(Session session, Map<String, String> action, String actionId) {
+        final boolean authenticated;
+        if ("md5".equalsIgnoreCase(action.get("authtype")) && session.challenge != null) {
+            authenticated = md5(session.challenge + password).equals(action.get("key"));
+        } else {
+            authenticated = password.equals(action.get("secret"));
+        }
+
+        if (!authenticated || !username.equals(action.get("username"))) {
+            session.send(error(actionId, "Authentication failed"));
+            return;
+        }
+
+        session.events = !"off".equalsIgnoreCase(action.get("events"));
+        session.send(success(actionId).add("Message", "Authentication accepted"));
+        if (session.events) {
+            session.send(new Frame("Event", "FullyBooted").add("Privilege", "system,all")
+                    .add("Status", "Fully Booted"));
+        }
+        session.loggedIn = true;
+    }
+
+    private void command(Session session, String command, String actionId) {
+        final List<String> output = new ArrayList<>();
+        if (command.startsWith("core show version") || command.startsWith("show version")) {
+            output.add("Asterisk " + asteriskVersion + " built by simulator @ localhost on a x86_64 running Linux");
+        }
+
+        if (isBefore14()) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append("Response: Follows\r\nPrivilege: Command\r\n");
+            if (actionId != null) {
+                sb.append("ActionID: ").append(actionId).append("\r\n");
+            }
+            for (String line : output) {
+                sb.append(line).append('\n');
+            }
+            sb.append("--END COMMAND--\r\n\r\n");
+            session.send(sb.toString().getBytes(StandardCharsets.UTF_8));
+        } else {
+            final Frame response = success(actionId).add("Message", "Command output follows");
+            for (String line : output) {
+                response.add("Output", line);
+            }
+            session.send(response);
+        }
+    }
+
+    private boolean isBefore14() {
+        final String version = asteriskVersion;
+        final int dot = version.indexOf('.');
+        try {
+            return Integer.parseInt(dot < 0 ? version : version.substring(0, dot)) < 14;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void status(Session session, String channelName, String actionId) {
+        session.send(success(actionId).add("EventList", "start").add("Message", "Channel status will follow"));
+        int items = 0;
+        for (Channel channel : channelsById.values()) {
+            if (channelName != null && !channelName.equals(channel.name)) {
+                continue;
+            }
+            session.send(channel.event("Status").add("ActionID", actionId).add("Extension", channel.exten)
+                    .add("Seconds", channel.getSeconds()).add("BridgeID", channel.bridgeId));
+            items++;
+        }
+        session.send(new Frame("Event", "StatusComplete").add("ActionID", actionId).add("EventList", "Complete")
+                .add("ListItems", items).add("Items", items));
+    }
+
+    private void coreShowChannels(Session session, String actionId) {
+        session.send(success(actionId).add("EventList", "start").add("Message", "Channels will follow"));
+        int items = 0;
+        for (Channel channel : channelsById.values()) {
+            session.send(channel.event("CoreShowChannel").add("ActionID", actionId).add("Application", "Dial")
+                    .add("ApplicationData", "")
+                    .add("Duration", channel.getDuration()).add("BridgeId", channel.bridgeId));
+            items++;
+        }
+        session.send(new Frame("Event", "CoreShowChannelsComplete").add("ActionID", actionId)
+                .add("EventList", "Complete").add("ListItems", items));
+    }
+
+    private void sipPeers(Session session, String actionId) {
+        session.send(success(actionId).add("EventList", "start").add("Message", "Peer status list will follow"));
+        for (Map.Entry<String, String> peer : peers.entrySet()) {
+            session.send(new Frame("Event", "PeerEntry").add("ActionID", actionId).add("Channeltype", "SIP")
+                    .add("ObjectName", peer.getKey()).add("ChanObjectType", "peer").add("IPaddress", peer.getValue())
+                    .add("IPport", 5060).add("Dynamic", "yes").add("AutoForcerport", "no").add("Forcerport", "no")
+                    .add("AutoComedia", "no").add("Comedia", "no").add("VideoSupport", "no")
+                    .add("TextSupport", "no").add("ACL", "no").add("Status", "OK (1 ms)")
+                    .add("RealtimeDevice", "no").add("Description", ""));
+        }
+        session.send(new Frame("Event", "PeerlistComplete").add("ActionID", actionId).add("EventList", "Complete")
+                .add("ListItems", peers.size()));
+    }
+
+    private void queueStatus(Session session, String queueName, String actionId) {
+        session.send(success(actionId).add("EventList", "start").add("Message", "Queue status will follow"));
+        int items = 0;
+        for (Map.Entry<String, List<String>> queue : queues.entrySet()) {
+            if (queueName != null && !queueName.equals(queue.getKey())) {
+                continue;
+            }
+            final List<Channel> entries = new ArrayList<>();
+            for (Channel channel : channelsById.values()) {
+                if (queue.getKey().equals(channel.queue)) {
+                    entries.add(channel);
+                }
+            }
+            session.send(new Frame("Event", "QueueParams").add("ActionID", actionId).add("Queue", queue.getKey())
+                    .add("Max", 0).add("Strategy", "ringall").add("Calls", entries.size()).add("Holdtime", 0)
+                    .add("TalkTime", 0).add("Completed", 0).add("Abandoned", 0).add("ServiceLevel", 60)
+                    .add("ServicelevelPerf", "0.0").add("ServicelevelPerf2", "0.0").add("Weight", 0));
+            items++;
+            for (String member : queue.getValue()) {
+                session.send(new Frame("Event", "QueueMember").add("ActionID", actionId)
+                        .add("Queue", queue.getKey()).add("Name", member).add("Location", member)
+                        .add("StateInterface", member).add("Membership", "static").add("Penalty", 0)
+                        .add("CallsTaken", 0).add("LastCall", 0).add("LastPause", 0).add("InCall", 0)
+                        .add("Status", 1).add("Paused", 0).add("PausedReason", "").add("Wrapuptime", 0));
+                items++;
+            }
+            int position = 1;
+            for (Channel channel : entries) {
+                session.send(new Frame("Event", "QueueEntry").add("ActionID", actionId)
+                        .add("Queue", queue.getKey()).add("Position", position++).add("Channel", channel.name)
+                        .add("Uniqueid", channel.uniqueId).add("CallerIDNum", channel.callerIdNum)
+                        .add("CallerIDName", "unknown").add("ConnectedLineNum", "unknown")
+                        .add("ConnectedLineName", "unknown").add("Wait", channel.getSeconds()).add("Priority", 0));
+                items++;
+            }
+        }
+        session.send(new Frame("Event", "QueueStatusComplete").add("ActionID", actionId)
+                .add("EventList", "Complete").add("ListItems", items));
+    }
+
+    private void getVar(Session session, Map<String, String> action, String actionId) {
+        final String variable = action.get("variable");
+        final String channelName = action.get("channel");
+        final String value;
+        if (channelName == null) {
+            value = "";
+        } else {
+            final Channel channel = channelsByName.get(channelName);
+            if (channel == null) {
+                session.send(error(actionId, "No such channel"));
+                return;
+            }
+            value = channel.variables.getOrDefault(variable, "");
+        }
+        session.send(success(actionId).add("Variable", variable).add("Value", value));
+    }
+
+    private void setVar(Session session, Map<String, String> action, String actionId) {
+        final String channelName = action.get("channel");
+        if (channelName != null) {
+            final Channel channel = channelsByName.get(channelName);
+            if (channel == null) {
+                session.send(error(actionId, "No such channel"));
+                return;
+            }
+            setVariable(channel, action.get("variable"), action.getOrDefault("value", ""));
+        }
+        session.send(success(actionId).add("Message", "Variable Set"));
+    }
+
+    private void hangupAction(Session session, Map<String, String> action, String actionId) {
+        final Channel channel = channelsByName.get(action.getOrDefault("channel", ""));
+        if (channel == null) {
+            session.send(error(actionId, "No such channel"));
+            return;
+        }
+        session.send(success(actionId).add("Message", "Channel Hungup"));
+        final String cause = action.get("cause");
+        hangup(channel, cause == null ? 16 : Integer.parseInt(cause));
+    }
+
+    /**
+     * Answers an Originate like a successful call to the given extension, the
+     * channel stays up until it is hung up.
+     */
+    private void originate(Session session, Map<String, String> action, String actionId) {
+        final String technology = action.getOrDefault("channel", "Local/s@default");
+        session.send(success(actionId).add("Message", "Originate successfully queued"));
+
+        final Channel channel = newChannel(technology, ChannelState.DOWN, "", action.getOrDefault("context", ""),
+                action.getOrDefault("exten", ""), null);
+        setState(channel, ChannelState.UP);
+        publish(new Frame("Event", "OriginateResponse").add("Privilege", "call,all").add("ActionID", actionId)
+                .add("Response", "Success").add("Channel", channel.name).add("Context", channel.context)
+                .add("Exten", channel.exten).add("Application", action.get("application"))
+                .add("Data", action.get("data")).add("Reason", 4).add("Uniqueid", channel.uniqueId)
+                .add("CallerIDNum", "<unknown>").add("CallerIDName", "<unknown>"));
+    }
+
+    private static Frame success(String actionId) {
+        return new Frame("Response", "Success").add("ActionID", actionId);
+    }
+
+    private static Frame error(String actionId, String message) {
+        return new Frame("Response", "Error").add("ActionID", actionId).add("Message", message);
+    }
+
+    private static String md5(String s) {
+        try {
+            final MessageDigest md = MessageDigest.getInstance("MD5");
+            return ManagerUtil.toHexString(md.digest(s.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A response or event in the wire format.
+     */
+    public static final class Frame {
+        private final StringBuilder sb = new StringBuilder(256);
+
+        public Frame(String type, String value) {
+            add(type, value);
+        }
+
+        /**
+         * Adds a header, <code>null</code> values are omitted.
+         */
+        public Frame add(String name, Object value) {
+            if (value != null) {
+                sb.append(name).append(": ").append(value).append("\r\n");
+            }
+            return this;
+        }
+
+        byte[] toBytes() {
+            return (sb + "\r\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return sb.toString();
+        }
+    }
+
+    /**
+     * A simulated channel.
+     */
+    public static final class Channel {
+        private final String name;
+        private final String uniqueId;
+        private final String linkedId;
+        private final String callerIdNum;
+        private final String context;
+        private final String exten;
+        private final long created = System.nanoTime();
+        private final Map<String, String> variables = new ConcurrentHashMap<>();
+        private volatile ChannelState state;
+        private volatile String queue;
+        private volatile String bridgeId;
+        private volatile boolean hungup;
+
+        Channel(String name, String uniqueId, String linkedId, String callerIdNum, String context, String exten,
+                ChannelState state) {
+            this.name = name;
+            this.uniqueId = uniqueId;
+            this.linkedId = linkedId;
+            this.callerIdNum = callerIdNum;
+            this.context = context;
+            this.exten = exten;
+            this.state = state;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getUniqueId() {
+            return uniqueId;
+        }
+
+        public String getLinkedId() {
+            return linkedId;
+        }
+
+        public String getCallerIdNum() {
+            return callerIdNum;
+        }
+
+        public String getContext() {
+            return context;
+        }
+
+        public String getExten() {
+            return exten;
+        }
+
+        public ChannelState getState() {
+            return state;
+        }
+
+        public boolean isHungup() {
+            return hungup;
+        }
+
+        public String getQueue() {
+            return queue;
+        }
+
+        public void setQueue(String queue) {
+            this.queue = queue;
+        }
+
+        public String getBridgeId() {
+            return bridgeId;
+        }
+
+        public void setBridgeId(String bridgeId) {
+            this.bridgeId = bridgeId;
+        }
+
+        /**
+         * Starts an event with the channel snapshot headers of Asterisk 13.
+         *
+         * @param type the event type.
+         * @return the event, more headers can be added.
+         */
+        public Frame event(String type) {
+            final ChannelState currentState = state;
+            return new Frame("Event", type).add("Privilege", "call,all").add("Channel", name)
+                    .add("ChannelState", currentState.getStatus()).add("ChannelStateDesc", describe(currentState))
+                    .add("CallerIDNum", callerIdNum).add("CallerIDName", "<unknown>")
+                    .add("ConnectedLineNum", "<unknown>").add("ConnectedLineName", "<unknown>")
+                    .add("Language", "en").add("AccountCode", "").add("Context", context).add("Exten", exten)
+                    .add("Priority", 1).add("Uniqueid", uniqueId).add("Linkedid", linkedId);
+        }
+
+        long getSeconds() {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - created);
+        }
+
+        String getDuration() {
+            final long seconds = getSeconds();
+            return String.format("%02d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+
+        private static String describe(ChannelState state) {
+            final String name = state.name();
+            return name.charAt(0) + name.substring(1).toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private final class Session {
+        private final Socket socket;
+        private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+        private volatile boolean loggedIn;
+        private volatile boolean events = true;
+        private volatile boolean writing;
+        private volatile String challenge;
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+        }
+
+        void start() {
+            final Thread reader = new Thread(this::read, "AmiSimulator-Reader-" + socket.getPort());
+            reader.setDaemon(true);
+            final Thread writer = new Thread(this::write, "AmiSimulator-Writer-" + socket.getPort());
+            writer.setDaemon(true);
+            send("Asterisk Call Manager/5.0.1\r\n".getBytes(StandardCharsets.UTF_8));
+            writer.start();
+            reader.start();
+        }
+
+        void send(Frame frame) {
+            send(frame.toBytes());
+        }
+
+        void send(byte[] bytes) {
+            queue.add(bytes);
+        }
+
+        void close() {
+            sessions.remove(this);
+            queue.add(CLOSE);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        private void read() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                Map<String, String> action = new HashMap<>();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        if (!action.isEmpty()) {
+                            handle(this, action);
+                            action = new HashMap<>();
+                        }
+                        continue;
+                    }
+                    final int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        action.putIfAbsent(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH),
+                                line.substring(colon + 1).trim());
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("Session closed: " + e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        private void write() {
+            try (OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024)) {
+                while (true) {
+                    byte[] bytes = queue.take();
+                    writing = true;
+                    do {
+                        if (bytes == CLOSE) {
+                            return;
+                        }
+                        out.write(bytes);
+                    } while ((bytes = queue.poll()) != null);
+                    out.flush();
+                    writing = false;
+                }
+            } catch (IOException e) {
+                logger.debug("Session closed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                writing = false;
+                close();
+            }
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.simulator;
+
+import org.asteriskjava.live.ChannelState;
+import org.asteriskjava.simulator.AmiSimulator.Channel;
+import org.asteriskjava.util.DaemonThreadFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates synthetic calls on an {@link AmiSimulator}.
+ * <p>
+ * Keeps the configured number of calls running, a call that ends is replaced
+ * by a new one until {@link #stop(long)} is called. Each call publishes the event
+ * sequence of Asterisk 13 and later for a caller dialing an extension:
+ * <ol>
+ * <li>Newchannel and VarSet of the caller, QueueCallerJoin if it is a queue
+ * call,</li>
+ * <li>Newchannel, DialBegin and Newstate ringing of the callee,</li>
+ * <li>Newstate up, DialEnd, QueueCallerLeave, BridgeCreate and BridgeEnter
+ * when the callee answers,</li>
+ * <li>RTCPSent and RTCPReceived for both channels while they are bridged,</li>
+ * <li>a BlindTransfer of the caller to another callee for some calls,</li>
+ * <li>BridgeLeave, BridgeDestroy and Hangup of all channels.</li>
+ * </ol>
+ *
+ * @since 3.40.0
+ */
+public class CallLoadGenerator {
+    private final AmiSimulator ami;
+    private final Set<Call> calls = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger bridgeSequence = new AtomicInteger();
+    private final AtomicLong callsStarted = new AtomicLong();
+    private final AtomicLong callsCompleted = new AtomicLong();
+
+    private int concurrentCalls = 10;
+    private long callDuration = TimeUnit.SECONDS.toMillis(10);
+    private long ringDuration = 200;
+    private long rtcpInterval = TimeUnit.SECONDS.toMillis(5);
+    private double queueRatio;
+    private String queue;
+    private double transferRatio;
+    private String traceIdVariable;
+    private boolean repeat = true;
+
+    private ScheduledExecutorService executor;
+    private volatile boolean stopped;
+
+    public CallLoadGenerator(AmiSimulator ami) {
+        this.ami = ami;
+    }
+
+    /**
+     * Sets the number of calls that run at the same time. Default is 10.
+     */
+    public void setConcurrentCalls(int concurrentCalls) {
+        this.concurrentCalls = concurrentCalls;
+    }
+
+    /**
+     * Sets how long a call is up after it has been answered (in
+     * milliseconds). The durations vary by up to 10% so the calls do not end
+     * at the same time. Default is 10 seconds.
+     */
+    public void setCallDuration(long callDuration) {
+        this.callDuration = callDuration;
+    }
+
+    /**
+     * Sets how long the callee rings before answering (in milliseconds).
+     * Default is 200 ms.
+     */
+    public void setRingDuration(long ringDuration) {
+        this.ringDuration = ringDuration;
+    }
+
+    /**
+     * Sets the interval of the RTCP reports of bridged channels (in
+     * milliseconds), 0 disables them. Default is 5 seconds like Asterisk.
+     */
+    public void setRtcpInterval(long rtcpInterval) {
+        this.rtcpInterval = rtcpInterval;
+    }
+
+    /**
+     * Routes a share of the calls through a queue, the queue must have been
+     * added to the simulator and is answered by its first member.
+     *
+     * @param queue the name of the queue.
+     * @param ratio the share of calls between 0 and 1.
+     */
+    public void setQueue(String queue, double ratio) {
+        this.queue = queue;
+        this.queueRatio = ratio;
+    }
+
+    /**
+     * Sets the share of calls that are blind transferred half way through.
+     * Default is 0.
+     */
+    public void setTransferRatio(double transferRatio) {
+        this.transferRatio = transferRatio;
+    }
+
+    /**
+     * Sets a variable that is set to a random trace id on the caller, like a
+     * dialplan would for the trace id support of AsteriskServer. Default is
+     * <code>null</code> to not set it.
+     */
+    public void setTraceIdVariable(String traceIdVariable) {
+        this.traceIdVariable = traceIdVariable;
+    }
+
+    /**
+     * Sets whether a call that ends is replaced by a new one. Default is
+     * <code>true</code>.
+     */
+    public void setRepeat(boolean repeat) {
+        this.repeat = repeat;
+    }
+
+    public long getCallsStarted() {
+        return callsStarted.get();
+    }
+
+    public long getCallsCompleted() {
+        return callsCompleted.get();
+    }
+
+    public int getActiveCalls() {
+        return calls.size();
+    }
+
+    /**
+     * Starts the configured number of calls, spread over the ring duration.
+     */
+    public void start() {
+        stopped = false;
+        executor = new ScheduledThreadPoolExecutor(Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                new DaemonThreadFactory());
+        for (int i = 0; i < concurrentCalls; i++) {
+            executor.schedule(this::startCall, ringDuration * i / concurrentCalls, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops starting new calls and hangs up the running calls.
+     *
+     * @param timeout how long to wait for the calls to end (in milliseconds).
+     * @return <code>true</code> if all calls have ended.
+     */
+    public boolean stop(long timeout) throws InterruptedException {
+        stopped = true;
+        for (Call call : new ArrayList<>(calls)) {
+            executor.execute(call::hangup);
+        }
+        final long deadline = System.currentTimeMillis() + timeout;
+        while (!calls.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        executor.shutdownNow();
+        return calls.isEmpty();
+    }
+
+    private void startCall() {
+        if (stopped) {
+            return;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final boolean queued = queue != null && random.nextDouble() < queueRatio;
+        final boolean transferred = random.nextDouble() < transferRatio;
+        final long duration = callDuration - callDuration / 10 + random.nextLong(callDuration / 5 + 1);
+
+        final Call call = new Call(queued ? queue : null, transferred, duration);
+        calls.add(call);
+        callsStarted.incrementAndGet();
+        call.start();
+    }
+
+    private void ended(Call call) {
+        if (calls.remove(call)) {
+            callsCompleted.incrementAndGet();
+            if (repeat && !stopped) {
+                try {
+                    executor.execute(this::startCall);
+                } catch (RuntimeException e) {
+                    // stopped
+                }
+            }
+        }
+    }
+
+    private final class Call {
+        private final String queue;
+        private final boolean transferred;
+        private final long duration;
+        private final List<Channel> callees = new ArrayList<>(2);
+        private Channel caller;
+        private String bridgeId;
+        private ScheduledFuture<?> next;
+        private ScheduledFuture<?> rtcp;
+        private boolean ended;
+
+        Call(String queue, boolean transferred, long duration) {
+            this.queue = queue;
+            this.transferred = transferred;
+            this.duration = duration;
+        }
+
+        synchronized void start() {
+            final int number = ThreadLocalRandom.current().nextInt(1000, 10000);
+            caller = ami.newChannel("PJSIP/" + number, ChannelState.RING, String.valueOf(number), "from-internal",
+                    queue == null ? "2000" : queue, null);
+            if (traceIdVariable != null) {
+                final String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+                ami.setVariable(caller, "__" + traceIdVariable, traceId);
+            }
+            if (queue != null) {
+                caller.setQueue(queue);
+                ami.publish(caller.event("QueueCallerJoin").add("Queue", queue).add("Position", 1)
+                        .add("Count", 1));
+            }
+            dial();
+        }
+
+        private void dial() {
+            final Channel callee = ami.newChannel(calleeTechnology(), ChannelState.DOWN, caller.getExten(),
+                    "from-internal", caller.getExten(), caller.getLinkedId());
+            callees.add(callee);
+            ami.publish(dialEvent("DialBegin", callee).add("DialString", callee.getName()));
+            ami.setState(callee, ChannelState.RINGING);
+            schedule(this::answer, ringDuration);
+        }
+
+        private String calleeTechnology() {
+            if (queue != null) {
+                final List<String> members = ami.getQueueMembers(queue);
+                if (members != null && !members.isEmpty()) {
+                    return members.get(0);
+                }
+            }
+            return "PJSIP/" + ThreadLocalRandom.current().nextInt(2000, 3000);
+        }
+
+        private synchronized void answer() {
+            if (ended) {
+                return;
+            }
+            final Channel callee = callees.get(callees.size() - 1);
+            ami.setState(callee, ChannelState.UP);
+            ami.publish(dialEvent("DialEnd", callee).add("DialStatus", "ANSWER"));
+            if (bridgeId == null) {
+                if (caller.getQueue() != null) {
+                    caller.setQueue(null);
+                    ami.publish(caller.event("QueueCallerLeave").add("Queue", queue).add("Position", 1)
+                            .add("Count", 0));
+                }
+                ami.setState(caller, ChannelState.UP);
+                bridgeId = String.format("%08x-0000-0000-0000-%012x", ThreadLocalRandom.current().nextInt(),
+                        bridgeSequence.incrementAndGet());
+                ami.publish(bridge("BridgeCreate"));
+                enterBridge(caller);
+                if (rtcpInterval > 0) {
+                    rtcp = executor.scheduleWithFixedDelay(this::rtcp, rtcpInterval, rtcpInterval,
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+            enterBridge(callee);
+
+            if (transferred && callees.size() == 1) {
+                schedule(this::transfer, duration / 2);
+            } else {
+                schedule(this::hangup, transferred ? duration / 2 : duration);
+            }
+        }
+
+        private synchronized void transfer() {
+            if (ended) {
+                return;
+            }
+            final Channel transferer = callees.get(0);
+            ami.publish(bridge("BlindTransfer").add("Result", "Success")
+                    .add("TransfererChannel", transferer.getName()).add("TransfererUniqueid", transferer.getUniqueId())
+                    .add("TransfereeChannel", caller.getName()).add("TransfereeUniqueid", caller.getUniqueId())
+                    .add("IsExternal", "No").add("Context", "from-internal").add("Extension", "3000"));
+            leaveBridge(transferer);
+            ami.hangup(transferer, 16);
+            dial();
+        }
+
+        private synchronized void rtcp() {
+            if (ended) {
+                return;
+            }
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (Channel channel : channelsInBridge()) {
+                ami.publish(rtcpEvent("RTCPSent", channel, random)
+                        .add("To", "127.0.0.1:" + random.nextInt(10000, 20000))
+                        .add("SentNTP", System.currentTimeMillis() / 1000 + ".000000")
+                        .add("SentRTP", random.nextInt(0, Integer.MAX_VALUE))
+                        .add("SentPackets", random.nextInt(100, 10000))
+                        .add("SentOctets", random.nextInt(16000, 1600000)));
+                ami.publish(rtcpEvent("RTCPReceived", channel, random)
+                        .add("From", "127.0.0.1:" + random.nextInt(10000, 20000))
+                        .add("RTT", String.format(Locale.ENGLISH, "%.4f", random.nextDouble() / 100)));
+            }
+        }
+
+        synchronized void hangup() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+            if (rtcp != null) {
+                rtcp.cancel(false);
+            }
+            if (bridgeId != null) {
+                for (Channel channel : channelsInBridge()) {
+                    leaveBridge(channel);
+                }
+                ami.publish(bridge("BridgeDestroy"));
+            }
+            for (Channel callee : callees) {
+                ami.hangup(callee, 16);
+            }
+            ami.hangup(caller, 16);
+            ended(this);
+        }
+
+        private List<Channel> channelsInBridge() {
+            final List<Channel> channels = new ArrayList<>(2);
+            if (isInBridge(caller)) {
+                channels.add(caller);
+            }
+            for (Channel callee : callees) {
+                if (isInBridge(callee)) {
+                    channels.add(callee);
+                }
+            }
+            return channels;
+        }
+
+        private boolean isInBridge(Channel channel) {
+            return bridgeId.equals(channel.getBridgeId()) && !channel.isHungup();
+        }
+
+        private void enterBridge(Channel channel) {
+            channel.setBridgeId(bridgeId);
+            ami.publish(bridgeChannelEvent("BridgeEnter", channel));
+        }
+
+        private void leaveBridge(Channel channel) {
+            channel.setBridgeId(null);
+            ami.publish(bridgeChannelEvent("BridgeLeave", channel));
+        }
+
+        private AmiSimulator.Frame bridge(String type) {
+            return new AmiSimulator.Frame("Event", type).add("Privilege", "call,all").add("BridgeUniqueid", bridgeId)
+                    .add("BridgeType", "basic").add("BridgeTechnology", "simple_bridge")
+                    .add("BridgeCreator", "<unknown>").add("BridgeName", "<unknown>")
+                    .add("BridgeNumChannels", channelsInBridge().size())
+                    .add("BridgeVideoSourceMode", "none");
+        }
+
+        private AmiSimulator.Frame bridgeChannelEvent(String type, Channel channel) {
+            return channel.event(type).add("BridgeUniqueid", bridgeId).add("BridgeType", "basic")
+                    .add("BridgeTechnology", "simple_bridge").add("BridgeCreator", "<unknown>")
+                    .add("BridgeName", "<unknown>").add("BridgeVideoSourceMode", "none");
+        }
+
+        private AmiSimulator.Frame dialEvent(String type, Channel callee) {
+            final ChannelState state = callee.getState();
+            return caller.event(type).add("DestChannel", callee.getName()).add("DestChannelState", state.getStatus())
+                    .add("DestCallerIDNum", callee.getExten()).add("DestContext", "from-internal")
+                    .add("DestExten", callee.getExten()).add("DestPriority", 1)
+                    .add("DestUniqueid", callee.getUniqueId()).add("DestLinkedid", callee.getLinkedId());
+        }
+
+        private AmiSimulator.Frame rtcpEvent(String type, Channel channel, ThreadLocalRandom random) {
+            return channel.event(type).add("SSRC", "0x" + Integer.toHexString(random.nextInt()))
+                    .add("PT", "200(SR)").add("ReportCount", 1)
+                    .add("Report0SourceSSRC", "0x" + Integer.toHexString(random.nextInt()))
+                    .add("Report0FractionLost", 0).add("Report0CumulativeLost", random.nextInt(0, 10))
+                    .add("Report0HighestSequence", random.nextInt(0, 65536)).add("Report0SequenceNumberCycles", 0)
+                    .add("Report0IAJitter", random.nextInt(0, 100))
+                    .add("Report0LSR", random.nextInt(0, Integer.MAX_VALUE)).add("Report0DLSR", "0.0000");
+        }
+
+        private void schedule(Runnable step, long delay) {
+            try {
+                next = executor.schedule(step, delay, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // stopped, the call is hung up by stop()
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2004-2022 Asterisk-Java contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.asteriskjava.simulator;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records latencies and reports their percentiles.
+ * <p>
+ * Keeps the most recent samples in a ring buffer of fixed size so long soak
+ * runs do not grow the heap, the count covers all samples.
+ *
+ * @since 3.40.0
+ */
+public class LatencyRecorder {
+    private final long[] samples;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param capacity the number of samples kept for the percentiles.
+     */
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        samples[(int) (count.getAndIncrement() % samples.length)] = nanos;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns a percentile of the kept samples.
+     *
+     * @param percentile the percentile between 0 and 100.
+     * @return the latency in nanoseconds or 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        return percentile(sorted(), percentile);
+    }
+
+    private long[] sorted() {
+        final long[] sorted = Arrays.copyOf(samples, (int) Math.min(count.get(), samples.length));
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    @Override
+    public String toString() {
+        final long[] sorted = sorted();
+        if (sorted.length == 0) {
+            return "no samples";
+        }
+        return String.format(Locale.ENGLISH, "p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f us (%d samples)",
+                percentile(sorted, 50) / 1000.0, percentile(sorted, 90) / 1000.0, percentile(sorted, 99) / 1000.0,
+                percentile(sorted, 99.9) / 1000.0, sorted[sorted.length - 1] / 1000.0, count.get());
+    }
+}
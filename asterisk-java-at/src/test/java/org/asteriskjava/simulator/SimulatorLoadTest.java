@@ -0,0 +1,224 @@
+package org.asteriskjava.simulator;
+
+import org.asteriskjava.fastagi.AgiScript;
+import org.asteriskjava.fastagi.DefaultAgiServer;
+import org.asteriskjava.fastagi.StaticMappingStrategy;
+import org.asteriskjava.live.DefaultAsteriskServer;
+import org.asteriskjava.manager.DefaultManagerConnection;
+import org.asteriskjava.manager.action.PingAction;
+import org.asteriskjava.manager.event.BridgeEvent;
+import org.asteriskjava.manager.event.ConnectEvent;
+import org.asteriskjava.manager.event.DialEvent;
+import org.asteriskjava.manager.event.DisconnectEvent;
+import org.asteriskjava.manager.event.FullyBootedEvent;
+import org.asteriskjava.manager.event.ManagerEvent;
+import org.asteriskjava.manager.event.ProtocolIdentifierReceivedEvent;
+import org.asteriskjava.manager.response.ManagerResponse;
+import org.asteriskjava.util.Log;
+import org.asteriskjava.util.LogFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives the Manager API and the FastAGI server with the simulators and
+ * reports the sustained throughput, latencies and memory per call.
+ * <p>
+ * The tests only run if the system property <code>simulatorLoadTest</code>
+ * is set to <code>true</code>. The defaults keep the run short, for load and
+ * soak runs the sizes can be
+ * changed with the system properties <code>simulator.calls</code>,
+ * <code>simulator.activeCalls</code>, <code>simulator.duration</code> (in
+ * milliseconds) and <code>simulator.agiSessions</code>.
+ */
+class SimulatorLoadTest {
+    private static final Log logger = LogFactory.getLog(SimulatorLoadTest.class);
+    private static final int CALLS = Integer.getInteger("simulator.calls", 50);
+    private static final int ACTIVE_CALLS = Integer.getInteger("simulator.activeCalls", 100);
+    private static final long DURATION = Long.getLong("simulator.duration", 2000L);
+    private static final int AGI_SESSIONS = Integer.getInteger("simulator.agiSessions", 100);
+
+    @BeforeEach
+    void assumeEnabled() {
+        assumeTrue(Boolean.getBoolean("simulatorLoadTest"), "simulatorLoadTest is not enabled");
+    }
+
+    @Test
+    void managerConnectionShouldKeepUpWithCallLoad() throws Exception {
+        try (AmiSimulator ami = newSimulator()) {
+            final DefaultManagerConnection connection = newConnection(ami);
+            final AtomicLong received = new AtomicLong();
+            connection.addEventListener(event -> {
+                if (isGenerated(event)) {
+                    received.incrementAndGet();
+                }
+            });
+            connection.login();
+
+            final CallLoadGenerator load = new CallLoadGenerator(ami);
+            load.setConcurrentCalls(CALLS);
+            load.setCallDuration(500);
+            load.setRingDuration(50);
+            load.setRtcpInterval(100);
+            load.setQueue("support", 0.2);
+            load.setTransferRatio(0.1);
+
+            final LatencyRecorder rtt = new LatencyRecorder(100_000);
+            final long start = System.nanoTime();
+            load.start();
+            try {
+                while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(DURATION)) {
+                    final long sent = System.nanoTime();
+                    final ManagerResponse response = connection.sendAction(new PingAction());
+                    rtt.record(System.nanoTime() - sent);
+                    assertThat(response.getResponse()).isEqualTo("Success");
+                }
+            } finally {
+                assertThat(load.stop(5000)).isTrue();
+            }
+            await(() -> received.get() >= ami.getEventsPublished());
+            final long elapsed = System.nanoTime() - start;
+
+            logger.info(String.format(Locale.ENGLISH,
+                    "%d calls (%d concurrent): %d events in %d ms, %.0f events/s, ping rtt %s",
+                    load.getCallsCompleted(), CALLS, received.get(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    received.get() * 1e9 / elapsed, rtt));
+            assertThat(received.get()).isEqualTo(ami.getEventsPublished());
+            assertThat(load.getCallsCompleted()).isGreaterThanOrEqualTo(CALLS);
+
+            connection.logoff();
+        }
+    }
+
+    @Test
+    void asteriskServerShouldTrackSimulatedCalls() throws Exception {
+        try (AmiSimulator ami = newSimulator()) {
+            final DefaultAsteriskServer server = new DefaultAsteriskServer(newConnection(ami));
+            server.initialize();
+            assertThat(server.getQueues()).hasSize(1);
+
+            final CallLoadGenerator load = new CallLoadGenerator(ami);
+            load.setConcurrentCalls(ACTIVE_CALLS);
+            load.setCallDuration(TimeUnit.HOURS.toMillis(1));
+            load.setRingDuration(50);
+            load.setRtcpInterval(0);
+            load.setQueue("support", 0.2);
+            load.setTraceIdVariable("AJ_TRACE_ID");
+            load.setRepeat(false);
+
+            final long before = usedMemory();
+            load.start();
+            try {
+                await(() -> ami.getChannels().size() == 2 * ACTIVE_CALLS && ami.isFlushed()
+                        && server.getChannels().size() == 2 * ACTIVE_CALLS);
+                final long after = usedMemory();
+
+                logger.info(String.format(Locale.ENGLISH,
+                        "%d active calls: about %d bytes of heap per call including the simulator", ACTIVE_CALLS,
+                        (after - before) / ACTIVE_CALLS));
+                assertThat(server.getChannels()).hasSize(2 * ACTIVE_CALLS);
+            } finally {
+                assertThat(load.stop(5000)).isTrue();
+            }
+
+            await(() -> server.getChannels().isEmpty());
+            assertThat(server.getChannels()).isEmpty();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void agiServerShouldServeSimulatedSessions() throws Exception {
+        final AgiScript script = (request, channel) -> {
+            channel.answer();
+            channel.getVariable("AJ_TRACE_ID");
+            channel.streamFile("welcome");
+            channel.hangup();
+        };
+
+        final DefaultAgiServer server = new DefaultAgiServer(new StaticMappingStrategy(script));
+        server.setAddress(InetAddress.getLoopbackAddress());
+        server.setPort(findFreePort());
+        server.setMaximumPoolSize(60);
+
+        final Thread serverThread = new Thread(server::run, "SimulatorLoadTest");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        try {
+            final AgiSimulator agi = new AgiSimulator(server.getPort());
+            agi.setSessions(AGI_SESSIONS);
+            agi.setConcurrentSessions(50);
+
+            final long start = System.nanoTime();
+            final boolean completed = agi.run(TimeUnit.SECONDS.toMillis(120));
+            final long elapsed = System.nanoTime() - start;
+
+            logger.info(String.format(Locale.ENGLISH,
+                    "%d AGI sessions: %d commands in %d ms, %.0f commands/s, turnaround %s, session %s",
+                    agi.getClosedSessions(), agi.getCommands(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    agi.getCommands() * 1e9 / elapsed, agi.getTurnaround(), agi.getSessionDuration()));
+            assertThat(completed).isTrue();
+            // the script's four commands and the AJ_AGISTATUS variable set by the server
+            assertThat(agi.getCommands()).isEqualTo(5L * AGI_SESSIONS);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static AmiSimulator newSimulator() throws IOException {
+        final AmiSimulator ami = new AmiSimulator();
+        ami.addQueue("support", "PJSIP/agent1", "PJSIP/agent2");
+        ami.addPeer("1000", "10.0.0.1");
+        ami.start();
+        return ami;
+    }
+
+    private static DefaultManagerConnection newConnection(AmiSimulator ami) {
+        return new DefaultManagerConnection(ami.getHostname(), ami.getPort(), AmiSimulator.DEFAULT_USERNAME,
+                AmiSimulator.DEFAULT_PASSWORD);
+    }
+
+    /**
+     * Checks whether an event has been published by the simulator, the legacy
+     * Dial and Bridge events are derived from DialBegin and BridgeEnter by
+     * the connection itself.
+     */
+    private static boolean isGenerated(ManagerEvent event) {
+        return event.getClass() != DialEvent.class && event.getClass() != BridgeEvent.class
+                && !(event instanceof ConnectEvent || event instanceof DisconnectEvent
+                || event instanceof FullyBootedEvent || event instanceof ProtocolIdentifierReceivedEvent);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Returns the used heap without forcing a collection, so the difference
+     * also includes garbage and is only an upper bound.
+     */
+    private static long usedMemory() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.asteriskjava.util.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CaptureTraceTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void shouldReadFramesInOrderAcrossSegments() throws Exception {
+        final CaptureTrace trace = new CaptureTrace(directory, "test", 128);
+        trace.received("Asterisk Call Manager/5.0.5\r\n");
+        trace.sent("action: Ping\r\n\r\n");
+        trace.receivedLine("Event: FullyBooted");
+        trace.receivedLine("");
+        for (int i = 0; i < 20; i++) {
+            trace.received("Event: Newstate\r\nUniqueid: 1000." + i + "\r\n\r\n");
+        }
+        trace.close();
+
+        assertThat(CaptureTrace.segmentFile(directory, "test", 1)).exists();
+
+        try (CaptureReader reader = new CaptureReader(CaptureTrace.segmentFile(directory, "test", 0))) {
+            assertThat(reader.getStartMillis()).isPositive();
+
+            CaptureReader.Frame frame = reader.next();
+            assertThat(payload(frame)).isEqualTo("Asterisk Call Manager/5.0.5\r\n");
+            assertThat(frame.isSent()).isFalse();
+            assertThat(frame.isLine()).isFalse();
+
+            frame = reader.next();
+            assertThat(frame.isSent()).isTrue();
+
+            frame = reader.next();
+            assertThat(frame.isLine()).isTrue();
+            assertThat(payload(frame)).isEqualTo("Event: FullyBooted");
+
+            frame = reader.next();
+            assertThat(frame.isLine()).isTrue();
+            assertThat(payload(frame)).isEmpty();
+
+            long nanos = frame.getNanos();
+            for (int i = 0; i < 20; i++) {
+                frame = reader.next();
+                assertThat(payload(frame)).contains("Uniqueid: 1000." + i + "\r\n");
+                assertThat(frame.getNanos()).isGreaterThanOrEqualTo(nanos);
+                nanos = frame.getNanos();
+            }
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    private static String payload(CaptureReader.Frame frame) {
+        return new String(frame.getPayload(), StandardCharsets.UTF_8);
+    }
+}
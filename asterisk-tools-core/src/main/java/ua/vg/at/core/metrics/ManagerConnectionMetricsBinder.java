@@ -0,0 +1,184 @@
+package ua.vg.at.core.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.asteriskjava.manager.LatencyStatistics;
+import org.asteriskjava.manager.ManagerConnection;
+import org.asteriskjava.manager.ManagerConnectionMetrics;
+import org.asteriskjava.manager.ManagerEventQueueStatistics;
+
+/**
+ * Publishes the {@link ManagerConnectionMetrics} of a manager connection to Micrometer.
+ * <p>
+ * Event classes, listeners and actions only become known while the connection is running, the meters
+ * for them are registered by a periodic refresh. The counts per event class are taken from a snapshot
+ * made by the refresh, so they lag behind by up to the refresh interval.
+ * <p>
+ * The binder may be bound to several registries, they share a single refresh thread.
+ */
+public class ManagerConnectionMetricsBinder implements MeterBinder, AutoCloseable {
+
+    private static final String PREFIX = "asterisk.manager.";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final long REFRESH_SECONDS = 10;
+
+    private final ManagerConnectionMetrics metrics;
+    private final Tags tags;
+    private final ClassCounts eventsReceived = new ClassCounts(PREFIX + "events.received",
+            ManagerConnectionMetrics::getEventsReceived);
+    private final ClassCounts eventsBuilt = new ClassCounts(PREFIX + "events.built",
+            ManagerConnectionMetrics::getEventsBuilt);
+    private final ClassCounts eventsDropped = new ClassCounts(PREFIX + "events.dropped",
+            ManagerConnectionMetrics::getEventsDropped);
+
+    /**
+     * The bound registries and the names of the meters registered by the refresh in each of them.
+     */
+    private final Map<MeterRegistry, Set<String>> registries = new ConcurrentHashMap<>();
+    private ScheduledExecutorService refresher;
+
+    public ManagerConnectionMetricsBinder(ManagerConnection connection, Iterable<Tag> tags) {
+        this.metrics = connection.getMetrics();
+        this.tags = Tags.of(tags);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder(PREFIX + "bytes.received", metrics, ManagerConnectionMetrics::getBytesReceived)
+                .baseUnit("bytes").tags(tags).register(registry);
+        FunctionCounter.builder(PREFIX + "bytes.sent", metrics, ManagerConnectionMetrics::getBytesSent)
+                .baseUnit("bytes").tags(tags).register(registry);
+        FunctionCounter.builder(PREFIX + "events.unknown", metrics, ManagerConnectionMetrics::getUnknownEventsReceived)
+                .description("Received events without a registered event class").tags(tags).register(registry);
+        FunctionCounter.builder(PREFIX + "reconnect.attempts", metrics, ManagerConnectionMetrics::getReconnectAttempts)
+                .tags(tags).register(registry);
+        FunctionCounter.builder(PREFIX + "reconnects", metrics, ManagerConnectionMetrics::getReconnects)
+                .tags(tags).register(registry);
+        Gauge.builder(PREFIX + "actions.pending", metrics, ManagerConnectionMetrics::getPendingActions)
+                .description("Actions sent and still waiting for their response").tags(tags).register(registry);
+
+        final ManagerEventQueueStatistics queue = metrics.getEventQueueStatistics();
+        Gauge.builder(PREFIX + "queue.depth", queue, ManagerEventQueueStatistics::getDepth)
+                .tags(tags).register(registry);
+        Gauge.builder(PREFIX + "queue.capacity", queue, ManagerEventQueueStatistics::getCapacity)
+                .tags(tags).register(registry);
+        FunctionCounter.builder(PREFIX + "queue.spilled", queue, ManagerEventQueueStatistics::getSpilledCount)
+                .tags(tags).register(registry);
+
+        bindLatency(registry, PREFIX + "parse", metrics.getParseTime(), tags);
+        bindLatency(registry, PREFIX + "build", metrics.getBuildTime(), tags);
+        bindLatency(registry, PREFIX + "queue.wait", metrics.getQueueWaitTime(), tags);
+
+        registries.putIfAbsent(registry, ConcurrentHashMap.newKeySet());
+        refresh();
+        synchronized (this) {
+            if (refresher == null) {
+                refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                    final Thread thread = new Thread(r, "ManagerConnectionMetricsBinder");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                refresher.scheduleWithFixedDelay(this::refresh, REFRESH_SECONDS, REFRESH_SECONDS,
+                        TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Takes a new snapshot of the counts per event class and registers the meters of the event classes,
+     * listeners and actions seen since the last refresh in all bound registries.
+     */
+    synchronized void refresh() {
+        eventsReceived.update(metrics);
+        eventsBuilt.update(metrics);
+        eventsDropped.update(metrics);
+        final Map<String, LatencyStatistics> listenerTimes = metrics.getListenerTimes();
+        final Map<String, LatencyStatistics> actionRoundTripTimes = metrics.getActionRoundTripTimes();
+
+        for (Map.Entry<MeterRegistry, Set<String>> bound : registries.entrySet()) {
+            final MeterRegistry registry = bound.getKey();
+            final Set<String> registered = bound.getValue();
+            bindClassCounters(registry, registered, eventsReceived);
+            bindClassCounters(registry, registered, eventsBuilt);
+            bindClassCounters(registry, registered, eventsDropped);
+
+            for (Map.Entry<String, LatencyStatistics> entry : listenerTimes.entrySet()) {
+                if (registered.add("listener:" + entry.getKey())) {
+                    bindLatency(registry, PREFIX + "listener", entry.getValue(),
+                            tags.and("listener", entry.getKey()));
+                }
+            }
+            for (Map.Entry<String, LatencyStatistics> entry : actionRoundTripTimes.entrySet()) {
+                if (registered.add("action:" + entry.getKey())) {
+                    bindLatency(registry, PREFIX + "action.roundtrip", entry.getValue(),
+                            tags.and("action", entry.getKey()));
+                }
+            }
+        }
+    }
+
+    private void bindClassCounters(MeterRegistry registry, Set<String> registered, ClassCounts counts) {
+        for (Class<?> c : counts.snapshot.keySet()) {
+            if (registered.add(counts.name + ":" + c.getName())) {
+                FunctionCounter.builder(counts.name, counts, s -> s.get(c))
+                        .tags(tags.and("class", c.getName())).register(registry);
+            }
+        }
+    }
+
+    private static void bindLatency(MeterRegistry registry, String name, LatencyStatistics statistics, Tags tags) {
+        FunctionTimer.builder(name, statistics, LatencyStatistics::getCount, LatencyStatistics::getTotalNanos,
+                TimeUnit.NANOSECONDS).tags(tags).register(registry);
+        Gauge.builder(name + ".max", statistics, s -> s.getMaxNanos() / 1e9)
+                .baseUnit("seconds").tags(tags).register(registry);
+        for (double percentile : PERCENTILES) {
+            Gauge.builder(name + ".percentile", statistics, s -> s.getValueAtPercentile(percentile) / 1e9)
+                    .baseUnit("seconds").tags(tags.and("percentile", String.valueOf(percentile / 100)))
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+        registries.clear();
+    }
+
+    /**
+     * The counts per event class as of the last refresh.
+     */
+    private static final class ClassCounts {
+        private final String name;
+        private final Function<ManagerConnectionMetrics, Map<Class<?>, Long>> source;
+        private volatile Map<Class<?>, Long> snapshot = Collections.emptyMap();
+
+        ClassCounts(String name, Function<ManagerConnectionMetrics, Map<Class<?>, Long>> source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        void update(ManagerConnectionMetrics metrics) {
+            snapshot = source.apply(metrics);
+        }
+
+        double get(Class<?> c) {
+            return snapshot.getOrDefault(c, 0L);
+        }
+    }
+}